@@ -36,6 +36,9 @@ import FileManagerPathBreadcrumbs from "./FileManagerPathBreadcrumbs";
 import {getPathParts} from "./fileManagerUtils";
 import {FolderSizeBadge} from "./folderBadges";
 
+// Number of files and folders loaded at a time
+const FOLDER_PAGE_SIZE = 500;
+
 const FileManagerContent = ({
     rootFolder,
     path,
@@ -58,19 +61,23 @@ const FileManagerContent = ({
   const [uploadError, setUploadError] = useState(null);
   const [newFolderModalIsOpen, setNewFolderModalIsOpen] = useState(false);
   const [newFolderError, setNewFolderError] = useState(null);
+  const [nextToken, setNextToken] = useState(null);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
 
-  // Load the folder
+  // Load the first page of the folder
   useEffect(() => {
     setIsLoading(true);
     setError(null);
-    axios.get("/api/internal/data-files", {
+    axios.get("/api/internal/data-files/page", {
       params: {
         path: currentPath,
-        folderId: rootFolder.id
+        folderId: rootFolder.id,
+        pageSize: FOLDER_PAGE_SIZE
       }
     })
     .then(response => {
-      setFolder(response.data);
+      setFolder(response.data.folder);
+      setNextToken(response.data.nextToken);
     })
     .catch(error => {
       console.error(error);
@@ -114,6 +121,37 @@ const FileManagerContent = ({
     setRefreshCount(refreshCount + 1);
   }
 
+  /**
+   * Loads the next page of the current folder, and appends its contents to the folder.
+   */
+  const handleLoadMore = () => {
+    setIsLoadingMore(true);
+    axios.get("/api/internal/data-files/page", {
+      params: {
+        path: currentPath,
+        folderId: rootFolder.id,
+        cursor: nextToken,
+        pageSize: FOLDER_PAGE_SIZE
+      }
+    })
+    .then(response => {
+      const page = response.data.folder;
+      setFolder(prevFolder => ({
+        ...prevFolder,
+        files: [...prevFolder.files, ...page.files],
+        subFolders: [...prevFolder.subFolders, ...page.subFolders]
+      }));
+      setNextToken(response.data.nextToken);
+    })
+    .catch(error => {
+      console.error(error);
+      notyf.open({message: "Error loading folder contents.", type: "error"});
+    })
+    .finally(() => {
+      setIsLoadingMore(false);
+    });
+  }
+
   const handleUploadSuccess = () => {
     setUploadError(null);
     setUploadModalIsOpen(false);
@@ -160,11 +198,26 @@ const FileManagerContent = ({
     );
   } else if (!isLoading && folder) {
     content = (
-        <FileManagerTable
-          folder={folder}
-          handlePathChange={handlePathUpdate}
-          rootFolder={rootFolder}
-        />
+        <>
+          <FileManagerTable
+            folder={folder}
+            handlePathChange={handlePathUpdate}
+            rootFolder={rootFolder}
+          />
+          {
+            nextToken && (
+              <div className="d-flex justify-content-center mt-3">
+                <Button
+                    variant="outline-primary"
+                    disabled={isLoadingMore}
+                    onClick={handleLoadMore}
+                >
+                  {isLoadingMore ? "Loading..." : "Load more"}
+                </Button>
+              </div>
+            )
+          }
+        </>
     );
   }
 
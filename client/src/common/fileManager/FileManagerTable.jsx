@@ -191,9 +191,13 @@ const FileManagerTable = ({
                   d.type === "folder" && (
                     <>
 
+                      <Dropdown.Item onClick={() => window.open("/api/internal/data-files/download-folder?folderId=" + rootFolder.id + "&path=" + encodeURIComponent(d.path))}>
+                        <Download className="align-middle me-2" size={18} /> Download as ZIP
+                      </Dropdown.Item>
+
                       {
                         rootFolder.storageDrive && rootFolder.storageDrive.driveType
-                        && ["ONEDRIVE", "LOCAL"].includes(rootFolder.storageDrive.driveType) ? (
+                        && ["ONEDRIVE", "LOCAL", "S3"].includes(rootFolder.storageDrive.driveType) ? (
                             <Dropdown.Item onClick={() => {
                                 setSelectedItem(d);
                                 setRenameFolderModalIsOpen(true);
@@ -23,7 +23,7 @@ import PropTypes from "prop-types";
 import {DismissableAlert} from "../errors";
 import {FormGroup} from "../forms/common";
 import NotyfContext from "../../context/NotyfContext";
-import axios from "axios";
+import {uploadFileToFolder} from "./fileManagerUtils";
 import {LoadingOverlay} from "../loading";
 
 const QueuedFile = ({file, handleRemove}) => {
@@ -91,11 +91,6 @@ const FileManagerUploadModal = ({
     acceptedFiles,
     fileRejections
   } = useDropzone({
-    maxSize: 1024 * 1024 * 20,
-    onDropRejected: (rejectedFiles) => notyf.open({
-      type: 'error',
-      message: `File ${rejectedFiles[0].file.name} is too large. The limit is 20 MB`
-    }),
     noClick: true,
   })
 
@@ -121,11 +116,7 @@ const FileManagerUploadModal = ({
     console.debug("Files", queuedFiles);
     setIsSubmitting(true);
     const requests = queuedFiles.map(file => {
-      const data = new FormData();
-      data.append("file", file);
-      data.append("folderId", folderId);
-      data.append("path", path);
-      return axios.post('/api/internal/data-files/upload', data)
+      return uploadFileToFolder(file, folderId, path)
       .then(() => {
         return {
           ...file,
@@ -253,7 +244,9 @@ const FileManagerUploadModal = ({
 
             </div>
 
-            <span className={"text-muted"}>Max file size: 20MB</span>
+            <span className={"text-muted"}>
+              Max file size: 20MB, unless the storage drive supports direct uploads
+            </span>
           </FormGroup>
 
         </Modal.Body>
@@ -19,6 +19,7 @@ import {faFolder, faServer} from "@fortawesome/free-solid-svg-icons";
 import {faAws, faMicrosoft} from "@fortawesome/free-brands-svg-icons";
 import React from "react";
 import PropTypes from "prop-types";
+import axios from "axios";
 
 export const DataSourceIcon = ({driveType}) => {
   switch (driveType) {
@@ -85,4 +86,92 @@ export const getPathParts = (path, rootPath) => {
     parts.isBrowsable = parts.isChild || parts.isRoot;
     return parts;
   })
-}
\ No newline at end of file
+}
+
+// Maximum size of files uploaded through the application, rather than directly to storage
+export const MAX_PROXIED_UPLOAD_SIZE = 1024 * 1024 * 20;
+
+// Number of S3 multipart upload parts sent at once
+const DIRECT_UPLOAD_CONCURRENCY = 4;
+
+const putPart = async (url, body, headers = {}) => {
+  // fetch is used rather than axios, so that application headers are not sent to storage
+  const response = await fetch(url, {method: "PUT", body, headers});
+  if (!response.ok) {
+    throw new Error(`Upload of part failed with status ${response.status}`);
+  }
+  return response;
+}
+
+const sendS3Parts = async (file, upload) => {
+  const completed = [];
+  const queue = [...upload.parts];
+  const worker = async () => {
+    while (queue.length > 0) {
+      const part = queue.shift();
+      const blob = file.slice(part.offset, part.offset + part.length);
+      const response = await putPart(part.url, blob);
+      completed.push({partNumber: part.partNumber, etag: response.headers.get("ETag")});
+    }
+  };
+  const workers = Array.from({length: DIRECT_UPLOAD_CONCURRENCY}, () => worker());
+  await Promise.all(workers);
+  return completed;
+}
+
+const sendOneDriveFragments = async (file, upload) => {
+  for (const part of upload.parts) {
+    const end = part.offset + part.length - 1;
+    const blob = file.slice(part.offset, end + 1);
+    await putPart(part.url, blob, {
+      "Content-Range": `bytes ${part.offset}-${end}/${file.size}`
+    });
+  }
+  return [];
+}
+
+/**
+ * Uploads a file to a storage folder. Files are sent directly to the storage service when the
+ * drive supports it, so that they do not pass through the application, and otherwise are sent
+ * through the application's upload endpoint.
+ */
+export const uploadFileToFolder = async (file, folderId, path) => {
+  const params = {folderId, path, fileName: file.name, size: file.size};
+  let upload;
+  try {
+    upload = (await axios.post("/api/internal/data-files/direct-upload", null, {params})).data;
+  } catch (err) {
+    if (err.response && err.response.status === 400) {
+      if (file.size > MAX_PROXIED_UPLOAD_SIZE) {
+        throw new Error(`File ${file.name} is too large. The limit is 20 MB`);
+      }
+      const data = new FormData();
+      data.append("file", file);
+      data.append("folderId", folderId);
+      data.append("path", path);
+      return (await axios.post("/api/internal/data-files/upload", data)).data;
+    }
+    throw err;
+  }
+
+  try {
+    const parts = upload.type === "S3_MULTIPART"
+        ? await sendS3Parts(file, upload)
+        : await sendOneDriveFragments(file, upload);
+    const completion = {
+      uploadId: upload.uploadId,
+      fileName: file.name,
+      size: file.size,
+      parts
+    };
+    return (await axios.post("/api/internal/data-files/direct-upload/complete", completion, {
+      params: {folderId, path}
+    })).data;
+  } catch (err) {
+    axios.delete("/api/internal/data-files/direct-upload", {
+      params: {folderId, path, fileName: file.name, uploadId: upload.uploadId}
+    })
+    .catch(e => console.warn("Failed to cancel upload", e));
+    throw err;
+  }
+}
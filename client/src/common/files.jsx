@@ -64,14 +64,28 @@ const DEfAULT_ERROR_MESSAGE = 'Failed to load files folder.';
 
 const Folder = props => {
 
-  const {folder} = props;
+  const {loadFolder} = props;
   const folderFileKey = props.folderFileKey || DEFAULT_FOLDER_FILE_KEY;
   const depth = props.depth || 0;
   const [expanded, setExpanded] = React.useState(false);
+  const [folder, setFolder] = React.useState(props.folder);
+  const [isLoading, setIsLoading] = React.useState(false);
+
+  // Folders without loaded contents are fetched the first time they are opened
+  const handleToggle = () => {
+    if (!expanded && loadFolder && !folder.contentsLoaded && !isLoading) {
+      setIsLoading(true);
+      loadFolder(folder)
+      .then(loaded => setFolder(loaded))
+      .catch(e => console.error(e))
+      .finally(() => setIsLoading(false));
+    }
+    setExpanded(!expanded);
+  };
 
   return (
       <li>
-        <a onClick={() => setExpanded(!expanded)}>
+        <a onClick={handleToggle}>
           <FontAwesomeIcon
               icon={expanded ? faCaretDown : faCaretRight}
               style={{width: "10px"}}
@@ -80,9 +94,14 @@ const Folder = props => {
           <FontAwesomeIcon icon={faFolder}/> {folder.name}
         </a>
         <div hidden={!expanded}>
-          <FolderContents folder={folder}
-                          depth={depth + 1}
-                          folderFileKey={folderFileKey}/>
+          {
+            isLoading
+                ? <div className="ms-3 text-muted">Loading...</div>
+                : <FolderContents folder={folder}
+                                  depth={depth + 1}
+                                  folderFileKey={folderFileKey}
+                                  loadFolder={loadFolder}/>
+          }
         </div>
       </li>
   )
@@ -91,7 +110,8 @@ const Folder = props => {
 Folder.propTypes = {
   folder: PropTypes.object.isRequired,
   folderFileKey: PropTypes.string,
-  depth: PropTypes.number
+  depth: PropTypes.number,
+  loadFolder: PropTypes.func
 };
 
 const File = ({file}) => {
@@ -112,7 +132,8 @@ const FolderContents = ({
   folder,
   folderFileKey = DEFAULT_FOLDER_FILE_KEY,
   depth,
-  showHeader
+  showHeader,
+  loadFolder
 }) => {
   const subFolders = folder.subFolders
   .sort((a, b) => {
@@ -126,7 +147,7 @@ const FolderContents = ({
   })
   .map((f, i) => {
     return <Folder key={"folder-" + i + "-" + f.name} folder={f} depth={depth}
-                   folderFileKey={folderFileKey}/>
+                   folderFileKey={folderFileKey} loadFolder={loadFolder}/>
   });
 
   const files = folder[folderFileKey]
@@ -172,6 +193,8 @@ const FolderContents = ({
  * @param isError
  * @param isLoaded
  * @param folderFileKey
+ * @param loadFolder optional function returning a promise of a subfolder with its contents loaded,
+ *   called when a subfolder without loaded contents is first opened
  * @returns {*}
  * @constructor
  */
@@ -181,6 +204,7 @@ export const StorageFolderFileList = ({
   isError,
   folderFileKey = DEFAULT_FOLDER_FILE_KEY,
   errorMessage = DEfAULT_ERROR_MESSAGE,
+  loadFolder
 }) => {
 
   if (isError) {
@@ -194,7 +218,7 @@ export const StorageFolderFileList = ({
       );
     } else {
       return <FolderContents folder={folder} depth={3} showHeader={true}
-                             folderFileKey={folderFileKey}/>
+                             folderFileKey={folderFileKey} loadFolder={loadFolder}/>
     }
   } else {
     return <CardLoadingMessage/>;
@@ -41,6 +41,12 @@ const AssayNotebookTabContent = props => {
     });
   }
 
+  const loadFolder = f => {
+    return axios.get(`/api/internal/eln/folder/${f.referenceId}?loadContents=true`,
+        {timeout: 30000})
+    .then(response => response.data);
+  }
+
   return (
       <Card>
         <Card.Body>
@@ -52,6 +58,7 @@ const AssayNotebookTabContent = props => {
                   isError={!!error}
                   errorMessage={error}
                   folderFileKey={'entries'}
+                  loadFolder={loadFolder}
               />
             </Col>
           </Row>
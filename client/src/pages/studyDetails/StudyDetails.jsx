@@ -29,6 +29,7 @@ import {useLocation, useNavigate} from "react-router-dom";
 import StudyDetailHeader from "./StudyDetailsHeader";
 import StudyOverviewTab from "./StudyOverviewTab";
 import StudyFileManagerTab from "./StudyFileManagerTab";
+import StudyProvisioningAlert from "./StudyProvisioningAlert";
 import {useDispatch, useSelector} from "react-redux";
 import {setTab} from "../../redux/tabSlice";
 
@@ -64,6 +65,12 @@ const StudyDetails = ({study, user, features}) => {
             handleAddToCollection={() => setShowCollectionModal(true)}
         />
 
+        <Row>
+          <Col md={12}>
+            <StudyProvisioningAlert study={study} />
+          </Col>
+        </Row>
+
         <Row>
 
           <Col md={12}>
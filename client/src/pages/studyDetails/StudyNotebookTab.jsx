@@ -39,6 +39,12 @@ const StudyNotebookTabContent = props => {
     });
   }
 
+  const loadFolder = f => {
+    return axios.get(`/api/internal/eln/folder/${f.referenceId}?loadContents=true`,
+        {timeout: 30000})
+    .then(response => response.data);
+  }
+
   return (
       <Card>
         <Card.Body>
@@ -50,6 +56,7 @@ const StudyNotebookTabContent = props => {
                   isError={!!error}
                   errorMessage={error}
                   folderFileKey={'entries'}
+                  loadFolder={loadFolder}
               />
             </Col>
           </Row>
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import React, {useContext, useEffect, useRef} from "react";
+import {Alert, Button} from "react-bootstrap";
+import PropTypes from "prop-types";
+import axios from "axios";
+import {FontAwesomeIcon} from "@fortawesome/react-fontawesome";
+import {
+  faExclamationTriangle,
+  faRefresh,
+  faSpinner
+} from "@fortawesome/free-solid-svg-icons";
+import {useMutation, useQuery, useQueryClient} from "@tanstack/react-query";
+import NotyfContext from "../../context/NotyfContext";
+
+const POLL_INTERVAL_MS = 3000;
+
+const stepLabels = {
+  STORAGE_FOLDER: "Storage folder",
+  NOTEBOOK_FOLDER: "ELN folder",
+  NOTEBOOK_ENTRY: "ELN summary entry",
+  GIT_REPOSITORY: "Git repository",
+  ADDITIONAL_FOLDER: "Additional storage folder",
+  S3_FOLDER: "S3 folder",
+};
+
+const isActive = (task) => task.status === "PENDING" || task.status === "RUNNING";
+
+/**
+ * Shows the progress of the background steps that create a new study's storage folders, ELN
+ * folder and other external resources. The steps are polled while any are still running, and
+ * the study is reloaded once they finish, so that the new resources appear on the page.
+ */
+const StudyProvisioningAlert = ({study}) => {
+
+  const queryClient = useQueryClient();
+  const notyf = useContext(NotyfContext);
+  const wasActive = useRef(false);
+
+  const {data: tasks} = useQuery({
+    queryKey: ["studyProvisioning", study.id],
+    queryFn: () => {
+      return axios.get(`/api/internal/study/${study.id}/provisioning`)
+      .then(response => response.data);
+    },
+    refetchInterval: (query) => {
+      const data = query.state.data;
+      return data && data.some(isActive) ? POLL_INTERVAL_MS : false;
+    },
+    placeholderData: []
+  });
+
+  const active = tasks.some(isActive);
+  const failed = tasks.filter(t => t.status === "FAILED");
+
+  useEffect(() => {
+    if (wasActive.current && !active) {
+      queryClient.invalidateQueries({queryKey: ["study"]});
+    }
+    wasActive.current = active;
+  }, [active, queryClient]);
+
+  const retryMutation = useMutation({
+    mutationFn: () => axios.post(`/api/internal/study/${study.id}/provisioning/retry`),
+    onSuccess: (response) => {
+      queryClient.setQueryData(["studyProvisioning", study.id], response.data);
+    },
+    onError: (e) => {
+      console.error(e);
+      notyf.error("Failed to retry study setup");
+    }
+  });
+
+  if (!active && failed.length === 0) return "";
+
+  return (
+      <Alert
+          variant={active ? "info" : "warning"}
+          className={"alert-outline"}
+      >
+        <div className="alert-icon d-flex align-items-center">
+          <FontAwesomeIcon
+              icon={active ? faSpinner : faExclamationTriangle}
+              spin={active}
+              size={"2x"}
+              fixedWidth
+          />
+        </div>
+        <div className="alert-message">
+          <strong className={"text-large"}>
+            {active ? "Study setup in progress" : "Study setup incomplete"}
+          </strong>
+          <br />
+          <ul className={"mb-2"}>
+            {
+              tasks
+              .filter(t => t.status !== "COMPLETED")
+              .map(t => (
+                  <li key={t.id}>
+                    {stepLabels[t.step] || t.step}: {t.status.toLowerCase()}
+                    {t.status === "FAILED" && t.message ? ` (${t.message})` : ""}
+                  </li>
+              ))
+            }
+          </ul>
+          {
+            !active ? (
+                <Button
+                    variant={"warning"}
+                    size={"sm"}
+                    onClick={() => retryMutation.mutate()}
+                    disabled={retryMutation.isPending}
+                >
+                  <FontAwesomeIcon icon={faRefresh} className={"me-2"} />
+                  {retryMutation.isPending ? "Retrying..." : "Retry failed steps"}
+                </Button>
+            ) : ""
+          }
+        </div>
+      </Alert>
+  );
+
+}
+
+StudyProvisioningAlert.propTypes = {
+  study: PropTypes.object.isRequired,
+}
+
+export default StudyProvisioningAlert;
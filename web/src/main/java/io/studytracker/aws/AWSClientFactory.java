@@ -25,9 +25,11 @@ import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 /***
  * Factory methods for creating AWS clients.
@@ -69,7 +71,45 @@ public class AWSClientFactory {
   }
 
   public static S3Client createS3Client(AwsIntegration integration) throws IllegalArgumentException {
+    return createS3Client(integration, null);
+  }
+
+  /**
+   * Creates an S3 client for the integration, using the provided HTTP client configuration. The
+   * HTTP client is owned by the S3 client, and is closed along with it.
+   *
+   * @param integration the AWS integration
+   * @param httpClientBuilder HTTP client configuration, or null to use the SDK default
+   * @return the S3 client
+   * @throws IllegalArgumentException if the integration has no usable credentials
+   */
+  public static S3Client createS3Client(AwsIntegration integration,
+      SdkHttpClient.Builder<?> httpClientBuilder) throws IllegalArgumentException {
     S3ClientBuilder builder = S3Client.builder().region(Region.of(integration.getRegion()));
+    if (httpClientBuilder != null) {
+      builder.httpClientBuilder(httpClientBuilder);
+    }
+    AwsCredentialsProvider credentialsProvider = createCredentialsProvider(integration);
+    if (credentialsProvider != null) {
+      return builder.credentialsProvider(credentialsProvider).build();
+    } else if (integration.isUseIam()) {
+      return builder.build();
+    } else {
+      throw new IllegalArgumentException("Invalid AWS integration configuration: "
+          + integration.getId());
+    }
+  }
+
+  /**
+   * Creates a presigner for generating pre-authenticated S3 request URLs for the integration.
+   *
+   * @param integration the AWS integration
+   * @return the S3 presigner
+   * @throws IllegalArgumentException if the integration has no usable credentials
+   */
+  public static S3Presigner createS3Presigner(AwsIntegration integration)
+      throws IllegalArgumentException {
+    S3Presigner.Builder builder = S3Presigner.builder().region(Region.of(integration.getRegion()));
     AwsCredentialsProvider credentialsProvider = createCredentialsProvider(integration);
     if (credentialsProvider != null) {
       return builder.credentialsProvider(credentialsProvider).build();
@@ -42,11 +42,13 @@ public class AwsIntegrationService implements IntegrationService<AwsIntegration>
 
   private final AwsIntegrationRepository awsIntegrationRepository;
   private final StorageDriveRepository storageDriveRepository;
+  private final S3ClientRegistry s3ClientRegistry;
 
   public AwsIntegrationService(AwsIntegrationRepository awsIntegrationRepository,
-      StorageDriveRepository storageDriveRepository) {
+      StorageDriveRepository storageDriveRepository, S3ClientRegistry s3ClientRegistry) {
     this.awsIntegrationRepository = awsIntegrationRepository;
     this.storageDriveRepository = storageDriveRepository;
+    this.s3ClientRegistry = s3ClientRegistry;
   }
 
   @Override
@@ -91,7 +93,9 @@ public class AwsIntegrationService implements IntegrationService<AwsIntegration>
     i.setAccessKeyId(awsIntegration.getAccessKeyId());
     i.setSecretAccessKey(awsIntegration.getSecretAccessKey());
     i.setUseIam(awsIntegration.isUseIam());
-    return awsIntegrationRepository.save(i);
+    AwsIntegration updated = awsIntegrationRepository.save(i);
+    s3ClientRegistry.invalidate(updated.getId());
+    return updated;
   }
 
   @Transactional
@@ -105,6 +109,7 @@ public class AwsIntegrationService implements IntegrationService<AwsIntegration>
     i.setSecretAccessKey(null);
     i.setUseIam(false);
     awsIntegrationRepository.save(i);
+    s3ClientRegistry.invalidate(i.getId());
   }
 
   @Override
@@ -120,8 +125,7 @@ public class AwsIntegrationService implements IntegrationService<AwsIntegration>
 
   @Override
   public boolean test(AwsIntegration instance) {
-    try {
-      S3Client s3Client = AWSClientFactory.createS3Client(instance);
+    try (S3Client s3Client = s3ClientRegistry.createClient(instance)) {
       ListBucketsResponse response = s3Client.listBuckets();
       return response.buckets() != null;
     } catch (Exception e) {
@@ -134,7 +138,15 @@ public class AwsIntegrationService implements IntegrationService<AwsIntegration>
 
   public List<String> listAvailableBuckets(AwsIntegration integration) {
     LOGGER.debug("Listing available buckets");
-    S3Client s3Client = AWSClientFactory.createS3Client(integration);
+    if (integration.getId() != null) {
+      return listBuckets(s3ClientRegistry.getClient(integration));
+    }
+    try (S3Client s3Client = s3ClientRegistry.createClient(integration)) {
+      return listBuckets(s3Client);
+    }
+  }
+
+  private List<String> listBuckets(S3Client s3Client) {
     return s3Client.listBuckets().buckets().stream()
         .map(Bucket::name)
         .collect(Collectors.toList());
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.aws;
+
+import io.studytracker.model.AwsIntegration;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Registry of long-lived, shared {@link S3Client} instances, one per AWS integration. Each client
+ * keeps a pooled set of HTTP connections, so that S3 operations reuse open connections instead
+ * of paying for a new connection pool and TLS handshake every time.
+ *
+ * <p>Clients are keyed by integration ID and version, where the version is the integration's
+ * last modification time. A client is replaced as soon as the integration is modified, including
+ * on other application instances sharing the same database, and can be invalidated explicitly
+ * when an integration is updated or removed. Replaced clients are closed after a grace period,
+ * so that requests already using them can complete, and all clients are closed on shutdown.
+ */
+@Component
+public class S3ClientRegistry implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3ClientRegistry.class);
+
+  @Value("${aws.s3.client.max-connections:50}")
+  private int maxConnections;
+
+  @Value("${aws.s3.client.connection-timeout-ms:5000}")
+  private long connectionTimeoutMs;
+
+  @Value("${aws.s3.client.socket-timeout-ms:60000}")
+  private long socketTimeoutMs;
+
+  @Value("${aws.s3.client.connection-max-idle-ms:60000}")
+  private long connectionMaxIdleMs;
+
+  @Value("${aws.s3.client.retired-close-delay-ms:60000}")
+  private long retiredCloseDelayMs;
+
+  @Autowired
+  private TaskScheduler taskScheduler;
+
+  private final Map<Long, CachedClient> clients = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the shared client for a saved integration, creating it if it does not exist, or if
+   * the integration has been modified since the client was created. The returned client must not
+   * be closed by the caller.
+   *
+   * @param integration the saved AWS integration
+   * @return the shared S3 client
+   */
+  public S3Client getClient(AwsIntegration integration) {
+    if (integration.getId() == null) {
+      throw new IllegalArgumentException("Only saved AWS integrations have shared clients");
+    }
+    long version = getVersion(integration);
+    CachedClient cached = clients.get(integration.getId());
+    if (cached != null && cached.version == version) {
+      return cached.client;
+    }
+    return clients.compute(integration.getId(), (id, existing) -> {
+      if (existing != null && existing.version == version) {
+        return existing;
+      }
+      if (existing != null) {
+        LOGGER.info("AWS integration {} has been modified, replacing its S3 client", id);
+        retire(existing);
+      } else {
+        LOGGER.debug("Creating S3 client for AWS integration {}", id);
+      }
+      return new CachedClient(version, createClient(integration));
+    }).client;
+  }
+
+  /**
+   * Creates a new client that is not shared, for example to test unsaved integration settings.
+   * The caller is responsible for closing it.
+   *
+   * @param integration the AWS integration
+   * @return a new S3 client
+   */
+  public S3Client createClient(AwsIntegration integration) {
+    return AWSClientFactory.createS3Client(integration, ApacheHttpClient.builder()
+        .maxConnections(maxConnections)
+        .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+        .tcpKeepAlive(true));
+  }
+
+  /**
+   * Discards the shared client of an integration, so that the next request creates a new client
+   * with the integration's current settings.
+   *
+   * @param integrationId ID of the AWS integration
+   */
+  public void invalidate(Long integrationId) {
+    CachedClient existing = clients.remove(integrationId);
+    if (existing != null) {
+      LOGGER.info("Invalidated S3 client for AWS integration {}", integrationId);
+      retire(existing);
+    }
+  }
+
+  private void retire(CachedClient cached) {
+    taskScheduler.schedule(() -> close(cached.client),
+        Instant.now().plusMillis(retiredCloseDelayMs));
+  }
+
+  private void close(S3Client client) {
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOGGER.warn("Failed to close S3 client", e);
+    }
+  }
+
+  private long getVersion(AwsIntegration integration) {
+    return integration.getUpdatedAt() != null ? integration.getUpdatedAt().getTime() : 0L;
+  }
+
+  @Override
+  public void destroy() {
+    LOGGER.debug("Closing {} S3 clients", clients.size());
+    clients.values().forEach(cached -> close(cached.client));
+    clients.clear();
+  }
+
+  private static class CachedClient {
+
+    private final long version;
+    private final S3Client client;
+
+    CachedClient(long version, S3Client client) {
+      this.version = version;
+      this.client = client;
+    }
+
+  }
+
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.aws;
+
+import io.studytracker.model.AwsIntegration;
+import io.studytracker.model.S3BucketDetails;
+import io.studytracker.model.S3MultipartUpload;
+import io.studytracker.model.S3MultipartUploadStatus;
+import io.studytracker.model.StorageDrive;
+import io.studytracker.model.StorageDrive.DriveType;
+import io.studytracker.repository.AwsIntegrationRepository;
+import io.studytracker.repository.S3MultipartUploadRepository;
+import io.studytracker.repository.StorageDriveRepository;
+import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.exception.StudyStorageException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * Uploads files to S3. Files smaller than the multipart threshold are uploaded with a single
+ * {@code PutObject} request. Larger files are split into parts that are uploaded in parallel on
+ * the {@code s3UploadExecutor}. Each part is a separate request, so transient failures are retried
+ * per part by the S3 client's retry policy, which is the only layer of retries.
+ *
+ * <p>Every multipart upload is recorded in the database when it is created, and the record is
+ * removed once the upload completes. An upload that fails is left in place and marked as failed,
+ * so that uploading a file to the same key again, on any node, resumes it, re-sending only the
+ * parts that are missing or do not match the local file. A failed upload is claimed with a
+ * conditional update before it is resumed, so concurrent uploads of a key never write parts into
+ * the same upload. Recorded uploads that are never finished are aborted once they are older than
+ * the configured maximum age, so that their parts do not accumulate storage charges. Multipart
+ * uploads that were not started here are never resumed or aborted.
+ */
+@Component
+public class S3FileUploader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3FileUploader.class);
+
+  /** S3 rejects multipart uploads with parts smaller than 5 MiB, other than the last part. */
+  private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+  /** S3 allows at most 10,000 parts per multipart upload. */
+  private static final int MAX_PARTS = 10000;
+
+  @Value("${aws.s3.upload.multipart-threshold:67108864}")
+  private long multipartThreshold;
+
+  @Value("${aws.s3.upload.part-size:16777216}")
+  private long partSize;
+
+  @Value("${aws.s3.upload.abandoned-upload-max-age-hours:24}")
+  private long abandonedUploadMaxAgeHours;
+
+  @Autowired
+  @Qualifier("s3UploadExecutor")
+  private Executor executor;
+
+  @Autowired
+  private StorageDriveRepository driveRepository;
+
+  @Autowired
+  private AwsIntegrationRepository integrationRepository;
+
+  @Autowired
+  private S3ClientRegistry s3ClientRegistry;
+
+  @Autowired
+  private S3MultipartUploadRepository uploadRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  /**
+   * Uploads a file to the given bucket and key, using a multipart upload if the file is larger
+   * than the multipart threshold.
+   *
+   * @param client the S3 client
+   * @param bucket the bucket name
+   * @param key the object key
+   * @param file the file to upload
+   * @return the uploaded file record
+   * @throws StudyStorageException if the upload fails
+   */
+  public StorageFile upload(S3Client client, String bucket, String key, File file)
+      throws StudyStorageException {
+    String contentType = MediaTypeFactory.getMediaType(file.getName())
+        .orElse(MediaType.APPLICATION_OCTET_STREAM)
+        .toString();
+    String eTag;
+    if (file.length() < multipartThreshold) {
+      try {
+        PutObjectResponse response = client.putObject(b -> b.bucket(bucket).key(key)
+            .contentType(contentType), RequestBody.fromFile(file));
+        eTag = response.eTag();
+      } catch (Exception e) {
+        throw new StudyStorageException("Failed to upload file: " + key, e);
+      }
+    } else {
+      eTag = multipartUpload(client, bucket, key, file, contentType).eTag();
+    }
+    return createStorageFile(key, file.length(), eTag);
+  }
+
+  private CompleteMultipartUploadResponse multipartUpload(S3Client client, String bucket,
+      String key, File file, String contentType) throws StudyStorageException {
+
+    long fileSize = file.length();
+    long size = getPartSize(fileSize);
+    int partCount = (int) ((fileSize + size - 1) / size);
+
+    // Resume an earlier failed upload of this key, if there is one, or start a new one
+    S3MultipartUpload upload = claimResumableUpload(bucket, key);
+    Map<Integer, Part> uploadedParts = upload != null
+        ? listUploadedParts(client, bucket, key, upload.getUploadId())
+        : null;
+    if (uploadedParts != null) {
+      LOGGER.info("Resuming multipart upload of {} to {}/{}, with {} of {} parts uploaded",
+          file.getName(), bucket, key, uploadedParts.size(), partCount);
+    } else {
+      String createdUploadId;
+      try {
+        createdUploadId = client.createMultipartUpload(b -> b.bucket(bucket).key(key)
+            .contentType(contentType)).uploadId();
+      } catch (Exception e) {
+        throw new StudyStorageException("Failed to start multipart upload: " + key, e);
+      }
+
+      // An upload that cannot be recorded would never be resumed or cleaned up, so it is aborted
+      try {
+        upload = recordUpload(bucket, key, createdUploadId);
+      } catch (Exception e) {
+        client.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(createdUploadId));
+        throw new StudyStorageException("Failed to record multipart upload: " + key, e);
+      }
+      uploadedParts = Map.of();
+      LOGGER.info("Starting multipart upload of {} to {}/{} in {} parts",
+          file.getName(), bucket, key, partCount);
+    }
+    String uploadId = upload.getUploadId();
+    Long recordId = upload.getId();
+
+    // Upload the missing parts in parallel
+    Map<Integer, Part> existingParts = uploadedParts;
+    List<CompletableFuture<CompletedPart>> futures = new ArrayList<>();
+    for (int i = 0; i < partCount; i++) {
+      int partNumber = i + 1;
+      long offset = i * size;
+      long length = Math.min(size, fileSize - offset);
+      Part uploaded = existingParts.get(partNumber);
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        if (uploaded != null && isSamePart(uploaded, file, offset, length)) {
+          return CompletedPart.builder().partNumber(partNumber).eTag(uploaded.eTag()).build();
+        }
+        return uploadPart(client, bucket, key, uploadId, partNumber, file, offset, length);
+      }, executor));
+    }
+
+    List<CompletedPart> completedParts = new ArrayList<>();
+    try {
+      for (CompletableFuture<CompletedPart> future : futures) {
+        completedParts.add(future.join());
+      }
+    } catch (CompletionException e) {
+      futures.forEach(f -> f.cancel(false));
+      markFailed(recordId);
+      LOGGER.warn("Multipart upload {} of {}/{} failed, it can be resumed by uploading the file "
+          + "again", uploadId, bucket, key);
+      throw new StudyStorageException("Failed to upload file: " + key, e.getCause());
+    }
+
+    // Combine the parts into the final object
+    completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+    try {
+      CompleteMultipartUploadResponse response = client.completeMultipartUpload(b -> b
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .multipartUpload(u -> u.parts(completedParts)));
+      LOGGER.info("Completed multipart upload of {} to {}/{}", file.getName(), bucket, key);
+      deleteUpload(recordId);
+      return response;
+    } catch (Exception e) {
+      markFailed(recordId);
+      throw new StudyStorageException("Failed to complete multipart upload: " + key, e);
+    }
+  }
+
+  /**
+   * Returns the part size to use for a multipart upload of a file, increased if necessary so that
+   * the file fits in the maximum number of parts.
+   *
+   * @param fileSize size of the file, in bytes
+   * @return the part size, in bytes
+   */
+  public long getPartSize(long fileSize) {
+    long size = Math.max(partSize, MIN_PART_SIZE);
+    long minimum = (fileSize + MAX_PARTS - 1) / MAX_PARTS;
+    return Math.max(size, minimum);
+  }
+
+  /**
+   * Claims and returns the most recent failed upload of the given key, if one was recorded and is
+   * not old enough to be aborted, so that only one later upload of the key can resume it.
+   */
+  private S3MultipartUpload claimResumableUpload(String bucket, String key) {
+    Date cutoff = Date.from(Instant.now().minus(Duration.ofHours(abandonedUploadMaxAgeHours)));
+    for (S3MultipartUpload failed : uploadRepository
+        .findByBucketAndObjectKeyAndStatusAndCreatedAtAfterOrderByCreatedAtDesc(bucket, key,
+            S3MultipartUploadStatus.FAILED, cutoff)) {
+      Integer claimed = newTransaction().execute(status ->
+          uploadRepository.claim(failed.getId(), new Date()));
+      if (claimed != null && claimed > 0) {
+        return failed;
+      }
+    }
+    return null;
+  }
+
+  private S3MultipartUpload recordUpload(String bucket, String key, String uploadId) {
+    S3MultipartUpload upload = new S3MultipartUpload();
+    upload.setBucket(bucket);
+    upload.setObjectKey(key);
+    upload.setUploadId(uploadId);
+    upload.setStatus(S3MultipartUploadStatus.UPLOADING);
+    return newTransaction().execute(status -> uploadRepository.save(upload));
+  }
+
+  /**
+   * Marks an upload as failed, so that it can be resumed. Failures are logged rather than thrown,
+   * so that the upload error is reported instead, and the upload is still aborted once it is old.
+   */
+  private void markFailed(Long recordId) {
+    try {
+      newTransaction().executeWithoutResult(status ->
+          uploadRepository.findById(recordId).ifPresent(upload -> {
+            upload.setStatus(S3MultipartUploadStatus.FAILED);
+            uploadRepository.save(upload);
+          }));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to record failed multipart upload {}", recordId, e);
+    }
+  }
+
+  private void deleteUpload(Long recordId) {
+    try {
+      newTransaction().executeWithoutResult(status -> uploadRepository.deleteById(recordId));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to remove multipart upload record {}", recordId, e);
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate;
+  }
+
+  /**
+   * Lists the parts already uploaded in a multipart upload, or returns null if the upload no
+   * longer exists or cannot be read, in which case a new upload is started instead. The record of
+   * the unreadable upload is left to be aborted once it is old.
+   */
+  private Map<Integer, Part> listUploadedParts(S3Client client, String bucket, String key,
+      String uploadId) {
+    try {
+      return client.listPartsPaginator(b -> b.bucket(bucket).key(key).uploadId(uploadId))
+          .parts()
+          .stream()
+          .collect(Collectors.toMap(Part::partNumber, Function.identity()));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to list parts of multipart upload {} of {}/{}, starting a new upload",
+          uploadId, bucket, key, e);
+      return null;
+    }
+  }
+
+  private CompletedPart uploadPart(S3Client client, String bucket, String key, String uploadId,
+      int partNumber, File file, long offset, long length) {
+    UploadPartResponse response = client.uploadPart(b -> b
+            .bucket(bucket)
+            .key(key)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .contentLength(length),
+        RequestBody.fromContentProvider(() -> openPart(file, offset, length), length,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE));
+    LOGGER.debug("Uploaded part {} of {}/{}", partNumber, bucket, key);
+    return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+  }
+
+  /**
+   * Returns true if a part uploaded earlier matches the same byte range of the local file, by
+   * comparing its size and its ETag, which S3 sets to the MD5 digest of the part contents.
+   */
+  private boolean isSamePart(Part part, File file, long offset, long length) {
+    if (part.size() == null || part.size() != length || part.eTag() == null) {
+      return false;
+    }
+    try (InputStream in = openPart(file, offset, length)) {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+      String md5 = HexFormat.of().formatHex(digest.digest());
+      return part.eTag().replace("\"", "").equalsIgnoreCase(md5);
+    } catch (IOException | UncheckedIOException | NoSuchAlgorithmException e) {
+      return false;
+    }
+  }
+
+  private static InputStream openPart(File file, long offset, long length) {
+    try {
+      FileChannel channel = FileChannel.open(file.toPath());
+      try {
+        channel.position(offset);
+        return BoundedInputStream.builder()
+            .setInputStream(Channels.newInputStream(channel))
+            .setMaxCount(length)
+            .get();
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read file: " + file, e);
+    }
+  }
+
+  static StorageFile createStorageFile(String key, long size, String eTag) {
+    String[] bits = key.split("/");
+    StorageFile storageFile = new StorageFile();
+    storageFile.setFileId(eTag);
+    storageFile.setPath(key);
+    storageFile.setName(bits[bits.length - 1]);
+    storageFile.setSize(size);
+    storageFile.setLastModified(new Date());
+    storageFile.setDownloadable(true);
+    return storageFile;
+  }
+
+  /**
+   * Aborts the multipart uploads recorded by this uploader, in all registered S3 buckets, that
+   * were started more than the maximum age ago and never completed.
+   */
+  @Scheduled(
+      initialDelayString = "${aws.s3.upload.cleanup-interval-ms:3600000}",
+      fixedDelayString = "${aws.s3.upload.cleanup-interval-ms:3600000}"
+  )
+  public void abortAbandonedUploads() {
+    Date cutoff = Date.from(Instant.now().minus(Duration.ofHours(abandonedUploadMaxAgeHours)));
+    for (StorageDrive drive : driveRepository.findByDriveType(DriveType.S3)) {
+      if (!drive.isActive() || !(drive.getDetails() instanceof S3BucketDetails)) {
+        continue;
+      }
+      S3BucketDetails details = (S3BucketDetails) drive.getDetails();
+      Optional<AwsIntegration> integration =
+          integrationRepository.findById(details.getAwsIntegrationId());
+      if (integration.isEmpty() || !integration.get().isActive()) {
+        continue;
+      }
+      try {
+        abortAbandonedUploads(s3ClientRegistry.getClient(integration.get()),
+            details.getBucketName(), cutoff);
+      } catch (Exception e) {
+        LOGGER.warn("Failed to clean up multipart uploads in bucket {}",
+            details.getBucketName(), e);
+      }
+    }
+  }
+
+  private void abortAbandonedUploads(S3Client client, String bucket, Date cutoff) {
+    for (S3MultipartUpload upload : uploadRepository.findByBucketAndCreatedAtBefore(bucket,
+        cutoff)) {
+      LOGGER.info("Aborting abandoned multipart upload {} of {}/{}, started {}",
+          upload.getUploadId(), bucket, upload.getObjectKey(), upload.getCreatedAt());
+      try {
+        client.abortMultipartUpload(b -> b.bucket(bucket).key(upload.getObjectKey())
+            .uploadId(upload.getUploadId()));
+      } catch (NoSuchUploadException e) {
+        LOGGER.debug("Multipart upload {} no longer exists", upload.getUploadId());
+      }
+      deleteUpload(upload.getId());
+    }
+  }
+
+}
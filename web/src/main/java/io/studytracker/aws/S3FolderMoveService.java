@@ -0,0 +1,339 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.aws;
+
+import io.studytracker.model.AwsIntegration;
+import io.studytracker.model.S3BucketDetails;
+import io.studytracker.model.S3FolderMove;
+import io.studytracker.model.S3FolderMoveStatus;
+import io.studytracker.model.StorageDrive;
+import io.studytracker.repository.AwsIntegrationRepository;
+import io.studytracker.repository.S3FolderMoveRepository;
+import io.studytracker.repository.StorageDriveRepository;
+import io.studytracker.storage.cache.StorageMetadataCache;
+import io.studytracker.storage.exception.StudyStorageDuplicateException;
+import io.studytracker.storage.exception.StudyStorageException;
+import io.studytracker.storage.exception.StudyStorageNotFoundException;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Runs S3 folder moves as tracked background jobs on the {@code s3MoveExecutor} pool. Each move
+ * is recorded in the database in the transaction of the request that starts it, and only queued
+ * once that transaction commits, so a rename that rolls back never moves any objects. Its progress
+ * is saved after every batch, so that a move that fails part way through, or whose node stops,
+ * is resumed rather than leaving its objects split between two prefixes. Failed moves are retried
+ * after a delay, up to a maximum number of attempts, and moves that have stopped reporting
+ * progress are taken over by any node once they are stale. Cached storage metadata for both
+ * prefixes is invalidated whenever a move attempt finishes, whether or not it succeeded.
+ */
+@Service
+public class S3FolderMoveService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3FolderMoveService.class);
+
+  private static final Set<S3FolderMoveStatus> UNFINISHED_STATUSES = EnumSet.of(
+      S3FolderMoveStatus.PENDING, S3FolderMoveStatus.RUNNING, S3FolderMoveStatus.FAILED);
+
+  @Autowired private S3FolderMoveRepository moveRepository;
+
+  @Autowired private StorageDriveRepository driveRepository;
+
+  @Autowired private AwsIntegrationRepository integrationRepository;
+
+  @Autowired private S3ClientRegistry s3ClientRegistry;
+
+  @Autowired private S3PrefixMover s3PrefixMover;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private StorageMetadataCache storageMetadataCache;
+
+  @Autowired
+  @Qualifier("s3MoveExecutor")
+  private Executor executor;
+
+  @Value("${aws.s3.move.max-attempts:5}")
+  private int maxAttempts;
+
+  @Value("${aws.s3.move.retry-delay-ms:60000}")
+  private long retryDelayMs;
+
+  @Value("${aws.s3.move.stale-timeout-ms:900000}")
+  private long staleTimeoutMs;
+
+  private final Set<Long> queuedMoves = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Records a move of every object under the source prefix to the target prefix, and queues it to
+   * run in the background once the current transaction commits. Repeating a move that has not
+   * finished resumes it, and a move that has already completed is not repeated. A move onto a
+   * prefix that already holds objects, or onto or out of a folder that another unfinished move is
+   * using, is refused. Moves on the same drive are registered one at a time, by locking the
+   * drive's record until the transaction ends, which holds across nodes.
+   *
+   * @param drive the S3 bucket drive
+   * @param client the S3 client for the bucket
+   * @param sourcePrefix the prefix to move, ending in a slash
+   * @param targetPrefix the new prefix, ending in a slash
+   * @return the move record
+   * @throws StudyStorageDuplicateException if the target folder already exists
+   * @throws StudyStorageNotFoundException if the source folder does not exist
+   * @throws StudyStorageException if the move conflicts with another unfinished move
+   */
+  @Transactional
+  public S3FolderMove submit(StorageDrive drive, S3Client client, String sourcePrefix,
+      String targetPrefix) throws StudyStorageException {
+    String bucket = ((S3BucketDetails) drive.getDetails()).getBucketName();
+    if (targetPrefix.startsWith(sourcePrefix)) {
+      throw new StudyStorageException("Cannot move folder " + sourcePrefix + " into "
+          + targetPrefix);
+    }
+
+    // Check the folders in S3 before locking the drive, so that the lock is never held while
+    // waiting on S3
+    boolean sourceExists = prefixExists(client, bucket, sourcePrefix);
+    boolean targetExists = prefixExists(client, bucket, targetPrefix);
+    driveRepository.lockById(drive.getId());
+
+    // An unfinished move of the same folder to the same place is resumed
+    S3FolderMove existing = null;
+    for (S3FolderMove move : moveRepository.findByStorageDriveIdAndStatusIn(drive.getId(),
+        UNFINISHED_STATUSES)) {
+      if (move.getSourcePrefix().equals(sourcePrefix)
+          && move.getTargetPrefix().equals(targetPrefix)) {
+        existing = move;
+      } else if (overlaps(move, sourcePrefix) || overlaps(move, targetPrefix)) {
+        throw new StudyStorageException("Folder " + move.getSourcePrefix()
+            + " is still being moved to " + move.getTargetPrefix());
+      }
+    }
+    if (existing != null) {
+      LOGGER.info("Resuming move {} of {} to {} in bucket {}", existing.getId(), sourcePrefix,
+          targetPrefix, bucket);
+      if (existing.getStatus() == S3FolderMoveStatus.FAILED) {
+        existing.setStatus(S3FolderMoveStatus.PENDING);
+        existing.setAttempts(0);
+        existing = moveRepository.save(existing);
+      }
+      queueAfterCommit(existing.getId());
+      return existing;
+    }
+
+    if (!sourceExists) {
+      return moveRepository.findByStorageDriveIdAndSourcePrefixAndTargetPrefixAndStatus(
+              drive.getId(), sourcePrefix, targetPrefix, S3FolderMoveStatus.COMPLETED)
+          .stream()
+          .findFirst()
+          .orElseThrow(() -> new StudyStorageNotFoundException("Folder not found: "
+              + sourcePrefix));
+    }
+    if (targetExists) {
+      throw new StudyStorageDuplicateException("A folder already exists at: " + targetPrefix);
+    }
+
+    S3FolderMove move = new S3FolderMove();
+    move.setStorageDriveId(drive.getId());
+    move.setSourcePrefix(sourcePrefix);
+    move.setTargetPrefix(targetPrefix);
+    move.setStatus(S3FolderMoveStatus.PENDING);
+    S3FolderMove saved = moveRepository.save(move);
+    LOGGER.info("Registered move {} of {} to {} in bucket {}", saved.getId(), sourcePrefix,
+        targetPrefix, bucket);
+    queueAfterCommit(saved.getId());
+    return saved;
+  }
+
+  public Optional<S3FolderMove> findById(Long id) {
+    return moveRepository.findById(id);
+  }
+
+  /**
+   * Queues a move once the current transaction commits, so that it only runs if the changes that
+   * depend on it, such as updated folder references, are saved.
+   */
+  private void queueAfterCommit(Long moveId) {
+    Date pendingBefore = new Date(System.currentTimeMillis() + staleTimeoutMs);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        queue(moveId, pendingBefore);
+      }
+    });
+  }
+
+  /**
+   * Returns true if the prefix is inside, or contains, either of the move's prefixes.
+   */
+  private static boolean overlaps(S3FolderMove move, String prefix) {
+    return prefix.startsWith(move.getSourcePrefix()) || move.getSourcePrefix().startsWith(prefix)
+        || prefix.startsWith(move.getTargetPrefix()) || move.getTargetPrefix().startsWith(prefix);
+  }
+
+  private boolean prefixExists(S3Client client, String bucket, String prefix)
+      throws StudyStorageException {
+    try {
+      return client.listObjectsV2(b -> b.bucket(bucket).prefix(prefix).maxKeys(1))
+          .keyCount() > 0;
+    } catch (Exception e) {
+      throw new StudyStorageException("Failed to look up folder: " + prefix, e);
+    }
+  }
+
+  /**
+   * Queues unfinished moves that are due to be run: pending or running moves that have not been
+   * updated within the stale timeout, and failed moves that have waited out the retry delay and
+   * have attempts remaining.
+   */
+  @Scheduled(
+      initialDelayString = "${aws.s3.move.sweep-interval-ms:60000}",
+      fixedDelayString = "${aws.s3.move.sweep-interval-ms:60000}"
+  )
+  public void resumeMoves() {
+    long now = System.currentTimeMillis();
+    Date staleBefore = new Date(now - staleTimeoutMs);
+    Date retryBefore = new Date(now - retryDelayMs);
+    for (S3FolderMove move : moveRepository.findByStatusIn(UNFINISHED_STATUSES)) {
+      boolean due = move.getUpdatedAt() == null
+          || (move.getStatus() == S3FolderMoveStatus.FAILED
+              ? move.getAttempts() < maxAttempts && move.getUpdatedAt().before(retryBefore)
+              : move.getUpdatedAt().before(staleBefore));
+      if (due) {
+        queue(move.getId(), staleBefore);
+      }
+    }
+  }
+
+  /**
+   * Moves that were interrupted when the application last stopped are resumed once they are
+   * stale, since another node may still be running them.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void resumeInterruptedMoves() {
+    resumeMoves();
+  }
+
+  private void queue(Long moveId, Date pendingBefore) {
+    if (!queuedMoves.add(moveId)) {
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          runMove(moveId, pendingBefore);
+        } finally {
+          queuedMoves.remove(moveId);
+        }
+      });
+    } catch (RuntimeException e) {
+      queuedMoves.remove(moveId);
+      LOGGER.warn("Failed to queue S3 folder move {}, it will be retried", moveId, e);
+    }
+  }
+
+  private void runMove(Long moveId, Date pendingBefore) {
+    long now = System.currentTimeMillis();
+    Integer claimed = newTransaction().execute(status -> moveRepository.claim(moveId,
+        new Date(now), pendingBefore, new Date(now - staleTimeoutMs),
+        new Date(now - retryDelayMs), maxAttempts));
+    if (claimed == null || claimed == 0) {
+      return;
+    }
+    S3FolderMove move = moveRepository.findById(moveId).orElse(null);
+    if (move == null) {
+      return;
+    }
+    long previouslyMoved = move.getMovedObjects();
+    try {
+      StorageDrive drive = driveRepository.findById(move.getStorageDriveId())
+          .orElseThrow(() -> new StudyStorageNotFoundException("Storage drive not found: "
+              + move.getStorageDriveId()));
+      S3BucketDetails details = (S3BucketDetails) drive.getDetails();
+      AwsIntegration integration = integrationRepository.findById(details.getAwsIntegrationId())
+          .orElseThrow(() -> new StudyStorageNotFoundException("Storage drive "
+              + drive.getId() + " not associated with AWS integration"));
+      S3Client client = s3ClientRegistry.getClient(integration);
+      long moved = s3PrefixMover.move(client, details.getBucketName(), move.getSourcePrefix(),
+          move.getTargetPrefix(), count -> newTransaction().execute(status ->
+              moveRepository.updateProgress(moveId, previouslyMoved + count, new Date())));
+      updateMove(moveId, m -> {
+        m.setStatus(S3FolderMoveStatus.COMPLETED);
+        m.setMovedObjects(previouslyMoved + moved);
+        m.setCompletedAt(new Date());
+        m.setMessage(null);
+      });
+      LOGGER.info("Completed move {} of {} to {} ({} objects)", moveId, move.getSourcePrefix(),
+          move.getTargetPrefix(), moved);
+    } catch (Exception e) {
+      LOGGER.error("Move {} of {} to {} failed on attempt {} of {}", moveId,
+          move.getSourcePrefix(), move.getTargetPrefix(), move.getAttempts(), maxAttempts, e);
+      updateMove(moveId, m -> {
+        m.setStatus(S3FolderMoveStatus.FAILED);
+        m.setMessage(StringUtils.abbreviate("Move failed: " + e.getMessage(), 2048));
+      });
+    } finally {
+      // Objects may have moved even if the move failed part way through
+      storageMetadataCache.invalidate(move.getStorageDriveId(), move.getSourcePrefix());
+      storageMetadataCache.invalidate(move.getStorageDriveId(), move.getTargetPrefix());
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate;
+  }
+
+  /**
+   * Applies an update to a move record in a new transaction, so that the state of the move is
+   * saved as soon as it changes.
+   */
+  private void updateMove(Long moveId, Consumer<S3FolderMove> update) {
+    try {
+      newTransaction().executeWithoutResult(status ->
+          moveRepository.findById(moveId).ifPresent(move -> {
+            update.accept(move);
+            moveRepository.save(move);
+          }));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update S3 folder move {}: {}", moveId, e.getMessage());
+    }
+  }
+
+}
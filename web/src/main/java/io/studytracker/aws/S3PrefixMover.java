@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.aws;
+
+import io.studytracker.storage.exception.StudyStorageException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Moves every object under one S3 key prefix to another prefix in the same bucket, which is how
+ * S3 folders are renamed and moved. Objects are copied server-side, in parallel on the
+ * {@code s3CopyExecutor}, with objects larger than the multipart threshold copied in parts. Each
+ * batch of up to 1,000 listed objects is deleted from the source prefix with a single
+ * {@code DeleteObjects} request once all of its copies have succeeded. Transient request failures
+ * are retried by the S3 client's retry policy.
+ *
+ * <p>Because source objects are only removed after they have been copied, the objects remaining
+ * under the source prefix are always the ones still to be moved. A move that is interrupted can
+ * therefore be resumed by running it again, which re-copies at most the one batch that was in
+ * progress.
+ */
+@Component
+public class S3PrefixMover {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3PrefixMover.class);
+
+  /** S3 returns, and deletes, at most 1,000 keys per request. */
+  private static final int BATCH_SIZE = 1000;
+
+  /** S3 allows at most 10,000 parts per multipart upload. */
+  private static final int MAX_PARTS = 10000;
+
+  @Value("${aws.s3.copy.multipart-threshold:1073741824}")
+  private long multipartThreshold;
+
+  @Value("${aws.s3.copy.part-size:268435456}")
+  private long partSize;
+
+  @Autowired
+  @Qualifier("s3CopyExecutor")
+  private Executor executor;
+
+  /**
+   * Moves all objects under the source prefix to the same relative keys under the target prefix.
+   *
+   * @param client the S3 client
+   * @param bucket the bucket name
+   * @param sourcePrefix the prefix to move, ending in a slash
+   * @param targetPrefix the new prefix, ending in a slash
+   * @return the number of objects moved
+   * @throws StudyStorageException if an object cannot be copied or deleted
+   */
+  public long move(S3Client client, String bucket, String sourcePrefix, String targetPrefix)
+      throws StudyStorageException {
+    return move(client, bucket, sourcePrefix, targetPrefix, moved -> {});
+  }
+
+  /**
+   * Moves all objects under the source prefix to the same relative keys under the target prefix,
+   * reporting the running count of moved objects after each batch.
+   *
+   * @param client the S3 client
+   * @param bucket the bucket name
+   * @param sourcePrefix the prefix to move, ending in a slash
+   * @param targetPrefix the new prefix, ending in a slash
+   * @param progress receives the number of objects moved so far, after each batch
+   * @return the number of objects moved
+   * @throws StudyStorageException if an object cannot be copied or deleted
+   */
+  public long move(S3Client client, String bucket, String sourcePrefix, String targetPrefix,
+      LongConsumer progress) throws StudyStorageException {
+    if (sourcePrefix.isEmpty() || targetPrefix.startsWith(sourcePrefix)) {
+      throw new StudyStorageException("Cannot move folder " + sourcePrefix + " into "
+          + targetPrefix);
+    }
+    LOGGER.info("Moving objects in bucket {} from {} to {}", bucket, sourcePrefix, targetPrefix);
+    long moved = 0;
+    long bytes = 0;
+    while (true) {
+
+      // Copied objects are deleted, so the first page always holds the objects left to move
+      ListObjectsV2Response response;
+      try {
+        response = client.listObjectsV2(b -> b.bucket(bucket).prefix(sourcePrefix)
+            .maxKeys(BATCH_SIZE));
+      } catch (Exception e) {
+        throw new StudyStorageException("Failed to list objects under: " + sourcePrefix, e);
+      }
+      List<S3Object> objects = response.contents();
+      if (objects.isEmpty()) {
+        break;
+      }
+
+      // Copy the batch in parallel
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (S3Object object : objects) {
+        String targetKey = targetPrefix + object.key().substring(sourcePrefix.length());
+        futures.add(CompletableFuture.runAsync(
+            () -> copyObject(client, bucket, object, targetKey), executor));
+      }
+      try {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+      } catch (CompletionException e) {
+        LOGGER.warn("Move of {} to {} in bucket {} failed after {} objects, it can be resumed "
+            + "by repeating the move", sourcePrefix, targetPrefix, bucket, moved);
+        throw new StudyStorageException("Failed to copy objects under: " + sourcePrefix,
+            e.getCause());
+      }
+
+      // Delete the copied batch from the source prefix
+      deleteObjects(client, bucket, objects);
+      moved += objects.size();
+      bytes += objects.stream().mapToLong(o -> o.size() != null ? o.size() : 0).sum();
+      LOGGER.info("Moved {} objects ({} bytes) from {} to {} in bucket {}",
+          moved, bytes, sourcePrefix, targetPrefix, bucket);
+      progress.accept(moved);
+    }
+    return moved;
+  }
+
+  private void copyObject(S3Client client, String bucket, S3Object object, String targetKey) {
+    long size = object.size() != null ? object.size() : 0;
+    if (size < multipartThreshold) {
+      client.copyObject(b -> b
+          .sourceBucket(bucket)
+          .sourceKey(object.key())
+          .destinationBucket(bucket)
+          .destinationKey(targetKey));
+    } else {
+      multipartCopy(client, bucket, object.key(), targetKey, size);
+    }
+  }
+
+  /**
+   * Copies an object in parts, which is required for objects over 5 GB. The parts of a single
+   * object are copied in sequence, since other objects are being copied alongside it.
+   */
+  private void multipartCopy(S3Client client, String bucket, String sourceKey, String targetKey,
+      long size) {
+    HeadObjectResponse head = client.headObject(b -> b.bucket(bucket).key(sourceKey));
+    String uploadId = client.createMultipartUpload(b -> b
+        .bucket(bucket)
+        .key(targetKey)
+        .contentType(head.contentType())
+        .metadata(head.metadata())).uploadId();
+    long copyPartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+    int partCount = (int) ((size + copyPartSize - 1) / copyPartSize);
+    LOGGER.debug("Copying {} to {} in {} parts", sourceKey, targetKey, partCount);
+    try {
+      List<CompletedPart> parts = new ArrayList<>();
+      for (int i = 0; i < partCount; i++) {
+        int partNumber = i + 1;
+        long start = i * copyPartSize;
+        long end = Math.min(start + copyPartSize, size) - 1;
+        String eTag = client.uploadPartCopy(b -> b
+            .sourceBucket(bucket)
+            .sourceKey(sourceKey)
+            .destinationBucket(bucket)
+            .destinationKey(targetKey)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .copySourceRange("bytes=" + start + "-" + end)).copyPartResult().eTag();
+        parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+      }
+      client.completeMultipartUpload(b -> b
+          .bucket(bucket)
+          .key(targetKey)
+          .uploadId(uploadId)
+          .multipartUpload(u -> u.parts(parts)));
+    } catch (RuntimeException e) {
+      try {
+        client.abortMultipartUpload(b -> b.bucket(bucket).key(targetKey).uploadId(uploadId));
+      } catch (Exception ex) {
+        LOGGER.warn("Failed to abort multipart copy {} of {}", uploadId, targetKey, ex);
+      }
+      throw e;
+    }
+  }
+
+  private void deleteObjects(S3Client client, String bucket, List<S3Object> objects)
+      throws StudyStorageException {
+    List<ObjectIdentifier> identifiers = objects.stream()
+        .map(o -> ObjectIdentifier.builder().key(o.key()).build())
+        .toList();
+    DeleteObjectsResponse response;
+    try {
+      response = client.deleteObjects(b -> b.bucket(bucket)
+          .delete(d -> d.objects(identifiers).quiet(true)));
+    } catch (Exception e) {
+      throw new StudyStorageException("Failed to delete moved objects", e);
+    }
+    if (response.hasErrors() && !response.errors().isEmpty()) {
+      S3Error error = response.errors().get(0);
+      throw new StudyStorageException("Failed to delete " + response.errors().size()
+          + " moved objects, including " + error.key() + ": " + error.message());
+    }
+  }
+
+}
@@ -21,36 +21,59 @@ import io.studytracker.exception.RecordNotFoundException;
 import io.studytracker.model.AwsIntegration;
 import io.studytracker.model.S3BucketDetails;
 import io.studytracker.model.S3FolderDetails;
+import io.studytracker.model.S3FolderMove;
 import io.studytracker.model.StorageDrive;
 import io.studytracker.model.StorageDriveFolder;
 import io.studytracker.repository.AwsIntegrationRepository;
 import io.studytracker.repository.StorageDriveFolderRepository;
 import io.studytracker.repository.StorageDriveRepository;
+import io.studytracker.storage.DirectUpload;
+import io.studytracker.storage.DirectUploadCompletion;
+import io.studytracker.storage.DirectUploadStorageService;
 import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
 import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
 import io.studytracker.storage.StudyStorageService;
 import io.studytracker.storage.exception.StudyStorageException;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import jakarta.persistence.Persistence;
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Service
-public class S3StudyStorageService implements StudyStorageService {
+public class S3StudyStorageService implements StudyStorageService, DirectUploadStorageService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(S3StudyStorageService.class);
 
@@ -63,13 +86,44 @@ public class S3StudyStorageService implements StudyStorageService {
   @Autowired
   private AwsIntegrationRepository integrationRepository;
 
-  private S3Client getClientFromDrive(StorageDrive drive) {
+  @Autowired
+  private S3ClientRegistry s3ClientRegistry;
+
+  @Autowired
+  private S3FileUploader s3FileUploader;
+
+  @Autowired
+  private S3FolderMoveService s3FolderMoveService;
+
+  @Value("${aws.s3.upload.presigned-url-expiry-minutes:60}")
+  private long presignedUrlExpiryMinutes;
+
+  private AwsIntegration getIntegrationFromDrive(StorageDrive drive) {
     S3BucketDetails bucket = (S3BucketDetails) drive.getDetails();
-    AwsIntegration integration = integrationRepository.findById(bucket.getAwsIntegrationId())
+    return integrationRepository.findById(bucket.getAwsIntegrationId())
         .orElseThrow(() -> new RecordNotFoundException("Storage drive " + drive.getId()
             + " not associated with AWS integration"));
-    return AWSClientFactory.createS3Client(integration);
+  }
+
+  private S3Client getClientFromDrive(StorageDrive drive) {
+    return s3ClientRegistry.getClient(getIntegrationFromDrive(drive));
+  }
+
+  private StorageDrive getBucketFromFolder(StorageDriveFolder folder) {
+    if (Persistence.getPersistenceUtil().isLoaded(folder.getStorageDrive())) {
+      return folder.getStorageDrive();
+    } else {
+      return driveRepository.findById(folder.getStorageDrive().getId())
+          .orElseThrow(() -> new RecordNotFoundException("Storage folder " + folder.getId()
+              + " not associated with S3 bucket"));
+    }
+  }
 
+  private String getDirectUploadKey(String rawPath, String fileName) throws StudyStorageException {
+    if (!StringUtils.hasText(fileName) || fileName.contains("/")) {
+      throw new StudyStorageException("Invalid file name: " + fileName);
+    }
+    return S3Utils.joinS3Path(S3Utils.cleanInputPath(rawPath), fileName);
   }
 
   @Override
@@ -124,131 +178,73 @@ public class S3StudyStorageService implements StudyStorageService {
     return this.createFolder(bucket, parentFolder.getPath(), name);
   }
 
+  /**
+   * Renames a folder by moving every object under its prefix to a new prefix in the same
+   *   parent folder. The objects are moved in the background by {@link S3FolderMoveService},
+   *   which resumes the move if it is interrupted. Renaming onto an existing folder is refused.
+   */
   @Override
-  public StorageFolder renameFolder(StorageDrive storageDrive, String path, String newName)
+  public StorageFolder renameFolder(StorageDrive drive, String rawPath, String newName)
       throws StudyStorageException {
-    throw new StudyStorageException("Not implemented");
+    LOGGER.info("Renaming folder at path: {} to {}", rawPath, newName);
+    if (!StringUtils.hasText(newName) || newName.contains("/")) {
+      throw new StudyStorageException("Invalid folder name: " + newName);
+    }
+    String path = toFolderPrefix(rawPath);
+    String parentPath = S3Utils.deriveParentFolder(path.substring(0, path.length() - 1))
+        .getPath();
+    String newPath = toFolderPrefix(S3Utils.joinS3Path(parentPath, newName));
+    return moveFolderPrefix(drive, path, newPath);
   }
 
+  /**
+   * Moves a folder by moving every object under its prefix into the new parent folder. The
+   *   objects are moved in the background by {@link S3FolderMoveService}, which resumes the move
+   *   if it is interrupted. Moving onto an existing folder is refused.
+   */
   @Override
-  public StorageFolder moveFolder(StorageDrive storageDrive, String path, String newParentPath)
+  public StorageFolder moveFolder(StorageDrive drive, String rawPath, String newParentPath)
       throws StudyStorageException {
-    throw new StudyStorageException("Not implemented");
+    LOGGER.info("Moving folder {} to {}", rawPath, newParentPath);
+    String path = toFolderPrefix(rawPath);
+    String targetPath = toFolderPrefix(S3Utils.joinS3Path(S3Utils.cleanInputPath(newParentPath),
+        S3Utils.deriveObjectName(path)));
+    return moveFolderPrefix(drive, path, targetPath);
   }
 
-  // TODO: Moving or renaming S3 folders requires copying the folder and all contents individually, then deleting the originals
-
-  //  @Override
-//  public StorageFolder renameFolder(StorageDrive drive, String rawPath, String newName) throws StudyStorageException {
-//
-//    LOGGER.info("Renaming folder at path: {} to {}", rawPath, newName);
-//
-//    // Clean the path input
-//    String path = S3Utils.cleanInputPath(rawPath);
-//    if (!path.isEmpty() && !path.endsWith("/")) {
-//      path = path + "/";
-//    }
-//    String parentPath = S3Utils.deriveParentFolder(rawPath).getPath();
-//    String newPath = S3Utils.joinS3Path(parentPath, newName);
-//
-//    LOGGER.debug("Looking up folder by path: {}", path);
-//
-//    S3Client client = getClientFromDrive(drive);
-//    S3BucketDetails bucketDetails = (S3BucketDetails) drive.getDetails();
-//
-//    try {
-//
-//      // Copy the object
-//      CopyObjectRequest copyRequest = CopyObjectRequest.builder()
-//              .sourceBucket(bucketDetails.getBucketName())
-//              .sourceKey(path)
-//              .destinationBucket(bucketDetails.getBucketName())
-//              .destinationKey(newPath)
-//              .build();
-//      client.copyObject(copyRequest);
-//
-//      // Fetch the new reference
-//      ListObjectsV2Request request = ListObjectsV2Request.builder()
-//              .bucket(bucketDetails.getBucketName())
-//              .prefix(newPath)
-//              .delimiter("/")
-//              .build();
-//      ListObjectsV2Response response = client.listObjectsV2(request);
-//      StorageFolder folder = S3Utils.convertS3ObjectsToStorageFolderWithContents(path, response.contents(),
-//              response.commonPrefixes());
-//
-//      // Delete the old folder
-//      DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-//              .bucket(bucketDetails.getBucketName())
-//              .key(path)
-//              .build();
-//      client.deleteObject(deleteRequest);
-//
-//      return folder;
-//
-//    } catch (Exception e) {
-//        throw new StudyStorageException("Failed to rename folder: " + path, e);
-//    }
-//
-//  }
-//
-//  @Override
-//  public StorageFolder moveFolder(StorageDrive drive, String rawPath, String targetRawPath)
-//      throws StudyStorageException {
-//    LOGGER.info("Moving folder {} to {}", rawPath, targetRawPath);
-//
-//    // Clean the path input
-//    String path = S3Utils.cleanInputPath(rawPath);
-//    if (!path.isEmpty() && !path.endsWith("/")) {
-//      path = path + "/";
-//    }
-//    String targetParentPath = S3Utils.cleanInputPath(targetRawPath);
-//    if (!targetParentPath.isEmpty() && !targetParentPath.endsWith("/")) {
-//      targetParentPath = targetParentPath + "/";
-//    }
-//
-//    String folderName = S3Utils.deriveObjectName(path);
-//    String targetPath = S3Utils.joinS3Path(targetParentPath, folderName);
-//
-//    LOGGER.debug("Looking up folder by path: {}", path);
-//
-//    S3Client client = getClientFromDrive(drive);
-//    S3BucketDetails bucketDetails = (S3BucketDetails) drive.getDetails();
-//
-//    try {
-//
-//      // Copy the object
-//      CopyObjectRequest copyRequest = CopyObjectRequest.builder()
-//          .sourceBucket(bucketDetails.getBucketName())
-//          .sourceKey(path)
-//          .destinationBucket(bucketDetails.getBucketName())
-//          .destinationKey(targetPath)
-//          .build();
-//      client.copyObject(copyRequest);
-//
-//      // Fetch the new reference
-//      ListObjectsV2Request request = ListObjectsV2Request.builder()
-//          .bucket(bucketDetails.getBucketName())
-//          .prefix(targetPath)
-//          .delimiter("/")
-//          .build();
-//      ListObjectsV2Response response = client.listObjectsV2(request);
-//      StorageFolder folder = S3Utils.convertS3ObjectsToStorageFolderWithContents(targetPath,
-//          response.contents(), response.commonPrefixes());
-//
-//      // Delete the old folder
-//      DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-//          .bucket(bucketDetails.getBucketName())
-//          .key(path)
-//          .build();
-//      client.deleteObject(deleteRequest);
-//
-//      return folder;
-//
-//    } catch (Exception e) {
-//      throw new StudyStorageException("Failed to rename folder: " + path, e);
-//    }
-//  }
+  private static String toFolderPrefix(String rawPath) {
+    String path = S3Utils.cleanInputPath(rawPath);
+    if (!path.isEmpty() && !path.endsWith("/")) {
+      path = path + "/";
+    }
+    return path;
+  }
+
+  /**
+   * Starts moving the objects under the folder's prefix to the target prefix, as a tracked
+   *   background job, and returns a reference to the folder at its new location. The folder's
+   *   objects appear at the new location as the move progresses, and the returned folder carries
+   *   the ID of the move, which can be used to check whether it has finished.
+   */
+  private StorageFolder moveFolderPrefix(StorageDrive drive, String path, String targetPath)
+      throws StudyStorageException {
+    if (path.isEmpty()) {
+      throw new StudyStorageException("Cannot move the root folder of a bucket");
+    }
+    if (path.equals(targetPath)) {
+      return this.findFolderByPath(drive, path);
+    }
+    S3FolderMove move = s3FolderMoveService.submit(drive, getClientFromDrive(drive), path,
+        targetPath);
+    LOGGER.info("Moving folder {} to {} (move {}: {})", path, targetPath, move.getId(),
+        move.getStatus());
+    StorageFolder folder = S3Utils.convertS3ObjectsToStorageFolderWithContents(targetPath,
+        List.of(), List.of());
+    if (!move.isFinished()) {
+      folder.setMoveId(move.getId());
+    }
+    return folder;
+  }
 
   @Override
   public StorageFolder findFolderByPath(StorageDriveFolder parentFolder, String rawPath)
@@ -279,24 +275,59 @@ public class S3StudyStorageService implements StudyStorageService {
     S3Client client = getClientFromDrive(drive);
     S3BucketDetails bucketDetails = (S3BucketDetails) drive.getDetails();
 
+    // Follow continuation tokens, so that folders with more than 1,000 objects are not truncated
     try {
       ListObjectsV2Request request = ListObjectsV2Request.builder()
           .bucket(bucketDetails.getBucketName())
           .prefix(path)
           .delimiter("/")
           .build();
-      ListObjectsV2Response response = client.listObjectsV2(request);
-      LOGGER.debug("Found {} files and {} folders in path {}", response.contents().size(),
-          response.commonPrefixes().size(), path);
-      LOGGER.debug(response.toString());
-      return S3Utils.convertS3ObjectsToStorageFolderWithContents(path, response.contents(),
-          response.commonPrefixes());
+      List<S3Object> contents = new ArrayList<>();
+      List<CommonPrefix> commonPrefixes = new ArrayList<>();
+      for (ListObjectsV2Response response : client.listObjectsV2Paginator(request)) {
+        contents.addAll(response.contents());
+        commonPrefixes.addAll(response.commonPrefixes());
+      }
+      LOGGER.debug("Found {} files and {} folders in path {}", contents.size(),
+          commonPrefixes.size(), path);
+      return S3Utils.convertS3ObjectsToStorageFolderWithContents(path, contents, commonPrefixes);
     } catch (AwsServiceException e) {
       e.printStackTrace();
       throw new StudyStorageNotFoundException("Cannot access folder at path: " + path);
     }
   }
 
+  @Override
+  public StorageFolderPage findFolderPageByPath(StorageDriveFolder parentFolder, String rawPath,
+      String cursor, int pageSize) throws StudyStorageNotFoundException {
+
+    String path = S3Utils.cleanInputPath(rawPath);
+    if (!path.isEmpty() && !path.endsWith("/")) {
+      path = path + "/";
+    }
+    LOGGER.debug("Looking up folder page by path: {}", path);
+
+    StorageDrive bucket = getBucketFromFolder(parentFolder);
+    S3Client client = getClientFromDrive(bucket);
+    S3BucketDetails bucketDetails = (S3BucketDetails) bucket.getDetails();
+
+    try {
+      ListObjectsV2Response response = client.listObjectsV2(ListObjectsV2Request.builder()
+          .bucket(bucketDetails.getBucketName())
+          .prefix(path)
+          .delimiter("/")
+          .maxKeys(pageSize)
+          .continuationToken(StringUtils.hasText(cursor) ? cursor : null)
+          .build());
+      StorageFolder folder = S3Utils.convertS3ObjectsToStorageFolderWithContents(path,
+          response.contents(), response.commonPrefixes());
+      return new StorageFolderPage(folder,
+          Boolean.TRUE.equals(response.isTruncated()) ? response.nextContinuationToken() : null);
+    } catch (AwsServiceException e) {
+      throw new StudyStorageNotFoundException("Cannot access folder at path: " + path, e);
+    }
+  }
+
   @Override
   public StorageFile findFileByPath(StorageDriveFolder parentFolder, String path)
       throws StudyStorageNotFoundException {
@@ -370,42 +401,126 @@ public class S3StudyStorageService implements StudyStorageService {
     // Cleanup the path
     String fullPath = S3Utils.joinS3Path(path, file.getName());
 
-    // Upload the file to S3
+    // Upload the file to S3, using a multipart upload for large files
+    return s3FileUploader.upload(client, bucketDetails.getBucketName(), fullPath, file);
+
+  }
+
+  @Override
+  public DirectUpload createDirectUpload(StorageDriveFolder folder, String rawPath,
+      String fileName, long size) throws StudyStorageException {
+
+    String key = getDirectUploadKey(rawPath, fileName);
+    LOGGER.info("Starting direct upload of file: {} in bucket: {}", key, folder.getName());
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files");
+    }
+    StorageDrive bucket = getBucketFromFolder(folder);
+    AwsIntegration integration = getIntegrationFromDrive(bucket);
+    String bucketName = ((S3BucketDetails) bucket.getDetails()).getBucketName();
+    String contentType = MediaTypeFactory.getMediaType(fileName)
+        .orElse(MediaType.APPLICATION_OCTET_STREAM)
+        .toString();
+
+    // Every file is sent as a multipart upload, which may have a single part of any size
+    String uploadId;
     try {
-      PutObjectRequest request = PutObjectRequest.builder()
-          .bucket(bucketDetails.getBucketName())
-          .key(fullPath)
-          .build();
-      client.putObject(request, RequestBody.fromFile(file));
+      uploadId = s3ClientRegistry.getClient(integration)
+          .createMultipartUpload(b -> b.bucket(bucketName).key(key).contentType(contentType))
+          .uploadId();
     } catch (Exception e) {
-      e.printStackTrace();
-      throw new StudyStorageException("Failed to upload file: " + fullPath, e);
+      throw new StudyStorageException("Failed to start upload: " + key, e);
     }
 
-    // Fetch the newly-uploaded file record
-    try {
-      ListObjectsV2Request request = ListObjectsV2Request.builder()
-          .bucket(bucketDetails.getBucketName())
-          .prefix(fullPath)
-          .delimiter("/")
-          .build();
-      ListObjectsV2Response response = client.listObjectsV2(request);
-      S3Object s3Object = response.contents().stream().findFirst()
-          .orElseThrow(
-              () -> new StudyStorageNotFoundException("Failed to lookup file by path: " + fullPath));
-      if (s3Object.key().endsWith("/")) {
-        throw new StudyStorageNotFoundException("Object at path is a folder: " + fullPath);
+    DirectUpload upload = new DirectUpload();
+    upload.setType(DirectUpload.Type.S3_MULTIPART);
+    upload.setUploadId(uploadId);
+    upload.setFileName(fileName);
+    upload.setPath(rawPath);
+    upload.setSize(size);
+    long partSize = s3FileUploader.getPartSize(size);
+    upload.setPartSize(partSize);
+    Duration expiry = Duration.ofMinutes(presignedUrlExpiryMinutes);
+    upload.setExpiresAt(new Date(System.currentTimeMillis() + expiry.toMillis()));
+
+    // Presign an upload URL for each part
+    int partCount = (int) Math.max(1, (size + partSize - 1) / partSize);
+    try (S3Presigner presigner = AWSClientFactory.createS3Presigner(integration)) {
+      for (int i = 0; i < partCount; i++) {
+        int partNumber = i + 1;
+        DirectUpload.Part part = new DirectUpload.Part();
+        part.setPartNumber(partNumber);
+        part.setOffset(i * partSize);
+        part.setLength(Math.min(partSize, size - part.getOffset()));
+        part.setUrl(presigner.presignUploadPart(r -> r
+                .signatureDuration(expiry)
+                .uploadPartRequest(u -> u
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)))
+            .url()
+            .toString());
+        upload.getParts().add(part);
       }
-      return S3Utils.convertS3ObjectToStorageFile(s3Object);
-    } catch (AwsServiceException e) {
-      e.printStackTrace();
-      throw new StudyStorageNotFoundException("Cannot access file at path: " + fullPath);
+    } catch (Exception e) {
+      abortDirectUpload(folder, rawPath, fileName, uploadId);
+      throw new StudyStorageException("Failed to create upload URLs: " + key, e);
     }
 
+    return upload;
   }
 
   @Override
-  public Resource fetchFile(StorageDriveFolder folder, String rawPath) throws StudyStorageException {
+  public StorageFile completeDirectUpload(StorageDriveFolder folder, String rawPath,
+      DirectUploadCompletion completion) throws StudyStorageException {
+    String key = getDirectUploadKey(rawPath, completion.getFileName());
+    LOGGER.info("Completing direct upload of file: {} in bucket: {}", key, folder.getName());
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files");
+    }
+    StorageDrive bucket = getBucketFromFolder(folder);
+    String bucketName = ((S3BucketDetails) bucket.getDetails()).getBucketName();
+    List<CompletedPart> parts = completion.getParts().stream()
+        .sorted(Comparator.comparing(DirectUploadCompletion.Part::getPartNumber))
+        .map(p -> CompletedPart.builder().partNumber(p.getPartNumber()).eTag(p.getEtag()).build())
+        .collect(Collectors.toList());
+    try {
+      CompleteMultipartUploadResponse response = getClientFromDrive(bucket)
+          .completeMultipartUpload(b -> b
+              .bucket(bucketName)
+              .key(key)
+              .uploadId(completion.getUploadId())
+              .multipartUpload(u -> u.parts(parts)));
+      return S3FileUploader.createStorageFile(key, completion.getSize(), response.eTag());
+    } catch (Exception e) {
+      throw new StudyStorageException("Failed to complete upload: " + key, e);
+    }
+  }
+
+  @Override
+  public void abortDirectUpload(StorageDriveFolder folder, String rawPath, String fileName,
+      String uploadId) throws StudyStorageException {
+    String key = getDirectUploadKey(rawPath, fileName);
+    LOGGER.info("Aborting direct upload of file: {} in bucket: {}", key, folder.getName());
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files");
+    }
+    StorageDrive bucket = getBucketFromFolder(folder);
+    String bucketName = ((S3BucketDetails) bucket.getDetails()).getBucketName();
+    try {
+      getClientFromDrive(bucket).abortMultipartUpload(b -> b
+          .bucket(bucketName)
+          .key(key)
+          .uploadId(uploadId));
+    } catch (Exception e) {
+      throw new StudyStorageException("Failed to abort upload: " + key, e);
+    }
+  }
+
+  @Override
+  public StorageFileResource fetchFile(StorageDriveFolder folder, String rawPath)
+      throws StudyStorageException {
     
     String path = S3Utils.cleanInputPath(rawPath);
     LOGGER.debug("Fetching file: {} from bucket: {}", path, folder.getName());
@@ -424,12 +539,35 @@ public class S3StudyStorageService implements StudyStorageService {
     S3Client client = getClientFromDrive(bucket);
     S3BucketDetails bucketDetails = (S3BucketDetails) bucket.getDetails();
     
+    HeadObjectResponse metadata;
     try {
-      return new ByteArrayResource(
-          client.getObjectAsBytes(b -> b.bucket(bucketDetails.getBucketName()).key(path)).asByteArray());
+      metadata = client.headObject(b -> b.bucket(bucketDetails.getBucketName()).key(path));
+    } catch (NoSuchKeyException e) {
+      throw new StudyStorageNotFoundException("Cannot access file at path: " + path);
+    } catch (AwsServiceException e) {
+
+      // HEAD responses have no body, so a missing key may only be reported by its status code
+      if (e.statusCode() == HttpStatus.NOT_FOUND.value()) {
+        throw new StudyStorageNotFoundException("Cannot access file at path: " + path);
+      }
+      throw new StudyStorageException("Failed to download file: " + path, e);
     } catch (Exception e) {
       throw new StudyStorageException("Failed to download file: " + path, e);
     }
+
+    // Object contents are streamed from S3 when the resource is read, one ranged GET per stream
+    return new StorageFileResource(FilenameUtils.getName(path), metadata.contentLength(),
+        metadata.contentType(), (start, end) -> {
+          try {
+            return client.getObject(GetObjectRequest.builder()
+                .bucket(bucketDetails.getBucketName())
+                .key(path)
+                .range("bytes=" + start + "-" + end)
+                .build());
+          } catch (Exception e) {
+            throw new IOException("Failed to download file: " + path, e);
+          }
+        });
     
   }
 
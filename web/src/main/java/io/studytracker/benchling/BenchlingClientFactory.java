@@ -16,19 +16,124 @@
 
 package io.studytracker.benchling;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.studytracker.benchling.api.BenchlingElnRestClient;
 import io.studytracker.model.BenchlingIntegration;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.client.RestTemplate;
 
-public class BenchlingClientFactory {
-    
-    private final RestTemplate benchlingRestTemplate;
-    
-    public BenchlingClientFactory(RestTemplate benchlingRestTemplate) {
-        this.benchlingRestTemplate = benchlingRestTemplate;
+/**
+ * Creates {@link BenchlingElnRestClient} instances, sharing a single client, and so a single
+ * access token, between all requests for each saved integration. A shared client is replaced
+ * when its integration's connection settings or modification time change, and can be discarded
+ * explicitly when the integration is updated or removed. Replaced clients are closed once their
+ * in-flight requests have finished.
+ */
+public class BenchlingClientFactory implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BenchlingClientFactory.class);
+
+  private final RestTemplate benchlingRestTemplate;
+  private final MeterRegistry meterRegistry;
+  private final TaskScheduler taskScheduler;
+  private final Duration tokenRefreshAhead;
+  private final Map<Long, CachedClient> clients = new ConcurrentHashMap<>();
+
+  public BenchlingClientFactory(RestTemplate benchlingRestTemplate) {
+    this(benchlingRestTemplate, null, null, Duration.ZERO);
+  }
+
+  public BenchlingClientFactory(RestTemplate benchlingRestTemplate, MeterRegistry meterRegistry,
+      TaskScheduler taskScheduler, Duration tokenRefreshAhead) {
+    this.benchlingRestTemplate = benchlingRestTemplate;
+    this.meterRegistry = meterRegistry;
+    this.taskScheduler = taskScheduler;
+    this.tokenRefreshAhead = tokenRefreshAhead;
+  }
+
+  /**
+   * Returns the shared client for a saved integration, or a new client for an unsaved one. The
+   * returned client must not be closed by the caller.
+   *
+   * @param integration the Benchling integration
+   * @return the client
+   */
+  public BenchlingElnRestClient createBenchlingClient(BenchlingIntegration integration) {
+    if (integration.getId() == null) {
+      return new BenchlingElnRestClient(benchlingRestTemplate, integration, meterRegistry, null,
+          Duration.ZERO);
+    }
+    ClientSettings settings = ClientSettings.of(integration);
+    CachedClient cached = clients.get(integration.getId());
+    if (cached != null && cached.settings.equals(settings)) {
+      return cached.client;
     }
-    
-    public BenchlingElnRestClient createBenchlingClient(BenchlingIntegration integration) {
-        return new BenchlingElnRestClient(benchlingRestTemplate, integration);
+    return clients.compute(integration.getId(), (id, existing) -> {
+      if (existing != null && existing.settings.equals(settings)) {
+        return existing;
+      }
+      if (existing != null) {
+        LOGGER.info("Benchling integration {} has been modified, replacing its client", id);
+        existing.client.closeWhenIdle();
+      }
+      return new CachedClient(settings, new BenchlingElnRestClient(benchlingRestTemplate,
+          integration, meterRegistry, taskScheduler, tokenRefreshAhead));
+    }).client;
+  }
+
+  /**
+   * Discards the shared client of an integration, so that the next request creates a new client
+   * with the integration's current settings.
+   *
+   * @param integrationId ID of the Benchling integration
+   */
+  public void invalidate(Long integrationId) {
+    CachedClient existing = clients.remove(integrationId);
+    if (existing != null) {
+      LOGGER.info("Invalidated client for Benchling integration {}", integrationId);
+      existing.client.closeWhenIdle();
     }
+  }
+
+  @Override
+  public void destroy() {
+    clients.values().forEach(cached -> cached.client.close());
+    clients.clear();
+  }
+
+  /**
+   * The integration settings a client was created with. A client is replaced when any of them
+   * differ from the integration's current values.
+   */
+  private record ClientSettings(String rootUrl, String tenantName, String clientId,
+      String clientSecret, Date updatedAt) {
+
+    private static ClientSettings of(BenchlingIntegration integration) {
+      return new ClientSettings(integration.getRootUrl(), integration.getTenantName(),
+          integration.getClientId(), integration.getClientSecret(),
+          integration.getUpdatedAt() != null
+              ? new Date(integration.getUpdatedAt().getTime()) : null);
+    }
+
+  }
+
+  private static class CachedClient {
+
+    private final ClientSettings settings;
+    private final BenchlingElnRestClient client;
+
+    private CachedClient(ClientSettings settings, BenchlingElnRestClient client) {
+      this.settings = settings;
+      this.client = client;
+    }
+
+  }
+
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.benchling;
+
+import io.studytracker.benchling.api.AbstractBenchlingApiService;
+import io.studytracker.benchling.api.BenchlingElnRestClient;
+import io.studytracker.benchling.api.entities.BenchlingEntryTemplate;
+import io.studytracker.benchling.api.entities.BenchlingEntryTemplateList;
+import io.studytracker.eln.NotebookTemplate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * In-memory catalogue of the Benchling entry templates, used to answer template lookups and
+ * typeahead searches without calling the Benchling API. The catalogue is loaded on first use and
+ * then refreshed on a schedule, or on demand, with the new template list swapped in once it has
+ * been fully read, so searches never wait on a refresh after the initial load. Searches are
+ * case-insensitive substring matches against template names, resolved through an n-gram index of
+ * the names.
+ */
+@Component
+public class BenchlingEntryTemplateCatalog extends AbstractBenchlingApiService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BenchlingEntryTemplateCatalog.class);
+
+  /** Longest n-gram indexed. Shorter keywords are answered directly from the index. */
+  private static final int MAX_GRAM_LENGTH = 3;
+
+  private final Object loadLock = new Object();
+  private final AtomicLong generation = new AtomicLong();
+  private volatile Catalog catalog;
+
+  /**
+   * Returns all entry templates, loading the catalogue if it has not been loaded yet.
+   *
+   * @return the entry templates, in the order returned by Benchling
+   */
+  public List<NotebookTemplate> findAll() {
+    return Collections.unmodifiableList(getCatalog().templates);
+  }
+
+  /**
+   * Returns the entry templates with names containing the keyword, ignoring case. A blank
+   * keyword matches all templates.
+   *
+   * @param keyword the search keyword
+   * @return the matching templates, in the order returned by Benchling
+   */
+  public List<NotebookTemplate> search(String keyword) {
+    Catalog current = getCatalog();
+    String query = keyword != null ? normalize(keyword.trim()) : "";
+    if (query.isEmpty()) {
+      return Collections.unmodifiableList(current.templates);
+    }
+    if (query.length() <= MAX_GRAM_LENGTH) {
+      return current.collect(current.index.getOrDefault(query, new int[0]), null);
+    }
+
+    // Scan the candidates of the least common n-gram in the keyword and check the full keyword
+    int[] candidates = null;
+    for (int i = 0; i + MAX_GRAM_LENGTH <= query.length(); i++) {
+      int[] postings = current.index.get(query.substring(i, i + MAX_GRAM_LENGTH));
+      if (postings == null) {
+        return new ArrayList<>();
+      }
+      if (candidates == null || postings.length < candidates.length) {
+        candidates = postings;
+      }
+    }
+    return current.collect(candidates, query);
+  }
+
+  /**
+   * Reloads the full template list from Benchling and replaces the catalogue with it.
+   *
+   * @return the number of templates loaded
+   */
+  public int refresh() {
+    long loadGeneration = generation.get();
+    Catalog loaded = load();
+    synchronized (loadLock) {
+      if (generation.get() == loadGeneration) {
+        catalog = loaded;
+      }
+    }
+    return loaded.templates.size();
+  }
+
+  /**
+   * Refreshes a catalogue that has already been loaded. Catalogues that were never used, or were
+   * invalidated, are left to load on their next use.
+   */
+  @Scheduled(
+      initialDelayString = "${benchling.templates.refresh-interval-ms:900000}",
+      fixedDelayString = "${benchling.templates.refresh-interval-ms:900000}"
+  )
+  public void scheduledRefresh() {
+    if (catalog == null) {
+      return;
+    }
+    try {
+      int count = refresh();
+      LOGGER.debug("Refreshed Benchling entry template catalogue with {} templates", count);
+    } catch (Exception e) {
+      LOGGER.warn("Failed to refresh the Benchling entry template catalogue", e);
+    }
+  }
+
+  /**
+   * Discards the catalogue, so that it is reloaded on its next use. Loads already in progress
+   * are discarded when they finish.
+   */
+  public void invalidate() {
+    synchronized (loadLock) {
+      generation.incrementAndGet();
+      catalog = null;
+    }
+  }
+
+  /**
+   * Returns the time the current catalogue was loaded, or null if it has not been loaded.
+   *
+   * @return the load time
+   */
+  public Instant getLoadedAt() {
+    Catalog current = catalog;
+    return current != null ? current.loadedAt : null;
+  }
+
+  private Catalog getCatalog() {
+    Catalog current = catalog;
+    if (current != null) {
+      return current;
+    }
+    synchronized (loadLock) {
+      if (catalog == null) {
+        catalog = load();
+      }
+      return catalog;
+    }
+  }
+
+  private Catalog load() {
+    LOGGER.info("Loading Benchling entry template catalogue.");
+    BenchlingElnRestClient client = this.getClient();
+    List<BenchlingEntryTemplate> templates = new ArrayList<>();
+    String nextToken = null;
+    boolean hasNext = true;
+    while (hasNext) {
+      BenchlingEntryTemplateList templateList = client.findEntryTemplates(nextToken,
+          BenchlingElnRestClient.MAX_PAGE_SIZE);
+      templates.addAll(templateList.getEntryTemplates());
+      nextToken = templateList.getNextToken();
+      hasNext = StringUtils.hasText(nextToken);
+    }
+    LOGGER.info("Loaded {} Benchling entry templates.", templates.size());
+    return new Catalog(templates);
+  }
+
+  private static String normalize(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Immutable snapshot of the template list, with the lower-cased template names and an index of
+   * every name n-gram, up to {@link #MAX_GRAM_LENGTH} characters, to the positions of the
+   * templates that contain it, in ascending order.
+   */
+  private static final class Catalog {
+
+    private final List<NotebookTemplate> templates;
+    private final String[] names;
+    private final Map<String, int[]> index;
+    private final Instant loadedAt = Instant.now();
+
+    private Catalog(List<BenchlingEntryTemplate> templates) {
+      this.templates = new ArrayList<>(templates);
+      this.names = new String[templates.size()];
+      Map<String, List<Integer>> postings = new HashMap<>();
+      for (int i = 0; i < templates.size(); i++) {
+        String name = templates.get(i).getName();
+        names[i] = name != null ? normalize(name) : "";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int length = 1; length <= MAX_GRAM_LENGTH; length++) {
+          for (int start = 0; start + length <= names[i].length(); start++) {
+            grams.add(names[i].substring(start, start + length));
+          }
+        }
+        for (String gram : grams) {
+          postings.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+        }
+      }
+      this.index = new HashMap<>(postings.size());
+      postings.forEach((gram, positions) ->
+          index.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private List<NotebookTemplate> collect(int[] positions, String query) {
+      List<NotebookTemplate> matches = new ArrayList<>();
+      for (int position : positions) {
+        if (query == null || names[position].contains(query)) {
+          matches.add(templates.get(position));
+        }
+      }
+      return matches;
+    }
+
+  }
+
+}
@@ -48,6 +48,9 @@ public class BenchlingIntegrationService implements IntegrationService<Benchling
     @Autowired
     private BenchlingClientFactory benchlingClientFactory;
     
+    @Autowired
+    private BenchlingEntryTemplateCatalog templateCatalog;
+    
     @Override
     public Optional<BenchlingIntegration> findById(Long id) {
         LOGGER.debug("Find BenchlingIntegration by id: {}", id);
@@ -71,7 +74,9 @@ public class BenchlingIntegrationService implements IntegrationService<Benchling
             throw new IllegalArgumentException("Failed to connect to Benchling API with the provided credentials.");
         }
         instance.setActive(true);
-        return benchlingIntegrationRepository.save(instance);
+        BenchlingIntegration created = benchlingIntegrationRepository.save(instance);
+        templateCatalog.invalidate();
+        return created;
     }
     
     @Override
@@ -93,7 +98,10 @@ public class BenchlingIntegrationService implements IntegrationService<Benchling
         i.setUsername(instance.getUsername());
         i.setPassword(instance.getPassword());
         i.setActive(instance.isActive());
-        return benchlingIntegrationRepository.save(i);
+        BenchlingIntegration updated = benchlingIntegrationRepository.save(i);
+        benchlingClientFactory.invalidate(updated.getId());
+        templateCatalog.invalidate();
+        return updated;
     }
     
     @Override
@@ -130,6 +138,8 @@ public class BenchlingIntegrationService implements IntegrationService<Benchling
         BenchlingIntegration i = benchlingIntegrationRepository.getById(instance.getId());
         i.setActive(false);
         benchlingIntegrationRepository.save(i);
+        benchlingClientFactory.invalidate(i.getId());
+        templateCatalog.invalidate();
     }
 
   /**
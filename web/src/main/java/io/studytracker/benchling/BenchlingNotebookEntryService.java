@@ -18,12 +18,13 @@ package io.studytracker.benchling;
 
 import io.studytracker.benchling.api.AbstractBenchlingApiService;
 import io.studytracker.benchling.api.BenchlingElnRestClient;
+import io.studytracker.benchling.api.entities.BenchlingEntry;
+import io.studytracker.benchling.api.entities.BenchlingEntryList;
 import io.studytracker.benchling.api.entities.BenchlingEntryRequest;
 import io.studytracker.benchling.api.entities.BenchlingEntryRequest.CustomField;
 import io.studytracker.benchling.api.entities.BenchlingEntryRequest.Field;
 import io.studytracker.benchling.api.entities.BenchlingEntrySchema;
 import io.studytracker.benchling.api.entities.BenchlingEntryTemplate;
-import io.studytracker.benchling.api.entities.BenchlingEntryTemplateList;
 import io.studytracker.eln.NotebookEntry;
 import io.studytracker.eln.NotebookEntryService;
 import io.studytracker.eln.NotebookTemplate;
@@ -41,7 +42,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,27 +58,20 @@ public final class BenchlingNotebookEntryService
   @Autowired
   private NotebookUserService notebookUserService;
 
+  @Autowired
+  private BenchlingEntryTemplateCatalog templateCatalog;
+
+  @Autowired
+  private BenchlingNotebookFolderService folderService;
+
   @Override
   public List<NotebookTemplate> findEntryTemplates() {
-    LOGGER.info("Fetching Benchling notebook entry templates.");
-    BenchlingElnRestClient client = this.getClient();
-    List<NotebookTemplate> templates = new ArrayList<>();
-    String nextToken = null;
-    boolean hasNext = true;
-    while (hasNext) {
-      BenchlingEntryTemplateList templateList = client.findEntryTemplates(nextToken);
-      templates.addAll(templateList.getEntryTemplates());
-      nextToken = templateList.getNextToken();
-      hasNext = StringUtils.hasText(nextToken);
-    }
-    return templates;
+    return templateCatalog.findAll();
   }
 
   @Override
   public List<NotebookTemplate> searchNotebookTemplates(String keyword) {
-    return this.findEntryTemplates().stream()
-        .filter(template -> template.getName().toLowerCase().contains(keyword.toLowerCase()))
-        .collect(Collectors.toList());
+    return templateCatalog.search(keyword);
   }
 
   @Override
@@ -104,7 +97,7 @@ public final class BenchlingNotebookEntryService
     StudyOptions options = study.getOptions();
 
     BenchlingEntryRequest request = new BenchlingEntryRequest();
-    request.setName(study.getCode() + " Study Summary: " + study.getName());
+    request.setName(generateStudySummaryEntryName(study));
     request.setFolderId(studyFolder.getReferenceId());
 
     // Users
@@ -151,7 +144,39 @@ public final class BenchlingNotebookEntryService
     }
     
     BenchlingElnRestClient client = this.getClient();
-    return this.convertBenchlingEntry(client.createEntry(request));
+    NotebookEntry entry = this.convertBenchlingEntry(client.createEntry(request));
+    folderService.evictFolderContents(studyFolder.getReferenceId());
+    return entry;
+  }
+
+  /**
+   * Returns the summary entry of the study in the provided folder, if it has already been
+   * created, such as by an earlier provisioning attempt that failed before the entry was linked.
+   *
+   * @param study the study
+   * @param studyFolder the study's notebook folder
+   * @return the existing summary entry, if any
+   */
+  public Optional<NotebookEntry> findStudyNotebookEntry(Study study, ELNFolder studyFolder) {
+    String entryName = generateStudySummaryEntryName(study);
+    BenchlingElnRestClient client = this.getClient();
+    String nextToken = null;
+    do {
+      BenchlingEntryList entryList =
+          client.findEntriesByFolderId(studyFolder.getReferenceId(), nextToken);
+      Optional<BenchlingEntry> entry = entryList.getEntries().stream()
+          .filter(e -> entryName.equals(e.getName()))
+          .findFirst();
+      if (entry.isPresent()) {
+        return entry.map(this::convertBenchlingEntry);
+      }
+      nextToken = entryList.getNextToken();
+    } while (StringUtils.hasText(nextToken));
+    return Optional.empty();
+  }
+
+  private static String generateStudySummaryEntryName(Study study) {
+    return study.getCode() + " Study Summary: " + study.getName();
   }
 
   @Override
@@ -206,7 +231,9 @@ public final class BenchlingNotebookEntryService
     }
     
     BenchlingElnRestClient client = this.getClient();
-    return this.convertBenchlingEntry(client.createEntry(request));
+    NotebookEntry entry = this.convertBenchlingEntry(client.createEntry(request));
+    folderService.evictFolderContents(folder.getReferenceId());
+    return entry;
   }
 
 }
@@ -16,13 +16,15 @@
 
 package io.studytracker.benchling;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.studytracker.benchling.api.AbstractBenchlingApiService;
 import io.studytracker.benchling.api.BenchlingElnRestClient;
+import io.studytracker.benchling.api.entities.BenchlingEntry;
 import io.studytracker.benchling.api.entities.BenchlingEntryList;
 import io.studytracker.benchling.api.entities.BenchlingFolder;
 import io.studytracker.benchling.api.entities.BenchlingFolderList;
 import io.studytracker.benchling.exception.EntityNotFoundException;
-import io.studytracker.eln.NotebookEntry;
 import io.studytracker.eln.NotebookFolderService;
 import io.studytracker.exception.MalformedEntityException;
 import io.studytracker.exception.NotebookException;
@@ -40,13 +42,20 @@ import io.studytracker.repository.ProgramNotebookFolderRepository;
 import io.studytracker.repository.StudyNotebookFolderRepository;
 import io.studytracker.service.AssayService;
 import io.studytracker.service.StudyService;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -57,6 +66,9 @@ public final class BenchlingNotebookFolderService
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BenchlingNotebookFolderService.class);
 
+  /** Parent folder ID used by Benchling to list the root folders of projects. */
+  private static final String ROOT_FOLDER_ID = "NO_PARENT";
+
   @Autowired 
   private ELNFolderRepository elnFolderRepository;
 
@@ -69,6 +81,26 @@ public final class BenchlingNotebookFolderService
   @Autowired
   private AssayNotebookFolderRepository assayNotebookFolderRepository;
 
+  @Autowired
+  @Qualifier("benchlingFolderExecutor")
+  private Executor benchlingFolderExecutor;
+
+  @Value("${benchling.folders.cache-ttl-seconds:30}")
+  private long cacheTtlSeconds;
+
+  @Value("${benchling.folders.max-depth:3}")
+  private int maxDepth;
+
+  private AsyncCache<String, FolderContents> folderContentsCache;
+
+  @PostConstruct
+  public void init() {
+    folderContentsCache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+        .maximumSize(10_000)
+        .buildAsync();
+  }
+
   @Override
   public List<ELNFolder> findProgramFolders(Program program) {
     List<ProgramNotebookFolder> folderSet = programNotebookFolderRepository.findByProgramId(program.getId());
@@ -196,11 +228,37 @@ public final class BenchlingNotebookFolderService
 
     BenchlingFolder benchlingFolder = client.createFolder(
             StudyService.generateStudyNotebookFolderName(study), programFolder.getReferenceId());
+    evictFolderContents(programFolder.getReferenceId());
     ELNFolder studyFolder = this.convertBenchlingFolder(benchlingFolder);
     studyFolder.setParentFolder(programFolder);
     return studyFolder;
   }
 
+  /**
+   * Returns the folder of the study in its program's primary folder, if it has already been
+   * created, such as by an earlier provisioning attempt that failed before the folder was saved.
+   * The program folder's children are read from Benchling, rather than from the cache.
+   *
+   * @param study the study
+   * @return the existing study folder, if any
+   */
+  public Optional<ELNFolder> findExistingStudyFolder(Study study) {
+    Optional<ELNFolder> programFolderOptional = this.findPrimaryProgramFolder(study.getProgram());
+    if (programFolderOptional.isEmpty()) {
+      return Optional.empty();
+    }
+    ELNFolder programFolder = programFolderOptional.get();
+    String folderName = StudyService.generateStudyNotebookFolderName(study);
+    return fetchChildFolders(this.getClient(), programFolder.getReferenceId()).stream()
+        .filter(f -> folderName.equals(f.getName()))
+        .findFirst()
+        .map(f -> {
+          ELNFolder studyFolder = this.convertBenchlingFolder(f);
+          studyFolder.setParentFolder(programFolder);
+          return studyFolder;
+        });
+  }
+
   @Override
   public ELNFolder createAssayFolder(Assay assay) {
     LOGGER.info("Creating Benchling folder for assay: " + assay.getCode());
@@ -215,6 +273,7 @@ public final class BenchlingNotebookFolderService
 
     BenchlingFolder benchlingFolder = client.createFolder(
             AssayService.generateAssayNotebookFolderName(assay), studyFolder.getReferenceId());
+    evictFolderContents(studyFolder.getReferenceId());
     ELNFolder assayFolder = this.convertBenchlingFolder(benchlingFolder);
     assayFolder.setParentFolder(studyFolder);
 
@@ -224,57 +283,111 @@ public final class BenchlingNotebookFolderService
   @Override
   public List<ELNFolder> listProjectFolders() {
     LOGGER.debug("Listing all notebook projects");
-    BenchlingElnRestClient client = this.getClient();
-    List<BenchlingFolder> folders = new ArrayList<>();
-    String nextToken = null;
-    boolean hasNext = true;
-    while (hasNext) {
-      BenchlingFolderList folderList = client.findRootFolders(nextToken);
-      nextToken = folderList.getNextToken();
-      folders.addAll(folderList.getFolders());
-      hasNext = StringUtils.hasText(nextToken);
-    }
-    return folders.stream().map(this::convertBenchlingFolder).collect(Collectors.toList());
+    FolderContents contents = join(getFolderContents(this.getClient(), ROOT_FOLDER_ID));
+    return contents.folders().stream()
+        .map(this::convertBenchlingFolder)
+        .collect(Collectors.toList());
   }
 
   @Override
   public ELNFolder loadFolderContents(ELNFolder folder) {
-    LOGGER.debug("Loading contents of notebook folder: " + folder.getReferenceId());
+    return this.loadFolderTree(folder, 1);
+  }
+
+  /**
+   * Loads the folder tree level by level. The contents of every folder in a level are requested
+   * at once, and each folder's entries and subfolders are paged through concurrently, on the
+   * bounded {@code benchlingFolderExecutor} pool. Recently loaded folder contents are served from
+   * a short-lived cache.
+   */
+  @Override
+  public ELNFolder loadFolderTree(ELNFolder folder, int depth) {
+    int levels = Math.max(1, Math.min(depth, maxDepth));
+    LOGGER.debug("Loading {} levels of notebook folder: {}", levels, folder.getReferenceId());
     BenchlingElnRestClient client = this.getClient();
+    List<ELNFolder> level = List.of(folder);
+    for (int i = 0; i < levels && !level.isEmpty(); i++) {
+      List<CompletableFuture<FolderContents>> futures = level.stream()
+          .map(f -> getFolderContents(client, f.getReferenceId()))
+          .collect(Collectors.toList());
+      List<ELNFolder> nextLevel = new ArrayList<>();
+      for (int j = 0; j < level.size(); j++) {
+        ELNFolder current = level.get(j);
+        FolderContents contents = join(futures.get(j));
+        List<ELNFolder> subFolders = contents.folders().stream()
+            .map(this::convertBenchlingFolder)
+            .collect(Collectors.toList());
+        current.setEntries(contents.entries().stream()
+            .map(this::convertBenchlingEntry)
+            .collect(Collectors.toList()));
+        current.setSubFolders(subFolders);
+        current.setContentsLoaded(true);
+        nextLevel.addAll(subFolders);
+      }
+      level = nextLevel;
+    }
+    return folder;
+  }
 
-    // Get the notebook entries
-    List<NotebookEntry> entries = new ArrayList<>();
+  /**
+   * Discards the cached contents of a folder, so that changes made to it are visible on its next
+   * load.
+   *
+   * @param folderId the Benchling folder ID
+   */
+  public void evictFolderContents(String folderId) {
+    if (folderId != null) {
+      folderContentsCache.synchronous().invalidate(folderId);
+    }
+  }
+
+  private CompletableFuture<FolderContents> getFolderContents(
+      BenchlingElnRestClient client, String folderId) {
+    return folderContentsCache.get(folderId, (id, executor) -> {
+      CompletableFuture<List<BenchlingEntry>> entries = ROOT_FOLDER_ID.equals(id)
+          ? CompletableFuture.completedFuture(new ArrayList<>())
+          : CompletableFuture.supplyAsync(() -> fetchEntries(client, id), benchlingFolderExecutor);
+      CompletableFuture<List<BenchlingFolder>> folders = CompletableFuture.supplyAsync(
+          () -> fetchChildFolders(client, id), benchlingFolderExecutor);
+      return entries.thenCombine(folders, FolderContents::new);
+    });
+  }
+
+  private List<BenchlingEntry> fetchEntries(BenchlingElnRestClient client, String folderId) {
+    List<BenchlingEntry> entries = new ArrayList<>();
     boolean hasNext = true;
     String nextToken = null;
     while (hasNext) {
-      BenchlingEntryList entryList =
-          client.findEntriesByFolderId(folder.getReferenceId(), nextToken);
-      entries.addAll(
-          entryList.getEntries().stream()
-              .map(e -> convertBenchlingEntry(e))
-              .collect(Collectors.toList()));
+      BenchlingEntryList entryList = client.findEntriesByFolderId(folderId, nextToken);
+      entries.addAll(entryList.getEntries());
       nextToken = entryList.getNextToken();
       hasNext = StringUtils.hasText(nextToken);
     }
-    folder.setEntries(entries);
+    return entries;
+  }
 
-    // Get the subfolders
-    List<ELNFolder> childrenFolders = new ArrayList<>();
-    hasNext = true;
-    nextToken = null;
+  private List<BenchlingFolder> fetchChildFolders(BenchlingElnRestClient client, String folderId) {
+    List<BenchlingFolder> folders = new ArrayList<>();
+    boolean hasNext = true;
+    String nextToken = null;
     while (hasNext) {
-      BenchlingFolderList folderList =
-          client.findFolderChildren(folder.getReferenceId(), nextToken);
-      childrenFolders.addAll(
-          folderList.getFolders().stream()
-              .map(f -> convertBenchlingFolder(f))
-              .collect(Collectors.toList()));
+      BenchlingFolderList folderList = client.findFolderChildren(folderId, nextToken);
+      folders.addAll(folderList.getFolders());
       nextToken = folderList.getNextToken();
       hasNext = StringUtils.hasText(nextToken);
     }
-    folder.setSubFolders(childrenFolders);
+    return folders;
+  }
 
-    return folder;
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
   }
   
   @Override
@@ -285,4 +398,8 @@ public final class BenchlingNotebookFolderService
     return optional.map(this::convertBenchlingFolder).orElse(null);
   }
 
+  /** Entries and child folders of a Benchling folder, as returned by the API. */
+  private record FolderContents(List<BenchlingEntry> entries, List<BenchlingFolder> folders) {
+  }
+
 }
@@ -16,6 +16,9 @@
 
 package io.studytracker.benchling.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.studytracker.benchling.api.entities.BenchlingAuthenticationToken;
 import io.studytracker.benchling.api.entities.BenchlingCustomEntity;
 import io.studytracker.benchling.api.entities.BenchlingCustomEntity.BenchlingCustomEntityList;
@@ -41,11 +44,15 @@ import io.studytracker.model.BenchlingIntegration;
 import jakarta.validation.constraints.NotNull;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +61,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
@@ -61,16 +69,63 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
-public final class BenchlingElnRestClient {
+/**
+ * Client for the Benchling API, authenticated with an application client ID and secret. The
+ * access token is acquired on first use and reused until shortly before it expires. Concurrent
+ * requests that find the token expired wait for a single refresh, and a request rejected with a
+ * 401 response is retried once with a new token. If a {@link TaskScheduler} is provided, tokens
+ * of clients in active use are refreshed in the background before they expire, so that requests
+ * do not wait for them.
+ */
+public final class BenchlingElnRestClient implements AutoCloseable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BenchlingElnRestClient.class);
 
+  /** Tokens are treated as expired this long before their actual expiry. */
+  private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(30);
+
+  /** Largest page size accepted by the Benchling list endpoints. */
+  public static final int MAX_PAGE_SIZE = 100;
+
+  /** Token lifetime assumed when Benchling does not report one. */
+  private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofMinutes(15);
+
   private final RestTemplate restTemplate;
   private final URL rootUrl;
-  private final BenchlingAuthenticationToken token;
   private final URL rootFolderUrl;
-  
+  private final String clientId;
+  private final String clientSecret;
+  private final MeterRegistry meterRegistry;
+  private final TaskScheduler taskScheduler;
+  private final Duration refreshAhead;
+
+  private volatile String accessToken;
+  private volatile Instant tokenExpiresAt = Instant.MIN;
+  private volatile Instant lastUsedAt = Instant.MIN;
+  private volatile Instant tokenAcquiredAt = Instant.MIN;
+  private ScheduledFuture<?> scheduledRefresh;
+  private volatile boolean closed = false;
+  private final AtomicInteger inFlightRequests = new AtomicInteger();
+  private volatile boolean closeWhenIdle = false;
+
   public BenchlingElnRestClient(RestTemplate restTemplate, BenchlingIntegration integration) {
+    this(restTemplate, integration, null, null, Duration.ZERO);
+  }
+
+  /**
+   * Creates a client that records metrics and, if a scheduler is provided, refreshes its token
+   *   in the background.
+   *
+   * @param restTemplate the Benchling rest template
+   * @param integration the Benchling integration
+   * @param meterRegistry registry for token refresh and request metrics, or null to use the
+   *   global registry
+   * @param taskScheduler scheduler for background token refreshes, or null to refresh tokens
+   *   only when they are needed
+   * @param refreshAhead how long before a token expires to refresh it in the background
+   */
+  public BenchlingElnRestClient(RestTemplate restTemplate, BenchlingIntegration integration,
+      MeterRegistry meterRegistry, TaskScheduler taskScheduler, Duration refreshAhead) {
     this.restTemplate = restTemplate;
     try {
       this.rootUrl = new URL(integration.getRootUrl());
@@ -78,11 +133,152 @@ public final class BenchlingElnRestClient {
     } catch (MalformedURLException ex) {
       throw new StudyTrackerException(ex);
     }
-    this.token = acquireApplicationAuthenticationToken(integration.getClientId(), integration.getClientSecret());
+    this.clientId = integration.getClientId();
+    this.clientSecret = integration.getClientSecret();
+    this.meterRegistry = meterRegistry != null ? meterRegistry : Metrics.globalRegistry;
+    this.taskScheduler = taskScheduler;
+    this.refreshAhead = refreshAhead;
   }
-  
+
   private String getAuthHeader() {
-    return "Bearer " + token.getAccessToken();
+    return "Bearer " + getAccessToken();
+  }
+
+  /**
+   * Returns a valid access token, acquiring a new one if there is none or it is about to expire.
+   */
+  private String getAccessToken() {
+    lastUsedAt = Instant.now();
+    String token = accessToken;
+    if (token != null && Instant.now().isBefore(tokenExpiresAt.minus(EXPIRY_MARGIN))) {
+      return token;
+    }
+    return refreshToken(token);
+  }
+
+  /**
+   * Acquires a new access token, unless the current token has already been replaced since the
+   *   caller read the stale token, so that concurrent callers share a single refresh.
+   *
+   * @param staleToken the token the caller found to be expired or rejected, or null
+   * @return the new access token
+   */
+  private synchronized String refreshToken(String staleToken) {
+    String current = accessToken;
+    if (current != null && !current.equals(staleToken)
+        && Instant.now().isBefore(tokenExpiresAt.minus(EXPIRY_MARGIN))) {
+      return current;
+    }
+    BenchlingAuthenticationToken token;
+    try {
+      token = acquireApplicationAuthenticationToken(clientId, clientSecret);
+      meterRegistry.counter("benchling.token.refreshes", "result", "success").increment();
+    } catch (RuntimeException e) {
+      meterRegistry.counter("benchling.token.refreshes", "result", "failure").increment();
+      throw e;
+    }
+    Duration lifetime = token.getExpiresIn() != null
+        ? Duration.ofSeconds(token.getExpiresIn()) : DEFAULT_TOKEN_LIFETIME;
+    Instant now = Instant.now();
+    accessToken = token.getAccessToken();
+    tokenAcquiredAt = now;
+    tokenExpiresAt = now.plus(lifetime);
+    scheduleRefresh(lifetime);
+    return accessToken;
+  }
+
+  private void scheduleRefresh(Duration lifetime) {
+    if (taskScheduler == null || closed) {
+      return;
+    }
+    if (scheduledRefresh != null) {
+      scheduledRefresh.cancel(false);
+    }
+    Duration delay = lifetime.minus(refreshAhead);
+    if (delay.isNegative() || delay.isZero()) {
+      return;
+    }
+    scheduledRefresh = taskScheduler.schedule(this::refreshInBackground,
+        Instant.now().plus(delay));
+  }
+
+  /**
+   * Refreshes the token before it expires, if the client has been used since the token was
+   *   acquired. Idle clients are left to acquire a new token when they are next used.
+   */
+  private void refreshInBackground() {
+    if (closed || lastUsedAt.isBefore(tokenAcquiredAt)) {
+      return;
+    }
+    try {
+      LOGGER.debug("Refreshing Benchling access token for client ID: {}", clientId);
+      refreshToken(accessToken);
+    } catch (Exception e) {
+      LOGGER.warn("Failed to refresh Benchling access token in the background", e);
+    }
+  }
+
+  /**
+   * Cancels any scheduled token refresh. The client can still be used afterwards, acquiring
+   *   tokens when they are needed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (scheduledRefresh != null) {
+      scheduledRefresh.cancel(false);
+      scheduledRefresh = null;
+    }
+  }
+
+  /**
+   * Closes the client once the requests it is sending have finished, or immediately if there
+   *   are none, so that a client being replaced does not stop refreshing its token while it is
+   *   still in use.
+   */
+  public void closeWhenIdle() {
+    closeWhenIdle = true;
+    if (inFlightRequests.get() == 0) {
+      close();
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Sends a request, recording its latency, and retries it once with a new access token if it
+   *   is rejected as unauthorized.
+   */
+  private <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> request,
+      Class<T> responseType) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    inFlightRequests.incrementAndGet();
+    try {
+      try {
+        return restTemplate.exchange(url, method, request, responseType);
+      } catch (BenchlingAuthenticationException e) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        String staleToken = authorization != null ? authorization.replace("Bearer ", "") : null;
+        LOGGER.info("Benchling API request was unauthorized, retrying with a new access token");
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + refreshToken(staleToken));
+        return restTemplate.exchange(url, method, new HttpEntity<>(request.getBody(), headers),
+            responseType);
+      }
+    } catch (RuntimeException e) {
+      outcome = e instanceof BenchlingAuthenticationException ? "unauthorized" : "error";
+      throw e;
+    } finally {
+      sample.stop(meterRegistry.timer("benchling.api.requests",
+          "method", method.name(), "outcome", outcome));
+      if (inFlightRequests.decrementAndGet() == 0 && closeWhenIdle) {
+        close();
+      }
+    }
   }
 
   private HttpHeaders getHeaders() {
@@ -155,7 +351,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingProjectList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingProjectList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingProjectList.class);
     if (!response.getStatusCode().equals(HttpStatus.OK)) {
       throw new StudyTrackerException("Failed to fetch project list.");
     }
@@ -176,7 +372,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingProject> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingProject.class);
+        exchange(url, HttpMethod.GET, request, BenchlingProject.class);
     BenchlingProject project = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       project = response.getBody();
@@ -197,12 +393,13 @@ public final class BenchlingElnRestClient {
     Map<String, String> map = new HashMap<>();
     map.put(param, value);
     map.put("nextToken", nextToken);
+    map.put("pageSize", String.valueOf(MAX_PAGE_SIZE));
     String url = resolveUrl("/api/v2/folders", map);
     HttpHeaders headers = getHeaders();
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingFolderList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingFolderList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingFolderList.class);
     BenchlingFolderList folderList = response.getBody();
     folderList.setFolders(folderList.getFolders().stream()
         .peek(f -> f.setUrl(createFolderUrl(f)))
@@ -256,7 +453,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingFolder> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingFolder.class);
+        exchange(url, HttpMethod.GET, request, BenchlingFolder.class);
     BenchlingFolder folder = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       folder = response.getBody();
@@ -285,7 +482,7 @@ public final class BenchlingElnRestClient {
 
     HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingFolder> response =
-        restTemplate.exchange(url, HttpMethod.POST, request, BenchlingFolder.class);
+        exchange(url, HttpMethod.POST, request, BenchlingFolder.class);
     if (response.getStatusCode().equals(HttpStatus.CREATED)) {
       BenchlingFolder folder = response.getBody();
       folder.setUrl(createFolderUrl(folder));
@@ -308,7 +505,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingEntry> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntry.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntry.class);
     BenchlingEntry entry = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       entry = response.getBody();
@@ -318,12 +515,16 @@ public final class BenchlingElnRestClient {
 
   public BenchlingEntryList findEntriesByFolderId(@NotNull String folderId, String nextToken) {
     LOGGER.debug("Requesting all Benchling notebook entries for folder with ID: " + folderId);
-    String url = resolveUrl("/api/v2/entries", Collections.singletonMap("folderId", folderId));
+    Map<String, String> params = new HashMap<>();
+    params.put("folderId", folderId);
+    params.put("nextToken", nextToken);
+    params.put("pageSize", String.valueOf(MAX_PAGE_SIZE));
+    String url = resolveUrl("/api/v2/entries", params);
     HttpHeaders headers = getHeaders();
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingEntryList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
     return response.getBody();
   }
 
@@ -340,7 +541,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingEntryList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
     return response.getBody();
   }
 
@@ -360,7 +561,7 @@ public final class BenchlingElnRestClient {
     Map<String, Object> body = new LinkedHashMap<>();
     HttpEntity<?> request = new HttpEntity<>(body, headers);
     ResponseEntity<BenchlingEntryList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntryList.class);
     return response.getBody();
   }
   
@@ -377,7 +578,7 @@ public final class BenchlingElnRestClient {
     headers.set("Content-Type", "application/json");
     HttpEntity<BenchlingEntryRequest> request = new HttpEntity<>(entryRequest, headers);
     ResponseEntity<BenchlingEntry> response =
-        restTemplate.exchange(url, HttpMethod.POST, request, BenchlingEntry.class);
+        exchange(url, HttpMethod.POST, request, BenchlingEntry.class);
     if (response.getStatusCode().equals(HttpStatus.CREATED)) {
       return response.getBody();
     }
@@ -391,13 +592,28 @@ public final class BenchlingElnRestClient {
    * @return
    */
   public BenchlingEntryTemplateList findEntryTemplates(String nextToken) {
+    return findEntryTemplates(nextToken, null);
+  }
+
+  /**
+   * Fetches a page of registered entry template objects ({@link BenchlingEntryTemplate}).
+   *
+   * @param nextToken token of the page to fetch, or null for the first page
+   * @param pageSize number of templates per page, or null for the API default
+   * @return the page of templates
+   */
+  public BenchlingEntryTemplateList findEntryTemplates(String nextToken, Integer pageSize) {
     LOGGER.debug("Requesting all Benchling entry templates");
-    String url =
-        resolveUrl("/api/v2/entry-templates", Collections.singletonMap("nextToken", nextToken));
+    Map<String, String> params = new HashMap<>();
+    params.put("nextToken", nextToken);
+    if (pageSize != null) {
+      params.put("pageSize", pageSize.toString());
+    }
+    String url = resolveUrl("/api/v2/entry-templates", params);
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingEntryTemplateList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingEntryTemplateList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntryTemplateList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntryTemplateList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -417,7 +633,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingEntryTemplate> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingEntryTemplate> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntryTemplate.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntryTemplate.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -438,7 +654,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingEntrySchemaList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingEntrySchemaList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntrySchemaList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntrySchemaList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -458,7 +674,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingEntrySchema> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingEntrySchema> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingEntrySchema.class);
+        exchange(url, HttpMethod.GET, request, BenchlingEntrySchema.class);
     BenchlingEntrySchema schema = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       schema = response.getBody();
@@ -477,7 +693,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingDropdownList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingDropdownList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingDropdownList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingDropdownList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -496,7 +712,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingDropdown> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingDropdown> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingDropdown.class);
+        exchange(url, HttpMethod.GET, request, BenchlingDropdown.class);
     BenchlingDropdown dropdown = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       dropdown = response.getBody();
@@ -523,7 +739,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingCustomEntityList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingCustomEntityList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingCustomEntityList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingCustomEntityList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -542,7 +758,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingCustomEntity> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingCustomEntity> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingCustomEntity.class);
+        exchange(url, HttpMethod.GET, request, BenchlingCustomEntity.class);
     BenchlingCustomEntity entity = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       entity = response.getBody();
@@ -562,7 +778,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingUserList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingUserList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingUserList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingUserList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -585,7 +801,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingUserList> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingUserList> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingUserList.class);
+        exchange(url, HttpMethod.GET, request, BenchlingUserList.class);
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       return response.getBody();
     } else {
@@ -605,7 +821,7 @@ public final class BenchlingElnRestClient {
     HttpHeaders headers = getHeaders();
     HttpEntity<BenchlingUser> request = new HttpEntity<>(headers);
     ResponseEntity<BenchlingUser> response =
-        restTemplate.exchange(url, HttpMethod.GET, request, BenchlingUser.class);
+        exchange(url, HttpMethod.GET, request, BenchlingUser.class);
     BenchlingUser user = null;
     if (response.getStatusCode().equals(HttpStatus.OK)) {
       user = response.getBody();
@@ -64,6 +64,8 @@ public class BenchlingExceptionHandler implements ResponseErrorHandler {
         json != null && json.containsKey("errorMessage") ? json.get("errorMessage") : body;
     if (response.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
       throw new EntityNotFoundException(errorMessage);
+    } else if (response.getStatusCode().equals(HttpStatus.UNAUTHORIZED)) {
+      throw new BenchlingAuthenticationException(errorMessage);
     } else {
       throw new BenchlingException(errorMessage);
     }
@@ -16,9 +16,11 @@
 
 package io.studytracker.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
@@ -28,6 +30,7 @@ import java.util.concurrent.Executor;
  */
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
   /**
@@ -45,4 +48,201 @@ public class AsyncConfig {
     executor.initialize();
     return executor;
   }
-}
\ No newline at end of file
+
+  /**
+   * Creates a bounded thread pool for running data export table readers in parallel. Each
+   * running task holds a database connection, so the pool size should stay well below the
+   * size of the connection pool.
+   *
+   * @param concurrency maximum number of tables exported at once
+   * @return the executor
+   */
+  @Bean(name = "exportTableExecutor")
+  public Executor exportTableExecutor(@Value("${export.table-concurrency:4}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("ExportTable-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a dedicated thread pool for running tracked data export jobs, so that long-running
+   * exports do not occupy the shared {@code taskExecutor}. Jobs beyond the pool size wait in a
+   * bounded queue.
+   *
+   * @param concurrency maximum number of export jobs run at once
+   * @param queueCapacity maximum number of export jobs waiting to run
+   * @return the executor
+   */
+  @Bean(name = "exportJobExecutor")
+  public Executor exportJobExecutor(
+      @Value("${export.jobs.concurrency:1}") int concurrency,
+      @Value("${export.jobs.queue-capacity:10}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("ExportJob-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for uploading the parts of multipart S3 uploads in parallel.
+   * The pool is shared by all uploads, so it also limits the total number of concurrent part
+   * uploads, and the memory and connections they use.
+   *
+   * @param concurrency maximum number of parts uploaded at once
+   * @return the executor
+   */
+  @Bean(name = "s3UploadExecutor")
+  public Executor s3UploadExecutor(@Value("${aws.s3.upload.concurrency:4}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("S3Upload-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for the server-side object copies made when renaming or moving
+   * S3 folders.
+   *
+   * @param concurrency maximum number of objects copied at once
+   * @return the executor
+   */
+  @Bean(name = "s3CopyExecutor")
+  public Executor s3CopyExecutor(@Value("${aws.s3.copy.concurrency:8}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("S3Copy-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for running S3 folder moves. Each move copies its objects on
+   * the {@code s3CopyExecutor}, so moves are kept on a separate pool to avoid waiting on
+   * themselves.
+   *
+   * @param concurrency maximum number of folder moves run at once
+   * @return the executor
+   */
+  @Bean(name = "s3MoveExecutor")
+  public Executor s3MoveExecutor(@Value("${aws.s3.move.concurrency:2}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("S3Move-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for opening storage files ahead of the file being written into
+   * a folder download archive. The pool is shared by all folder downloads, which limits the
+   * number of storage connections they hold open.
+   *
+   * @param concurrency maximum number of files opened at once
+   * @return the executor
+   */
+  @Bean(name = "storageArchiveExecutor")
+  public Executor storageArchiveExecutor(
+      @Value("${storage.archive.concurrency:4}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("StorageArchive-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for the Benchling API requests made when loading the contents
+   * of notebook folders, so that the entry and sub-folder listings of several folders can be
+   * paged through at once without exceeding the tenant's request limits.
+   *
+   * @param concurrency maximum number of Benchling folder listing requests made at once
+   * @return the executor
+   */
+  @Bean(name = "benchlingFolderExecutor")
+  public Executor benchlingFolderExecutor(
+      @Value("${benchling.folders.concurrency:4}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("BenchlingFolder-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for creating the external resources of new studies, such as
+   * their storage folders, notebook folders and Git repositories. The independent steps for a
+   * study run at the same time, so that study creation takes as long as the slowest integration,
+   * rather than the sum of all of them.
+   *
+   * @param concurrency maximum number of provisioning steps run at once
+   * @return the executor
+   */
+  @Bean(name = "studyProvisioningExecutor")
+  public Executor studyProvisioningExecutor(
+      @Value("${study.provisioning.concurrency:8}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("StudyProvisioning-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for sending bulk indexing requests to the search index, so
+   * that the batches of a large reindex are sent several at a time.
+   *
+   * @param concurrency maximum number of bulk requests sent at once
+   * @return the executor
+   */
+  @Bean(name = "searchIndexExecutor")
+  public Executor searchIndexExecutor(
+      @Value("${opensearch.bulk-concurrency:2}") int concurrency) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("SearchIndex-");
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Creates a bounded thread pool for compressing data export archives, shared by all exports,
+   * so that concurrent exports split the available cores rather than each starting a pool of
+   * their own.
+   *
+   * @param threads maximum number of compression tasks run at once, or 0 for one per core
+   * @return the executor
+   */
+  @Bean(name = "compressionExecutor")
+  public Executor compressionExecutor(@Value("${export.compression.threads:0}") int threads) {
+    int concurrency = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(concurrency);
+    executor.setMaxPoolSize(concurrency);
+    executor.setQueueCapacity(Integer.MAX_VALUE);
+    executor.setThreadNamePrefix("Compression-");
+    executor.initialize();
+    return executor;
+  }
+}
@@ -17,13 +17,19 @@
 package io.studytracker.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.studytracker.benchling.BenchlingClientFactory;
 import io.studytracker.benchling.exception.BenchlingExceptionHandler;
+import io.studytracker.integration.http.IntegrationHttpClients;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
@@ -35,7 +41,7 @@ public class ELNServiceConfiguration {
   }
 
   @Bean(name = "benchlingElnRestTemplate")
-  public RestTemplate benchlingElnRestTemplate() {
+  public RestTemplate benchlingElnRestTemplate(IntegrationHttpClients integrationHttpClients) {
     RestTemplate restTemplate =
         new RestTemplateBuilder()
             .errorHandler(new BenchlingExceptionHandler(benchlingElnObjectMapper()))
@@ -44,14 +50,18 @@ public class ELNServiceConfiguration {
         new MappingJackson2HttpMessageConverter();
     httpMessageConverter.setObjectMapper(benchlingElnObjectMapper());
     restTemplate.getMessageConverters().add(0, httpMessageConverter);
-    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-    restTemplate.setRequestFactory(requestFactory);
+    restTemplate.setRequestFactory(integrationHttpClients.requestFactory("benchling"));
     return restTemplate;
   }
 
   @Bean
-  public BenchlingClientFactory benchlingClientFactory() {
-    return new BenchlingClientFactory(benchlingElnRestTemplate());
+  public BenchlingClientFactory benchlingClientFactory(
+      @Qualifier("benchlingElnRestTemplate") RestTemplate benchlingElnRestTemplate,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      TaskScheduler taskScheduler,
+      @Value("${benchling.token.refresh-ahead-seconds:300}") long refreshAheadSeconds) {
+    return new BenchlingClientFactory(benchlingElnRestTemplate, meterRegistry.getIfAvailable(),
+        taskScheduler, Duration.ofSeconds(refreshAheadSeconds));
   }
 
 }
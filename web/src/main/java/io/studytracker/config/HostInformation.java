@@ -16,8 +16,12 @@
 
 package io.studytracker.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -25,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 @Component
 @Getter
@@ -52,6 +57,14 @@ public class HostInformation {
   @Value("${application.build-time}")
   private String buildTime;
 
+  /**
+   * Identifies this instance among the nodes sharing the database, for recording which node runs
+   * a background job. Defaults to the machine's host name.
+   */
+  @JsonIgnore
+  @Value("${application.node-id:}")
+  private String nodeId;
+
   private String getProtocol() {
     return port.equals(443) || port.equals(8443) ? "https" : "http";
   }
@@ -63,6 +76,14 @@ public class HostInformation {
 
   @PostConstruct
   public void init() {
+    if (!StringUtils.hasText(nodeId)) {
+      try {
+        nodeId = InetAddress.getLocalHost().getHostName();
+      } catch (UnknownHostException e) {
+        nodeId = UUID.randomUUID().toString();
+        LOGGER.warn("Unable to resolve the local host name, using node ID {}", nodeId);
+      }
+    }
     LOGGER.info("Host Information: " + this.toString());
   }
 
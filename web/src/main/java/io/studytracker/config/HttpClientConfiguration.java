@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.studytracker.integration.http.HttpClientSettings;
+import io.studytracker.integration.http.IntegrationHttpClients;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class HttpClientConfiguration {
+
+  @Bean
+  public IntegrationHttpClients integrationHttpClients(Environment env,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    return new IntegrationHttpClients(
+        clientName -> HttpClientSettings.fromEnvironment(env, clientName),
+        meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+  }
+
+}
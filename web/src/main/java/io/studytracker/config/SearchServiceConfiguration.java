@@ -17,11 +17,11 @@
 package io.studytracker.config;
 
 import io.studytracker.config.properties.OpensearchProperties;
-import io.studytracker.model.Assay;
-import io.studytracker.model.Study;
 import io.studytracker.repository.AssayRepository;
 import io.studytracker.repository.StudyRepository;
+import io.studytracker.search.BulkIndexResult;
 import io.studytracker.search.SearchService;
+import io.studytracker.search.opensearch.OpensearchBulkIndexer;
 import io.studytracker.search.opensearch.OpensearchSearchService;
 import org.opensearch.client.RequestOptions;
 import org.opensearch.client.RestClient;
@@ -37,6 +37,7 @@ import org.opensearch.data.core.OpenSearchOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,6 +51,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
 import java.util.Calendar;
+import java.util.concurrent.Executor;
 
 @Configuration
 @ConditionalOnProperty("search.mode")
@@ -140,6 +142,14 @@ public class SearchServiceConfiguration {
       return template;
     }
 
+    @Bean
+    public OpensearchBulkIndexer opensearchBulkIndexer(OpenSearchOperations opensearchOperations,
+        OpenSearchClient opensearchClient,
+        @Qualifier("searchIndexExecutor") Executor searchIndexExecutor) {
+      return new OpensearchBulkIndexer(opensearchOperations, opensearchClient,
+          searchIndexExecutor, properties.getBulkBatchSize(), properties.getBulkConcurrency());
+    }
+
     @Bean
     public OpensearchSearchService opensearchSearchService() {
       return new OpensearchSearchService();
@@ -170,22 +180,14 @@ public class SearchServiceConfiguration {
       Calendar calendar = Calendar.getInstance();
       calendar.add(Calendar.MINUTE, -130);
 
-      // Index studies
-      int studyCount = 0;
-      for (Study study : studyRepository.findByUpdatedAtAfter(calendar.getTime())) {
-        searchService.indexStudy(study);
-        studyCount = studyCount + 1;
-      }
-
-      // Index assays
-      int assayCount = 0;
-      for (Assay assay : assayRepository.findByUpdatedAtAfter(calendar.getTime())) {
-        searchService.indexAssay(assay);
-        assayCount = assayCount + 1;
-      }
+      BulkIndexResult studyResult =
+          searchService.indexStudies(studyRepository.findByUpdatedAtAfter(calendar.getTime()));
+      BulkIndexResult assayResult =
+          searchService.indexAssays(assayRepository.findByUpdatedAtAfter(calendar.getTime()));
 
-      LOGGER.info("Document indexing complete. Indexed {} studies and {} assays",
-          studyCount, assayCount);
+      LOGGER.info("Document indexing complete. Indexed {} studies and {} assays, with {} failures",
+          studyResult.getIndexed(), assayResult.getIndexed(),
+          studyResult.getFailed() + assayResult.getFailed());
     }
   }
 }
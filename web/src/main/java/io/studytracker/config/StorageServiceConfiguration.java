@@ -16,7 +16,14 @@
 
 package io.studytracker.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.studytracker.storage.LocalFileSystemStorageService;
+import io.studytracker.storage.cache.CaffeineStorageMetadataCache;
+import io.studytracker.storage.cache.NoOpStorageMetadataCache;
+import io.studytracker.storage.cache.StorageMetadataCache;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,6 +31,23 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class StorageServiceConfiguration {
 
+  @Bean
+  @ConditionalOnProperty(name = "storage.cache.enabled", havingValue = "true",
+      matchIfMissing = true)
+  public StorageMetadataCache storageMetadataCache(
+      @Value("${storage.cache.ttl-seconds:30}") long ttlSeconds,
+      @Value("${storage.cache.max-size:10000}") long maxSize,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    return new CaffeineStorageMetadataCache(Duration.ofSeconds(ttlSeconds), maxSize,
+        meterRegistry.getIfAvailable());
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "storage.cache.enabled", havingValue = "false")
+  public StorageMetadataCache noOpStorageMetadataCache() {
+    return new NoOpStorageMetadataCache();
+  }
+
   @Configuration
   @ConditionalOnProperty(name = "storage.mode", havingValue = "local", matchIfMissing = true)
   public static class LocalStudyStorageServiceConfiguration {
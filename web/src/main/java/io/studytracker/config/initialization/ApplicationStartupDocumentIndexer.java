@@ -17,17 +17,21 @@
 package io.studytracker.config.initialization;
 
 import io.studytracker.config.ConfigOrder;
-import io.studytracker.model.Assay;
-import io.studytracker.model.Study;
 import io.studytracker.repository.AssayRepository;
 import io.studytracker.repository.StudyRepository;
+import io.studytracker.model.Assay;
+import io.studytracker.model.Study;
+import io.studytracker.search.BulkIndexResult;
+import io.studytracker.search.PagedEntityIterable;
 import io.studytracker.search.SearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -44,27 +48,29 @@ public class ApplicationStartupDocumentIndexer implements ApplicationRunner {
   @Autowired(required = false)
   private SearchService searchService;
 
+  @Value("${opensearch.bulk-batch-size:500}")
+  private int pageSize;
+
   @Override
   public void run(ApplicationArguments args) throws Exception {
     if (searchService != null) {
       LOGGER.info("Running startup search document indexing...");
 
-      // Index studies
-      int studyCount = 0;
-      for (Study study : studyRepository.findAllWithDetails()) {
-        searchService.indexStudy(study);
-        studyCount = studyCount + 1;
-      }
+      // Index studies, loading them a page at a time
+      BulkIndexResult studyResult = searchService.reindexStudies(new PagedEntityIterable<Study>(
+          (id, size) -> studyRepository.findIdsAfter(id, PageRequest.of(0, size)),
+          studyRepository::findWithDetailsByIdIn,
+          pageSize));
 
-      // Index assays
-      int assayCount = 0;
-      for (Assay assay : assayRepository.findAllWithDetails()) {
-        searchService.indexAssay(assay);
-        assayCount = assayCount + 1;
-      }
+      // Index assays, loading them a page at a time
+      BulkIndexResult assayResult = searchService.reindexAssays(new PagedEntityIterable<Assay>(
+          (id, size) -> assayRepository.findIdsAfter(id, PageRequest.of(0, size)),
+          assayRepository::findWithDetailsByIdIn,
+          pageSize));
 
-      LOGGER.info("Document indexing complete. Indexed {} studies and {} assays",
-          studyCount, assayCount);
+      LOGGER.info("Document indexing complete. Indexed {} studies and {} assays, with {} failures",
+          studyResult.getIndexed(), assayResult.getIndexed(),
+          studyResult.getFailed() + assayResult.getFailed());
     } else {
       LOGGER.warn("StudySearchService is not defined. No study search indexing will occur.");
     }
@@ -40,6 +40,10 @@ public class OpensearchProperties {
   
   private Integer socketTimeout = 50000; // 50 seconds
 
+  private Integer bulkBatchSize = 500;
+
+  private Integer bulkConcurrency = 2;
+
   @JsonIgnore
   private String password;
 
@@ -52,6 +56,8 @@ public class OpensearchProperties {
         ", username='" + username + '\'' +
         ", connectTimeout=" + connectTimeout +
         ", socketTimeout=" + socketTimeout +
+        ", bulkBatchSize=" + bulkBatchSize +
+        ", bulkConcurrency=" + bulkConcurrency +
         ", password='*****'" +
         '}';
   }
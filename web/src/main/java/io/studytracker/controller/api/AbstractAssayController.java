@@ -28,17 +28,21 @@ import io.studytracker.model.AssayOptions;
 import io.studytracker.model.AssayTask;
 import io.studytracker.model.Status;
 import io.studytracker.model.Study;
+import io.studytracker.model.StudyProvisioningStep;
 import io.studytracker.model.User;
 import io.studytracker.service.AssayService;
 import io.studytracker.service.AssayTaskService;
 import io.studytracker.service.AssayTypeService;
+import io.studytracker.service.StudyProvisioningService;
 import io.studytracker.service.StudyService;
 import io.studytracker.service.UserService;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 public abstract class AbstractAssayController extends AbstractApiController {
 
@@ -60,6 +64,8 @@ public abstract class AbstractAssayController extends AbstractApiController {
 
   private NotebookEntryService notebookEntryService;
 
+  private StudyProvisioningService studyProvisioningService;
+
   private boolean isLong(String value) {
     try {
       Long.parseLong(value);
@@ -138,6 +144,19 @@ public abstract class AbstractAssayController extends AbstractApiController {
             .findById(assay.getOwner().getId())
             .orElseThrow(() -> new RecordNotFoundException("Cannot find user: " + user.getId())));
 
+    // The folders of a new study are created in the background, so wait for those that the
+    // assay's own folders will be created in
+    Set<StudyProvisioningStep> steps = EnumSet.noneOf(StudyProvisioningStep.class);
+    if (options.getParentFolder() == null) {
+      steps.add(StudyProvisioningStep.STORAGE_FOLDER);
+    }
+    if (options.isUseNotebook() && (options.getNotebookFolder() == null
+        || (!StringUtils.hasText(options.getNotebookFolder().getReferenceId())
+            && !StringUtils.hasText(options.getNotebookFolder().getUrl())))) {
+      steps.add(StudyProvisioningStep.NOTEBOOK_FOLDER);
+    }
+    studyProvisioningService.awaitSteps(study, steps);
+
     // Create the record
     assayService.create(assay, options);
     Assert.notNull(assay.getId(), "Assay not persisted.");
@@ -334,6 +353,15 @@ public abstract class AbstractAssayController extends AbstractApiController {
     this.assayMapper = assayMapper;
   }
 
+  public StudyProvisioningService getStudyProvisioningService() {
+    return studyProvisioningService;
+  }
+
+  @Autowired
+  public void setStudyProvisioningService(StudyProvisioningService studyProvisioningService) {
+    this.studyProvisioningService = studyProvisioningService;
+  }
+
   public AssayTypeMapper getAssayTypeMapper() {
     return assayTypeMapper;
   }
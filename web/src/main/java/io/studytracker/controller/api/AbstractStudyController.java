@@ -32,6 +32,7 @@ import io.studytracker.service.CollaboratorService;
 import io.studytracker.service.KeywordService;
 import io.studytracker.service.ProgramService;
 import io.studytracker.service.StudyCommentService;
+import io.studytracker.service.StudyProvisioningService;
 import io.studytracker.service.StudyService;
 import io.studytracker.service.UserService;
 import java.util.Optional;
@@ -42,6 +43,8 @@ public abstract class AbstractStudyController extends AbstractApiController {
 
   private StudyService studyService;
 
+  private StudyProvisioningService studyProvisioningService;
+
   private UserService userService;
 
   private ProgramService programService;
@@ -102,13 +105,16 @@ public abstract class AbstractStudyController extends AbstractApiController {
   }
 
   /**
-   * Creates a new study with notebook and storage folders, where appropriate.
+   * Creates a new study and starts provisioning its notebook and storage folders, where
+   * appropriate. The resources are created and added to the study in the background, so the
+   * returned study does not include them yet.
    * @param study the study to create
    * @return
    */
   protected Study createNewStudy(Study study) {
     Study created = studyService.create(study);
     Assert.notNull(created.getId(), "Study not persisted.");
+    studyProvisioningService.provision(created);
     Activity activity = StudyActivityUtils.fromNewStudy(created, this.getAuthenticatedUser());
     this.logActivity(activity);
     return created;
@@ -165,6 +171,15 @@ public abstract class AbstractStudyController extends AbstractApiController {
     this.studyService = studyService;
   }
 
+  public StudyProvisioningService getStudyProvisioningService() {
+    return studyProvisioningService;
+  }
+
+  @Autowired
+  public void setStudyProvisioningService(StudyProvisioningService studyProvisioningService) {
+    this.studyProvisioningService = studyProvisioningService;
+  }
+
   public UserService getUserService() {
     return userService;
   }
@@ -32,6 +32,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RequestMapping("/api/internal/assay/{assayId}/notebook")
@@ -44,7 +45,9 @@ public class AssayNotebookPrivateController extends AbstractAssayController {
   private NotebookFolderService notebookFolderService;
 
   @GetMapping("")
-  public NotebookFolder getNotebookFolder(@PathVariable("assayId") String assayId)
+  public NotebookFolder getNotebookFolder(@PathVariable("assayId") String assayId,
+      @RequestParam(value = "contents", required = false) boolean includeContents,
+      @RequestParam(value = "depth", required = false, defaultValue = "1") int depth)
       throws RecordNotFoundException {
     LOGGER.info("Fetching notebook folder for assay: " + assayId);
     Assay assay = getAssayFromIdentifier(assayId);
@@ -52,8 +55,12 @@ public class AssayNotebookPrivateController extends AbstractAssayController {
     Optional<NotebookFolder> notebookFolder =
         Optional.ofNullable(notebookFolderService)
             .flatMap(service -> service.findPrimaryAssayFolder(assay));
-    return notebookFolder.orElseThrow(
+    NotebookFolder folder = notebookFolder.orElseThrow(
         () -> new RecordNotFoundException("Could not load assay folder"));
+    if (includeContents) {
+      folder = notebookFolderService.loadFolderTree(folder, depth);
+    }
+    return folder;
   }
 
   @PostMapping("/repair")
@@ -16,6 +16,7 @@
 
 package io.studytracker.controller.api.internal;
 
+import io.studytracker.benchling.BenchlingEntryTemplateCatalog;
 import io.studytracker.benchling.BenchlingIntegrationService;
 import io.studytracker.benchling.BenchlingNotebookEntryService;
 import io.studytracker.benchling.api.entities.BenchlingCustomEntity;
@@ -62,6 +63,9 @@ public class BenchlingIntegrationController {
   @Autowired
   private BenchlingNotebookEntryService notebookEntryService;
 
+  @Autowired
+  private BenchlingEntryTemplateCatalog templateCatalog;
+
   private Optional<BenchlingIntegration> findActiveIntegration() {
      return benchlingIntegrationService.findAll().stream()
          .filter(BenchlingIntegration::isActive)
@@ -127,6 +131,17 @@ public class BenchlingIntegrationController {
     return notebookEntryService.findEntryTemplates();
   }
 
+  @PostMapping("/entry-templates/refresh")
+  public HttpEntity<?> refreshBenchlingEntryTemplates() {
+    BenchlingIntegration integration = this.findActiveIntegration().orElse(null);
+    if (integration == null || !integration.isActive()) {
+      throw new RecordNotFoundException("Benchling integration not found");
+    }
+    LOGGER.info("Refreshing Benchling entry template catalogue");
+    templateCatalog.refresh();
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
   @GetMapping("/entry-templates/{templateId}")
   public NotebookTemplate findBenchlingEntryTemplateById(
       @PathVariable("templateId") String templateId) {
@@ -16,45 +16,66 @@
 
 package io.studytracker.controller.api.internal;
 
+import io.studytracker.aws.S3FolderMoveService;
 import io.studytracker.controller.api.AbstractApiController;
 import io.studytracker.exception.FileStorageException;
 import io.studytracker.exception.InsufficientPrivilegesException;
+import io.studytracker.exception.InvalidRequestException;
 import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.mapstruct.dto.response.S3FolderMoveDto;
+import io.studytracker.mapstruct.mapper.S3FolderMoveMapper;
 import io.studytracker.mapstruct.mapper.StorageDriveFolderMapper;
 import io.studytracker.mapstruct.mapper.StorageDriveMapper;
+import io.studytracker.model.S3FolderMove;
 import io.studytracker.model.StorageDriveFolder;
 import io.studytracker.service.FileSystemStorageService;
+import io.studytracker.storage.DirectUpload;
+import io.studytracker.storage.DirectUploadCompletion;
+import io.studytracker.storage.DirectUploadStorageService;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
 import io.studytracker.storage.StorageFolder;
-import io.studytracker.storage.StorageUtils;
+import io.studytracker.storage.StorageFolderArchiveService;
+import io.studytracker.storage.StorageFolderArchiveService.Archive;
+import io.studytracker.storage.StorageFolderPage;
 import io.studytracker.storage.StudyStorageService;
 import io.studytracker.storage.StudyStorageServiceLookup;
+import io.studytracker.storage.exception.StudyStorageNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import org.apache.catalina.Globals;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequestMapping("/api/internal/data-files")
 @RestController
@@ -62,9 +83,15 @@ public class DataFileStoragePrivateController extends AbstractApiController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DataFileStoragePrivateController.class);
 
+  /** S3 and OneDrive both return at most 1,000 items per listing request. */
+  private static final int MAX_FOLDER_PAGE_SIZE = 1000;
+
   @Autowired
   private StudyStorageServiceLookup studyStorageServiceLookup;
 
+  @Autowired
+  private StorageFolderArchiveService storageFolderArchiveService;
+
   @Autowired
   private FileSystemStorageService fileSystemStorageService;
 
@@ -77,6 +104,12 @@ public class DataFileStoragePrivateController extends AbstractApiController {
   @Autowired
   private StorageDriveFolderMapper folderMapper;
 
+  @Autowired
+  private S3FolderMoveService s3FolderMoveService;
+
+  @Autowired
+  private S3FolderMoveMapper s3FolderMoveMapper;
+
   @RequestMapping(value ="", method = RequestMethod.HEAD)
   public HttpEntity<?> checkFolder(
       @RequestParam(name = "path") String rawPath,
@@ -120,6 +153,35 @@ public class DataFileStoragePrivateController extends AbstractApiController {
     }
   }
 
+  /**
+   * Returns a single page of a folder's contents, at the provided path or, if no path is given, at
+   * the root of the storage folder. The {@code nextToken} of each page is passed as the
+   * {@code cursor} to fetch the following page.
+   */
+  @GetMapping("/page")
+  public StorageFolderPage getDataStorageFolderPage(
+      @RequestParam(name = "path", required = false) String rawPath,
+      @RequestParam(name = "folderId") Long folderId,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "pageSize", defaultValue = "500") int pageSize
+  ) throws FileStorageException {
+    LOGGER.debug("Getting data storage folder page: {}: {}", folderId, rawPath);
+    if (pageSize < 1 || pageSize > MAX_FOLDER_PAGE_SIZE) {
+      throw new InvalidRequestException("Page size must be between 1 and " + MAX_FOLDER_PAGE_SIZE);
+    }
+    StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
+        .orElseThrow(() -> new RecordNotFoundException("Data storage folder not found"));
+    StudyStorageService storageService = studyStorageServiceLookup.lookup(folder.getStorageDrive().getDriveType())
+        .orElseThrow(() -> new FileStorageException("File storage service not found"));
+    String path = rawPath != null ? rawPath : folder.getPath();
+    try {
+      return storageService.findFolderPageByPath(folder, path, cursor, pageSize);
+    } catch (StudyStorageNotFoundException e) {
+      LOGGER.warn("Failed to find data storage folder page: {}: {}", folderId, path, e);
+      throw new RecordNotFoundException("Data storage folder not found: " + path, e);
+    }
+  }
+
   @PostMapping("/upload")
   public HttpEntity<StorageFile> uploadFilesToFolder(
       @RequestParam(name = "path") String path,
@@ -166,6 +228,75 @@ public class DataFileStoragePrivateController extends AbstractApiController {
 
   }
 
+  /**
+   * Starts an upload that the client sends directly to the storage service, for storage drives
+   * that support it. Returns {@code 400 Bad Request} for other drives, which must use the
+   * {@code /upload} endpoint instead.
+   */
+  @PostMapping("/direct-upload")
+  public HttpEntity<DirectUpload> createDirectUpload(
+      @RequestParam(name = "path") String path,
+      @RequestParam(name = "folderId") Long folderId,
+      @RequestParam(name = "fileName") String fileName,
+      @RequestParam(name = "size") long size
+  ) throws Exception {
+    LOGGER.info("Starting direct upload of file {} to data storage folder {}", fileName, path);
+    StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
+        .orElseThrow(() -> new RecordNotFoundException("Data storage folder not found"));
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files to this folder");
+    }
+    DirectUpload upload = lookupDirectUploadService(folder)
+        .createDirectUpload(folder, path, fileName, size);
+    return new ResponseEntity<>(upload, HttpStatus.OK);
+  }
+
+  @PostMapping("/direct-upload/complete")
+  public HttpEntity<StorageFile> completeDirectUpload(
+      @RequestParam(name = "path") String path,
+      @RequestParam(name = "folderId") Long folderId,
+      @RequestBody DirectUploadCompletion completion
+  ) throws Exception {
+    LOGGER.info("Completing direct upload of file {} to data storage folder {}",
+        completion.getFileName(), path);
+    StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
+        .orElseThrow(() -> new RecordNotFoundException("Data storage folder not found"));
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files to this folder");
+    }
+    StorageFile storageFile = lookupDirectUploadService(folder)
+        .completeDirectUpload(folder, path, completion);
+    LOGGER.debug("Uploaded file: " + storageFile.toString());
+    return new ResponseEntity<>(storageFile, HttpStatus.OK);
+  }
+
+  @DeleteMapping("/direct-upload")
+  public HttpEntity<?> abortDirectUpload(
+      @RequestParam(name = "path") String path,
+      @RequestParam(name = "folderId") Long folderId,
+      @RequestParam(name = "fileName") String fileName,
+      @RequestParam(name = "uploadId") String uploadId
+  ) throws Exception {
+    LOGGER.info("Aborting direct upload of file {} to data storage folder {}", fileName, path);
+    StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
+        .orElseThrow(() -> new RecordNotFoundException("Data storage folder not found"));
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files to this folder");
+    }
+    lookupDirectUploadService(folder).abortDirectUpload(folder, path, fileName, uploadId);
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+
+  private DirectUploadStorageService lookupDirectUploadService(StorageDriveFolder folder)
+      throws FileStorageException {
+    StudyStorageService storageService = studyStorageServiceLookup.lookup(folder.getStorageDrive().getDriveType())
+        .orElseThrow(() -> new FileStorageException("File storage service not found"));
+    if (!(storageService instanceof DirectUploadStorageService)) {
+      throw new InvalidRequestException("Direct uploads are not supported by this storage drive");
+    }
+    return (DirectUploadStorageService) storageService;
+  }
+
   @PostMapping("/temp-upload")
   public HttpEntity<Map<String, Object>> uploadTemporaryFile(
       @RequestParam("file") MultipartFile file
@@ -223,17 +354,30 @@ public class DataFileStoragePrivateController extends AbstractApiController {
     if (!parentFolder.isWriteEnabled()) {
       throw new InsufficientPrivilegesException("Insufficient privileges to rename this folder");
     }
-    String newPath = StorageUtils.joinPath(StorageUtils.getParentPathFromPath(path), newName);
-    StorageFolder storageFolder = storageService.renameFolder(parentFolder.getStorageDrive(), path, newName);
-    storageDriveFolderService.renameFolderReferences(parentFolder.getStorageDrive(), path, newPath);
+    StorageFolder storageFolder = storageDriveFolderService.renameFolder(storageService,
+        parentFolder.getStorageDrive(), path, newName);
     LOGGER.debug("Renamed folder: {}", storageFolder.toString());
     return new ResponseEntity<>(storageFolder, HttpStatus.OK);
   }
 
+  /**
+   * Returns the status of a background folder move, started by renaming or moving a folder in a
+   * storage drive that moves folder contents object by object, such as S3. The ID of the move is
+   * the {@code moveId} of the folder returned by the rename.
+   */
+  @GetMapping("/folder-moves/{moveId}")
+  public S3FolderMoveDto findFolderMove(@PathVariable("moveId") Long moveId) {
+    S3FolderMove move = s3FolderMoveService.findById(moveId)
+        .orElseThrow(() -> new RecordNotFoundException("Folder move not found: " + moveId));
+    return s3FolderMoveMapper.toDto(move);
+  }
+
   @GetMapping("/download")
   public HttpEntity<Resource> downloadFile(
       @RequestParam(name = "path") String path,
-      @RequestParam(name = "folderId") Long folderId
+      @RequestParam(name = "folderId") Long folderId,
+      @RequestHeader HttpHeaders requestHeaders,
+      HttpServletRequest request
   ) throws Exception {
     LOGGER.info("Downloading file from data storage folder {}", path);
     StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
@@ -241,16 +385,128 @@ public class DataFileStoragePrivateController extends AbstractApiController {
     StudyStorageService storageService = studyStorageServiceLookup.lookup(folder.getStorageDrive().getDriveType())
         .orElseThrow(() -> new FileStorageException("File storage service not found"));
 
-    ByteArrayResource resource = (ByteArrayResource) storageService.fetchFile(folder, path);
+    StorageFileResource resource = storageService.fetchFile(folder, path);
+    long contentLength = resource.contentLength();
     HttpHeaders headers = new HttpHeaders();
     headers.setContentDisposition(ContentDisposition.builder("attachment")
         .filename(FilenameUtils.getName(path))
         .build());
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+    // Serve a single requested byte range, so that downloads can be resumed or read in part.
+    // Multiple ranges are not supported, so the full file is returned instead.
+    List<HttpRange> ranges = parseRanges(requestHeaders);
+    if (ranges.size() == 1 && contentLength > 0) {
+      HttpRange range = ranges.get(0);
+      long start;
+      long end;
+      try {
+        start = range.getRangeStart(contentLength);
+        end = range.getRangeEnd(contentLength);
+      } catch (IllegalArgumentException e) {
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .headers(headers)
+            .build();
+      }
+      headers.set(HttpHeaders.CONTENT_RANGE,
+          "bytes " + start + "-" + end + "/" + contentLength);
+      ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+          .headers(headers)
+          .contentLength(end - start + 1)
+          .contentType(resource.getContentType());
+      if (sendLocalFile(request, resource, start, end)) {
+        return builder.build();
+      }
+      return builder.body(new InputStreamResource(resource.getInputStream(start, end)));
+    }
+
+    // Local files are sent by the servlet container without being read by the application
+    if (contentLength > 0 && sendLocalFile(request, resource, 0, contentLength - 1)) {
+      return ResponseEntity.ok()
+          .headers(headers)
+          .contentLength(contentLength)
+          .contentType(resource.getContentType())
+          .build();
+    }
+
+    // The resource is streamed to the client as it is read from storage
+    return ResponseEntity.ok()
+        .headers(headers)
+        .contentLength(contentLength)
+        .contentType(resource.getContentType())
+        .body(new InputStreamResource(resource.getInputStream()));
+  }
+
+  /**
+   * Downloads the folder at the provided path, and everything beneath it, as a ZIP archive. The
+   * archive is streamed to the client as files are read from storage.
+   *
+   * @param path the path of the folder to download
+   * @param folderId the ID of the storage folder
+   * @return the streamed archive
+   */
+  @GetMapping("/download-folder")
+  public ResponseEntity<StreamingResponseBody> downloadFolder(
+      @RequestParam(name = "path") String path,
+      @RequestParam(name = "folderId") Long folderId
+  ) throws Exception {
+    LOGGER.info("Downloading folder from data storage folder {}", path);
+    StorageDriveFolder folder = storageDriveFolderService.findById(folderId)
+        .orElseThrow(() -> new RecordNotFoundException("Data storage folder not found"));
+    StudyStorageService storageService = studyStorageServiceLookup.lookup(folder.getStorageDrive().getDriveType())
+        .orElseThrow(() -> new FileStorageException("File storage service not found"));
+
+    // Listing the folder first checks the download limits before the response is started
+    Archive archive = storageFolderArchiveService.listArchive(storageService, folder, path);
+    StreamingResponseBody body = outputStream ->
+        storageFolderArchiveService.writeZip(storageService, folder, archive, outputStream);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentDisposition(ContentDisposition.builder("attachment")
+        .filename(archive.name() + ".zip")
+        .build());
     return ResponseEntity.ok()
         .headers(headers)
-        .contentLength(resource.contentLength())
-        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-        .body(resource);
+        .contentType(MediaType.parseMediaType("application/zip"))
+        .body(body);
+  }
+
+  /**
+   * Hands a file on the local file system to the servlet container to send, if the container
+   *   supports it, so that the file is copied from disk to the socket by the operating system
+   *   rather than read through the application.
+   *
+   * @param request the download request
+   * @param resource the file to send
+   * @param start index of the first byte to send
+   * @param end index of the last byte to send, inclusive
+   * @return true if the container will send the file
+   */
+  private boolean sendLocalFile(HttpServletRequest request, StorageFileResource resource,
+      long start, long end) {
+    if (!resource.isFile()
+        || !Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+      return false;
+    }
+    try {
+      request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, resource.getFile().getCanonicalPath());
+    } catch (IOException e) {
+      LOGGER.warn("Unable to resolve local file for sendfile: {}", resource.getDescription(), e);
+      return false;
+    }
+    request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, start);
+    request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, end + 1);
+    return true;
+  }
+
+  private List<HttpRange> parseRanges(HttpHeaders requestHeaders) {
+    try {
+      return requestHeaders.getRange();
+    } catch (IllegalArgumentException e) {
+      LOGGER.debug("Ignoring invalid Range header: {}", requestHeaders.getFirst(HttpHeaders.RANGE));
+      return Collections.emptyList();
+    }
   }
 
 }
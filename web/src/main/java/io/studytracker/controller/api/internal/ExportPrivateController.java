@@ -18,30 +18,38 @@ package io.studytracker.controller.api.internal;
 
 import io.studytracker.controller.api.AbstractApiController;
 import io.studytracker.exception.InsufficientPrivilegesException;
-import io.studytracker.export.CompressionUtil;
+import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.export.DataExportResult;
 import io.studytracker.export.DataExportService;
+import io.studytracker.export.ExportJobService;
+import io.studytracker.mapstruct.dto.response.ExportJobDetailsDto;
+import io.studytracker.mapstruct.mapper.ExportJobMapper;
+import io.studytracker.model.ExportFormat;
+import io.studytracker.model.ExportJob;
 import io.studytracker.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/internal/export")
@@ -49,140 +57,163 @@ public class ExportPrivateController extends AbstractApiController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ExportPrivateController.class);
 
-  @Value("${storage.temp-dir}")
-  private String tempDir;
-
   @Autowired
   private DataExportService dataExportService;
 
   @Autowired
-  private CompressionUtil compressionUtil;
+  private ExportJobService exportJobService;
+
+  @Autowired
+  private ExportJobMapper exportJobMapper;
   
   /**
-   * Synchronously exports all database records to CSV files and then returns them to the user as a downloadable ZIP file.
+   * Synchronously exports all database records as CSV or Parquet files and streams them to the
+   * user as a downloadable ZIP file. Each table is written directly into the archive on the
+   * response stream, so no files are staged on disk and memory use does not depend on the export
+   * size.
    *
-   * @return compressed ZIP file containing all exported CSV files
+   * @param format file format of the exported tables
+   * @return compressed ZIP file containing all exported table files
    */
   @GetMapping("/sync")
-  public HttpEntity<Resource> exportDatabaseSync() {
+  public ResponseEntity<StreamingResponseBody> exportDatabaseSync(
+      @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) {
     LOGGER.info("Received request to export database synchronously");
 
-    // Check if the user is an admin
-    User user = getAuthenticatedUser();
-    if (!user.isAdmin()) {
-      LOGGER.warn("Non-admin user {} attempted to export database", user.getUsername());
-      throw new InsufficientPrivilegesException("Only administrators can export the database");
-    }
+    checkAdmin();
 
-    try {
-      // Generate a unique job ID
-      String jobId = UUID.randomUUID().toString();
-      String fileName = "data-export-" + jobId + ".zip";
-      LOGGER.info("Starting synchronous database export job with ID: {}", jobId);
-
-      // Perform the export
-      Path exportPath = dataExportService.exportAllDataToCsv(jobId);
-      Path tempPath = Paths.get(tempDir);
-      Path zipFile = Files.createFile(tempPath.resolve(fileName));
-      compressionUtil.compressDirectoryToZip(exportPath, zipFile);
-
-      // Clean up the CSV directory
-      Files.walk(exportPath)
-          .sorted((a, b) -> -a.compareTo(b))
-          .forEach(path -> {
-            try {
-              Files.delete(path);
-            } catch (IOException e) {
-              LOGGER.error("Failed to delete file {}: {}", path, e.getMessage(), e);
-            }
-          });
-      
-      // Return the ZIP file as a response
-      ByteArrayResource resource = new ByteArrayResource(Files.readAllBytes(zipFile));
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentDisposition(ContentDisposition.builder("attachment")
-              .filename(fileName)
-              .build());
-      return ResponseEntity.ok()
-              .headers(headers)
-              .contentLength(resource.contentLength())
-              .contentType(MediaType.APPLICATION_OCTET_STREAM)
-              .body(resource);
-              
-    } catch (IOException e) {
-      LOGGER.error("Error during database export: {}", e.getMessage(), e);
-      throw new RuntimeException("Database export failed", e);
-    }
+    // Generate a unique job ID
+    String jobId = UUID.randomUUID().toString();
+    String fileName = "data-export-" + jobId + ".zip";
+    LOGGER.info("Starting synchronous database export job with ID: {}", jobId);
+
+    StreamingResponseBody body = outputStream -> {
+      DataExportResult result = dataExportService.exportAllDataToZip(outputStream, jobId, format);
+      LOGGER.info("Streamed database export {} with {} rows in {} ms",
+          jobId, result.getTotalRowCount(), result.getDurationMs());
+    };
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentDisposition(ContentDisposition.builder("attachment")
+        .filename(fileName)
+        .build());
+    return ResponseEntity.ok()
+        .headers(headers)
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .body(body);
   }
 
   /**
-   * Triggers an asynchronous export of all database records to CSV files.
-   * Only admin users are allowed to access this endpoint.
+   * Queues an export of all database records as a tracked background job. The job's status and
+   * progress can be polled at {@code /api/internal/export/{jobId}}, and the finished archive
+   * downloaded from {@code /api/internal/export/{jobId}/download}.
+   *
+   * <p>By default all records are exported. An incremental export, containing only records
+   * created, updated, deleted or inactivated after a start point, can be requested by providing
+   * either a {@code since} timestamp, the {@code sinceJobId} of an earlier export to continue
+   * from, or {@code incremental=true} to continue from the most recent completed export.
    *
+   * @param incremental continue from the most recent completed export, if there is one
+   * @param since start point of an incremental export
+   * @param sinceJobId ID of a completed export job to continue from
+   * @param format file format of the exported tables
    * @return a response with a job ID that can be used to check the status of the export
    */
   @PostMapping("")
-  public ResponseEntity<Map<String, Object>> exportDatabase() {
+  public ResponseEntity<Map<String, Object>> exportDatabase(
+      @RequestParam(name = "incremental", defaultValue = "false") boolean incremental,
+      @RequestParam(name = "since", required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date since,
+      @RequestParam(name = "sinceJobId", required = false) String sinceJobId,
+      @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) {
     LOGGER.info("Received request to export database");
-
-    // Check if the user is an admin
-    User user = getAuthenticatedUser();
-    if (!user.isAdmin()) {
-      LOGGER.warn("Non-admin user {} attempted to export database", user.getUsername());
-      throw new InsufficientPrivilegesException("Only administrators can export the database");
+    User user = checkAdmin();
+
+    if (since == null && StringUtils.hasText(sinceJobId)) {
+      since = exportJobService.getContinuationPoint(sinceJobId);
+    } else if (since == null && incremental) {
+      since = exportJobService.findLatestContinuationPoint().orElse(null);
+      if (since == null) {
+        LOGGER.info("No completed export to continue from, so running a full export");
+      }
     }
 
-    // Generate a unique job ID
-    String jobId = UUID.randomUUID().toString();
-    LOGGER.info("Starting database export job with ID: {}", jobId);
-
-    // Start the export process asynchronously
-    startExportAsync(jobId);
+    ExportJob job = exportJobService.submitJob(user, since, format);
+    String jobId = job.getJobId();
+    LOGGER.info("Started database export job with ID: {}", jobId);
 
     // Return a response with the job ID
     Map<String, Object> response = new HashMap<>();
     response.put("jobId", jobId);
     response.put("status", "STARTED");
     response.put("message", "Database export started. The process will run in the background. "
-        + "Once complete, the export will be available in the directory " + tempDir + " named "
-        + "data-export-" + jobId + ".zip");
-    response.put("path", tempDir + "/data-export-" + jobId + ".zip");
+        + "Check the status of the job at /api/internal/export/" + jobId + " and download the "
+        + "archive from /api/internal/export/" + jobId + "/download once it has completed.");
+    response.put("statusUrl", "/api/internal/export/" + jobId);
+    response.put("downloadUrl", "/api/internal/export/" + jobId + "/download");
+    response.put("format", format);
+    response.put("incremental", since != null);
+    if (since != null) {
+      response.put("since", since);
+    }
 
     return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
   }
 
+  @GetMapping("")
+  public List<ExportJobDetailsDto> findExportJobs() {
+    checkAdmin();
+    return exportJobMapper.toDetailsDtoList(exportJobService.findRecentJobs());
+  }
+
+  @GetMapping("/{jobId}")
+  public ExportJobDetailsDto findExportJob(@PathVariable("jobId") String jobId) {
+    checkAdmin();
+    ExportJob job = exportJobService.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Export job not found: " + jobId));
+    return exportJobMapper.toDetailsDto(job);
+  }
+
   /**
-   * Starts the export process asynchronously.
+   * Downloads the archive of a completed export job. The file is streamed from disk.
    *
-   * @param jobId the unique identifier for this export job
-   * @return a CompletableFuture that will be completed when the export is done
+   * @param jobId ID of the export job
+   * @return the ZIP archive
    */
-  @Async("taskExecutor")
-  public CompletableFuture<Path> startExportAsync(String jobId) {
-    LOGGER.info("Starting asynchronous export with job ID: {}", jobId);
-    try {
-      Path exportPath = dataExportService.exportAllDataToCsv(jobId);
-//      String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-      Path tempPath = Paths.get(tempDir);
-      Path zipFile = Files.createFile(tempPath.resolve("data-export-" + jobId + ".zip"));
-      compressionUtil.compressDirectoryToZip(exportPath, zipFile);
-
-      // Clean up the CSV directory
-      Files.walk(exportPath)
-          .sorted((a, b) -> -a.compareTo(b))
-          .forEach(path -> {
-            try {
-              Files.delete(path);
-            } catch (IOException e) {
-              LOGGER.error("Failed to delete file {}: {}", path, e.getMessage(), e);
-            }
-          });
-
-      LOGGER.info("Export completed successfully. Files available at: {}", exportPath);
-      return CompletableFuture.completedFuture(exportPath);
-    } catch (IOException e) {
-      LOGGER.error("Error during database export: {}", e.getMessage(), e);
-      return CompletableFuture.failedFuture(e);
+  @GetMapping("/{jobId}/download")
+  public ResponseEntity<Resource> downloadExport(@PathVariable("jobId") String jobId) {
+    checkAdmin();
+    Path archive = exportJobService.getArchive(jobId);
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentDisposition(ContentDisposition.builder("attachment")
+        .filename(archive.getFileName().toString())
+        .build());
+    return ResponseEntity.ok()
+        .headers(headers)
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .body(new FileSystemResource(archive));
+  }
+
+  @PostMapping("/{jobId}/cancel")
+  public ExportJobDetailsDto cancelExport(@PathVariable("jobId") String jobId) {
+    checkAdmin();
+    return exportJobMapper.toDetailsDto(exportJobService.cancelJob(jobId));
+  }
+
+  @DeleteMapping("/{jobId}")
+  public HttpEntity<?> deleteExport(@PathVariable("jobId") String jobId) {
+    checkAdmin();
+    exportJobService.deleteJob(jobId);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  private User checkAdmin() {
+    User user = getAuthenticatedUser();
+    if (!user.isAdmin()) {
+      LOGGER.warn("Non-admin user {} attempted to export database", user.getUsername());
+      throw new InsufficientPrivilegesException("Only administrators can export the database");
     }
+    return user;
   }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.controller.api.internal;
+
+import io.studytracker.controller.api.AbstractApiController;
+import io.studytracker.exception.InsufficientPrivilegesException;
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.export.ImportJobService;
+import io.studytracker.mapstruct.dto.response.ImportJobDetailsDto;
+import io.studytracker.mapstruct.mapper.ImportJobMapper;
+import io.studytracker.model.ImportJob;
+import io.studytracker.model.User;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/internal/import")
+public class ImportPrivateController extends AbstractApiController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImportPrivateController.class);
+
+  @Value("${import.source-dir:}")
+  private String sourceDir;
+
+  @Autowired
+  private ImportJobService importJobService;
+
+  @Autowired
+  private ImportJobMapper importJobMapper;
+
+  /**
+   * Queues a restore of the database from a data export archive, replacing all existing records.
+   * Export archives are too large to upload through the API, so the archive must first be copied
+   * to the server's {@code import.source-dir} directory, and is referenced here by its file name.
+   * The restore runs as a tracked background job, whose status can be polled at
+   * {@code /api/internal/import/{jobId}}.
+   *
+   * @param file name of the archive in the import source directory
+   * @return a response with a job ID that can be used to check the status of the import
+   */
+  @PostMapping("")
+  public ResponseEntity<Map<String, Object>> importDatabase(@RequestParam("file") String file) {
+    User user = checkAdmin();
+    if (!StringUtils.hasText(sourceDir)) {
+      throw new InvalidRequestException("Data imports are disabled: import.source-dir is not set");
+    }
+
+    Path directory = Paths.get(sourceDir).toAbsolutePath().normalize();
+    Path archive = directory.resolve(file).normalize();
+    if (!archive.startsWith(directory) || archive.equals(directory)) {
+      throw new InvalidRequestException("Invalid import file name: " + file);
+    }
+    if (!Files.exists(archive)) {
+      throw new RecordNotFoundException("Import file does not exist: " + file);
+    }
+
+    ImportJob job = importJobService.submitJob(user, archive);
+    String jobId = job.getJobId();
+    LOGGER.info("User {} started database import job {} from {}",
+        user.getUsername(), jobId, archive);
+
+    Map<String, Object> response = new HashMap<>();
+    response.put("jobId", jobId);
+    response.put("status", "STARTED");
+    response.put("message", "Database import started. The process will run in the background. "
+        + "Check the status of the job at /api/internal/import/" + jobId);
+    response.put("statusUrl", "/api/internal/import/" + jobId);
+    return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+  }
+
+  @GetMapping("")
+  public List<ImportJobDetailsDto> findImportJobs() {
+    checkAdmin();
+    return importJobMapper.toDetailsDtoList(importJobService.findRecentJobs());
+  }
+
+  @GetMapping("/{jobId}")
+  public ImportJobDetailsDto findImportJob(@PathVariable("jobId") String jobId) {
+    checkAdmin();
+    ImportJob job = importJobService.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Import job not found: " + jobId));
+    return importJobMapper.toDetailsDto(job);
+  }
+
+  private User checkAdmin() {
+    User user = getAuthenticatedUser();
+    if (!user.isAdmin()) {
+      LOGGER.warn("Non-admin user {} attempted to import the database", user.getUsername());
+      throw new InsufficientPrivilegesException("Only administrators can import the database");
+    }
+    return user;
+  }
+
+}
@@ -18,6 +18,7 @@ package io.studytracker.controller.api.internal;
 
 import io.studytracker.eln.NotebookFolder;
 import io.studytracker.eln.NotebookFolderService;
+import io.studytracker.exception.RecordNotFoundException;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,11 +46,15 @@ public class NotebookPrivateController {
   
   @GetMapping("/folder/{folderId}")
   public NotebookFolder findFolder(@PathVariable("folderId") String folderId,
-          @RequestParam(value = "loadContents", required = false, defaultValue = "false") boolean loadContents) {
+          @RequestParam(value = "loadContents", required = false, defaultValue = "false") boolean loadContents,
+          @RequestParam(value = "depth", required = false, defaultValue = "1") int depth) {
     LOGGER.debug("Find notebook folder: {}", folderId);
     NotebookFolder notebookFolder = notebookFolderService.findFolderById(folderId);
+    if (notebookFolder == null) {
+      throw new RecordNotFoundException("Notebook folder not found: " + folderId);
+    }
     if (loadContents) {
-      notebookFolder = notebookFolderService.loadFolderContents(notebookFolder);
+      notebookFolder = notebookFolderService.loadFolderTree(notebookFolder, depth);
       LOGGER.debug("Loaded {} subfolders and {} entries", notebookFolder.getSubFolders().size(),
               notebookFolder.getEntries().size());
     }
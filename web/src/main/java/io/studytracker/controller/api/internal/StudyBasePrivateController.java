@@ -29,15 +29,14 @@ import io.studytracker.model.Program;
 import io.studytracker.model.Status;
 import io.studytracker.model.Study;
 import io.studytracker.model.User;
+import io.studytracker.repository.StudyQuery;
 import jakarta.validation.Valid;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
@@ -70,7 +69,9 @@ public class StudyBasePrivateController extends AbstractStudyController {
       @RequestParam(value = "external", defaultValue = "false") boolean external,
       @RequestParam(value = "my", defaultValue = "false") boolean my,
       @RequestParam(value = "search", required = false) String search,
-      @RequestParam(value = "program", required = false) Long programId) {
+      @RequestParam(value = "program", required = false) Long programId,
+      @RequestParam(value = "after", required = false) Long afterId,
+      @RequestParam(value = "size", required = false) Integer size) {
 
     List<Study> studies;
 
@@ -94,10 +95,7 @@ public class StudyBasePrivateController extends AbstractStudyController {
       if (optional.isEmpty()) {
         throw new RecordNotFoundException("Cannot find user record: " + owner);
       }
-      studies =
-          getStudyService().findAll().stream()
-              .filter(study -> study.getOwner().getId().equals(owner) && study.isActive())
-              .collect(Collectors.toList());
+      studies = findByQuery(buildStudyQuery(owner, active, legacy, external, afterId), size);
     }
 
     // Find by user
@@ -119,49 +117,45 @@ public class StudyBasePrivateController extends AbstractStudyController {
       }
     }
 
-    // Active
-    else if (active) {
-      studies =
-          getStudyService().findAll().stream()
-              .filter(
-                  study ->
-                      study.isActive()
-                          && Arrays.asList(Status.IN_PLANNING, Status.ACTIVE)
-                              .contains(study.getStatus()))
-              .collect(Collectors.toList());
-    }
-
-    // Legacy
-    else if (legacy) {
-      studies =
-          getStudyService().findAll().stream()
-              .filter(s -> s.isLegacy() && s.isActive())
-              .collect(Collectors.toList());
-    }
-
-    // External
-    else if (external) {
-      studies =
-          getStudyService().findAll().stream()
-              .filter(s -> s.getCollaborator() != null)
-              .collect(Collectors.toList());
-    }
-
     // Find by code
-    else if (code != null) {
+    else if (code != null && !active && !legacy && !external) {
       studies =
           Collections.singletonList(
               getStudyService().findByCode(code).orElseThrow(RecordNotFoundException::new));
     }
 
-    // Find all
+    // Active, legacy, external or find all
     else {
-      studies = getStudyService().findAll();
+      studies = findByQuery(buildStudyQuery(null, active, legacy, external, afterId), size);
     }
 
     return this.getStudyMapper().toStudySummaryList(studies);
   }
 
+  private StudyQuery buildStudyQuery(Long owner, boolean active, boolean legacy, boolean external,
+      Long afterId) {
+    StudyQuery query = StudyQuery.create().after(afterId);
+    if (owner != null) {
+      query.ownedBy(owner).active(true);
+    }
+    if (active) {
+      query.active(true).withStatus(Status.IN_PLANNING, Status.ACTIVE);
+    }
+    if (legacy) {
+      query.legacy(true).active(true);
+    }
+    if (external) {
+      query.external();
+    }
+    return query;
+  }
+
+  private List<Study> findByQuery(StudyQuery query, Integer size) {
+    return size != null
+        ? getStudyService().findByQuery(query, size)
+        : getStudyService().findByQuery(query);
+  }
+
   @GetMapping("/{id}")
   public StudyDetailsDto getStudy(@PathVariable("id") String studyId)
       throws RecordNotFoundException {
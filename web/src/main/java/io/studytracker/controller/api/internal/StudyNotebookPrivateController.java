@@ -46,7 +46,8 @@ public class StudyNotebookPrivateController extends AbstractStudyController {
 
   @GetMapping("")
   public NotebookFolder getStudyNotebookFolder(@PathVariable("studyId") String studyId,
-      @RequestParam(value = "contents", required = false) boolean includeContents)
+      @RequestParam(value = "contents", required = false) boolean includeContents,
+      @RequestParam(value = "depth", required = false, defaultValue = "1") int depth)
       throws RecordNotFoundException {
     LOGGER.info("Fetching notebook folder for study: " + studyId);
     Study study = getStudyFromIdentifier(studyId);
@@ -54,8 +55,12 @@ public class StudyNotebookPrivateController extends AbstractStudyController {
     Optional<NotebookFolder> notebookFolder =
         Optional.ofNullable(notebookFolderService)
             .flatMap(service -> service.findPrimaryStudyFolder(study));
-    return notebookFolder.orElseThrow(
+    NotebookFolder folder = notebookFolder.orElseThrow(
         () -> new RecordNotFoundException("Could not load notebook folder"));
+    if (includeContents) {
+      folder = notebookFolderService.loadFolderTree(folder, depth);
+    }
+    return folder;
   }
 
   @PostMapping("/repair")
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.controller.api.internal;
+
+import io.studytracker.controller.api.AbstractStudyController;
+import io.studytracker.exception.InsufficientPrivilegesException;
+import io.studytracker.mapstruct.dto.response.StudyProvisioningTaskDto;
+import io.studytracker.mapstruct.mapper.StudyProvisioningTaskMapper;
+import io.studytracker.model.Study;
+import io.studytracker.model.User;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/internal/study/{studyId}/provisioning")
+public class StudyProvisioningPrivateController extends AbstractStudyController {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(StudyProvisioningPrivateController.class);
+
+  @Autowired private StudyProvisioningTaskMapper studyProvisioningTaskMapper;
+
+  @GetMapping("")
+  public List<StudyProvisioningTaskDto> findProvisioningTasks(
+      @PathVariable("studyId") String studyId) {
+    Study study = this.getStudyFromIdentifier(studyId);
+    return studyProvisioningTaskMapper.toDtoList(
+        this.getStudyProvisioningService().findTasks(study));
+  }
+
+  @PostMapping("/retry")
+  public List<StudyProvisioningTaskDto> retryProvisioningTasks(
+      @PathVariable("studyId") String studyId) {
+    LOGGER.info("Retrying failed provisioning steps for study {}", studyId);
+    Study study = this.getStudyFromIdentifier(studyId);
+
+    // Only admins and the study's owner or creator may retry its provisioning
+    User user = this.getAuthenticatedUser();
+    if (!user.isAdmin() && !isUser(user, study.getOwner()) && !isUser(user, study.getCreatedBy())) {
+      throw new InsufficientPrivilegesException(
+          "You do not have permission to retry provisioning of this study.");
+    }
+
+    return studyProvisioningTaskMapper.toDtoList(
+        this.getStudyProvisioningService().retry(study));
+  }
+
+  private static boolean isUser(User user, User other) {
+    return other != null && user.getId().equals(other.getId());
+  }
+
+}
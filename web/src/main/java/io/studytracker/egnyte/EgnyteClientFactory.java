@@ -16,9 +16,13 @@
 
 package io.studytracker.egnyte;
 
+import io.studytracker.egnyte.rest.EgnyteRateLimiter;
 import io.studytracker.egnyte.rest.EgnyteRestApiClient;
 import io.studytracker.exception.StudyTrackerException;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.EgnyteIntegration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -31,6 +35,9 @@ public class EgnyteClientFactory {
     private String tenantName;
     private String rootUrl;
     private String apiKey;
+    private Integer qps;
+    private IntegrationHttpClients httpClients;
+    private EgnyteRateLimiters rateLimiters;
 
     public EgnyteRestApiClientBuilder tenantName(String tenantName) {
       this.tenantName = tenantName;
@@ -47,6 +54,21 @@ public class EgnyteClientFactory {
       return this;
     }
 
+    public EgnyteRestApiClientBuilder qps(Integer qps) {
+      this.qps = qps;
+      return this;
+    }
+
+    public EgnyteRestApiClientBuilder httpClients(IntegrationHttpClients httpClients) {
+      this.httpClients = httpClients;
+      return this;
+    }
+
+    public EgnyteRestApiClientBuilder rateLimiters(EgnyteRateLimiters rateLimiters) {
+      this.rateLimiters = rateLimiters;
+      return this;
+    }
+
     public EgnyteRestApiClient build() {
       Assert.notNull(apiKey, "Egnyte API key is not set.");
       Assert.isTrue(StringUtils.hasText(tenantName) || StringUtils.hasText(rootUrl),
@@ -55,13 +77,25 @@ public class EgnyteClientFactory {
       integration.setTenantName(tenantName);
       integration.setRootUrl(rootUrl);
       integration.setApiToken(apiKey);
-      return createRestApiClient(integration);
+      integration.setQps(qps);
+      return createRestApiClient(integration, httpClients, rateLimiters);
     }
 
   }
 
 
-  public static EgnyteRestApiClient createRestApiClient(EgnyteIntegration integration) {
+  /**
+   * Creates a client for the provided integration.
+   *
+   * @param integration the Egnyte integration
+   * @param httpClients the integration HTTP client layer, or null to send requests without
+   *   retries or circuit breakers
+   * @param rateLimiters the shared rate limiters of each integration, or null to give the client
+   *   a rate limiter of its own
+   * @return the client
+   */
+  public static EgnyteRestApiClient createRestApiClient(EgnyteIntegration integration,
+      IntegrationHttpClients httpClients, EgnyteRateLimiters rateLimiters) {
     String url;
     if (StringUtils.hasText(integration.getRootUrl())) {
       url = integration.getRootUrl();
@@ -71,7 +105,11 @@ public class EgnyteClientFactory {
       throw new StudyTrackerException(
           "Egnyte root URL or tenant name is not set. Eg. egnyte.root-url=https://tenant.egnyte.com");
     }
-    return new EgnyteRestApiClient(url, integration.getApiToken());
+    ClientHttpRequestFactory requestFactory = httpClients != null
+        ? httpClients.requestFactory("egnyte") : new SimpleClientHttpRequestFactory();
+    EgnyteRateLimiter rateLimiter = rateLimiters != null
+        ? rateLimiters.forIntegration(integration) : new EgnyteRateLimiter(integration.getQps());
+    return new EgnyteRestApiClient(url, integration.getApiToken(), rateLimiter, requestFactory);
   }
 
 }
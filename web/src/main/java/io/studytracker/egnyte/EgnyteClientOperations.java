@@ -21,6 +21,7 @@ import io.studytracker.egnyte.entity.EgnyteFolder;
 import io.studytracker.egnyte.entity.EgnyteObject;
 import io.studytracker.egnyte.exception.EgnyteException;
 import java.io.File;
+import java.io.InputStream;
 
 public interface EgnyteClientOperations {
 
@@ -73,4 +74,16 @@ public interface EgnyteClientOperations {
    */
   EgnyteFile uploadFile(File file, String path) throws EgnyteException;
 
+  /**
+   * Opens a stream of the contents of the file at the provided path, from byte {@code start} to
+   * byte {@code end}, inclusive. The caller is responsible for closing the stream.
+   *
+   * @param path full path of the file
+   * @param start index of the first byte to read
+   * @param end index of the last byte to read
+   * @return the file content stream
+   * @throws EgnyteException
+   */
+  InputStream downloadFile(String path, long start, long end) throws EgnyteException;
+
 }
@@ -19,6 +19,7 @@ package io.studytracker.egnyte;
 import io.studytracker.egnyte.entity.EgnyteObject;
 import io.studytracker.egnyte.rest.EgnyteRestApiClient;
 import io.studytracker.integration.IntegrationService;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.EgnyteDriveDetails;
 import io.studytracker.model.EgnyteIntegration;
 import io.studytracker.model.StorageDrive;
@@ -41,11 +42,16 @@ public class EgnyteIntegrationService implements IntegrationService<EgnyteIntegr
 
   private final EgnyteIntegrationRepository egnyteIntegrationRepository;
   private final StorageDriveRepository storageDriveRepository;
+  private final IntegrationHttpClients httpClients;
+  private final EgnyteRateLimiters rateLimiters;
 
   public EgnyteIntegrationService(EgnyteIntegrationRepository egnyteIntegrationRepository,
-      StorageDriveRepository storageDriveRepository) {
+      StorageDriveRepository storageDriveRepository, IntegrationHttpClients httpClients,
+      EgnyteRateLimiters rateLimiters) {
     this.egnyteIntegrationRepository = egnyteIntegrationRepository;
     this.storageDriveRepository = storageDriveRepository;
+    this.httpClients = httpClients;
+    this.rateLimiters = rateLimiters;
   }
 
 
@@ -102,7 +108,8 @@ public class EgnyteIntegrationService implements IntegrationService<EgnyteIntegr
 
   @Override
   public boolean test(EgnyteIntegration instance) {
-    EgnyteRestApiClient client = EgnyteClientFactory.createRestApiClient(instance);
+    EgnyteRestApiClient client = EgnyteClientFactory.createRestApiClient(instance, httpClients,
+        rateLimiters);
     try {
       EgnyteObject object = client.findObjectByPath("/Shared");
       return object != null && object.isFolder();
@@ -119,6 +126,7 @@ public class EgnyteIntegrationService implements IntegrationService<EgnyteIntegr
     EgnyteIntegration i = egnyteIntegrationRepository.getById(integration.getId());
     i.setActive(false);
     egnyteIntegrationRepository.save(i);
+    rateLimiters.remove(i.getId());
   }
 
   // Egnyte drives
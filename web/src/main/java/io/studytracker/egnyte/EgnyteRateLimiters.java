@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.egnyte;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.studytracker.egnyte.rest.EgnyteRateLimiter;
+import io.studytracker.model.EgnyteIntegration;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the Egnyte API rate limiter of each integration, so that every client and thread using
+ * an integration shares its request quota. Limiters are evicted once an integration has not
+ * been used for a while, or when it is removed, and a new limiter is created on its next use.
+ */
+@Component
+public class EgnyteRateLimiters {
+
+  private final Cache<Long, EgnyteRateLimiter> limiters;
+
+  public EgnyteRateLimiters(
+      @Value("${egnyte.rate-limiter.expire-after-access-seconds:600}") long expireAfterAccess) {
+    this.limiters = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofSeconds(expireAfterAccess))
+        .build();
+  }
+
+  /**
+   * Returns the rate limiter for the provided integration, creating it if necessary, and
+   * updates its limit to the integration's current requests-per-second setting. Integrations
+   * that have not been saved yet, such as those being tested before registration, get a limiter
+   * of their own.
+   *
+   * @param integration the Egnyte integration
+   * @return the rate limiter
+   */
+  public EgnyteRateLimiter forIntegration(EgnyteIntegration integration) {
+    if (integration.getId() == null) {
+      return new EgnyteRateLimiter(integration.getQps());
+    }
+    EgnyteRateLimiter limiter = limiters.get(integration.getId(),
+        id -> new EgnyteRateLimiter(integration.getQps()));
+    limiter.setRequestsPerSecond(integration.getQps());
+    return limiter;
+  }
+
+  /**
+   * Discards the rate limiter of the integration with the provided ID, if there is one.
+   *
+   * @param integrationId the integration ID
+   */
+  public void remove(Long integrationId) {
+    limiters.invalidate(integrationId);
+  }
+
+  public long size() {
+    limiters.cleanUp();
+    return limiters.estimatedSize();
+  }
+
+}
@@ -25,6 +25,7 @@ import io.studytracker.egnyte.exception.ObjectNotFoundException;
 import io.studytracker.exception.InsufficientPrivilegesException;
 import io.studytracker.exception.InvalidRequestException;
 import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.Assay;
 import io.studytracker.model.EgnyteDriveDetails;
 import io.studytracker.model.EgnyteFolderDetails;
@@ -38,6 +39,7 @@ import io.studytracker.repository.StorageDriveFolderRepository;
 import io.studytracker.repository.StorageDriveRepository;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
 import io.studytracker.storage.StorageFolder;
 import io.studytracker.storage.StorageUtils;
 import io.studytracker.storage.StudyStorageService;
@@ -48,7 +50,7 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -73,6 +75,12 @@ public class EgnyteStudyStorageService implements StudyStorageService {
   @Autowired
   private StorageDriveFolderRepository folderRepository;
 
+  @Autowired
+  private IntegrationHttpClients httpClients;
+
+  @Autowired
+  private EgnyteRateLimiters rateLimiters;
+
   public String getProgramFolderPath(Program program, String rootPath) {
     LOGGER.debug("getProgramFolderPath({})", program.getName());
     Optional<StorageDriveFolder> optional = storageDriveFolderService
@@ -170,7 +178,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
       throws StudyStorageNotFoundException {
     LOGGER.debug("Looking up folder by path: {}", path);
     EgnyteIntegration integration = this.findIntegrationByDrive(drive);
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       EgnyteObject egnyteObject = egnyteClient.findObjectByPath(path);
       if (egnyteObject.isFolder()) {
@@ -202,7 +211,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
       throws StudyStorageNotFoundException {
     LOGGER.debug("Finding file by path: {}", path);
     EgnyteIntegration integration = this.findIntegrationByDrive(drive);
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       EgnyteObject egnyteObject = egnyteClient.findObjectByPath(path);
       if (!egnyteObject.isFolder()) {
@@ -224,7 +234,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
     String path = parentFolder.getPath();
     LOGGER.info("Creating folder: {} in {}", name, path);
     EgnyteIntegration integration = this.findIntegrationByDrive(parentFolder.getStorageDrive());
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       if (!parentFolder.isWriteEnabled()) {
         throw new InsufficientPrivilegesException("Insufficient privileges to create folder");
@@ -247,7 +258,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
       throws StudyStorageException {
     LOGGER.info("Creating folder: {} in {}", name, path);
     EgnyteIntegration integration = this.findIntegrationByDrive(drive);
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       EgnyteFolder folder = egnyteClient.createFolder(StorageUtils.joinPath(path,
           EgnyteUtils.cleanInputObjectName(name)));
@@ -264,7 +276,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
       throws StudyStorageException {
     LOGGER.info("Uploading file: {} to {}", file.getName(), path);
     EgnyteIntegration integration = this.findIntegrationByDrive(folder.getStorageDrive());
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       if (!folder.isWriteEnabled()) {
         throw new InsufficientPrivilegesException("Insufficient privileges to write files.");
@@ -279,16 +292,36 @@ public class EgnyteStudyStorageService implements StudyStorageService {
   }
 
   @Override
-  public Resource fetchFile(StorageDriveFolder folder, String path) throws StudyStorageException {
+  public StorageFileResource fetchFile(StorageDriveFolder folder, String path)
+      throws StudyStorageException {
     LOGGER.info("Downloading file: {}", path);
-    throw new StudyStorageException("Not implemented");
+    StorageDrive drive = storageDriveFolderService.findDriveById(folder.getStorageDrive().getId())
+        .orElseThrow(() -> new RecordNotFoundException("Drive not found: "
+            + folder.getStorageDrive().getId()));
+    EgnyteIntegration integration = this.findIntegrationByDrive(drive);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
+    EgnyteFile file;
+    try {
+      EgnyteObject egnyteObject = egnyteClient.findObjectByPath(path);
+      if (egnyteObject.isFolder()) {
+        throw new StudyStorageNotFoundException("Object is not a file: " + path);
+      }
+      file = (EgnyteFile) egnyteObject;
+    } catch (EgnyteException e) {
+      throw new StudyStorageNotFoundException("Error while finding file by path", e);
+    }
+    return new StorageFileResource(file.getName(), file.getSize(),
+        MediaTypeFactory.getMediaType(file.getName()).orElse(null),
+        (start, end) -> egnyteClient.downloadFile(path, start, end));
   }
 
   @Override
   public boolean fileExists(StorageDrive drive, String path) {
     LOGGER.debug("Checking if file exists: {}", path);
     EgnyteIntegration integration = this.findIntegrationByDrive(drive);
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       EgnyteObject egnyteObject = egnyteClient.findObjectByPath(path);
       return !egnyteObject.isFolder();
@@ -313,7 +346,8 @@ public class EgnyteStudyStorageService implements StudyStorageService {
   public boolean folderExists(StorageDrive drive, String path) {
     LOGGER.debug("Checking if folder exists: {}", path);
     EgnyteIntegration integration = this.findIntegrationByDrive(drive);
-    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteClientOperations egnyteClient = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     try {
       EgnyteObject egnyteObject = egnyteClient.findObjectByPath(path);
       return egnyteObject.isFolder();
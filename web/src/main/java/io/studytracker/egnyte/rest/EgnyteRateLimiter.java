@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.egnyte.rest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Token bucket rate limiter for Egnyte API requests. Egnyte enforces request quotas per API key,
+ * so a single limiter is shared by every client and thread that uses the same integration, see
+ * {@link io.studytracker.egnyte.EgnyteRateLimiters}. Requests are sent immediately while tokens
+ * are available, at up to the plan's requests-per-second limit.
+ *
+ * <p>When Egnyte rejects a request for exceeding the quota, all requests sharing the limiter are
+ * held back until the {@code Retry-After} time has passed, or an exponential backoff if none was
+ * given, and the request rate is halved. The rate then recovers gradually with each successful
+ * request, back up to the configured limit.
+ */
+public class EgnyteRateLimiter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EgnyteRateLimiter.class);
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private static final double MIN_RATE = 0.1;
+
+  private static final Duration BASE_BACKOFF = Duration.ofSeconds(1);
+
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(60);
+
+  private double maxRate;
+  private double rate;
+  private double tokens;
+  private long lastRefill;
+  private long blockedUntil;
+
+  /**
+   * Creates a rate limiter.
+   *
+   * @param requestsPerSecond the maximum number of requests per second allowed by the plan, or
+   *   null for one request per second
+   */
+  public EgnyteRateLimiter(Integer requestsPerSecond) {
+    double limit = toLimit(requestsPerSecond);
+    this.maxRate = limit;
+    this.rate = limit;
+    this.tokens = limit;
+    this.lastRefill = System.nanoTime();
+    this.blockedUntil = lastRefill;
+  }
+
+  private static double toLimit(Integer requestsPerSecond) {
+    return requestsPerSecond != null && requestsPerSecond > 0 ? requestsPerSecond : 1;
+  }
+
+  /**
+   * Updates the maximum request rate, if it has changed.
+   *
+   * @param requestsPerSecond the maximum number of requests per second allowed by the plan, or
+   *   null for one request per second
+   */
+  public synchronized void setRequestsPerSecond(Integer requestsPerSecond) {
+    double limit = toLimit(requestsPerSecond);
+    if (limit != maxRate) {
+      maxRate = limit;
+      rate = Math.min(rate, maxRate);
+    }
+  }
+
+  /**
+   * Waits until a request may be sent, and takes a token for it.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void acquire() throws InterruptedException {
+    while (true) {
+      long waitNanos;
+      synchronized (this) {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - blockedUntil >= 0 && tokens >= 1) {
+          tokens -= 1;
+          return;
+        }
+        waitNanos = Math.max(blockedUntil - now, (long) ((1 - tokens) / rate * NANOS_PER_SECOND));
+      }
+      TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1));
+    }
+  }
+
+  private void refill(long now) {
+    double burst = Math.max(1, rate);
+    tokens = Math.min(burst, tokens + (now - lastRefill) * rate / NANOS_PER_SECOND);
+    lastRefill = now;
+  }
+
+  /**
+   * Records a successful request, gradually restoring the request rate after it was reduced.
+   */
+  public synchronized void onSuccess() {
+    if (rate < maxRate) {
+      rate = Math.min(maxRate, rate + maxRate / 20);
+    }
+  }
+
+  /**
+   * Records a request that was rejected for exceeding the quota. Further requests are blocked
+   * until the retry time has passed, and the request rate is halved.
+   *
+   * @param retryAfter the delay requested by Egnyte, or null if none was given
+   * @param attempt the number of times the request has been attempted
+   * @return the delay before requests resume
+   */
+  public synchronized Duration onRateLimited(Duration retryAfter, int attempt) {
+    Duration delay = retryAfter;
+    if (delay == null || delay.isNegative()) {
+      delay = BASE_BACKOFF.multipliedBy(1L << Math.min(attempt - 1, 6));
+    }
+    if (delay.compareTo(MAX_BACKOFF) > 0) {
+      delay = MAX_BACKOFF;
+    }
+    long now = System.nanoTime();
+    long until = now + delay.toNanos();
+    if (until - blockedUntil > 0) {
+      blockedUntil = until;
+    }
+    rate = Math.max(MIN_RATE, rate / 2);
+    tokens = 0;
+    LOGGER.warn("Egnyte API rate limit exceeded, pausing requests for {} ms and reducing the "
+        + "request rate to {} per second", delay.toMillis(), rate);
+    return delay;
+  }
+
+  public synchronized double getRate() {
+    return rate;
+  }
+
+}
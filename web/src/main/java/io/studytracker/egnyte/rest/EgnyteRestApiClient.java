@@ -29,15 +29,21 @@ import io.studytracker.egnyte.exception.ObjectNotFoundException;
 import io.studytracker.egnyte.exception.UnauthorizedException;
 import io.studytracker.exception.StudyTrackerException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -45,6 +51,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -55,11 +65,28 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(EgnyteRestApiClient.class);
 
+  /** Maximum number of times a request rejected for exceeding the rate limit is retried. */
+  private static final int MAX_RATE_LIMIT_RETRIES = 5;
+
+  /** Header Egnyte sets when a request is rejected for exceeding the developer key's quota. */
+  private static final String ERROR_CODE_HEADER = "X-Mashery-Error-Code";
+
   private final URL rootUrl;
   private final String apiKey;
   private final RestTemplate restTemplate;
+  private final EgnyteRateLimiter rateLimiter;
+  private final ClientHttpRequestFactory requestFactory;
 
   public EgnyteRestApiClient(String rootUrl, String apiKey) {
+    this(rootUrl, apiKey, null);
+  }
+
+  public EgnyteRestApiClient(String rootUrl, String apiKey, Integer qps) {
+    this(rootUrl, apiKey, new EgnyteRateLimiter(qps), new SimpleClientHttpRequestFactory());
+  }
+
+  public EgnyteRestApiClient(String rootUrl, String apiKey, EgnyteRateLimiter rateLimiter,
+      ClientHttpRequestFactory requestFactory) {
     ObjectMapper objectMapper;
     URL url;
     try {
@@ -80,7 +107,9 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     }
     this.rootUrl = url;
     this.apiKey = apiKey;
-    this.restTemplate = new RestTemplateBuilder().build();
+    this.rateLimiter = rateLimiter;
+    this.requestFactory = requestFactory;
+    this.restTemplate = new RestTemplate(requestFactory);
     MappingJackson2HttpMessageConverter httpMessageConverter =
         new MappingJackson2HttpMessageConverter();
     httpMessageConverter.setObjectMapper(objectMapper);
@@ -88,11 +117,76 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
 
   }
 
-  private void doBefore() {
+  /**
+   * Waits until the Egnyte API rate limit allows another request to be sent.
+   */
+  private void doBefore() throws EgnyteException {
     try {
-      TimeUnit.MILLISECONDS.sleep(500);
+      rateLimiter.acquire();
     } catch (InterruptedException ex) {
       Thread.currentThread().interrupt();
+      throw new EgnyteException("Interrupted while waiting to send Egnyte API request");
+    }
+  }
+
+  /**
+   * Sends a request through the rate limiter, retrying it if Egnyte rejects it for exceeding
+   *   the rate limit.
+   */
+  private <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> request,
+      Class<T> responseType) throws EgnyteException {
+    for (int attempt = 1; ; attempt++) {
+      doBefore();
+      try {
+        ResponseEntity<T> response = restTemplate.exchange(url, method, request, responseType);
+        rateLimiter.onSuccess();
+        return response;
+      } catch (HttpStatusCodeException e) {
+        if (attempt > MAX_RATE_LIMIT_RETRIES
+            || !isRateLimited(e.getStatusCode().value(), e.getResponseHeaders())) {
+          throw e;
+        }
+        rateLimiter.onRateLimited(getRetryAfter(e.getResponseHeaders()), attempt);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the response indicates the request was rejected for exceeding the rate
+   *   limit. Egnyte reports this as either a 429 response, or a 403 response with an over-quota
+   *   error code.
+   */
+  private static boolean isRateLimited(int status, HttpHeaders headers) {
+    if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+      return true;
+    }
+    if (status == HttpStatus.FORBIDDEN.value() && headers != null) {
+      String errorCode = headers.getFirst(ERROR_CODE_HEADER);
+      return errorCode != null && errorCode.contains("OVER_QPS")
+          || headers.containsKey(HttpHeaders.RETRY_AFTER);
+    }
+    return false;
+  }
+
+  /**
+   * Parses the {@code Retry-After} header, which may be given in seconds or as an HTTP date.
+   */
+  private static Duration getRetryAfter(HttpHeaders headers) {
+    String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      return Duration.ofSeconds(Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      try {
+        ZonedDateTime time = ZonedDateTime.parse(value.trim(),
+            DateTimeFormatter.RFC_1123_DATE_TIME);
+        return Duration.between(ZonedDateTime.now(time.getZone()), time);
+      } catch (Exception ex) {
+        LOGGER.debug("Ignoring invalid Retry-After header: {}", value);
+        return null;
+      }
     }
   }
 
@@ -102,7 +196,6 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
       throw new IllegalArgumentException("folderPath cannot be null");
     }
     LOGGER.info("Making request to Egnyte API to create directory: " + folderPath);
-    doBefore();
     URL url = joinUrls(rootUrl, "/pubapi/v1/fs/" + folderPath);
     HttpHeaders headers = new HttpHeaders();
     headers.set("Authorization", "Bearer " + apiKey);
@@ -112,7 +205,7 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
     try {
       ResponseEntity<EgnyteFolder> response =
-          restTemplate.exchange(url.toString(), HttpMethod.POST, request, EgnyteFolder.class);
+          exchange(url.toString(), HttpMethod.POST, request, EgnyteFolder.class);
       EgnyteFolder egnyteFolder = response.getBody();
       LOGGER.debug("New Egnyte folder: " + egnyteFolder.toString());
       return egnyteFolder;
@@ -150,8 +243,6 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     }
     LOGGER.info("Making request to Egnyte API for object at path: " + path);
 
-    doBefore();
-
     URL url = joinUrls(rootUrl, "/pubapi/v1/fs/" + path);
     LOGGER.debug("Request URL: " + url);
 
@@ -160,7 +251,7 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     HttpEntity<MultiValueMap<String, Object>> request = new HttpEntity<>(null, headers);
     ResponseEntity<EgnyteObject> response = null;
     try {
-      response = restTemplate.exchange(url.toString(), HttpMethod.GET, request, EgnyteObject.class);
+      response = exchange(url.toString(), HttpMethod.GET, request, EgnyteObject.class);
     } catch (HttpStatusCodeException e) {
       if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
         throw new ObjectNotFoundException("Requested resource was not found.");
@@ -181,14 +272,13 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
       throw new IllegalArgumentException("folderId cannot be null");
     }
     LOGGER.info("Making request to Egnyte API for folder with ID: " + folderId);
-    doBefore();
     URL url = joinUrls(rootUrl, "/pubapi/v1/fs/ids/folder/" + folderId);
     HttpHeaders headers = new HttpHeaders();
     headers.set("Authorization", "Bearer " + apiKey);
     HttpEntity<MultiValueMap<String, Object>> request = new HttpEntity<>(null, headers);
     try {
       ResponseEntity<EgnyteFolder> response =
-          restTemplate.exchange(url.toString(), HttpMethod.GET, request, EgnyteFolder.class);
+          exchange(url.toString(), HttpMethod.GET, request, EgnyteFolder.class);
       LOGGER.debug("Successfully completed Egnyte API request.");
       EgnyteFolder egnyteFolder = response.getBody();
       LOGGER.debug(egnyteFolder.toString());
@@ -207,7 +297,6 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
   @Override
   public EgnyteFile findFileById(String fileId) throws EgnyteException {
     LOGGER.info("Making request to Egnyte API for file with ID: " + fileId);
-    doBefore();
     URL url = joinUrls(rootUrl, "/pubapi/v1/fs/ids/file/" + fileId);
     HttpHeaders headers = new HttpHeaders();
     headers.set("Authorization", "Bearer " + apiKey);
@@ -215,7 +304,7 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
 
     try {
       ResponseEntity<EgnyteFile> response =
-          restTemplate.exchange(url.toString(), HttpMethod.GET, request, EgnyteFile.class);
+          exchange(url.toString(), HttpMethod.GET, request, EgnyteFile.class);
       LOGGER.debug("Successfully completed Egnyte API request.");
       return response.getBody();
     } catch (HttpStatusCodeException e) {
@@ -235,7 +324,6 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
         String.format(
             "Making request to Egnyte API to upload file %s to directory %s",
             file.getName(), path));
-    doBefore();
     URL url =
         joinUrls(rootUrl, "/pubapi/v1/fs-content/" + path + "/" + file.getName());
     HttpHeaders headers = new HttpHeaders();
@@ -246,7 +334,7 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     HttpEntity<MultiValueMap<String, Object>> request = new HttpEntity<>(body, headers);
     try {
       ResponseEntity<EgnyteFile> response =
-          restTemplate.exchange(url.toString(), HttpMethod.POST, request, EgnyteFile.class);
+          exchange(url.toString(), HttpMethod.POST, request, EgnyteFile.class);
       return response.getBody();
     } catch (HttpStatusCodeException e) {
       if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
@@ -259,6 +347,79 @@ public class EgnyteRestApiClient implements EgnyteClientOperations {
     }
   }
 
+  @Override
+  public InputStream downloadFile(String path, long start, long end) throws EgnyteException {
+    LOGGER.info("Making request to Egnyte API to download file: {} (bytes {}-{})",
+        path, start, end);
+    URL url = joinUrls(rootUrl, "/pubapi/v1/fs-content/" + path);
+    URI uri;
+    try {
+      uri = restTemplate.getUriTemplateHandler().expand(url.toString());
+    } catch (Exception e) {
+      throw new EgnyteException("Invalid file path: " + path, e);
+    }
+
+    // The response body is streamed to the caller, rather than buffered by the RestTemplate
+    ClientHttpResponse response;
+    int status;
+    for (int attempt = 1; ; attempt++) {
+      doBefore();
+      try {
+        ClientHttpRequest request = requestFactory.createRequest(uri, HttpMethod.GET);
+        request.getHeaders().setBearerAuth(apiKey);
+        request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+        response = request.execute();
+        status = response.getStatusCode().value();
+      } catch (IOException e) {
+        throw new EgnyteException("Failed to download file: " + path, e);
+      }
+      if (attempt > MAX_RATE_LIMIT_RETRIES || !isRateLimited(status, response.getHeaders())) {
+        break;
+      }
+      response.close();
+      rateLimiter.onRateLimited(getRetryAfter(response.getHeaders()), attempt);
+    }
+    if (status < 400) {
+      rateLimiter.onSuccess();
+    }
+    if (status == HttpStatus.PARTIAL_CONTENT.value()) {
+      try {
+        return response.getBody();
+      } catch (IOException e) {
+        response.close();
+        throw new EgnyteException("Failed to download file: " + path, e);
+      }
+    } else if (status == HttpStatus.OK.value()) {
+      // The range was ignored and the full file returned, so trim it to the requested bytes
+      try {
+        InputStream body = response.getBody();
+        body.skipNBytes(start);
+        return BoundedInputStream.builder()
+            .setInputStream(body)
+            .setMaxCount(end - start + 1)
+            .get();
+      } catch (IOException e) {
+        response.close();
+        throw new EgnyteException("Failed to download file: " + path, e);
+      }
+    }
+
+    String message;
+    try (ClientHttpResponse errorResponse = response;
+        InputStream body = errorResponse.getBody()) {
+      message = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      message = "Failed to download file: " + path;
+    }
+    if (status == HttpStatus.NOT_FOUND.value()) {
+      throw new ObjectNotFoundException("Requested resource was not found.");
+    } else if (status == HttpStatus.FORBIDDEN.value()) {
+      throw new UnauthorizedException("You do not have permission to perform this operation.");
+    } else {
+      throw new EgnyteException(message);
+    }
+  }
+
   private URL joinUrls(URL root, String path) {
     try {
       return new URL(root, path);
@@ -76,4 +76,8 @@ public abstract class NotebookFolder extends Model {
   @JsonSerialize
   private List<NotebookEntry> entries = new ArrayList<>();
 
+  @Transient
+  @JsonSerialize
+  private boolean contentsLoaded = false;
+
 }
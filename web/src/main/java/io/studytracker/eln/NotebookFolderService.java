@@ -122,5 +122,17 @@ public interface NotebookFolderService<T extends NotebookFolder> {
    */
   T loadFolderContents(T folder);
 
+  /**
+   * Loads the contents of the target folder and of its subfolders, down to the requested depth.
+   * A depth of 1 loads only the target folder's own contents. Folders whose contents were loaded
+   * are flagged with {@link NotebookFolder#isContentsLoaded()}, so that clients can load the
+   * remaining levels of the tree as they are opened.
+   *
+   * @param folder the folder to load
+   * @param depth number of levels of the folder tree to load
+   * @return the folder, with its contents loaded
+   */
+  T loadFolderTree(T folder, int depth);
+
 
 }
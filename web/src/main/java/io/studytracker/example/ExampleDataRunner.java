@@ -22,6 +22,12 @@ import io.studytracker.exception.StudyTrackerException;
 import io.studytracker.model.Study;
 import io.studytracker.model.User;
 import io.studytracker.repository.ActivityRepository;
+import io.studytracker.repository.DeletedRecordRepository;
+import io.studytracker.repository.ExportJobRepository;
+import io.studytracker.repository.ImportJobRepository;
+import io.studytracker.repository.S3FolderMoveRepository;
+import io.studytracker.repository.S3MultipartUploadRepository;
+import io.studytracker.repository.StudyProvisioningTaskRepository;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +58,12 @@ public class ExampleDataRunner {
   @Autowired private ExampleAssayGenerator assayGenerator;
   @Autowired private ExampleStudyCollectionGenerator studyCollectionGenerator;
   @Autowired private ActivityRepository activityRepository;
+  @Autowired private ExportJobRepository exportJobRepository;
+  @Autowired private ImportJobRepository importJobRepository;
+  @Autowired private S3FolderMoveRepository s3FolderMoveRepository;
+  @Autowired private S3MultipartUploadRepository s3MultipartUploadRepository;
+  @Autowired private StudyProvisioningTaskRepository studyProvisioningTaskRepository;
+  @Autowired private DeletedRecordRepository deletedRecordRepository;
   @Autowired private ExampleKeywordGenerator keywordGenerator;
   @Autowired private ExampleStorageFolderGenerator storageFolderGenerator;
   @Autowired private ExampleIntegrationGenerator integrationGenerator;
@@ -59,6 +71,11 @@ public class ExampleDataRunner {
 
   public void clearDatabase() {
     LOGGER.info("Wiping database...");
+    exportJobRepository.deleteAll();
+    importJobRepository.deleteAll();
+    s3FolderMoveRepository.deleteAll();
+    s3MultipartUploadRepository.deleteAll();
+    studyProvisioningTaskRepository.deleteAll();
     activityRepository.deleteAll();
     studyCollectionGenerator.deleteData();
     assayGenerator.deleteData();
@@ -71,6 +88,8 @@ public class ExampleDataRunner {
     storageFolderGenerator.deleteData();
     gitRepositoryGenerator.deleteData();
     integrationGenerator.deleteData();
+    // Deleting the example records writes tombstones for them, which are not needed here
+    deletedRecordRepository.deleteAll();
   }
 
   public void populateDatabase() {
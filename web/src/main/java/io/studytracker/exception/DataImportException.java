@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.exception;
+
+/**
+ * Thrown when a data export archive cannot be restored, or the restored data does not match the
+ * contents of the archive.
+ */
+public class DataImportException extends StudyTrackerException {
+
+  public DataImportException(String message) {
+    super(message);
+  }
+
+  public DataImportException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
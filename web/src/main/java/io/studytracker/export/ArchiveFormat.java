@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+/** Archive formats that a directory of exported files can be compressed into. */
+public enum ArchiveFormat {
+
+  /** ZIP archive, with the entries deflated in parallel. */
+  ZIP("zip"),
+
+  /** TAR archive compressed as parallel, independently deflated GZIP blocks. */
+  TAR_GZ("tar.gz");
+
+  private final String fileExtension;
+
+  ArchiveFormat(String fileExtension) {
+    this.fileExtension = fileExtension;
+  }
+
+  public String getFileExtension() {
+    return fileExtension;
+  }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019-2025 the original author or authors.
+ * Copyright 2019-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,62 +14,357 @@
  * limitations under the License.
  */
 
+
 package io.studytracker.export;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Compresses directories of files into archives, using every available core. Files are read
+ * through NIO file channels with a configurable buffer size, and compressed with a configurable
+ * deflate level:
+ *
+ * <ul>
+ *   <li>ZIP archives deflate each file as a separate task, and the compressed entries are then
+ *       combined into the archive in order.</li>
+ *   <li>TAR.GZ archives are compressed as a stream of independent GZIP blocks, so even a single
+ *       large file is compressed in parallel.</li>
+ * </ul>
+ *
+ * <p>Compression tasks run on the shared {@code compressionExecutor}, so the number of threads
+ * compressing at once is bounded across all concurrent exports.
+ */
 @Component
 public class CompressionUtil {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompressionUtil.class);
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  @Value("${export.compression.buffer-size:65536}")
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+  @Value("${export.compression.level:6}")
+  private int level = 6;
+
+  @Value("${export.compression.threads:0}")
+  private int threads = 0;
+
+  @Value("${export.compression.block-size:1048576}")
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+
+  @Autowired
+  @Qualifier("compressionExecutor")
+  private Executor compressionExecutor;
+
+  public CompressionUtil() {
+  }
+
+  public CompressionUtil(int bufferSize, int level, int threads, int blockSize,
+      Executor compressionExecutor) {
+    this.bufferSize = bufferSize;
+    this.level = level;
+    this.threads = threads;
+    this.blockSize = blockSize;
+    this.compressionExecutor = compressionExecutor;
+  }
+
   /**
    * Compress a directory of files into a ZIP archive
    * @param sourceDir Directory containing files to compress
    * @param zipFilePath Path where the ZIP file will be created
    */
   public void compressDirectoryToZip(Path sourceDir, Path zipFilePath) throws IOException {
-    try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(zipFilePath.toFile()))) {
-      File dirToZip = sourceDir.toFile();
-      zipFile(dirToZip, dirToZip.getName(), zipOut);
+    compressDirectory(sourceDir, zipFilePath, ArchiveFormat.ZIP);
+  }
+
+  /**
+   * Compress a directory of files into a GZIP-compressed TAR archive
+   * @param sourceDir Directory containing files to compress
+   * @param archivePath Path where the archive will be created
+   */
+  public void compressDirectoryToTarGz(Path sourceDir, Path archivePath) throws IOException {
+    compressDirectory(sourceDir, archivePath, ArchiveFormat.TAR_GZ);
+  }
+
+  /**
+   * Compresses a directory of files into an archive of the given format. Entries are stored
+   * under a top-level folder with the name of the source directory, and hidden files and
+   * folders are skipped.
+   *
+   * @param sourceDir directory containing files to compress
+   * @param archivePath path where the archive will be created
+   * @param format archive format
+   * @throws IOException if the files cannot be read, or the archive cannot be written
+   */
+  public void compressDirectory(Path sourceDir, Path archivePath, ArchiveFormat format)
+      throws IOException {
+    long start = System.currentTimeMillis();
+    List<Path> paths = listPaths(sourceDir);
+    ArchiveExecutorService executor = new ArchiveExecutorService(compressionExecutor);
+    try {
+      if (format == ArchiveFormat.TAR_GZ) {
+        writeTarGz(sourceDir, paths, archivePath, executor);
+      } else {
+        writeZip(sourceDir, paths, archivePath, executor);
+      }
+    } finally {
+      executor.shutdownNow();
     }
+    LOGGER.debug("Compressed {} to {} in {} ms", sourceDir, archivePath,
+        System.currentTimeMillis() - start);
   }
 
-  private void zipFile(File fileToZip, String fileName, ZipOutputStream zipOut) throws IOException {
-    if (fileToZip.isHidden()) {
-      return;
+  private void writeZip(Path sourceDir, List<Path> paths, Path zipFilePath,
+      ExecutorService executor) throws IOException {
+    ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor,
+        new DefaultBackingStoreSupplier(zipFilePath.toAbsolutePath().getParent()), level);
+    try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(zipFilePath)) {
+      for (Path path : paths) {
+        String name = getEntryName(sourceDir, path);
+        if (Files.isDirectory(path)) {
+          zipOut.putArchiveEntry(new ZipArchiveEntry(name + "/"));
+          zipOut.closeArchiveEntry();
+        } else {
+          ZipArchiveEntry entry = new ZipArchiveEntry(name);
+          entry.setMethod(ZipEntry.DEFLATED);
+          entry.setTime(Files.getLastModifiedTime(path).toMillis());
+          creator.addArchiveEntry(entry, openFile(path));
+        }
+      }
+      creator.writeTo(zipOut);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing " + sourceDir);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause() instanceof UncheckedIOException
+          ? e.getCause().getCause()
+          : e.getCause();
+      throw new IOException("Failed to compress " + sourceDir + ": " + cause.getMessage(), cause);
     }
+  }
 
-    if (fileToZip.isDirectory()) {
-      if (fileName.endsWith("/")) {
-        zipOut.putNextEntry(new ZipEntry(fileName));
-        zipOut.closeEntry();
-      } else {
-        zipOut.putNextEntry(new ZipEntry(fileName + "/"));
-        zipOut.closeEntry();
+  private void writeTarGz(Path sourceDir, List<Path> paths, Path archivePath,
+      ExecutorService executor) throws IOException {
+    OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(archivePath),
+        bufferSize);
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(
+        new ParallelGzipOutputStream(fileOut, executor, blockSize, level, getThreadCount() * 2))) {
+      tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+      tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+      WritableByteChannel channel = Channels.newChannel(tarOut);
+      ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+      for (Path path : paths) {
+        String name = getEntryName(sourceDir, path);
+        boolean directory = Files.isDirectory(path);
+        TarArchiveEntry entry = new TarArchiveEntry(directory ? name + "/" : name);
+        entry.setModTime(Files.getLastModifiedTime(path));
+        if (!directory) {
+          entry.setSize(Files.size(path));
+        }
+        tarOut.putArchiveEntry(entry);
+        if (!directory) {
+          try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+              buffer.flip();
+              while (buffer.hasRemaining()) {
+                channel.write(buffer);
+              }
+              buffer.clear();
+            }
+          }
+        }
+        tarOut.closeArchiveEntry();
+      }
+      tarOut.finish();
+    }
+  }
+
+  /** Lists the source directory and its contents, in a stable order, skipping hidden files. */
+  private List<Path> listPaths(Path sourceDir) throws IOException {
+    List<Path> paths = new ArrayList<>();
+    Files.walkFileTree(sourceDir, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        if (Files.isHidden(dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        paths.add(dir);
+        return FileVisitResult.CONTINUE;
       }
 
-      File[] children = fileToZip.listFiles();
-      for (File childFile : children) {
-        zipFile(childFile, fileName + "/" + childFile.getName(), zipOut);
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (!Files.isHidden(file)) {
+          paths.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    paths.sort(null);
+    return paths;
+  }
+
+  private String getEntryName(Path sourceDir, Path path) {
+    Path relative = sourceDir.relativize(path);
+    String name = sourceDir.getFileName().toString();
+    for (Path part : relative) {
+      if (!part.toString().isEmpty()) {
+        name = name + "/" + part;
       }
-      return;
     }
+    return name;
+  }
 
-    try (FileInputStream fis = new FileInputStream(fileToZip)) {
-      ZipEntry zipEntry = new ZipEntry(fileName);
-      zipOut.putNextEntry(zipEntry);
+  private InputStreamSupplier openFile(Path path) {
+    return () -> {
+      try {
+        InputStream in = Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+        return new BufferedInputStream(in, bufferSize);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  private int getThreadCount() {
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * View of the shared compression executor for a single archive. Commons Compress shuts down
+   * the executor it is given once the archive is written, so shutting down this view only stops
+   * it from accepting tasks, and {@link #shutdownNow()} cancels the archive's unfinished tasks
+   * without affecting other archives.
+   */
+  private static class ArchiveExecutorService extends AbstractExecutorService {
+
+    private final Executor executor;
+    private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown = false;
+
+    ArchiveExecutorService(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+      return track(new FutureTask<>(callable) {
+        @Override
+        protected void done() {
+          tasks.remove(this);
+        }
+      });
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+      return newTaskFor(() -> {
+        runnable.run();
+        return value;
+      });
+    }
 
-      byte[] bytes = new byte[1024];
-      int length;
-      while ((length = fis.read(bytes)) >= 0) {
-        zipOut.write(bytes, 0, length);
+    private <T> RunnableFuture<T> track(RunnableFuture<T> task) {
+      tasks.add(task);
+      return task;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Archive compression has finished");
+      }
+      executor.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      for (Future<?> task : tasks) {
+        task.cancel(true);
+      }
+      return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown && tasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      for (Future<?> task : tasks) {
+        try {
+          task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | CancellationException e) {
+          // The task has finished, and its failure is reported to whoever submitted it
+        } catch (TimeoutException e) {
+          return false;
+        }
       }
+      return isShutdown();
     }
+
   }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+/**
+ * Writes an exported table as CSV. Timestamps are formatted as ISO-8601 strings, ID lists as
+ * comma-separated values, and maps and JSON columns as JSON documents. Missing values are written
+ * as empty strings.
+ */
+public class CsvExportTableWriter extends ExportTableWriter {
+
+  private static final FastDateFormat SDF =
+      FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+  private final CSVWriter writer;
+  private final ObjectMapper objectMapper;
+
+  public CsvExportTableWriter(String name, OutputStream outputStream, DataExportResult result,
+      ExportProgressListener listener, ObjectMapper objectMapper) {
+    super(name, result, listener);
+    this.writer = new CSVWriter(
+        new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  protected void writeColumns(ExportColumn[] columns) {
+    String[] header = new String[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      header[i] = columns[i].getName();
+    }
+    writer.writeNext(header);
+  }
+
+  @Override
+  protected void writeValues(ExportColumn[] columns, Object[] row) throws IOException {
+    String[] values = new String[row.length];
+    for (int i = 0; i < row.length; i++) {
+      values[i] = format(columns[i].getType(), row[i]);
+    }
+    writer.writeNext(values);
+  }
+
+  private String format(ExportColumnType type, Object value) throws IOException {
+    switch (type) {
+      case MAP:
+      case JSON:
+        return objectMapper.writeValueAsString(value);
+      case TIMESTAMP:
+        return value != null ? SDF.format((Date) value) : "";
+      case ID_LIST:
+        return value != null
+            ? ((Collection<?>) value).stream().map(String::valueOf).collect(Collectors.joining(","))
+            : "";
+      default:
+        return value != null ? value.toString() : "";
+    }
+  }
+
+  @Override
+  protected void checkError() throws IOException {
+    if (writer.checkError()) {
+      throw new IOException("Failed to write rows to table " + getName());
+    }
+  }
+
+  @Override
+  protected void closeOutput() throws IOException {
+    writer.close();
+  }
+
+}
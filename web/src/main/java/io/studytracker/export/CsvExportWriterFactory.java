@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.OutputStream;
+
+/** Creates {@link CsvExportTableWriter} instances, for exports in the CSV format. */
+public class CsvExportWriterFactory implements ExportWriterFactory {
+
+  private final ObjectMapper objectMapper;
+
+  public CsvExportWriterFactory(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public String getFileExtension() {
+    return "csv";
+  }
+
+  @Override
+  public ExportTableWriter createWriter(String name, OutputStream outputStream,
+      DataExportResult result, ExportProgressListener listener) {
+    return new CsvExportTableWriter(name, outputStream, result, listener, objectMapper);
+  }
+
+}
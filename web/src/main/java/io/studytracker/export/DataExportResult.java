@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.studytracker.model.ExportFormat;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import lombok.Data;
+
+/** Summary of a completed data export, including per-table row counts and timings. */
+@Data
+public class DataExportResult {
+
+  private String jobId;
+
+  @JsonIgnore
+  private Path directory;
+
+  private long durationMs;
+
+  /** File format of the exported tables. */
+  private ExportFormat format = ExportFormat.CSV;
+
+  /** Start point of an incremental export, or null for a full export. */
+  private Date since;
+
+  /** High-water mark of the export, from which a following incremental export can continue. */
+  private Date watermark;
+
+  private final List<ExportTableResult> tables = Collections.synchronizedList(new ArrayList<>());
+
+  public DataExportResult() {
+  }
+
+  public DataExportResult(String jobId, Path directory) {
+    this.jobId = jobId;
+    this.directory = directory;
+  }
+
+  public boolean isIncremental() {
+    return since != null;
+  }
+
+  public void addTable(ExportTableResult table) {
+    this.tables.add(table);
+  }
+
+  public long getTotalRowCount() {
+    synchronized (tables) {
+      return tables.stream().mapToLong(ExportTableResult::getRowCount).sum();
+    }
+  }
+
+}
@@ -17,1392 +17,1660 @@
 package io.studytracker.export;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.opencsv.CSVWriter;
-import io.studytracker.exception.RecordNotFoundException;
 import io.studytracker.model.*;
-import io.studytracker.repository.*;
-import java.io.FileWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.hibernate.jpa.HibernateHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class DataExportService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DataExportService.class);
 
-  private static final SimpleDateFormat SDF =
-      new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
+  private static final FastDateFormat SDF =
+      FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+  /** Entity attributes that record when a record was created or last modified. */
+  private static final List<String> CHANGE_TIMESTAMP_ATTRIBUTES =
+      List.of("createdAt", "updatedAt", "date");
+
+  /** Exported tables of records that are inactivated, rather than deleted, when removed. */
+  private static final Map<String, Class<?>> INACTIVATED_RECORD_TABLES = new LinkedHashMap<>();
+
+  static {
+    INACTIVATED_RECORD_TABLES.put("users", User.class);
+    INACTIVATED_RECORD_TABLES.put("storage_drives", StorageDrive.class);
+    INACTIVATED_RECORD_TABLES.put("programs", Program.class);
+    INACTIVATED_RECORD_TABLES.put("git_groups", GitGroup.class);
+    INACTIVATED_RECORD_TABLES.put("studies", Study.class);
+    INACTIVATED_RECORD_TABLES.put("assays", Assay.class);
+    INACTIVATED_RECORD_TABLES.put("aws_integrations", AwsIntegration.class);
+    INACTIVATED_RECORD_TABLES.put("egnyte_integrations", EgnyteIntegration.class);
+    INACTIVATED_RECORD_TABLES.put("benchling_integrations", BenchlingIntegration.class);
+    INACTIVATED_RECORD_TABLES.put("gitlab_integrations", GitLabIntegration.class);
+    INACTIVATED_RECORD_TABLES.put("microsoft_integrations", MSGraphIntegration.class);
+  }
 
   @Value("${storage.temp-dir}")
   private String tempDir;
 
+  @Value("${export.fetch-size:500}")
+  private int fetchSize;
+
+  @Value("${export.parquet.row-group-size:67108864}")
+  private long parquetRowGroupSize;
+
+  @Value("${export.parquet.page-size:1048576}")
+  private int parquetPageSize;
+
+  @Value("${export.parquet.compression:SNAPPY}")
+  private String parquetCompression;
+
   @Autowired private ObjectMapper objectMapper;
-  @Autowired private StudyRepository studyRepository;
-  @Autowired private ProgramRepository programRepository;
-  @Autowired private AssayRepository assayRepository;
-  @Autowired private UserRepository userRepository;
-  @Autowired private CollaboratorRepository collaboratorRepository;
-  @Autowired private CommentRepository commentRepository;
-  @Autowired private KeywordRepository keywordRepository;
-  @Autowired private StudyCollectionRepository studyCollectionRepository;
-  @Autowired private AssayTypeRepository assayTypeRepository;
-  @Autowired private ActivityRepository activityRepository;
-  @Autowired private ExternalLinkRepository externalLinkRepository;
-  @Autowired private StudyConclusionsRepository studyConclusionsRepository;
-  @Autowired private StudyRelationshipRepository studyRelationshipRepository;
-  @Autowired private AssayTaskRepository assayTaskRepository;
-  @Autowired private StorageDriveRepository storageDriveRepository;
-  @Autowired private GitRepositoryRepository gitRepositoryRepository;
-  @Autowired private ProgramNotebookFolderRepository programNotebookFolderRepository;
-  @Autowired private ProgramStorageFolderRepository programStorageFolderRepository;
 
-  @Autowired
-  private StorageDriveFolderRepository storageDriveFolderRepository;
+  @PersistenceContext private EntityManager entityManager;
 
-  @Autowired
-  private GitGroupRepository gitGroupRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
 
-  @Autowired
-  private GitLabGroupRepository gitLabGroupRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
 
   @Autowired
-  private GitLabRepositoryRepository gitLabRepositoryRepository;
+  @Qualifier("exportTableExecutor")
+  private Executor exportTableExecutor;
 
-  @Autowired
-  private AssayTypeFieldRepository assayTypeFieldRepository;
+  public Path exportAllDataToCsv() throws IOException {
+    return exportAllDataToCsv(UUID.randomUUID().toString());
+  }
 
-  @Autowired
-  private AssayTypeTaskRepository assayTypeTaskRepository;
+  public Path exportAllDataToCsv(String jobId) throws IOException {
+    return exportAllData(jobId).getDirectory();
+  }
 
-  @Autowired
-  private AssayTypeTaskFieldRepository assayTypeTaskFieldRepository;
+  /**
+   * Exports every table to a separate CSV file in a new temporary directory. All records are read
+   * through forward-only database cursors with a fixed fetch size, and rows are written to disk
+   * as they are read, so memory use does not grow with the size of the database.
+   *
+   * <p>The table exporters share no state and only read from the database, so they are run in
+   * parallel on the bounded {@code exportTableExecutor} pool. All of them read from the snapshot
+   * of a single read-only {@code REPEATABLE READ} transaction, so the tables are consistent with
+   * each other. The largest tables are submitted first, so that they do not end up at the back
+   * of the queue.
+   *
+   * @param jobId ID of the export job, used to name the output directory
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the export files cannot be written
+   */
+  public DataExportResult exportAllData(String jobId) throws IOException {
+    return exportAllData(jobId, ExportProgressListener.NONE);
+  }
 
-  @Autowired
-  private StudyNotebookFolderRepository studyNotebookFolderRepository;
+  /**
+   * Exports every table to a separate CSV file in a new temporary directory, reporting progress
+   * to the provided listener. If the listener reports that the export has been cancelled, the
+   * running table exporters stop and an {@link ExportCancelledException} is thrown.
+   *
+   * @param jobId ID of the export job, used to name the output directory
+   * @param listener receives per-table and per-row progress updates
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the export files cannot be written
+   */
+  public DataExportResult exportAllData(String jobId, ExportProgressListener listener)
+      throws IOException {
+    return exportAllData(jobId, listener, null);
+  }
 
-  @Autowired
-  private StudyStorageFolderRepository studyStorageFolderRepository;
+  /**
+   * Exports records to CSV files in a new temporary directory. If {@code since} is provided,
+   * the export is incremental: tables of records with creation or modification timestamps only
+   * contain the records created or updated after that time, and a {@code deleted_records} table
+   * lists the records deleted or inactivated since then. Tables of records without timestamps are
+   * always exported in full. The {@code export_manifest} table records which tables are
+   * incremental, along with the high-water mark that the next incremental export should start
+   * from.
+   *
+   * @param jobId ID of the export job, used to name the output directory
+   * @param listener receives per-table and per-row progress updates
+   * @param since start point of an incremental export, or null for a full export
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the export files cannot be written
+   */
+  public DataExportResult exportAllData(String jobId, ExportProgressListener listener,
+      Date since) throws IOException {
+    return exportAllData(jobId, listener, since, ExportFormat.CSV);
+  }
 
-  @Autowired
-  private AssayNotebookFolderRepository assayNotebookFolderRepository;
+  /**
+   * Exports records to table files of the given format in a new temporary directory, either in
+   * full or incrementally, as described in
+   * {@link #exportAllData(String, ExportProgressListener, Date)}.
+   *
+   * @param jobId ID of the export job, used to name the output directory
+   * @param listener receives per-table and per-row progress updates
+   * @param since start point of an incremental export, or null for a full export
+   * @param format file format of the exported tables
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the export files cannot be written
+   */
+  public DataExportResult exportAllData(String jobId, ExportProgressListener listener,
+      Date since, ExportFormat format) throws IOException {
 
-  @Autowired
-  private AssayStorageFolderRepository assayStorageFolderRepository;
+    // Create the temporary export directory
+    Path tempPath = Paths.get(tempDir, "export", "data-export-" + jobId);
+    Path tempDir = Files.createDirectories(tempPath);
+    LOGGER.info("Exporting data to temporary directory: {}", tempDir.toString());
 
-  @Autowired
-  private AssayTaskFieldRepository assayTaskFieldRepository;
+    DataExportResult result = new DataExportResult(jobId, tempDir);
+    result.setSince(since);
+    result.setFormat(format);
+    runExport(ExportOutput.toDirectory(tempDir), result, listener);
+    return result;
+  }
 
-  @Autowired
-  private AwsIntegrationRepository awsIntegrationRepository;
+  /**
+   * Exports every table as a CSV entry written directly into a ZIP archive on the provided
+   * stream, without staging any files on disk. ZIP entries must be written one at a time, so the
+   * table exporters run sequentially on the calling thread, within a single read-only
+   * {@code REPEATABLE READ} transaction. The archive is finished, but the provided stream is not
+   * closed.
+   *
+   * @param outputStream the stream to write the archive to
+   * @param jobId ID of the export job, used to name the folder within the archive
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the archive cannot be written
+   */
+  public DataExportResult exportAllDataToZip(OutputStream outputStream, String jobId)
+      throws IOException {
+    return exportAllDataToZip(outputStream, jobId, ExportFormat.CSV);
+  }
 
-  @Autowired
-  private EgnyteIntegrationRepository egnyteIntegrationRepository;
+  /**
+   * Exports every table as an entry of the given format, written directly into a ZIP archive on
+   * the provided stream, as described in {@link #exportAllDataToZip(OutputStream, String)}.
+   *
+   * @param outputStream the stream to write the archive to
+   * @param jobId ID of the export job, used to name the folder within the archive
+   * @param format file format of the exported tables
+   * @return summary of the export, with per-table row counts and timings
+   * @throws IOException if the archive cannot be written
+   */
+  public DataExportResult exportAllDataToZip(OutputStream outputStream, String jobId,
+      ExportFormat format) throws IOException {
+    LOGGER.info("Streaming data export {} to ZIP archive", jobId);
+    DataExportResult result = new DataExportResult(jobId, null);
+    result.setFormat(format);
+    ZipOutputStream zipOut = new ZipOutputStream(outputStream);
+    runExport(ExportOutput.toZip(zipOut, "data-export-" + jobId), result,
+        ExportProgressListener.NONE);
+    zipOut.finish();
+    zipOut.flush();
+    return result;
+  }
 
-  @Autowired
-  private BenchlingIntegrationRepository benchlingIntegrationRepository;
+  private void runExport(ExportOutput output, DataExportResult result,
+      ExportProgressListener listener) throws IOException {
 
-  @Autowired
-  private GitLabIntegrationRepository gitLabIntegrationRepository;
+    ExportContext context =
+        new ExportContext(output, result, createWriterFactory(result.getFormat()), listener);
+    long start = System.currentTimeMillis();
 
-  @Autowired
-  private MSGraphIntegrationRepository mSGraphIntegrationRepository;
+    // Changes committed after this point will be picked up by the next incremental export
+    result.setWatermark(new Date(start));
+    if (result.isIncremental()) {
+      LOGGER.info("Exporting records changed since {}", SDF.format(result.getSince()));
+    }
 
-  @Autowired
-  private SharePointSiteRepository sharePointSiteRepository;
+    // Export each entity type to a separate CSV file
+    Map<String, TableExporter> exporters = new LinkedHashMap<>();
+    exporters.put("activity", this::exportActivitiesToCsv);
+    exporters.put("assays", this::exportAssaysToCsv);
+    exporters.put("studies", this::exportStudiesToCsv);
+    exporters.put("users", this::exportUsersToCsv);
+    exporters.put("programs", this::exportProgramsToCsv);
+    exporters.put("storage drives", this::exportStorageDrivesToCsv);
+    exporters.put("storage drive folders", this::exportStorageDriveFoldersToCsv);
+    exporters.put("git groups", this::exportGitGroupsToCsv);
+    exporters.put("git repositories", this::exportGitRepositoriesToCsv);
+    exporters.put("assay types", this::exportAssayTypesToCsv);
+    exporters.put("collaborators", this::exportCollaboratorsToCsv);
+    exporters.put("keywords", this::exportKeywordsToCsv);
+    exporters.put("study collections", this::exportStudyCollectionsToCsv);
+    exporters.put("integrations", this::exportIntegrationsToCsv);
+    exporters.put("ELN folders", this::exportElnFolders);
+    if (result.isIncremental()) {
+      exporters.put("deleted records", this::exportDeletedRecords);
+    }
 
-  @Autowired
-  private ELNFolderRepository eLNFolderRepository;
+    listener.onExportStarted(exporters.size());
+
+    // Every table is read from the snapshot of a single transaction, so that the exported tables
+    // are consistent with each other, even while records are being modified
+    try {
+      newSnapshotTransaction().executeWithoutResult(status -> {
+        try {
+          if (output.supportsConcurrentEntries()) {
+            String snapshotId =
+                jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+            runExportersConcurrently(exporters, context, listener, snapshotId);
+          } else {
+            runExportersSequentially(exporters, context, listener);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    exportManifest(context);
+
+    result.setDurationMs(System.currentTimeMillis() - start);
+    LOGGER.info("Exported {} rows from {} tables in {} ms",
+        result.getTotalRowCount(), result.getTables().size(), result.getDurationMs());
+    for (ExportTableResult table : result.getTables()) {
+      LOGGER.debug("Exported {} rows to table {} in {} ms",
+          table.getRowCount(), table.getName(), table.getDurationMs());
+    }
 
-  public Path exportAllDataToCsv() throws IOException {
-    return exportAllDataToCsv(UUID.randomUUID().toString());
   }
 
-  public Path exportAllDataToCsv(String jobId) throws IOException {
+  /**
+   * Creates the table writer factory for the requested export format.
+   *
+   * @param format the export format
+   * @return writer factory
+   */
+  private ExportWriterFactory createWriterFactory(ExportFormat format) {
+    if (format == ExportFormat.PARQUET) {
+      return new ParquetExportWriterFactory(objectMapper, parquetRowGroupSize, parquetPageSize,
+          CompressionCodecName.valueOf(parquetCompression.toUpperCase()));
+    }
+    return new CsvExportWriterFactory(objectMapper);
+  }
 
-    // Create the temporary export directory
-    Path tempPath = Paths.get(tempDir, "export", "data-export-" + jobId);
-    Path tempDir = Files.createDirectories(tempPath);
-    LOGGER.info("Exporting data to temporary directory: {}", tempDir.toString());
+  /**
+   * Creates a template for read-only {@code REPEATABLE READ} transactions, which read every
+   *   query from the same snapshot of the database.
+   */
+  private TransactionTemplate newSnapshotTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    return transactionTemplate;
+  }
 
-    // Export each entity type to a separate CSV file
-    exportUsersToCsv(tempDir);
-    exportProgramsToCsv(tempDir);
-    exportStorageDrivesToCsv(tempDir);
-    exportStorageDriveFoldersToCsv(tempDir);
-    exportGitGroupsToCsv(tempDir);
-    exportGitRepositoriesToCsv(tempDir);
-    exportAssayTypesToCsv(tempDir);
-    exportStudiesToCsv(tempDir);
-    exportAssaysToCsv(tempDir);
-    exportCollaboratorsToCsv(tempDir);
-    exportKeywordsToCsv(tempDir);
-    exportStudyCollectionsToCsv(tempDir);
-    exportActivitiesToCsv(tempDir);
-    exportIntegrationsToCsv(tempDir);
-    exportElnFolders(tempDir);
-
-    return tempDir;
+  /**
+   * Runs the table exporters one at a time on the calling thread, within its snapshot
+   * transaction.
+   */
+  private void runExportersSequentially(Map<String, TableExporter> exporters,
+      ExportContext context, ExportProgressListener listener) throws IOException {
+    for (Map.Entry<String, TableExporter> entry : exporters.entrySet()) {
+      try {
+        entry.getValue().export(context);
+        listener.onTableGroupCompleted(entry.getKey());
+      } catch (IOException e) {
+        LOGGER.error("Failed to export {}", entry.getKey(), e);
+        throw e;
+      }
+    }
   }
 
-  private void exportUsersToCsv(Path directory) throws IOException {
-    LOGGER.info("Exporting users...");
-    List<User> users = userRepository.findAll();
-    Path filePath = directory.resolve("users.csv");
+  /**
+   * Runs the table exporters in parallel on the {@code exportTableExecutor} pool. A transaction
+   * cannot be shared between threads, so each exporter reads in a transaction of its own that
+   * imports the snapshot of the calling thread's transaction, in the same way as
+   * {@code pg_dump}, and sees exactly the same data. The calling thread's transaction must stay
+   * open until all of the exporters have finished.
+   */
+  private void runExportersConcurrently(Map<String, TableExporter> exporters,
+      ExportContext context, ExportProgressListener listener, String snapshotId)
+      throws IOException {
+    if (snapshotId == null || !snapshotId.matches("[0-9A-Fa-f-]+")) {
+      throw new IOException("Invalid database snapshot ID: " + snapshotId);
+    }
+    TransactionTemplate transactionTemplate = newSnapshotTransaction();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (Map.Entry<String, TableExporter> entry : exporters.entrySet()) {
+      futures.add(CompletableFuture.runAsync(
+          () -> {
+            transactionTemplate.executeWithoutResult(status -> {
+              jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+              try {
+                entry.getValue().export(context);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+            listener.onTableGroupCompleted(entry.getKey());
+          },
+          exportTableExecutor
+      ).whenComplete((v, e) -> {
+        if (e != null) {
+          LOGGER.error("Failed to export {}", entry.getKey(), e);
+        }
+      }));
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause() instanceof UncheckedIOException
+          ? e.getCause().getCause()
+          : e.getCause();
+      if (cause instanceof ExportCancelledException) {
+        throw (ExportCancelledException) cause;
+      }
+      throw new IOException("Data export failed: " + cause.getMessage(), cause);
+    }
+  }
 
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+  private void exportUsersToCsv(ExportContext context) throws IOException {
+    LOGGER.info("Exporting users...");
+    try (ExportTableWriter writer = context.openTable("users")) {
       // Write header
-      String[] header = {
-          "ID",
-          "Username",
-          "DisplayName",
-          "Email",
-          "Type",
-          "Department",
-          "Title",
-          "Active",
-          "Admin",
-          "Locked",
-          "Expired",
-          "CredentialExpired",
-          "CreatedAt",
-          "UpdatedAt",
-          "Attributes",
-          "Configuration"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Username"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("Email"),
+          ExportColumn.string("Type"),
+          ExportColumn.string("Department"),
+          ExportColumn.string("Title"),
+          ExportColumn.bool("Active"),
+          ExportColumn.bool("Admin"),
+          ExportColumn.bool("Locked"),
+          ExportColumn.bool("Expired"),
+          ExportColumn.bool("CredentialExpired"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.map("Attributes"),
+          ExportColumn.map("Configuration")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (User user : users) {
-        String[] row = {
-            String.valueOf(user.getId()),
-            user.getUsername(),
-            user.getDisplayName(),
-            user.getEmail(),
-            user.getType().toString(),
-            user.getDepartment(),
-            user.getTitle(),
-            String.valueOf(user.isActive()),
-            String.valueOf(user.isAdmin()),
-            String.valueOf(user.isLocked()),
-            String.valueOf(user.isExpired()),
-            String.valueOf(user.isCredentialsExpired()),
-            SDF.format(user.getCreatedAt()),
-            user.getUpdatedAt() != null ? SDF.format(user.getUpdatedAt()) : "",
-            objectMapper.writeValueAsString(user.getAttributes()),
-            objectMapper.writeValueAsString(user.getConfiguration())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, User.class, user -> new Object[] {
+          user.getId(),
+          user.getUsername(),
+          user.getDisplayName(),
+          user.getEmail(),
+          user.getType(),
+          user.getDepartment(),
+          user.getTitle(),
+          user.isActive(),
+          user.isAdmin(),
+          user.isLocked(),
+          user.isExpired(),
+          user.isCredentialsExpired(),
+          user.getCreatedAt(),
+          user.getUpdatedAt(),
+          user.getAttributes(),
+          user.getConfiguration()
+      });
     }
   }
 
-  private void exportStorageDrivesToCsv(Path directory) throws IOException {
+  private void exportStorageDrivesToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting storage drives...");
-    List<StorageDrive> drives = storageDriveRepository.findAll();
-    Path filePath = directory.resolve("storage_drives.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("storage_drives")) {
       // Write header
-      String[] header = {
-          "ID",
-          "DisplayName",
-          "DriveType",
-          "RootPath",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
-          "Details"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("DriveType"),
+          ExportColumn.string("RootPath"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.json("Details")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (StorageDrive drive : drives) {
-        String[] row = {
-            String.valueOf(drive.getId()),
-            drive.getDisplayName(),
-            drive.getDriveType().toString(),
-            drive.getRootPath(),
-            String.valueOf(drive.isActive()),
-            SDF.format(drive.getCreatedAt()),
-            drive.getUpdatedAt() != null ? SDF.format(drive.getUpdatedAt()) : "",
-            objectMapper.writeValueAsString(drive.getDetails())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, StorageDrive.class, drive -> new Object[] {
+          drive.getId(),
+          drive.getDisplayName(),
+          drive.getDriveType(),
+          drive.getRootPath(),
+          drive.isActive(),
+          drive.getCreatedAt(),
+          drive.getUpdatedAt(),
+          drive.getDetails()
+      });
     }
   }
 
-  private void exportStorageDriveFoldersToCsv(Path directory) throws IOException {
+  private void exportStorageDriveFoldersToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting storage drive folders...");
-    List<StorageDriveFolder> folders = storageDriveFolderRepository.findAll();
-    Path filePath = directory.resolve("storage_drive_folders.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("storage_drive_folders")) {
       // Write header
-      String[] header = {
-          "ID",
-          "StorageDriveId",
-          "Name",
-          "Path",
-          "BrowserRoot",
-          "StudyRoot",
-          "WriteEnabled",
-          "DeleteEnabled",
-          "CreatedAt",
-          "UpdatedAt",
-          "Details"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StorageDriveId"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Path"),
+          ExportColumn.bool("BrowserRoot"),
+          ExportColumn.bool("StudyRoot"),
+          ExportColumn.bool("WriteEnabled"),
+          ExportColumn.bool("DeleteEnabled"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.json("Details")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (StorageDriveFolder folder : folders) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getStorageDrive().getId()),
-            folder.getName(),
-            folder.getPath(),
-            String.valueOf(folder.isBrowserRoot()),
-            String.valueOf(folder.isStudyRoot()),
-            String.valueOf(folder.isWriteEnabled()),
-            String.valueOf(folder.isDeleteEnabled()),
-            SDF.format(folder.getCreatedAt()),
-            folder.getUpdatedAt() != null ? SDF.format(folder.getUpdatedAt()) : "",
-            objectMapper.writeValueAsString(folder.getDetails())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, StorageDriveFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getStorageDrive().getId(),
+          folder.getName(),
+          folder.getPath(),
+          folder.isBrowserRoot(),
+          folder.isStudyRoot(),
+          folder.isWriteEnabled(),
+          folder.isDeleteEnabled(),
+          folder.getCreatedAt(),
+          folder.getUpdatedAt(),
+          folder.getDetails()
+      });
     }
   }
 
-  private void exportProgramsToCsv(Path directory) throws IOException {
+  private void exportProgramsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting programs...");
-    List<Program> programs = programRepository.findAll();
 
     // program details
-    Path filePath = directory.resolve("programs.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Code",
-          "Description",
-          "CreatedBy",
-          "LastModifiedBy",
-          "CreatedAt",
-          "UpdatedAt",
-          "Active",
-          "Attributes"
+    try (ExportTableWriter writer = context.openTable("programs")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Code"),
+          ExportColumn.string("Description"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.bool("Active"),
+          ExportColumn.map("Attributes")
       };
-      writer.writeNext(header);
-
-      for (Program program : programs) {
-        String[] row = {
-            String.valueOf(program.getId()),
-            program.getName(),
-            program.getCode(),
-            program.getDescription(),
-            String.valueOf(program.getCreatedBy().getId()),
-            program.getLastModifiedBy() != null ? String.valueOf(program.getLastModifiedBy().getId()) : "",
-            SDF.format(program.getCreatedAt()),
-            program.getUpdatedAt() != null ? SDF.format(program.getUpdatedAt()) : "",
-            String.valueOf(program.isActive()),
-            objectMapper.writeValueAsString(program.getAttributes())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, Program.class, program -> new Object[] {
+          program.getId(),
+          program.getName(),
+          program.getCode(),
+          program.getDescription(),
+          program.getCreatedBy().getId(),
+          program.getLastModifiedBy() != null ? program.getLastModifiedBy().getId() : null,
+          program.getCreatedAt(),
+          program.getUpdatedAt(),
+          program.isActive(),
+          program.getAttributes()
+      });
     }
 
     // program notebook folders
-    filePath = directory.resolve("programs_notebook_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "ProgramId",
-          "ElnFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("programs_notebook_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("ProgramId"),
+          ExportColumn.id("ElnFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-
-      for (ProgramNotebookFolder folder: programNotebookFolderRepository.findAll()){
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getProgram().getId()),
-            String.valueOf(folder.getElnFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, ProgramNotebookFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getProgram().getId(),
+          folder.getElnFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // program storage folders
-    filePath = directory.resolve("programs_storage_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "ProgramId",
-          "StorageDriveFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("programs_storage_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("ProgramId"),
+          ExportColumn.id("StorageDriveFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-
-      for (ProgramStorageFolder folder: programStorageFolderRepository.findAll()){
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getProgram().getId()),
-            String.valueOf(folder.getStorageDriveFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, ProgramStorageFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getProgram().getId(),
+          folder.getStorageDriveFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // program git groups
-    filePath = directory.resolve("programs_git_groups.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "GitGroupId",
-          "ProgramId",
+    try (ExportTableWriter writer = context.openTable("programs_git_groups")) {
+      ExportColumn[] header = {
+          ExportColumn.id("GitGroupId"),
+          ExportColumn.id("ProgramId")
       };
-      writer.writeNext(header);
-
-      for (Program program : programs) {
-        for (GitGroup group: gitGroupRepository.findByProgramId(program.getId())){
-          String[] row = {
-              String.valueOf(group.getId()),
-              String.valueOf(program.getId())
-          };
-          writer.writeNext(row);
-        }
-      }
+      writer.writeHeader(header);
+
+      writeJoinRows(writer,
+          "select g.id, p.id from Program p join p.gitGroups g order by p.id, g.id");
     }
 
   }
 
-  private void exportGitGroupsToCsv(Path directory) throws IOException {
+  private void exportGitGroupsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting git groups...");
-    Path filePath = directory.resolve("git_groups.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("git_groups")) {
       // Write header
-      String[] header = {
-          "ID",
-          "ParentGroupId",
-          "DisplayName",
-          "WebUrl",
-          "Active",
-          "GitServiceType",
-          "CreatedAt",
-          "UpdatedAt"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("ParentGroupId"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("WebUrl"),
+          ExportColumn.bool("Active"),
+          ExportColumn.string("GitServiceType"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (GitGroup group : gitGroupRepository.findAll()) {
-        String[] row = {
-            String.valueOf(group.getId()),
-            group.getParentGroup() != null ? String.valueOf(group.getParentGroup().getId()) : "",
-            group.getDisplayName(),
-            group.getWebUrl(),
-            String.valueOf(group.isActive()),
-            group.getGitServiceType().toString(),
-            SDF.format(group.getCreatedAt()),
-            group.getUpdatedAt() != null ? SDF.format(group.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, GitGroup.class, group -> new Object[] {
+          group.getId(),
+          group.getParentGroup() != null ? group.getParentGroup().getId() : null,
+          group.getDisplayName(),
+          group.getWebUrl(),
+          group.isActive(),
+          group.getGitServiceType(),
+          group.getCreatedAt(),
+          group.getUpdatedAt()
+      });
     }
 
-    filePath = directory.resolve("gitlab_groups.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("gitlab_groups")) {
       // Write header
-      String[] header = {
-          "ID",
-          "GitLabIntegrationId",
-          "GitGroupId",
-          "GroupId",
-          "Name",
-          "Path"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("GitLabIntegrationId"),
+          ExportColumn.id("GitGroupId"),
+          ExportColumn.integer("GroupId"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Path")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (GitLabGroup group : gitLabGroupRepository.findAll()) {
-        String[] row = {
-            String.valueOf(group.getId()),
-            group.getGitLabIntegration() != null ? String.valueOf(group.getGitLabIntegration().getId()) : "",
-            group.getGitGroup() != null ? String.valueOf(group.getGitGroup().getId()) : "",
-            String.valueOf(group.getGroupId()),
-            group.getName(),
-            group.getPath()
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, GitLabGroup.class, group -> new Object[] {
+          group.getId(),
+          group.getGitLabIntegration() != null ? group.getGitLabIntegration().getId() : null,
+          group.getGitGroup() != null ? group.getGitGroup().getId() : null,
+          group.getGroupId(),
+          group.getName(),
+          group.getPath()
+      });
     }
 
 
   }
 
-  private void exportGitRepositoriesToCsv(Path directory) throws IOException {
+  private void exportGitRepositoriesToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting git repositories...");
-    Path filePath = directory.resolve("git_repositories.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("git_repositories")) {
       // Write header
-      String[] header = {
-          "ID",
-          "GitGroupId",
-          "DisplayName",
-          "Description",
-          "WebURL",
-          "SshURL",
-          "HttpURL",
-          "CreatedAt",
-          "UpdatedAt"
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("GitGroupId"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("Description"),
+          ExportColumn.string("WebURL"),
+          ExportColumn.string("SshURL"),
+          ExportColumn.string("HttpURL"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (GitRepository repository : gitRepositoryRepository.findAll()) {
-        String[] row = {
-            String.valueOf(repository.getId()),
-            repository.getGitGroup() != null ? String.valueOf(repository.getGitGroup().getId()) : "",
-            repository.getDisplayName(),
-            repository.getDescription(),
-            repository.getWebUrl(),
-            repository.getSshUrl(),
-            repository.getHttpUrl(),
-            SDF.format(repository.getCreatedAt()),
-            repository.getUpdatedAt() != null ? SDF.format(repository.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, GitRepository.class, repository -> new Object[] {
+          repository.getId(),
+          repository.getGitGroup() != null ? repository.getGitGroup().getId() : null,
+          repository.getDisplayName(),
+          repository.getDescription(),
+          repository.getWebUrl(),
+          repository.getSshUrl(),
+          repository.getHttpUrl(),
+          repository.getCreatedAt(),
+          repository.getUpdatedAt()
+      });
     }
 
-    filePath = directory.resolve("gitlab_repositories.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
+    try (ExportTableWriter writer = context.openTable("gitlab_repositories")) {
       // Write header
-      String[] header = {
-          "ID",
-          "GitRepositoryId",
-          "GitLabGroupId",
-          "RepositoryId",
-          "Name",
-          "Path",
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("GitRepositoryId"),
+          ExportColumn.id("GitLabGroupId"),
+          ExportColumn.integer("RepositoryId"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Path")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (GitLabRepository repository : gitLabRepositoryRepository.findAll()) {
-        String[] row = {
-            String.valueOf(repository.getId()),
-            String.valueOf(repository.getGitRepository().getId()),
-            String.valueOf(repository.getGitLabGroup().getId()),
-            String.valueOf(repository.getRepositoryId()),
-            repository.getName(),
-            repository.getPath()
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, GitLabRepository.class, repository -> new Object[] {
+          repository.getId(),
+          repository.getGitRepository().getId(),
+          repository.getGitLabGroup().getId(),
+          repository.getRepositoryId(),
+          repository.getName(),
+          repository.getPath()
+      });
     }
 
   }
 
-  private void exportAssayTypesToCsv(Path directory) throws IOException {
+  private void exportAssayTypesToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting assay types...");
 
-    List<AssayType> assayTypes = assayTypeRepository.findAll();
-    Path filePath = directory.resolve("assay_types.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Description",
-          "Active",
-          "Attributes"
+    try (ExportTableWriter writer = context.openTable("assay_types")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Description"),
+          ExportColumn.bool("Active"),
+          ExportColumn.map("Attributes")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayType assayType : assayTypes) {
-        String[] row = {
-            String.valueOf(assayType.getId()),
-            assayType.getName(),
-            assayType.getDescription(),
-            String.valueOf(assayType.isActive()),
-            objectMapper.writeValueAsString(assayType.getAttributes())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayType.class, assayType -> new Object[] {
+          assayType.getId(),
+          assayType.getName(),
+          assayType.getDescription(),
+          assayType.isActive(),
+          assayType.getAttributes()
+      });
     }
 
     // Fields
-    filePath = directory.resolve("assay_type_fields.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayTypeId",
-          "DisplayName",
-          "FieldName",
-          "Type",
-          "Required",
-          "Description",
-          "Active",
-          "FieldOrder",
-          "DropdownOptions",
-          "DefaultValue"
+    try (ExportTableWriter writer = context.openTable("assay_type_fields")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayTypeId"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("FieldName"),
+          ExportColumn.string("Type"),
+          ExportColumn.bool("Required"),
+          ExportColumn.string("Description"),
+          ExportColumn.bool("Active"),
+          ExportColumn.integer("FieldOrder"),
+          ExportColumn.string("DropdownOptions"),
+          ExportColumn.string("DefaultValue")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayTypeField field: assayTypeFieldRepository.findAll()) {
-        String[] row = {
-            String.valueOf(field.getId()),
-            String.valueOf(field.getAssayType().getId()),
-            field.getDisplayName(),
-            field.getFieldName(),
-            field.getType().toString(),
-            String.valueOf(field.isRequired()),
-            field.getDescription(),
-            String.valueOf(field.isActive()),
-            String.valueOf(field.getFieldOrder()),
-            field.getDropdownOptions(),
-            field.getDefaultValue()
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayTypeField.class, field -> new Object[] {
+          field.getId(),
+          field.getAssayType().getId(),
+          field.getDisplayName(),
+          field.getFieldName(),
+          field.getType(),
+          field.isRequired(),
+          field.getDescription(),
+          field.isActive(),
+          field.getFieldOrder(),
+          field.getDropdownOptions(),
+          field.getDefaultValue()
+      });
     }
 
     // Tasks
-    filePath = directory.resolve("assay_type_tasks.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayTypeId",
-          "Status",
-          "Label",
-          "Order",
-          "CreatedAt",
-          "UpdatedAt"
+    try (ExportTableWriter writer = context.openTable("assay_type_tasks")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayTypeId"),
+          ExportColumn.string("Status"),
+          ExportColumn.string("Label"),
+          ExportColumn.integer("Order"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayTypeTask task: assayTypeTaskRepository.findAll()) {
-        String[] row = {
-            String.valueOf(task.getId()),
-            String.valueOf(task.getAssayType().getId()),
-            task.getStatus().toString(),
-            task.getLabel(),
-            String.valueOf(task.getOrder()),
-            SDF.format(task.getCreatedAt()),
-            task.getUpdatedAt() != null ? SDF.format(task.getUpdatedAt()) : ""
-
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayTypeTask.class, task -> new Object[] {
+          task.getId(),
+          task.getAssayType().getId(),
+          task.getStatus(),
+          task.getLabel(),
+          task.getOrder(),
+          task.getCreatedAt(),
+          task.getUpdatedAt()
+      });
     }
 
     // Task Fields
-    filePath = directory.resolve("assay_type_task_fields.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayTypeTaskId",
-          "DisplayName",
-          "FieldName",
-          "Type",
-          "Required",
-          "Description",
-          "Active",
-          "FieldOrder",
-          "DropdownOptions",
-          "DefaultValue"
+    try (ExportTableWriter writer = context.openTable("assay_type_task_fields")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayTypeTaskId"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("FieldName"),
+          ExportColumn.string("Type"),
+          ExportColumn.bool("Required"),
+          ExportColumn.string("Description"),
+          ExportColumn.bool("Active"),
+          ExportColumn.integer("FieldOrder"),
+          ExportColumn.string("DropdownOptions"),
+          ExportColumn.string("DefaultValue")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayTypeTaskField field: assayTypeTaskFieldRepository.findAll()) {
-        String[] row = {
-            String.valueOf(field.getId()),
-            String.valueOf(field.getAssayTypeTask().getId()),
-            field.getDisplayName(),
-            field.getFieldName(),
-            field.getType().toString(),
-            String.valueOf(field.isRequired()),
-            field.getDescription(),
-            String.valueOf(field.isActive()),
-            String.valueOf(field.getFieldOrder()),
-            field.getDropdownOptions(),
-            field.getDefaultValue()
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayTypeTaskField.class, field -> new Object[] {
+          field.getId(),
+          field.getAssayTypeTask().getId(),
+          field.getDisplayName(),
+          field.getFieldName(),
+          field.getType(),
+          field.isRequired(),
+          field.getDescription(),
+          field.isActive(),
+          field.getFieldOrder(),
+          field.getDropdownOptions(),
+          field.getDefaultValue()
+      });
     }
 
   }
 
-  private void exportStudiesToCsv(Path directory) throws IOException {
-    List<Study> studies = studyRepository.findAll();
-    Path filePath = directory.resolve("studies.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "ProgramId",
-          "Code",
-          "ExternalCode",
-          "Status",
-          "Name",
-          "Description",
-          "CollaboratorId",
-          "Legacy",
-          "Active",
-          "CreatedBy",
-          "LastModifiedBy",
-          "StartDate",
-          "EndDate",
-          "CreatedAt",
-          "UpdatedAt",
-          "Owner",
-          "Users",
-          "Keywords",
-          "Attributes"
+  private void exportStudiesToCsv(ExportContext context) throws IOException {
+    try (ExportTableWriter writer = context.openTable("studies")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("ProgramId"),
+          ExportColumn.string("Code"),
+          ExportColumn.string("ExternalCode"),
+          ExportColumn.string("Status"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Description"),
+          ExportColumn.id("CollaboratorId"),
+          ExportColumn.bool("Legacy"),
+          ExportColumn.bool("Active"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.timestamp("StartDate"),
+          ExportColumn.timestamp("EndDate"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.id("Owner"),
+          ExportColumn.idList("Users"),
+          ExportColumn.idList("Keywords"),
+          ExportColumn.map("Attributes")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (Study study : studies) {
-        String[] row = {
-            String.valueOf(study.getId()),
-            String.valueOf(study.getProgram().getId()),
-            study.getCode(),
-            study.getExternalCode(),
-            study.getStatus().toString(),
-            study.getName(),
-            study.getDescription(),
-            study.getCollaborator() != null ? String.valueOf(study.getCollaborator().getId()) : "",
-            String.valueOf(study.isLegacy()),
-            String.valueOf(study.isActive()),
-            study.getCreatedBy() != null ? String.valueOf(study.getCreatedBy().getId()) : "",
-            study.getLastModifiedBy() != null ? String.valueOf(study.getLastModifiedBy().getId()) : "",
-            SDF.format(study.getStartDate()),
-            study.getEndDate() != null ? SDF.format(study.getEndDate()) : "",
-            SDF.format(study.getCreatedAt()),
-            study.getUpdatedAt() != null ? SDF.format(study.getUpdatedAt()) : "",
-            String.valueOf(study.getOwner().getId()),
-            study.getUsers().stream()
-                .map(u -> String.valueOf(u.getId()))
-                .reduce((a, b) -> a + "," + b)
-                .orElse(""),
-            study.getKeywords().stream()
-                .map(k -> String.valueOf(k.getId()))
-                .reduce((a, b) -> a + "," + b)
-                .orElse(""),
-            objectMapper.writeValueAsString(study.getAttributes())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, Study.class, List.of("users", "keywords"), study -> new Object[] {
+          study.getId(),
+          study.getProgram().getId(),
+          study.getCode(),
+          study.getExternalCode(),
+          study.getStatus(),
+          study.getName(),
+          study.getDescription(),
+          study.getCollaborator() != null ? study.getCollaborator().getId() : null,
+          study.isLegacy(),
+          study.isActive(),
+          study.getCreatedBy() != null ? study.getCreatedBy().getId() : null,
+          study.getLastModifiedBy() != null ? study.getLastModifiedBy().getId() : null,
+          study.getStartDate(),
+          study.getEndDate(),
+          study.getCreatedAt(),
+          study.getUpdatedAt(),
+          study.getOwner().getId(),
+          study.getUsers().stream()
+              .map(User::getId)
+              .toList(),
+          study.getKeywords().stream()
+              .map(Keyword::getId)
+              .toList(),
+          study.getAttributes()
+      });
     }
 
     // ELN folder
-    filePath = directory.resolve("study_notebook_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "StudyId",
-          "ElnFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("study_notebook_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.id("ElnFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-      for (StudyNotebookFolder folder: studyNotebookFolderRepository.findAll()) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getStudy().getId()),
-            String.valueOf(folder.getElnFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, StudyNotebookFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getStudy().getId(),
+          folder.getElnFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // Storage folder
-    filePath = directory.resolve("study_storage_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "StudyId",
-          "StorageDriveFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("study_storage_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.id("StorageDriveFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-      for (StudyStorageFolder folder: studyStorageFolderRepository.findAll()) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getStudy().getId()),
-            String.valueOf(folder.getStorageDriveFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, StudyStorageFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getStudy().getId(),
+          folder.getStorageDriveFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // External links
-    filePath = directory.resolve("study_external_links.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "StudyId",
-          "Label",
-          "Url"
+    try (ExportTableWriter writer = context.openTable("study_external_links")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.string("Label"),
+          ExportColumn.string("Url")
       };
-      writer.writeNext(header);
-      for (ExternalLink link: externalLinkRepository.findAll()) {
-        String[] row = {
-            String.valueOf(link.getId()),
-            String.valueOf(link.getStudy().getId()),
-            String.valueOf(link.getLabel()),
-            String.valueOf(link.getUrl())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, ExternalLink.class, link -> new Object[] {
+          link.getId(),
+          link.getStudy().getId(),
+          link.getLabel(),
+          link.getUrl()
+      });
     }
 
     // relationships
-    filePath = directory.resolve("study_relationships.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Type",
-          "SourceStudyId",
-          "TargetStudyId"
+    try (ExportTableWriter writer = context.openTable("study_relationships")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Type"),
+          ExportColumn.id("SourceStudyId"),
+          ExportColumn.id("TargetStudyId")
       };
-      writer.writeNext(header);
-      for (StudyRelationship relationship: studyRelationshipRepository.findAll()) {
-        String[] row = {
-            String.valueOf(relationship.getId()),
-            relationship.getType().toString(),
-            String.valueOf(relationship.getSourceStudy().getId()),
-            String.valueOf(relationship.getTargetStudy().getId())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, StudyRelationship.class, relationship -> new Object[] {
+          relationship.getId(),
+          relationship.getType(),
+          relationship.getSourceStudy().getId(),
+          relationship.getTargetStudy().getId()
+      });
     }
 
     // Conclusions
-    filePath = directory.resolve("study_conclusions.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "StudyId",
-          "Content",
-          "CreatedBy",
-          "LastModifiedBy",
-          "CreatedAt",
-          "UpdatedAt"
+    try (ExportTableWriter writer = context.openTable("study_conclusions")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.string("Content"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-      for (StudyConclusions conclusions: studyConclusionsRepository.findAll()) {
-        String[] row = {
-            String.valueOf(conclusions.getId()),
-            String.valueOf(conclusions.getStudy().getId()),
-            conclusions.getContent(),
-            String.valueOf(conclusions.getCreatedBy().getId()),
-            conclusions.getLastModifiedBy() != null ? String.valueOf(conclusions.getLastModifiedBy().getId()) : "",
-            SDF.format(conclusions.getCreatedAt()),
-            conclusions.getUpdatedAt() != null ? SDF.format(conclusions.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, StudyConclusions.class, conclusions -> new Object[] {
+          conclusions.getId(),
+          conclusions.getStudy().getId(),
+          conclusions.getContent(),
+          conclusions.getCreatedBy().getId(),
+          conclusions.getLastModifiedBy() != null ? conclusions.getLastModifiedBy().getId() : null,
+          conclusions.getCreatedAt(),
+          conclusions.getUpdatedAt()
+      });
     }
 
     // Comments
-    filePath = directory.resolve("study_comments.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "StudyId",
-          "Text",
-          "CreatedBy",
-          "CreatedAt",
-          "UpdatedAt"
+    try (ExportTableWriter writer = context.openTable("study_comments")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.string("Text"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-      for (Comment comment: commentRepository.findAll()) {
-        String[] row = {
-            String.valueOf(comment.getId()),
-            String.valueOf(comment.getStudy().getId()),
-            comment.getText(),
-            String.valueOf(comment.getCreatedBy().getId()),
-            SDF.format(comment.getCreatedAt()),
-            comment.getUpdatedAt() != null ? SDF.format(comment.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, Comment.class, comment -> new Object[] {
+          comment.getId(),
+          comment.getStudy().getId(),
+          comment.getText(),
+          comment.getCreatedBy().getId(),
+          comment.getCreatedAt(),
+          comment.getUpdatedAt()
+      });
     }
 
     // Git repositories
-    filePath = directory.resolve("study_git_repositories.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "GitRepositoryId",
-          "StudyId",
+    try (ExportTableWriter writer = context.openTable("study_git_repositories")) {
+      ExportColumn[] header = {
+          ExportColumn.id("GitRepositoryId"),
+          ExportColumn.id("StudyId")
       };
-      writer.writeNext(header);
-      for (Study study: studies) {
-        for (GitRepository repository : gitRepositoryRepository.findByStudyId(study.getId())) {
-          String[] row = {
-              String.valueOf(repository.getId()),
-              String.valueOf(study.getId())
-          };
-          writer.writeNext(row);
-        }
-      }
+      writer.writeHeader(header);
+      writeJoinRows(writer,
+          "select r.id, s.id from Study s join s.gitRepositories r order by s.id, r.id");
     }
 
   }
 
-  private void exportAssaysToCsv(Path directory) throws IOException {
+  private void exportAssaysToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting assays...");
-    List<Assay> assays = assayRepository.findAll();
-    Path filePath = directory.resolve("assays.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayTypeId",
-          "StudyId",
-          "Code",
-          "Name",
-          "Description",
-          "Status",
-          "CreatedBy",
-          "LastModifiedBy",
-          "Owner",
-          "CreatedAt",
-          "UpdatedAt",
-          "StartDate",
-          "EndDate",
-          "Active",
-          "Users",
-          "Fields",
-          "Attributes"
+    try (ExportTableWriter writer = context.openTable("assays")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayTypeId"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.string("Code"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Description"),
+          ExportColumn.string("Status"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.id("Owner"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.timestamp("StartDate"),
+          ExportColumn.timestamp("EndDate"),
+          ExportColumn.bool("Active"),
+          ExportColumn.idList("Users"),
+          ExportColumn.map("Fields"),
+          ExportColumn.map("Attributes")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (Assay assay : assays) {
-        Set<User> users = userRepository.findByAssayId(assay.getId());
-        String[] row = {
-            String.valueOf(assay.getId()),
-            String.valueOf(assay.getAssayType().getId()),
-            String.valueOf(assay.getStudy().getId()),
-            assay.getCode(),
-            assay.getName(),
-            assay.getDescription(),
-            assay.getStatus().toString(),
-            String.valueOf(assay.getCreatedBy().getId()),
-            assay.getLastModifiedBy() != null ? String.valueOf(assay.getLastModifiedBy().getId()) : "",
-            assay.getOwner().getId().toString(),
-            SDF.format(assay.getCreatedAt()),
-            assay.getUpdatedAt() != null ? SDF.format(assay.getUpdatedAt()) : "",
-            assay.getStartDate() != null ? SDF.format(assay.getStartDate()) : "",
-            assay.getEndDate() != null ? SDF.format(assay.getEndDate()) : "",
-            String.valueOf(assay.isActive()),
-            users.stream()
-                .map(u -> String.valueOf(u.getId()))
-                .reduce((a, b) -> a + "," + b)
-                .orElse(""),
-            objectMapper.writeValueAsString(assay.getFields()),
-            objectMapper.writeValueAsString(assay.getAttributes())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, Assay.class, List.of("users"), assay -> new Object[] {
+          assay.getId(),
+          assay.getAssayType().getId(),
+          assay.getStudy().getId(),
+          assay.getCode(),
+          assay.getName(),
+          assay.getDescription(),
+          assay.getStatus(),
+          assay.getCreatedBy().getId(),
+          assay.getLastModifiedBy() != null ? assay.getLastModifiedBy().getId() : null,
+          assay.getOwner().getId(),
+          assay.getCreatedAt(),
+          assay.getUpdatedAt(),
+          assay.getStartDate(),
+          assay.getEndDate(),
+          assay.isActive(),
+          assay.getUsers().stream()
+              .map(User::getId)
+              .toList(),
+          assay.getFields(),
+          assay.getAttributes()
+      });
     }
 
     // ELN folder
-    filePath = directory.resolve("assay_notebook_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayId",
-          "ElnFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("assay_notebook_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayId"),
+          ExportColumn.id("ElnFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-      for (AssayNotebookFolder folder: assayNotebookFolderRepository.findAll()) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getAssay().getId()),
-            String.valueOf(folder.getElnFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, AssayNotebookFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getAssay().getId(),
+          folder.getElnFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // Storage folder
-    filePath = directory.resolve("assay_storage_folders.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayId",
-          "StorageDriveFolderId",
-          "IsPrimary"
+    try (ExportTableWriter writer = context.openTable("assay_storage_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayId"),
+          ExportColumn.id("StorageDriveFolderId"),
+          ExportColumn.bool("IsPrimary")
       };
-      writer.writeNext(header);
-      for (AssayStorageFolder folder: assayStorageFolderRepository.findAll()) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            String.valueOf(folder.getAssay().getId()),
-            String.valueOf(folder.getStorageDriveFolder().getId()),
-            String.valueOf(folder.isPrimary())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+      writeRows(context, writer, AssayStorageFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getAssay().getId(),
+          folder.getStorageDriveFolder().getId(),
+          folder.isPrimary()
+      });
     }
 
     // Git repositories
-    filePath = directory.resolve("assay_git_repositories.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "GitRepositoryId",
-          "AssayId",
+    try (ExportTableWriter writer = context.openTable("assay_git_repositories")) {
+      ExportColumn[] header = {
+          ExportColumn.id("GitRepositoryId"),
+          ExportColumn.id("AssayId")
       };
-      writer.writeNext(header);
-      for (Assay assay: assays) {
-        for (GitRepository repository : gitRepositoryRepository.findByAssayId(assay.getId())) {
-          String[] row = {
-              String.valueOf(repository.getId()),
-              String.valueOf(assay.getId())
-          };
-          writer.writeNext(row);
-        }
-      }
+      writer.writeHeader(header);
+      writeJoinRows(writer,
+          "select r.id, a.id from Assay a join a.gitRepositories r order by a.id, r.id");
     }
 
     // Tasks
-    filePath = directory.resolve("assay_tasks.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayId",
-          "Status",
-          "Label",
-          "Order",
-          "CreatedAt",
-          "UpdatedAt",
-          "CreatedBy",
-          "LastModifiedBy",
-          "AssignedTo",
-          "DueDate",
-          "Data"
+    try (ExportTableWriter writer = context.openTable("assay_tasks")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayId"),
+          ExportColumn.string("Status"),
+          ExportColumn.string("Label"),
+          ExportColumn.integer("Order"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.id("AssignedTo"),
+          ExportColumn.timestamp("DueDate"),
+          ExportColumn.map("Data")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayTask task: assayTaskRepository.findAll()) {
-        String[] row = {
-            String.valueOf(task.getId()),
-            String.valueOf(task.getAssay().getId()),
-            task.getStatus().toString(),
-            task.getLabel(),
-            String.valueOf(task.getOrder()),
-            SDF.format(task.getCreatedAt()),
-            task.getUpdatedAt() != null ? SDF.format(task.getUpdatedAt()) : "",
-            task.getCreatedBy() != null ? String.valueOf(task.getCreatedBy().getId()) : "",
-            task.getLastModifiedBy() != null ? String.valueOf(task.getLastModifiedBy().getId()) : "",
-            task.getAssignedTo() != null ? String.valueOf(task.getAssignedTo().getId()) : "",
-            task.getDueDate() != null ? SDF.format(task.getDueDate()) : "",
-            task.getData() != null ? objectMapper.writeValueAsString(task.getData()) : "{}"
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayTask.class, task -> new Object[] {
+          task.getId(),
+          task.getAssay().getId(),
+          task.getStatus(),
+          task.getLabel(),
+          task.getOrder(),
+          task.getCreatedAt(),
+          task.getUpdatedAt(),
+          task.getCreatedBy() != null ? task.getCreatedBy().getId() : null,
+          task.getLastModifiedBy() != null ? task.getLastModifiedBy().getId() : null,
+          task.getAssignedTo() != null ? task.getAssignedTo().getId() : null,
+          task.getDueDate(),
+          task.getData()
+      });
     }
 
     // Task Fields
-    filePath = directory.resolve("assay_task_fields.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "AssayTaskId",
-          "DisplayName",
-          "FieldName",
-          "Type",
-          "Required",
-          "Description",
-          "Active",
-          "FieldOrder",
-          "DropdownOptions",
-          "DefaultValue"
+    try (ExportTableWriter writer = context.openTable("assay_task_fields")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("AssayTaskId"),
+          ExportColumn.string("DisplayName"),
+          ExportColumn.string("FieldName"),
+          ExportColumn.string("Type"),
+          ExportColumn.bool("Required"),
+          ExportColumn.string("Description"),
+          ExportColumn.bool("Active"),
+          ExportColumn.integer("FieldOrder"),
+          ExportColumn.string("DropdownOptions"),
+          ExportColumn.string("DefaultValue")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (AssayTaskField field: assayTaskFieldRepository.findAll()) {
-        String[] row = {
-            String.valueOf(field.getId()),
-            String.valueOf(field.getAssayTask().getId()),
-            field.getDisplayName(),
-            field.getFieldName(),
-            field.getType().toString(),
-            String.valueOf(field.isRequired()),
-            field.getDescription(),
-            String.valueOf(field.isActive()),
-            String.valueOf(field.getFieldOrder()),
-            field.getDropdownOptions(),
-            field.getDefaultValue()
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, AssayTaskField.class, field -> new Object[] {
+          field.getId(),
+          field.getAssayTask().getId(),
+          field.getDisplayName(),
+          field.getFieldName(),
+          field.getType(),
+          field.isRequired(),
+          field.getDescription(),
+          field.isActive(),
+          field.getFieldOrder(),
+          field.getDropdownOptions(),
+          field.getDefaultValue()
+      });
     }
 
   }
 
-  private void exportCollaboratorsToCsv(Path directory) throws IOException {
+  private void exportCollaboratorsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting collaborators...");
-    List<Collaborator> collaborators = collaboratorRepository.findAll();
-    Path filePath = directory.resolve("collaborators.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Label",
-          "Code",
-          "OrganizationName",
-          "OrganizationLocation",
-          "ContactPersonName",
-          "ContactEmail",
-          "Active"
+    try (ExportTableWriter writer = context.openTable("collaborators")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Label"),
+          ExportColumn.string("Code"),
+          ExportColumn.string("OrganizationName"),
+          ExportColumn.string("OrganizationLocation"),
+          ExportColumn.string("ContactPersonName"),
+          ExportColumn.string("ContactEmail"),
+          ExportColumn.bool("Active")
       };
-      writer.writeNext(header);
-
-      for (Collaborator collaborator : collaborators) {
-        String[] row = {
-            String.valueOf(collaborator.getId()),
-            collaborator.getLabel(),
-            collaborator.getCode(),
-            collaborator.getOrganizationName(),
-            collaborator.getOrganizationLocation() != null ? collaborator.getOrganizationLocation() : "",
-            collaborator.getContactPersonName() != null ? collaborator.getContactPersonName() : "",
-            collaborator.getContactEmail() != null ? collaborator.getContactEmail() : "",
-            String.valueOf(collaborator.isActive())
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, Collaborator.class, collaborator -> new Object[] {
+          collaborator.getId(),
+          collaborator.getLabel(),
+          collaborator.getCode(),
+          collaborator.getOrganizationName(),
+          collaborator.getOrganizationLocation(),
+          collaborator.getContactPersonName(),
+          collaborator.getContactEmail(),
+          collaborator.isActive()
+      });
     }
   }
 
-  private void exportKeywordsToCsv(Path directory) throws IOException {
+  private void exportKeywordsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting keywords...");
-    List<Keyword> keywords = keywordRepository.findAll();
-    Path filePath = directory.resolve("keywords.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Keyword",
-          "Category"
+    try (ExportTableWriter writer = context.openTable("keywords")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Keyword"),
+          ExportColumn.string("Category")
       };
-      writer.writeNext(header);
-
-      for (Keyword keyword : keywords) {
-        String[] row = {
-            String.valueOf(keyword.getId()),
-            keyword.getKeyword(),
-            keyword.getCategory()
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, Keyword.class, keyword -> new Object[] {
+          keyword.getId(),
+          keyword.getKeyword(),
+          keyword.getCategory()
+      });
     }
   }
 
-  private void exportStudyCollectionsToCsv(Path directory) throws IOException {
+  private void exportStudyCollectionsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting study collections...");
-    List<StudyCollection> collections = studyCollectionRepository.findAll();
-    Path filePath = directory.resolve("study_collections.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Description",
-          "Shared",
-          "CreatedBy",
-          "LastModifiedBy",
-          "CreatedAt",
-          "UpdatedAt",
-          "Studies"
+    try (ExportTableWriter writer = context.openTable("study_collections")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Description"),
+          ExportColumn.bool("Shared"),
+          ExportColumn.id("CreatedBy"),
+          ExportColumn.id("LastModifiedBy"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt"),
+          ExportColumn.idList("Studies")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (StudyCollection c : collections) {
-        StudyCollection collection = studyCollectionRepository.findById(c.getId())
-            .orElseThrow(RecordNotFoundException::new);
-        String[] row = {
-            String.valueOf(collection.getId()),
-            collection.getName(),
-            collection.getDescription(),
-            String.valueOf(collection.isShared()),
-            String.valueOf(collection.getCreatedBy().getId()),
-            collection.getLastModifiedBy() != null ? String.valueOf(collection.getLastModifiedBy().getId()) : "",
-            SDF.format(collection.getCreatedAt()),
-            collection.getUpdatedAt() != null ? SDF.format(collection.getUpdatedAt()) : "",
-            collection.getStudies().stream()
-                .map(s -> String.valueOf(s.getId()))
-                .reduce((a, b) -> a + "," + b)
-                .orElse("")
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, StudyCollection.class, List.of("studies"),
+          collection -> new Object[] {
+              collection.getId(),
+              collection.getName(),
+              collection.getDescription(),
+              collection.isShared(),
+              collection.getCreatedBy().getId(),
+              collection.getLastModifiedBy() != null
+                  ? collection.getLastModifiedBy().getId() : null,
+              collection.getCreatedAt(),
+              collection.getUpdatedAt(),
+              collection.getStudies().stream()
+                  .map(Study::getId)
+                  .toList()
+          });
     }
   }
 
-  private void exportActivitiesToCsv(Path directory) throws IOException {
+  private void exportActivitiesToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting activity...");
-    List<Activity> activities = activityRepository.findAll();
-    Path filePath = directory.resolve("activity.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "ProgramId",
-          "StudyId",
-          "AssayId",
-          "EventType",
-          "Data",
-          "User",
-          "Date"
+    try (ExportTableWriter writer = context.openTable("activity")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("ProgramId"),
+          ExportColumn.id("StudyId"),
+          ExportColumn.id("AssayId"),
+          ExportColumn.string("EventType"),
+          ExportColumn.map("Data"),
+          ExportColumn.id("User"),
+          ExportColumn.timestamp("Date")
       };
-      writer.writeNext(header);
+      writer.writeHeader(header);
 
       // Write data rows
-      for (Activity activity : activities) {
-        String[] row = {
-            String.valueOf(activity.getId()),
-            activity.getProgram() != null ? String.valueOf(activity.getProgram().getId()) : "",
-            activity.getStudy() != null ? String.valueOf(activity.getStudy().getId()) : "",
-            activity.getAssay() != null ? String.valueOf(activity.getAssay().getId()) : "",
-            activity.getEventType().toString(),
-            objectMapper.writeValueAsString(activity.getData()),
-            activity.getUser() != null ? String.valueOf(activity.getUser().getId()) : "",
-            SDF.format(activity.getDate())
-        };
-        writer.writeNext(row);
-      }
+      writeRows(context, writer, Activity.class, activity -> new Object[] {
+          activity.getId(),
+          activity.getProgram() != null ? activity.getProgram().getId() : null,
+          activity.getStudy() != null ? activity.getStudy().getId() : null,
+          activity.getAssay() != null ? activity.getAssay().getId() : null,
+          activity.getEventType(),
+          activity.getData(),
+          activity.getUser() != null ? activity.getUser().getId() : null,
+          activity.getDate()
+      });
     }
   }
 
-  private void exportIntegrationsToCsv(Path directory) throws IOException {
+  private void exportIntegrationsToCsv(ExportContext context) throws IOException {
     LOGGER.info("Exporting integrations...");
 
     // AWS
-    Path filePath = directory.resolve("aws_integrations.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "AccountNumber",
-          "Region",
-          "UseIam",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("aws_integrations")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("AccountNumber"),
+          ExportColumn.string("Region"),
+          ExportColumn.bool("UseIam"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (AwsIntegration integration : awsIntegrationRepository.findAll()) {
-        String[] row = {
-            String.valueOf(integration.getId()),
-            integration.getName(),
-            integration.getAccountNumber(),
-            integration.getRegion(),
-            String.valueOf(integration.isUseIam()),
-            String.valueOf(integration.isActive()),
-            SDF.format(integration.getCreatedAt()),
-            integration.getUpdatedAt() != null ? SDF.format(integration.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, AwsIntegration.class, integration -> new Object[] {
+          integration.getId(),
+          integration.getName(),
+          integration.getAccountNumber(),
+          integration.getRegion(),
+          integration.isUseIam(),
+          integration.isActive(),
+          integration.getCreatedAt(),
+          integration.getUpdatedAt()
+      });
     }
 
     // Egnyte
-    filePath = directory.resolve("egnyte_integrations.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "TenantName",
-          "RootUrl",
-          "QPS",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("egnyte_integrations")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("TenantName"),
+          ExportColumn.string("RootUrl"),
+          ExportColumn.integer("QPS"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (EgnyteIntegration integration : egnyteIntegrationRepository.findAll()) {
-        String[] row = {
-            String.valueOf(integration.getId()),
-            integration.getTenantName(),
-            integration.getRootUrl(),
-            String.valueOf(integration.getQps()),
-            String.valueOf(integration.isActive()),
-            SDF.format(integration.getCreatedAt()),
-            integration.getUpdatedAt() != null ? SDF.format(integration.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, EgnyteIntegration.class, integration -> new Object[] {
+          integration.getId(),
+          integration.getTenantName(),
+          integration.getRootUrl(),
+          integration.getQps(),
+          integration.isActive(),
+          integration.getCreatedAt(),
+          integration.getUpdatedAt()
+      });
     }
 
     // Benchling
-    filePath = directory.resolve("benchling_integrations.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "TenantName",
-          "RootUrl",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("benchling_integrations")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("TenantName"),
+          ExportColumn.string("RootUrl"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (BenchlingIntegration integration : benchlingIntegrationRepository.findAll()) {
-        String[] row = {
-            String.valueOf(integration.getId()),
-            integration.getName(),
-            integration.getTenantName(),
-            integration.getRootUrl(),
-            String.valueOf(integration.isActive()),
-            SDF.format(integration.getCreatedAt()),
-            integration.getUpdatedAt() != null ? SDF.format(integration.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, BenchlingIntegration.class, integration -> new Object[] {
+          integration.getId(),
+          integration.getName(),
+          integration.getTenantName(),
+          integration.getRootUrl(),
+          integration.isActive(),
+          integration.getCreatedAt(),
+          integration.getUpdatedAt()
+      });
     }
 
     // GitLab
-    filePath = directory.resolve("gitlab_integrations.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "RootUrl",
-          "Username",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("gitlab_integrations")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("RootUrl"),
+          ExportColumn.string("Username"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (GitLabIntegration integration : gitLabIntegrationRepository.findAll()) {
-        String[] row = {
-            String.valueOf(integration.getId()),
-            integration.getName(),
-            integration.getRootUrl(),
-            integration.getUsername(),
-            String.valueOf(integration.isActive()),
-            SDF.format(integration.getCreatedAt()),
-            integration.getUpdatedAt() != null ? SDF.format(integration.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, GitLabIntegration.class, integration -> new Object[] {
+          integration.getId(),
+          integration.getName(),
+          integration.getRootUrl(),
+          integration.getUsername(),
+          integration.isActive(),
+          integration.getCreatedAt(),
+          integration.getUpdatedAt()
+      });
     }
 
     // MS
-    filePath = directory.resolve("microsoft_integrations.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Domain",
-          "TenantId",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("microsoft_integrations")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Domain"),
+          ExportColumn.string("TenantId"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (MSGraphIntegration integration : mSGraphIntegrationRepository.findAll()) {
-        String[] row = {
-            String.valueOf(integration.getId()),
-            integration.getName(),
-            integration.getDomain(),
-            integration.getTenantId(),
-            String.valueOf(integration.isActive()),
-            SDF.format(integration.getCreatedAt()),
-            integration.getUpdatedAt() != null ? SDF.format(integration.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, MSGraphIntegration.class, integration -> new Object[] {
+          integration.getId(),
+          integration.getName(),
+          integration.getDomain(),
+          integration.getTenantId(),
+          integration.isActive(),
+          integration.getCreatedAt(),
+          integration.getUpdatedAt()
+      });
     }
 
     // SharePoint sites
-    filePath = directory.resolve("sharepoint_sites.csv");
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Url",
-          "SiteId",
-          "Active",
-          "CreatedAt",
-          "UpdatedAt",
+    try (ExportTableWriter writer = context.openTable("sharepoint_sites")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.id("MSGraphIntegrationId"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Url"),
+          ExportColumn.string("SiteId"),
+          ExportColumn.bool("Active"),
+          ExportColumn.timestamp("CreatedAt"),
+          ExportColumn.timestamp("UpdatedAt")
       };
-      writer.writeNext(header);
-
-      for (SharePointSite site : sharePointSiteRepository.findAll()) {
-        String[] row = {
-            String.valueOf(site.getId()),
-            site.getName(),
-            site.getUrl(),
-            site.getSiteId(),
-            String.valueOf(site.isActive()),
-            SDF.format(site.getCreatedAt()),
-            site.getUpdatedAt() != null ? SDF.format(site.getUpdatedAt()) : ""
-        };
-        writer.writeNext(row);
-      }
+      writer.writeHeader(header);
+
+      writeRows(context, writer, SharePointSite.class, site -> new Object[] {
+          site.getId(),
+          site.getMsgraphIntegration().getId(),
+          site.getName(),
+          site.getUrl(),
+          site.getSiteId(),
+          site.isActive(),
+          site.getCreatedAt(),
+          site.getUpdatedAt()
+      });
     }
 
   }
 
-  private void exportElnFolders(Path directory) throws IOException {
+  private void exportElnFolders(ExportContext context) throws IOException {
     LOGGER.info("Exporting ELN folders...");
-    List<ELNFolder> folders = eLNFolderRepository.findAll();
-    Path filePath = directory.resolve("eln_folders.csv");
-
-    try (CSVWriter writer = new CSVWriter(new FileWriter(filePath.toFile()))) {
-      String[] header = {
-          "ID",
-          "Name",
-          "Url",
-          "Path",
-          "ReferenceId"
+    try (ExportTableWriter writer = context.openTable("eln_folders")) {
+      ExportColumn[] header = {
+          ExportColumn.id("ID"),
+          ExportColumn.string("Name"),
+          ExportColumn.string("Url"),
+          ExportColumn.string("Path"),
+          ExportColumn.string("ReferenceId")
       };
-      writer.writeNext(header);
-
-      for (ELNFolder folder : folders) {
-        String[] row = {
-            String.valueOf(folder.getId()),
-            folder.getName(),
-            folder.getUrl(),
-            folder.getPath(),
-            folder.getReferenceId()
-        };
-        writer.writeNext(row);
+      writer.writeHeader(header);
+
+      writeRows(context, writer, ELNFolder.class, folder -> new Object[] {
+          folder.getId(),
+          folder.getName(),
+          folder.getUrl(),
+          folder.getPath(),
+          folder.getReferenceId()
+      });
+    }
+  }
+
+  /**
+   * Writes tombstones for records removed since the start of an incremental export: records
+   * permanently deleted, as recorded in {@link DeletedRecord}, and records inactivated, which
+   * are identified by an inactive flag and a modification timestamp after the start point.
+   */
+  private void exportDeletedRecords(ExportContext context) throws IOException {
+    LOGGER.info("Exporting deleted records...");
+    Date since = context.getSince();
+    try (ExportTableWriter writer = context.openTable("deleted_records")) {
+      ExportColumn[] header = {
+          ExportColumn.string("Table"),
+          ExportColumn.id("ID"),
+          ExportColumn.string("Reason"),
+          ExportColumn.timestamp("Timestamp")
+      };
+      writer.writeHeader(header);
+      writer.setIncremental(true);
+
+      String jpql = "select d from DeletedRecord d where d.deletedAt > :since order by d.id";
+      try (Stream<DeletedRecord> stream = streamQuery(jpql, DeletedRecord.class, since)) {
+        Iterator<DeletedRecord> iterator = stream.iterator();
+        while (iterator.hasNext()) {
+          DeletedRecord record = iterator.next();
+          writer.writeRow(new Object[] {
+              record.getTableName(),
+              record.getRecordId(),
+              "DELETED",
+              record.getDeletedAt()
+          });
+        }
+      }
+
+      for (Map.Entry<String, Class<?>> entry : INACTIVATED_RECORD_TABLES.entrySet()) {
+        String inactiveJpql = "select e.id, e.updatedAt from " + entry.getValue().getSimpleName()
+            + " e where e.active = false and e.updatedAt > :since order by e.id";
+        try (Stream<Object[]> stream = streamQuery(inactiveJpql, Object[].class, since)) {
+          Iterator<Object[]> iterator = stream.iterator();
+          while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            writer.writeRow(new Object[] {
+                entry.getKey(),
+                row[0],
+                "INACTIVATED",
+                row[1]
+            });
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a manifest describing the export: whether each table is a full snapshot or only
+   * contains changed records, and the start point and high-water mark of the export.
+   */
+  private void exportManifest(ExportContext context) throws IOException {
+    DataExportResult result = context.getResult();
+    List<ExportTableResult> tables;
+    synchronized (result.getTables()) {
+      tables = new ArrayList<>(result.getTables());
+    }
+    try (ExportTableWriter writer = context.openTable("export_manifest")) {
+      ExportColumn[] header = {
+          ExportColumn.string("Table"),
+          ExportColumn.string("Mode"),
+          ExportColumn.id("RowCount"),
+          ExportColumn.timestamp("Since"),
+          ExportColumn.timestamp("Watermark")
+      };
+      writer.writeHeader(header);
+      for (ExportTableResult table : tables) {
+        writer.writeRow(new Object[] {
+            table.getName(),
+            table.isIncremental() ? "INCREMENTAL" : "FULL",
+            table.getRowCount(),
+            result.getSince(),
+            result.getWatermark()
+        });
+      }
+    }
+  }
+
+  /**
+   * Exports one or more related tables.
+   */
+  @FunctionalInterface
+  private interface TableExporter {
+    void export(ExportContext context) throws IOException;
+  }
+
+  /**
+   * Functional interface for converting a single record into a row of typed column values,
+   * matching the table's {@link ExportColumn} definitions.
+   *
+   * @param <T> record type
+   */
+  @FunctionalInterface
+  private interface RowMapper<T> {
+    Object[] toRow(T record) throws IOException;
+  }
+
+  /**
+   * Opens a forward-only result stream for the given JPQL query, fetching rows from the database
+   * in chunks of {@code fetchSize}. Must be called within a transaction.
+   */
+  private <T> Stream<T> streamQuery(String jpql, Class<T> type) {
+    return streamQuery(jpql, type, null);
+  }
+
+  /**
+   * Opens a forward-only result stream for the given JPQL query, binding the {@code since}
+   * parameter if it is provided.
+   */
+  private <T> Stream<T> streamQuery(String jpql, Class<T> type, Date since) {
+    TypedQuery<T> query = entityManager.createQuery(jpql, type)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(HibernateHints.HINT_READ_ONLY, true);
+    if (since != null) {
+      query.setParameter("since", since);
+    }
+    return query.getResultStream();
+  }
+
+  /**
+   * Builds a JPQL predicate that matches records of the given entity type created or modified
+   * after the {@code since} parameter, based on whichever timestamp attributes the entity has.
+   * Returns null if the entity has no timestamps, in which case it must be exported in full.
+   */
+  private String changeFilter(Class<?> type) {
+    EntityType<?> entityType = entityManager.getMetamodel().entity(type);
+    List<String> clauses = new ArrayList<>();
+    for (String attribute : CHANGE_TIMESTAMP_ATTRIBUTES) {
+      boolean present = entityType.getAttributes().stream()
+          .anyMatch(a -> a.getName().equals(attribute));
+      if (present) {
+        clauses.add("e." + attribute + " > :since");
+      }
+    }
+    return clauses.isEmpty() ? null : "(" + String.join(" or ", clauses) + ")";
+  }
+
+  /**
+   * Streams all records of the given entity type, in primary key order, converts each one into a
+   * row, and writes it immediately. The persistence context is cleared after every
+   * {@code fetchSize} records, so that processed entities can be garbage collected.
+   */
+  private <T> void writeRows(ExportContext context, ExportTableWriter writer, Class<T> type,
+      RowMapper<T> mapper) throws IOException {
+    writeRows(context, writer, type, List.of(), mapper);
+  }
+
+  /**
+   * Streams all records of the given entity type, in primary key order, and loads the named
+   * collections of each chunk of {@code fetchSize} records by their IDs before the chunk is
+   * written, so that the mapper can read the collections without a query per record. The
+   * collections are not fetched by the streaming query itself, since that would return a result
+   * set row per collection element, and each collection is loaded by its own query, so that the
+   * rows of several collections are not multiplied together.
+   */
+  private <T> void writeRows(ExportContext context, ExportTableWriter writer, Class<T> type,
+      List<String> collections, RowMapper<T> mapper) throws IOException {
+    String filter = context.getSince() != null ? changeFilter(type) : null;
+    String jpql = "select e from " + type.getSimpleName() + " e"
+        + (filter != null ? " where " + filter : "")
+        + " order by e.id";
+    writer.setIncremental(filter != null);
+    List<T> chunk = new ArrayList<>(fetchSize);
+    try (Stream<T> stream = streamQuery(jpql, type, filter != null ? context.getSince() : null)) {
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        chunk.add(iterator.next());
+
+        // Write the chunk before the cursor is advanced, since reading the next record adds it
+        // to the persistence context that is cleared once the chunk is written
+        if (chunk.size() >= fetchSize) {
+          writeChunk(writer, type, collections, chunk, mapper);
+        }
+      }
+      writeChunk(writer, type, collections, chunk, mapper);
+    }
+    entityManager.clear();
+  }
+
+  /**
+   * Loads the named collections of a chunk of records, writes the records, and then clears the
+   * persistence context, so that the processed entities can be garbage collected.
+   */
+  private <T> void writeChunk(ExportTableWriter writer, Class<T> type, List<String> collections,
+      List<T> chunk, RowMapper<T> mapper) throws IOException {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    if (!collections.isEmpty()) {
+      PersistenceUnitUtil persistenceUnitUtil =
+          entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+      List<Object> ids = chunk.stream().map(persistenceUnitUtil::getIdentifier).toList();
+      for (String collection : collections) {
+        entityManager.createQuery("select e from " + type.getSimpleName() + " e"
+                + " left join fetch e." + collection + " where e.id in :ids", type)
+            .setParameter("ids", ids)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultList();
+      }
+    }
+    for (T record : chunk) {
+      writer.writeRow(mapper.toRow(record));
+    }
+    chunk.clear();
+    entityManager.clear();
+  }
+
+  /**
+   * Streams the ID pairs returned by a JPQL query over a join table and writes each pair as a
+   * row.
+   */
+  private void writeJoinRows(ExportTableWriter writer, String jpql) throws IOException {
+    try (Stream<Object[]> stream = streamQuery(jpql, Object[].class)) {
+      Iterator<Object[]> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        Object[] ids = iterator.next();
+        writer.writeRow(ids);
       }
     }
   }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/** Summary of a restored data export, including per-table row counts and timings. */
+@Data
+public class DataImportResult {
+
+  @JsonIgnore
+  private Path directory;
+
+  private long durationMs;
+
+  /** Value of the ID sequence after the import, above every restored record ID. */
+  private long sequenceValue;
+
+  /** Number of restored users whose existing password hash was carried over. */
+  private int restoredPasswordCount;
+
+  /** Number of restored integrations whose existing credentials were carried over. */
+  private int restoredCredentialCount;
+
+  /** Number of rows kept from tables that are not part of the export, such as export jobs. */
+  private long preservedRowCount;
+
+  private final List<ExportTableResult> tables = new ArrayList<>();
+
+  public DataImportResult() {
+  }
+
+  public DataImportResult(Path directory) {
+    this.directory = directory;
+  }
+
+  public void addTable(ExportTableResult table) {
+    this.tables.add(table);
+  }
+
+  public long getTotalRowCount() {
+    return tables.stream().mapToLong(ExportTableResult::getRowCount).sum();
+  }
+
+}
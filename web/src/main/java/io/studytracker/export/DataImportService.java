@@ -0,0 +1,906 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import io.studytracker.exception.DataImportException;
+import io.studytracker.exception.InvalidRequestException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Restores the database from a CSV archive produced by {@link DataExportService}. Rows are
+ * inserted with JDBC batches, bypassing the JPA persistence context, and tables are restored in
+ * dependency order, so that referenced records are always inserted before the records that
+ * reference them. For the best throughput on PostgreSQL, enable {@code reWriteBatchedInserts} on
+ * the JDBC URL, so that each batch is sent as a single multi-row insert.
+ *
+ * <p>A restore replaces the existing data: all restored tables are cleared first, in reverse
+ * dependency order, and the whole import runs in a single transaction, so a failed import leaves
+ * the database unchanged. Records keep their exported IDs, so that references held by external
+ * systems remain valid, and the shared ID sequence is advanced past the highest restored ID. The
+ * restored row counts are verified against the export manifest and the database before the
+ * transaction is committed.
+ *
+ * <p>Tables that are not part of an export, such as export jobs and password reset tokens, are
+ * kept. Their rows are set aside while the restored tables are cleared, and put back afterwards,
+ * re-linked to the restored users and studies they belong to. User passwords are not included in
+ * exports, so existing password hashes are carried over to restored users with the same email
+ * address. Integration credentials are not exported either, so the existing credentials of each
+ * integration are carried over to the restored integration with the same ID. Credentials of
+ * integrations that did not exist before the restore must be entered after the import. Only
+ * full CSV exports can be restored.
+ *
+ * <p>Restores require a PostgreSQL database, since tables are locked and the ID sequence is
+ * advanced with PostgreSQL statements.
+ */
+@Service
+public class DataImportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataImportService.class);
+
+  private static final FastDateFormat SDF =
+      FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+  private static final String MANIFEST_TABLE = "export_manifest";
+
+  private static final String ID_SEQUENCE = "hibernate_sequence";
+
+  /** Exported tables, in the order that they are restored. */
+  private static final List<ImportTable> TABLES = List.of(
+      ImportTable.of("users")
+          .rename("CredentialExpired", "credentials_expired"),
+      ImportTable.of("collaborators"),
+      ImportTable.of("keywords"),
+      ImportTable.of("eln_folders"),
+      ImportTable.of("storage_drives"),
+      ImportTable.of("storage_drive_folders")
+          .rename("BrowserRoot", "is_browser_root")
+          .rename("StudyRoot", "is_study_root")
+          .rename("WriteEnabled", "is_write_enabled")
+          .rename("DeleteEnabled", "is_delete_enabled"),
+      ImportTable.of("aws_integrations"),
+      ImportTable.of("egnyte_integrations"),
+      ImportTable.of("benchling_integrations"),
+      ImportTable.of("gitlab_integrations"),
+      ImportTable.of("microsoft_integrations", "ms_graph_integrations"),
+      ImportTable.of("sharepoint_sites")
+          .rename("MSGraphIntegrationId", "msgraph_integration_id"),
+      ImportTable.of("programs"),
+      ImportTable.of("programs_notebook_folders", "program_notebook_folders"),
+      ImportTable.of("programs_storage_folders", "program_storage_folders"),
+      ImportTable.of("git_groups"),
+      ImportTable.of("gitlab_groups")
+          .rename("GitLabIntegrationId", "gitlab_integration_id"),
+      ImportTable.of("programs_git_groups", "program_git_groups"),
+      ImportTable.of("git_repositories"),
+      ImportTable.of("gitlab_repositories")
+          .rename("GitLabGroupId", "gitlab_group_id"),
+      ImportTable.of("assay_types"),
+      ImportTable.of("assay_type_fields"),
+      ImportTable.of("assay_type_tasks")
+          .rename("Order", "task_order"),
+      ImportTable.of("assay_type_task_fields"),
+      ImportTable.of("studies")
+          .join("Users", "study_users", "study_id", "user_id")
+          .join("Keywords", "study_keywords", "study_id", "keyword_id"),
+      ImportTable.of("study_notebook_folders"),
+      ImportTable.of("study_storage_folders"),
+      ImportTable.of("study_external_links", "external_links"),
+      ImportTable.of("study_relationships"),
+      ImportTable.of("study_conclusions"),
+      ImportTable.of("study_comments", "comments"),
+      ImportTable.of("study_git_repositories"),
+      ImportTable.of("assays")
+          .join("Users", "assay_users", "assay_id", "user_id"),
+      ImportTable.of("assay_notebook_folders"),
+      ImportTable.of("assay_storage_folders"),
+      ImportTable.of("assay_git_repositories"),
+      ImportTable.of("assay_tasks")
+          .rename("Order", "task_order"),
+      ImportTable.of("assay_task_fields"),
+      ImportTable.of("study_collections")
+          .join("Studies", "study_collection_studies", "study_collection_id", "study_id"),
+      ImportTable.of("activity")
+          .rename("User", "user_id")
+  );
+
+  /**
+   * Integration credential columns, which are not exported, and are carried over to the restored
+   * integrations by ID.
+   */
+  private static final Map<String, List<String>> CREDENTIAL_COLUMNS = Map.of(
+      "aws_integrations", List.of("access_key_id", "secret_access_key"),
+      "egnyte_integrations", List.of("api_token"),
+      "benchling_integrations", List.of("client_id", "client_secret", "username", "password"),
+      "gitlab_integrations", List.of("password", "access_token"),
+      "ms_graph_integrations", List.of("client_id", "client_secret")
+  );
+
+  /** Tables that only hold data about the replaced records, and are cleared by a restore. */
+  private static final List<String> CLEARED_TABLES = List.of("deleted_records");
+
+  /**
+   * Tables that are not restored, but reference restored records. Each reference is matched to
+   * the restored record by a natural key, since a restored record may have a different ID.
+   */
+  private static final List<PreservedTable> PRESERVED_TABLES = List.of(
+      new PreservedTable("export_jobs", "created_by", "users", "email"),
+      new PreservedTable("password_reset_token", "user_id", "users", "email"),
+      new PreservedTable("study_provisioning_tasks", "study_id", "studies", "code")
+  );
+
+  @Value("${storage.temp-dir}")
+  private String tempDir;
+
+  @Value("${import.batch-size:1000}")
+  private int batchSize;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  /**
+   * Restores the database from an export archive. The archive may be a ZIP or TAR.GZ file, or a
+   * directory containing the extracted table files.
+   *
+   * @param archive path to the export archive
+   * @return summary of the import, with per-table row counts and timings
+   * @throws IOException if the archive cannot be read
+   */
+  public DataImportResult importArchive(Path archive) throws IOException {
+    return importArchive(archive, ExportProgressListener.NONE);
+  }
+
+  /**
+   * Restores the database from an export archive, reporting each restored table to the given
+   * listener. The archive may be a ZIP or TAR.GZ file, or a directory containing the extracted
+   * table files.
+   *
+   * @param archive path to the export archive
+   * @param listener receives the table count and per-table progress
+   * @return summary of the import, with per-table row counts and timings
+   * @throws IOException if the archive cannot be read
+   */
+  public DataImportResult importArchive(Path archive, ExportProgressListener listener)
+      throws IOException {
+    if (Files.isDirectory(archive)) {
+      return importDirectory(findExportDirectory(archive), listener);
+    }
+    Path extracted = Files.createDirectories(
+        Paths.get(tempDir, "import", "data-import-" + UUID.randomUUID()));
+    try {
+      LOGGER.info("Extracting export archive {} to {}", archive, extracted);
+      extractArchive(archive, extracted);
+      return importDirectory(findExportDirectory(extracted), listener);
+    } finally {
+      FileSystemUtils.deleteRecursively(extracted);
+    }
+  }
+
+  /**
+   * Restores the database from a directory of exported CSV table files, replacing all existing
+   * records.
+   *
+   * @param directory directory containing the exported table files
+   * @return summary of the import, with per-table row counts and timings
+   * @throws IOException if the table files cannot be read
+   */
+  public DataImportResult importDirectory(Path directory) throws IOException {
+    return importDirectory(directory, ExportProgressListener.NONE);
+  }
+
+  /**
+   * Restores the database from a directory of exported CSV table files, replacing all existing
+   * records, and reports each restored table to the given listener.
+   *
+   * @param directory directory containing the exported table files
+   * @param listener receives the table count and per-table progress
+   * @return summary of the import, with per-table row counts and timings
+   * @throws IOException if the table files cannot be read
+   */
+  public DataImportResult importDirectory(Path directory, ExportProgressListener listener)
+      throws IOException {
+    long start = System.currentTimeMillis();
+    checkDatabase();
+    Map<String, Long> manifest = readManifest(directory);
+    DataImportResult result = new DataImportResult(directory);
+    LOGGER.info("Restoring data export from {}", directory);
+    listener.onExportStarted(TABLES.size());
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        try {
+          Map<String, String> passwords = readPasswords();
+          Map<String, Map<Long, Object[]>> credentials = readCredentials();
+          List<PreservedRows> preserved = new ArrayList<>();
+          for (PreservedTable table : PRESERVED_TABLES) {
+            preserved.add(readPreservedRows(table));
+          }
+          clearTables();
+          long maxId = 0;
+          for (ImportTable table : TABLES) {
+            int restoredTables = result.getTables().size();
+            listener.onTableStarted(table.getTableName());
+            maxId = Math.max(maxId, importTable(directory, table, manifest, result));
+            if (result.getTables().size() > restoredTables) {
+              listener.onTableCompleted(result.getTables().get(restoredTables));
+            }
+          }
+          result.setRestoredPasswordCount(restorePasswords(passwords));
+          result.setRestoredCredentialCount(restoreCredentials(credentials));
+          for (PreservedRows rows : preserved) {
+            result.setPreservedRowCount(
+                result.getPreservedRowCount() + restorePreservedRows(rows));
+          }
+          result.setSequenceValue(advanceSequence(maxId));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    result.setDurationMs(System.currentTimeMillis() - start);
+    LOGGER.info("Restored {} rows to {} tables in {} ms",
+        result.getTotalRowCount(), result.getTables().size(), result.getDurationMs());
+    return result;
+  }
+
+  /**
+   * Reads the row count of each exported table from the export manifest, and checks that the
+   * export can be restored. Exports created before manifests were added have no row counts to
+   * verify against.
+   */
+  private Map<String, Long> readManifest(Path directory) throws IOException {
+    Map<String, Long> rowCounts = new HashMap<>();
+    Path file = directory.resolve(MANIFEST_TABLE + ".csv");
+    if (!Files.exists(file)) {
+      if (Files.exists(directory.resolve(MANIFEST_TABLE + ".parquet"))) {
+        throw new InvalidRequestException("Only CSV data exports can be restored");
+      }
+      if (!Files.exists(directory.resolve("users.csv"))) {
+        throw new InvalidRequestException("Directory does not contain a data export: "
+            + directory);
+      }
+      LOGGER.warn("Data export has no manifest, so row counts cannot be verified against it");
+      return rowCounts;
+    }
+    for (String[] row : readRows(file)) {
+      if ("INCREMENTAL".equals(row[1])) {
+        throw new InvalidRequestException(
+            "Incremental data exports cannot be restored. Restore a full export instead.");
+      }
+      rowCounts.put(row[0], Long.parseLong(row[2]));
+    }
+    return rowCounts;
+  }
+
+  /**
+   * Deletes the rows of every restored table, and of the tables that only describe them, in
+   * reverse restore order, so that referencing rows are always removed before the rows they
+   * reference. The rows of preserved tables are deleted first, so they must already have been
+   * set aside by {@link #readPreservedRows(PreservedTable)}.
+   */
+  private void clearTables() {
+    LOGGER.info("Clearing {} tables before restoring data", TABLES.size());
+    for (PreservedTable table : PRESERVED_TABLES) {
+      jdbcTemplate.update("DELETE FROM " + table.getTableName());
+    }
+    for (String table : CLEARED_TABLES) {
+      jdbcTemplate.update("DELETE FROM " + table);
+    }
+    for (int i = TABLES.size() - 1; i >= 0; i--) {
+      ImportTable table = TABLES.get(i);
+      for (ImportTable.JoinColumn joinColumn : table.getJoinColumns()) {
+        jdbcTemplate.update("DELETE FROM " + joinColumn.getJoinTable());
+      }
+      jdbcTemplate.update("DELETE FROM " + table.getTableName());
+    }
+  }
+
+  /**
+   * Checks that the database is PostgreSQL, which restores require, before anything is changed.
+   */
+  private void checkDatabase() {
+    String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+        connection.getMetaData().getDatabaseProductName());
+    if (!"PostgreSQL".equalsIgnoreCase(product)) {
+      throw new InvalidRequestException("Data exports can only be restored to a PostgreSQL "
+          + "database, but this database is " + product);
+    }
+  }
+
+  /**
+   * Reads the stored credentials of every integration, by table and integration ID. The values
+   * are read as stored, so that encrypted credentials are carried over without being decrypted.
+   */
+  private Map<String, Map<Long, Object[]>> readCredentials() {
+    Map<String, Map<Long, Object[]>> credentials = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : CREDENTIAL_COLUMNS.entrySet()) {
+      List<String> columns = entry.getValue();
+      Map<Long, Object[]> rows = new HashMap<>();
+      jdbcTemplate.query("SELECT id, " + String.join(", ", columns) + " FROM " + entry.getKey(),
+          (RowCallbackHandler) rs -> {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+              values[i] = rs.getObject(i + 2);
+            }
+            rows.put(rs.getLong(1), values);
+          });
+      credentials.put(entry.getKey(), rows);
+    }
+    return credentials;
+  }
+
+  /**
+   * Carries existing credentials over to the restored integrations with the same ID, so that the
+   *   restored integrations keep working without their credentials being entered again.
+   *
+   * @return the number of restored integrations that were given their existing credentials
+   */
+  private int restoreCredentials(Map<String, Map<Long, Object[]>> credentials) {
+    int restored = 0;
+    for (Map.Entry<String, Map<Long, Object[]>> entry : credentials.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      List<String> columns = CREDENTIAL_COLUMNS.get(entry.getKey());
+      String sql = "UPDATE " + entry.getKey() + " SET "
+          + columns.stream().map(c -> c + " = ?").collect(Collectors.joining(", "))
+          + " WHERE id = ?";
+      List<Object[]> updates = new ArrayList<>();
+      for (Map.Entry<Long, Object[]> row : entry.getValue().entrySet()) {
+        Object[] values = new Object[columns.size() + 1];
+        System.arraycopy(row.getValue(), 0, values, 0, columns.size());
+        values[columns.size()] = row.getKey();
+        updates.add(values);
+      }
+      for (int count : jdbcTemplate.batchUpdate(sql, updates)) {
+        restored = restored + Math.max(count, 0);
+      }
+    }
+    return restored;
+  }
+
+  /** Reads the password hash of every user that has one, by email address. */
+  private Map<String, String> readPasswords() {
+    Map<String, String> passwords = new HashMap<>();
+    jdbcTemplate.query("SELECT email, password FROM users WHERE password IS NOT NULL",
+        (RowCallbackHandler) rs -> passwords.put(rs.getString(1), rs.getString(2)));
+    return passwords;
+  }
+
+  /**
+   * Carries existing password hashes over to restored users with the same email address, so
+   * that users with local accounts, including the administrator running the restore, can still
+   * sign in.
+   *
+   * @return the number of restored users that were given their existing password
+   */
+  private int restorePasswords(Map<String, String> passwords) {
+    if (passwords.isEmpty()) {
+      return 0;
+    }
+    List<Object[]> updates = passwords.entrySet().stream()
+        .map(e -> new Object[] {e.getValue(), e.getKey()})
+        .collect(Collectors.toList());
+    int restored = 0;
+    for (int count : jdbcTemplate.batchUpdate(
+        "UPDATE users SET password = ? WHERE email = ? AND password IS NULL", updates)) {
+      restored = restored + Math.max(count, 0);
+    }
+    Integer missing = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM users WHERE password IS NULL AND active = TRUE", Integer.class);
+    if (missing != null && missing > 0) {
+      LOGGER.warn("{} restored active users have no password, and must reset it before signing "
+          + "in with a local account", missing);
+    }
+    return restored;
+  }
+
+  /**
+   * Reads every row of a preserved table, and the natural keys of the records it references. The
+   * table is locked against writes until the restore commits, so that no rows are added between
+   * reading and clearing it.
+   */
+  private PreservedRows readPreservedRows(PreservedTable table) {
+    jdbcTemplate.execute("LOCK TABLE " + table.getTableName() + " IN EXCLUSIVE MODE");
+    Map<Long, String> keys = new HashMap<>();
+    jdbcTemplate.query("SELECT id, " + table.getKeyColumn() + " FROM "
+        + table.getReferencedTable(),
+        (RowCallbackHandler) rs -> keys.put(rs.getLong(1), rs.getString(2)));
+    List<Map<String, Object>> rows =
+        jdbcTemplate.queryForList("SELECT * FROM " + table.getTableName());
+    return new PreservedRows(table, rows, keys);
+  }
+
+  /**
+   * Puts back the rows of a preserved table, pointing each row at the restored record with the
+   * same natural key as the record it referenced before. Rows whose record was not restored are
+   * dropped, since all of them belong to that record.
+   *
+   * @return the number of rows put back
+   */
+  private long restorePreservedRows(PreservedRows preserved) {
+    PreservedTable table = preserved.getTable();
+    if (preserved.getRows().isEmpty()) {
+      return 0;
+    }
+    Map<String, Long> restoredIds = new HashMap<>();
+    jdbcTemplate.query("SELECT id, " + table.getKeyColumn() + " FROM "
+        + table.getReferencedTable(),
+        (RowCallbackHandler) rs -> restoredIds.put(rs.getString(2), rs.getLong(1)));
+
+    List<String> columns = new ArrayList<>(preserved.getRows().get(0).keySet());
+    List<Object[]> batch = new ArrayList<>();
+    for (Map<String, Object> row : preserved.getRows()) {
+      Object reference = row.get(table.getColumn());
+      String key = reference != null
+          ? preserved.getKeys().get(((Number) reference).longValue()) : null;
+      Long restoredId = key != null ? restoredIds.get(key) : null;
+      if (restoredId == null) {
+        continue;
+      }
+      Object[] values = new Object[columns.size()];
+      for (int i = 0; i < columns.size(); i++) {
+        values[i] = columns.get(i).equalsIgnoreCase(table.getColumn())
+            ? restoredId : row.get(columns.get(i));
+      }
+      batch.add(values);
+    }
+    if (!batch.isEmpty()) {
+      jdbcTemplate.batchUpdate(buildInsert(table.getTableName(), columns), batch);
+    }
+    int dropped = preserved.getRows().size() - batch.size();
+    if (dropped > 0) {
+      LOGGER.warn("Dropped {} rows from table {} that belong to records that were not restored",
+          dropped, table.getTableName());
+    }
+    return batch.size();
+  }
+
+  /**
+   * Restores a single exported table, along with the join tables of its ID list columns, and
+   * verifies the number of inserted rows.
+   *
+   * @return the highest restored record ID, or 0 if the table has no ID column
+   */
+  private long importTable(Path directory, ImportTable table, Map<String, Long> manifest,
+      DataImportResult result) throws IOException {
+    Path file = directory.resolve(table.getFileName() + ".csv");
+    if (!Files.exists(file)) {
+      if (manifest.containsKey(table.getFileName())) {
+        throw new DataImportException("Data export is missing table file: " + file.getFileName());
+      }
+      LOGGER.warn("Data export does not contain table {}, skipping", table.getFileName());
+      return 0;
+    }
+
+    long start = System.currentTimeMillis();
+    Map<String, ImportColumn> databaseColumns = getColumns(table.getTableName());
+    if (databaseColumns.isEmpty()) {
+      throw new DataImportException("Table does not exist: " + table.getTableName());
+    }
+
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+      String[] header = reader.readNext();
+      if (header == null) {
+        throw new DataImportException("Table file has no header: " + file.getFileName());
+      }
+
+      // Map the exported columns to database columns and join tables
+      List<Integer> indexes = new ArrayList<>();
+      List<ImportColumn> columns = new ArrayList<>();
+      Map<Integer, ImportTable.JoinColumn> joinColumns = new HashMap<>();
+      int idIndex = -1;
+      for (int i = 0; i < header.length; i++) {
+        ImportTable.JoinColumn joinColumn = table.getJoinColumn(header[i]);
+        if (joinColumn != null) {
+          joinColumns.put(i, joinColumn);
+          continue;
+        }
+        ImportColumn column = databaseColumns.get(table.getColumnName(header[i]));
+        if (column == null) {
+          LOGGER.warn("Table {} has no column for exported column {}, skipping",
+              table.getTableName(), header[i]);
+          continue;
+        }
+        if (column.getName().equals("id")) {
+          idIndex = i;
+        }
+        indexes.add(i);
+        columns.add(column);
+      }
+      if (!joinColumns.isEmpty() && idIndex < 0) {
+        throw new DataImportException("Table " + table.getTableName()
+            + " has ID list columns, but no ID column");
+      }
+
+      String sql = buildInsert(table.getTableName(),
+          columns.stream().map(ImportColumn::getName).collect(Collectors.toList()));
+      List<Object[]> batch = new ArrayList<>(batchSize);
+      Map<ImportTable.JoinColumn, List<Object[]>> joinBatches = new HashMap<>();
+      Map<ImportTable.JoinColumn, Long> joinCounts = new HashMap<>();
+      for (ImportTable.JoinColumn joinColumn : joinColumns.values()) {
+        joinBatches.put(joinColumn, new ArrayList<>());
+        joinCounts.put(joinColumn, 0L);
+      }
+
+      long rowCount = 0;
+      long maxId = 0;
+      String[] row;
+      while ((row = reader.readNext()) != null) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+          values[i] = convert(row[indexes.get(i)], columns.get(i));
+        }
+        batch.add(values);
+        rowCount = rowCount + 1;
+
+        if (idIndex >= 0) {
+          long id = Long.parseLong(row[idIndex]);
+          maxId = Math.max(maxId, id);
+          for (Map.Entry<Integer, ImportTable.JoinColumn> entry : joinColumns.entrySet()) {
+            String ids = row[entry.getKey()];
+            if (ids.isEmpty()) {
+              continue;
+            }
+            for (String memberId : ids.split(",")) {
+              joinBatches.get(entry.getValue()).add(new Object[] {id, Long.parseLong(memberId)});
+              joinCounts.merge(entry.getValue(), 1L, Long::sum);
+            }
+          }
+        }
+
+        if (batch.size() >= batchSize) {
+          flush(sql, columns, batch);
+          flushJoins(joinBatches);
+        }
+      }
+      flush(sql, columns, batch);
+      flushJoins(joinBatches);
+
+      // Verify the restored row counts
+      Long expected = manifest.get(table.getFileName());
+      if (expected != null && expected != rowCount) {
+        throw new DataImportException("Table file " + file.getFileName() + " contains "
+            + rowCount + " rows, but the export manifest lists " + expected);
+      }
+      verifyRowCount(table.getTableName(), rowCount);
+      for (Map.Entry<ImportTable.JoinColumn, Long> entry : joinCounts.entrySet()) {
+        verifyRowCount(entry.getKey().getJoinTable(), entry.getValue());
+      }
+
+      long durationMs = System.currentTimeMillis() - start;
+      result.addTable(new ExportTableResult(table.getTableName(), rowCount, durationMs));
+      LOGGER.info("Restored {} rows to table {} in {} ms",
+          rowCount, table.getTableName(), durationMs);
+      return maxId;
+    } catch (CsvValidationException | ParseException | NumberFormatException e) {
+      throw new DataImportException("Failed to read table file " + file.getFileName() + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  private String buildInsert(String table, List<String> columns) {
+    return "INSERT INTO " + table
+        + " (" + columns.stream().map(c -> "\"" + c + "\"").collect(Collectors.joining(", "))
+        + ") VALUES ("
+        + columns.stream().map(c -> "?").collect(Collectors.joining(", "))
+        + ")";
+  }
+
+  private void flush(String sql, List<ImportColumn> columns, List<Object[]> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    jdbcTemplate.batchUpdate(sql, batch, batch.size(), (statement, values) -> {
+      for (int i = 0; i < values.length; i++) {
+        int sqlType = columns.get(i).getSqlType();
+        if (values[i] == null) {
+          statement.setNull(i + 1, sqlType);
+        } else if (sqlType == Types.OTHER) {
+          statement.setObject(i + 1, values[i], Types.OTHER);
+        } else {
+          statement.setObject(i + 1, values[i]);
+        }
+      }
+    });
+    batch.clear();
+  }
+
+  private void flushJoins(Map<ImportTable.JoinColumn, List<Object[]>> joinBatches) {
+    for (Map.Entry<ImportTable.JoinColumn, List<Object[]>> entry : joinBatches.entrySet()) {
+      ImportTable.JoinColumn joinColumn = entry.getKey();
+      List<Object[]> batch = entry.getValue();
+      if (batch.isEmpty()) {
+        continue;
+      }
+      String sql = buildInsert(joinColumn.getJoinTable(),
+          List.of(joinColumn.getOwnerColumn(), joinColumn.getMemberColumn()));
+      jdbcTemplate.batchUpdate(sql, batch, batch.size(), (statement, values) -> {
+        statement.setLong(1, (Long) values[0]);
+        statement.setLong(2, (Long) values[1]);
+      });
+      batch.clear();
+    }
+  }
+
+  /**
+   * Converts an exported CSV value to the JDBC value for the target column. Exports write
+   * missing values as empty strings, which are restored as nulls, unless the column does not
+   * allow them.
+   */
+  private Object convert(String value, ImportColumn column) throws ParseException {
+    if (value == null) {
+      return null;
+    }
+    switch (column.getSqlType()) {
+      case Types.BIGINT:
+        return value.isEmpty() ? null : Long.valueOf(value);
+      case Types.INTEGER:
+      case Types.SMALLINT:
+        return value.isEmpty() ? null : Integer.valueOf(value);
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return value.isEmpty() ? null : Boolean.valueOf(value);
+      case Types.DATE:
+      case Types.TIMESTAMP:
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return value.isEmpty() ? null : new Timestamp(SDF.parse(value).getTime());
+      case Types.OTHER:
+        return value.isEmpty() || value.equals("null") ? null : value;
+      default:
+        return value.isEmpty() && column.isNullable() ? null : value;
+    }
+  }
+
+  private void verifyRowCount(String table, long expected) {
+    Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    if (count == null || count != expected) {
+      throw new DataImportException("Restored " + count + " rows to table " + table
+          + ", but expected " + expected);
+    }
+  }
+
+  /**
+   * Advances the shared ID sequence past the highest restored record ID, so that records created
+   * after the import do not collide with restored records. The sequence is never moved
+   * backwards.
+   *
+   * @return the new sequence value
+   */
+  private long advanceSequence(long maxId) {
+    Long value = jdbcTemplate.queryForObject(
+        "SELECT setval('" + ID_SEQUENCE + "', GREATEST(?, (SELECT last_value FROM "
+            + ID_SEQUENCE + ")))",
+        Long.class, maxId);
+    LOGGER.info("Advanced sequence {} to {}", ID_SEQUENCE, value);
+    return value != null ? value : maxId;
+  }
+
+  private Map<String, ImportColumn> getColumns(String table) {
+    return jdbcTemplate.execute((ConnectionCallback<Map<String, ImportColumn>>) connection -> {
+      Map<String, ImportColumn> columns = new HashMap<>();
+      try (ResultSet resultSet = connection.getMetaData()
+          .getColumns(connection.getCatalog(), connection.getSchema(), table, null)) {
+        while (resultSet.next()) {
+          String name = resultSet.getString("COLUMN_NAME");
+          columns.put(name, new ImportColumn(name, resultSet.getInt("DATA_TYPE"),
+              resultSet.getInt("NULLABLE") == DatabaseMetaData.columnNullable));
+        }
+      }
+      return columns;
+    });
+  }
+
+  private List<String[]> readRows(Path file) throws IOException {
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+      reader.skip(1);
+      return reader.readAll();
+    } catch (Exception e) {
+      throw new DataImportException("Failed to read " + file.getFileName(), e);
+    }
+  }
+
+  /**
+   * Finds the folder holding the exported table files, which archives store in a top-level
+   * folder named after the export.
+   */
+  private Path findExportDirectory(Path directory) throws IOException {
+    if (Files.exists(directory.resolve(MANIFEST_TABLE + ".csv"))
+        || Files.exists(directory.resolve("users.csv"))) {
+      return directory;
+    }
+    try (Stream<Path> paths = Files.list(directory)) {
+      Optional<Path> folder = paths
+          .filter(Files::isDirectory)
+          .filter(p -> !p.getFileName().toString().startsWith("."))
+          .sorted(Comparator.naturalOrder())
+          .findFirst();
+      if (folder.isPresent()) {
+        return folder.get();
+      }
+    }
+    throw new InvalidRequestException("Archive does not contain a data export");
+  }
+
+  private void extractArchive(Path archive, Path destination) throws IOException {
+    String name = archive.getFileName().toString().toLowerCase();
+    if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+      try (TarArchiveInputStream tarIn = new TarArchiveInputStream(
+          new GZIPInputStream(Files.newInputStream(archive)))) {
+        TarArchiveEntry entry;
+        while ((entry = tarIn.getNextEntry()) != null) {
+          extractEntry(destination, entry.getName(), entry.isDirectory(), tarIn);
+        }
+      }
+    } else if (name.endsWith(".zip")) {
+      try (ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(archive))) {
+        ZipEntry entry;
+        while ((entry = zipIn.getNextEntry()) != null) {
+          extractEntry(destination, entry.getName(), entry.isDirectory(), zipIn);
+        }
+      }
+    } else {
+      throw new InvalidRequestException("Unsupported archive type: " + archive.getFileName());
+    }
+  }
+
+  private void extractEntry(Path destination, String name, boolean directory, InputStream in)
+      throws IOException {
+    Path target = destination.resolve(name).normalize();
+    if (!target.startsWith(destination)) {
+      throw new InvalidRequestException("Archive entry is outside of the export folder: " + name);
+    }
+    if (directory) {
+      Files.createDirectories(target);
+    } else {
+      Files.createDirectories(target.getParent());
+      Files.copy(in, target);
+    }
+  }
+
+  /** Name, JDBC type and nullability of a database column. */
+  private static class ImportColumn {
+
+    private final String name;
+    private final int sqlType;
+    private final boolean nullable;
+
+    ImportColumn(String name, int sqlType, boolean nullable) {
+      this.name = name;
+      this.sqlType = sqlType;
+      this.nullable = nullable;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getSqlType() {
+      return sqlType;
+    }
+
+    public boolean isNullable() {
+      return nullable;
+    }
+
+  }
+
+  /** A table that is kept by a restore, and the restored records that its rows belong to. */
+  private static class PreservedTable {
+
+    private final String tableName;
+    private final String column;
+    private final String referencedTable;
+    private final String keyColumn;
+
+    PreservedTable(String tableName, String column, String referencedTable, String keyColumn) {
+      this.tableName = tableName;
+      this.column = column;
+      this.referencedTable = referencedTable;
+      this.keyColumn = keyColumn;
+    }
+
+    public String getTableName() {
+      return tableName;
+    }
+
+    public String getColumn() {
+      return column;
+    }
+
+    public String getReferencedTable() {
+      return referencedTable;
+    }
+
+    public String getKeyColumn() {
+      return keyColumn;
+    }
+
+  }
+
+  /** Rows set aside from a preserved table, and the natural keys of the records they reference. */
+  private static class PreservedRows {
+
+    private final PreservedTable table;
+    private final List<Map<String, Object>> rows;
+    private final Map<Long, String> keys;
+
+    PreservedRows(PreservedTable table, List<Map<String, Object>> rows, Map<Long, String> keys) {
+      this.table = table;
+      this.rows = rows;
+      this.keys = keys;
+    }
+
+    public PreservedTable getTable() {
+      return table;
+    }
+
+    public List<Map<String, Object>> getRows() {
+      return rows;
+    }
+
+    public Map<Long, String> getKeys() {
+      return keys;
+    }
+
+  }
+
+}
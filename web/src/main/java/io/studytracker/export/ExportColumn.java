@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+/**
+ * Name and data type of a single column in an exported table. Rows written to an
+ * {@link ExportTableWriter} must provide one value per column, of the Java type matching the
+ * column type: {@link Long} for IDs, {@link java.util.Date} for timestamps, a {@link java.util.List}
+ * of IDs for ID lists, a {@link java.util.Map} for maps, and any object for strings, which are
+ * written using {@link Object#toString()}. Any value may be null.
+ */
+public class ExportColumn {
+
+  private final String name;
+  private final ExportColumnType type;
+
+  public ExportColumn(String name, ExportColumnType type) {
+    this.name = name;
+    this.type = type;
+  }
+
+  public static ExportColumn id(String name) {
+    return new ExportColumn(name, ExportColumnType.LONG);
+  }
+
+  public static ExportColumn string(String name) {
+    return new ExportColumn(name, ExportColumnType.STRING);
+  }
+
+  public static ExportColumn integer(String name) {
+    return new ExportColumn(name, ExportColumnType.INTEGER);
+  }
+
+  public static ExportColumn bool(String name) {
+    return new ExportColumn(name, ExportColumnType.BOOLEAN);
+  }
+
+  public static ExportColumn timestamp(String name) {
+    return new ExportColumn(name, ExportColumnType.TIMESTAMP);
+  }
+
+  public static ExportColumn idList(String name) {
+    return new ExportColumn(name, ExportColumnType.ID_LIST);
+  }
+
+  public static ExportColumn map(String name) {
+    return new ExportColumn(name, ExportColumnType.MAP);
+  }
+
+  public static ExportColumn json(String name) {
+    return new ExportColumn(name, ExportColumnType.JSON);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public ExportColumnType getType() {
+    return type;
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+/** Data types of exported table columns, used to build typed output schemas. */
+public enum ExportColumnType {
+
+  /** Free text, or an enum value. */
+  STRING,
+
+  /** 64-bit integer, used for record IDs and counts. */
+  LONG,
+
+  /** 32-bit integer. */
+  INTEGER,
+
+  BOOLEAN,
+
+  /** Date and time, with millisecond precision. */
+  TIMESTAMP,
+
+  /** List of record IDs, such as the members of a many-to-many relationship. */
+  ID_LIST,
+
+  /** String-keyed map, such as record attributes or activity data. */
+  MAP,
+
+  /** Arbitrary object, serialized as a JSON document. */
+  JSON
+
+}
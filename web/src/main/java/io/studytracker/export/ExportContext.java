@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.export;
+
+import java.io.IOException;
+import java.util.Date;
+
+/** State shared by all of the table exporters participating in a single data export. */
+public class ExportContext {
+
+  private final ExportOutput output;
+  private final DataExportResult result;
+  private final ExportProgressListener listener;
+  private final ExportWriterFactory writerFactory;
+
+  public ExportContext(ExportOutput output, DataExportResult result,
+      ExportWriterFactory writerFactory) {
+    this(output, result, writerFactory, ExportProgressListener.NONE);
+  }
+
+  public ExportContext(ExportOutput output, DataExportResult result,
+      ExportWriterFactory writerFactory, ExportProgressListener listener) {
+    this.output = output;
+    this.result = result;
+    this.writerFactory = writerFactory;
+    this.listener = listener;
+  }
+
+  /**
+   * Opens a writer for a new table file in the export output.
+   *
+   * @param name the table name, used as the file name, with the format's file extension
+   * @return the table writer
+   * @throws IOException if the file cannot be created
+   */
+  public ExportTableWriter openTable(String name) throws IOException {
+    if (listener.isCancelled()) {
+      throw new ExportCancelledException("Export cancelled before table " + name);
+    }
+    String fileName = name + "." + writerFactory.getFileExtension();
+    return writerFactory.createWriter(name, output.openEntry(fileName), result, listener);
+  }
+
+  public ExportOutput getOutput() {
+    return output;
+  }
+
+  public DataExportResult getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the start point of an incremental export. Only records created or updated after this
+   * time are exported. Returns null for a full export.
+   *
+   * @return the incremental start point, or null
+   */
+  public Date getSince() {
+    return result.getSince();
+  }
+
+  public ExportWriterFactory getWriterFactory() {
+    return writerFactory;
+  }
+
+  public ExportProgressListener getListener() {
+    return listener;
+  }
+
+}
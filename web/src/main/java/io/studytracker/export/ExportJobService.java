@@ -0,0 +1,570 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import io.studytracker.config.HostInformation;
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.model.ExportFormat;
+import io.studytracker.model.ExportJob;
+import io.studytracker.model.ExportJobStatus;
+import io.studytracker.model.User;
+import io.studytracker.repository.ExportJobRepository;
+import io.studytracker.repository.ImportJobRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs data exports as tracked background jobs. Each job is recorded in the database, so that
+ * its status and progress can be polled, and runs on the dedicated {@code exportJobExecutor}
+ * pool. Finished archives are kept for a configurable retention period, after which they are
+ * deleted along with their job records.
+ *
+ * <p>Each job records the node running it, which updates the job's heartbeat while it is queued
+ * or running. Nodes share the database, so a job is only failed as interrupted once its
+ * heartbeat is stale, or on startup of the node that was running it.
+ */
+@Service
+public class ExportJobService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportJobService.class);
+
+  private static final Set<ExportJobStatus> ACTIVE_STATUSES =
+      EnumSet.of(ExportJobStatus.QUEUED, ExportJobStatus.RUNNING);
+
+  private static final Set<ExportJobStatus> FINISHED_STATUSES =
+      EnumSet.of(ExportJobStatus.COMPLETED, ExportJobStatus.FAILED, ExportJobStatus.CANCELLED);
+
+  @Value("${storage.temp-dir}")
+  private String tempDir;
+
+  @Value("${export.jobs.retention-hours:24}")
+  private int retentionHours;
+
+  @Value("${export.jobs.progress-interval-ms:2000}")
+  private long progressIntervalMs;
+
+  @Value("${export.incremental.overlap-seconds:60}")
+  private long incrementalOverlapSeconds;
+
+  @Value("${export.jobs.archive-format:ZIP}")
+  private ArchiveFormat archiveFormat;
+
+  @Value("${export.jobs.stale-timeout-ms:300000}")
+  private long staleTimeoutMs;
+
+  @Autowired private ExportJobRepository exportJobRepository;
+
+  @Autowired private ImportJobRepository importJobRepository;
+
+  @Autowired private DataExportService dataExportService;
+
+  @Autowired private CompressionUtil compressionUtil;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private HostInformation hostInformation;
+
+  @Autowired
+  @Qualifier("exportJobExecutor")
+  private Executor exportJobExecutor;
+
+  private final Map<String, JobProgress> runningJobs = new ConcurrentHashMap<>();
+
+  /**
+   * Records a new full export job and queues it for execution on the export job executor.
+   *
+   * @param user the user requesting the export
+   * @return the queued job
+   */
+  public ExportJob submitJob(User user) {
+    return submitJob(user, null);
+  }
+
+  /**
+   * Records a new export job and queues it for execution on the export job executor. If
+   * {@code since} is provided, only records changed after that time are exported.
+   *
+   * @param user the user requesting the export
+   * @param since start point of an incremental export, or null for a full export
+   * @return the queued job
+   */
+  public ExportJob submitJob(User user, Date since) {
+    return submitJob(user, since, ExportFormat.CSV);
+  }
+
+  /**
+   * Records a new export job, writing tables in the given file format, and queues it for
+   * execution on the export job executor. If {@code since} is provided, only records changed
+   * after that time are exported.
+   *
+   * @param user the user requesting the export
+   * @param since start point of an incremental export, or null for a full export
+   * @param format file format of the exported tables
+   * @return the queued job
+   */
+  public ExportJob submitJob(User user, Date since, ExportFormat format) {
+    if (!importJobRepository.findByStatusIn(ACTIVE_STATUSES).isEmpty()) {
+      throw new InvalidRequestException("A data import is running. Wait for it to finish "
+          + "before starting an export.");
+    }
+    ExportJob job = new ExportJob();
+    job.setJobId(UUID.randomUUID().toString());
+    job.setStatus(ExportJobStatus.QUEUED);
+    job.setCreatedBy(user);
+    job.setChangedSince(since);
+    job.setFormat(format);
+    job.setOwnerNode(hostInformation.getNodeId());
+    job.setHeartbeatAt(new Date());
+    job = exportJobRepository.save(job);
+    LOGGER.info("Queued {} data export job {} for user {}", since != null ? "incremental" : "full",
+        job.getJobId(), user.getUsername());
+
+    JobProgress progress = new JobProgress(job.getJobId());
+    runningJobs.put(job.getJobId(), progress);
+    try {
+      exportJobExecutor.execute(() -> runJob(progress, since, format));
+    } catch (RejectedExecutionException e) {
+      runningJobs.remove(job.getJobId());
+      updateJob(job.getJobId(), j -> {
+        j.setStatus(ExportJobStatus.FAILED);
+        j.setCompletedAt(new Date());
+        j.setMessage("Too many export jobs are queued. Try again later.");
+      });
+      throw new InvalidRequestException("Too many export jobs are queued. Try again later.");
+    }
+    return job;
+  }
+
+  /**
+   * Returns the point an incremental export should continue from after the given job: the job's
+   * high-water mark, less a small overlap. The overlap catches changes from transactions that
+   * were still in progress when the earlier export started, at the cost of exporting a few
+   * records twice.
+   *
+   * @param jobId ID of a completed export job
+   * @return the incremental start point
+   */
+  public Date getContinuationPoint(String jobId) {
+    ExportJob job = exportJobRepository.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Export job not found: " + jobId));
+    if (job.getStatus() != ExportJobStatus.COMPLETED || job.getWatermark() == null) {
+      throw new InvalidRequestException("Export job " + jobId + " has not completed, so an "
+          + "incremental export cannot continue from it");
+    }
+    return withOverlap(job.getWatermark());
+  }
+
+  /**
+   * Returns the point an incremental export should continue from after the most recent
+   * completed export, if there is one.
+   *
+   * @return the incremental start point, or empty if no export has completed
+   */
+  public Optional<Date> findLatestContinuationPoint() {
+    return exportJobRepository
+        .findFirstByStatusAndWatermarkIsNotNullOrderByWatermarkDesc(ExportJobStatus.COMPLETED)
+        .map(job -> withOverlap(job.getWatermark()));
+  }
+
+  private Date withOverlap(Date watermark) {
+    return new Date(watermark.getTime() - TimeUnit.SECONDS.toMillis(incrementalOverlapSeconds));
+  }
+
+  public Optional<ExportJob> findByJobId(String jobId) {
+    return exportJobRepository.findByJobId(jobId);
+  }
+
+  public List<ExportJob> findRecentJobs() {
+    return exportJobRepository.findTop50ByOrderByCreatedAtDesc();
+  }
+
+  /**
+   * Returns the archive file of a completed export job.
+   *
+   * @param jobId ID of the job
+   * @return path to the archive
+   * @throws RecordNotFoundException if the job or its archive does not exist
+   * @throws InvalidRequestException if the job has not completed
+   */
+  public Path getArchive(String jobId) {
+    ExportJob job = exportJobRepository.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Export job not found: " + jobId));
+    if (job.getStatus() != ExportJobStatus.COMPLETED) {
+      throw new InvalidRequestException("Export job " + jobId + " has not completed. Current "
+          + "status: " + job.getStatus());
+    }
+    Path path = job.getFilePath() != null ? Paths.get(job.getFilePath()) : null;
+    if (path == null || !Files.isRegularFile(path)) {
+      throw new RecordNotFoundException("Export archive no longer exists for job: " + jobId);
+    }
+    return path;
+  }
+
+  /**
+   * Requests cancellation of a queued or running job. Queued jobs are cancelled immediately;
+   * running jobs stop at the next progress check of their table exporters.
+   *
+   * @param jobId ID of the job
+   * @return the job record
+   */
+  public ExportJob cancelJob(String jobId) {
+    ExportJob job = exportJobRepository.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Export job not found: " + jobId));
+    if (job.isFinished()) {
+      throw new InvalidRequestException("Export job " + jobId + " has already finished with "
+          + "status: " + job.getStatus());
+    }
+    LOGGER.info("Cancelling data export job {}", jobId);
+    JobProgress progress = runningJobs.get(jobId);
+    if (progress != null) {
+      progress.cancel();
+    }
+    if (progress == null || job.getStatus() == ExportJobStatus.QUEUED) {
+      updateJob(jobId, j -> {
+        j.setStatus(ExportJobStatus.CANCELLED);
+        j.setCompletedAt(new Date());
+        j.setMessage("Export cancelled");
+      });
+    }
+    return exportJobRepository.findByJobId(jobId).orElse(job);
+  }
+
+  /**
+   * Deletes a finished job record along with its archive.
+   *
+   * @param jobId ID of the job
+   */
+  public void deleteJob(String jobId) {
+    ExportJob job = exportJobRepository.findByJobId(jobId)
+        .orElseThrow(() -> new RecordNotFoundException("Export job not found: " + jobId));
+    if (!job.isFinished()) {
+      throw new InvalidRequestException("Export job " + jobId + " must be cancelled before it "
+          + "can be deleted");
+    }
+    deleteArchive(job);
+    exportJobRepository.delete(job);
+  }
+
+  /**
+   * Removes finished jobs, and their archives, that are older than the retention period.
+   */
+  @Scheduled(
+      initialDelayString = "${export.jobs.cleanup-interval-ms:3600000}",
+      fixedDelayString = "${export.jobs.cleanup-interval-ms:3600000}"
+  )
+  public void cleanupExpiredJobs() {
+    Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours));
+    List<ExportJob> expired =
+        exportJobRepository.findByStatusInAndCompletedAtBefore(FINISHED_STATUSES, cutoff);
+    if (expired.isEmpty()) {
+      return;
+    }
+    LOGGER.info("Removing {} expired data export jobs", expired.size());
+    for (ExportJob job : expired) {
+      deleteArchive(job);
+      exportJobRepository.delete(job);
+    }
+  }
+
+  /**
+   * Updates the heartbeat of the jobs queued or running on this node, so that other nodes can
+   * tell that they are still active.
+   */
+  @Scheduled(
+      initialDelayString = "${export.jobs.heartbeat-interval-ms:30000}",
+      fixedDelayString = "${export.jobs.heartbeat-interval-ms:30000}"
+  )
+  public void updateHeartbeats() {
+    Set<String> jobIds = Set.copyOf(runningJobs.keySet());
+    if (jobIds.isEmpty()) {
+      return;
+    }
+    try {
+      newTransaction().executeWithoutResult(status ->
+          exportJobRepository.updateHeartbeats(jobIds, new Date()));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update data export job heartbeats: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Jobs that this node was running when it last stopped will never finish, so they are marked
+   * as failed on startup. Jobs of other nodes are left running.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void failInterruptedJobs() {
+    failStoppedJobs(true);
+  }
+
+  /**
+   * Marks active jobs whose heartbeat is older than the stale timeout as failed, since the node
+   * running them has stopped.
+   */
+  @Scheduled(
+      initialDelayString = "${export.jobs.stale-check-interval-ms:60000}",
+      fixedDelayString = "${export.jobs.stale-check-interval-ms:60000}"
+  )
+  public void failStaleJobs() {
+    failStoppedJobs(false);
+  }
+
+  private void failStoppedJobs(boolean startup) {
+    Date now = new Date();
+    Date staleBefore = new Date(now.getTime() - staleTimeoutMs);
+    for (ExportJob job : exportJobRepository.findByStatusIn(ACTIVE_STATUSES)) {
+      if (runningJobs.containsKey(job.getJobId())) {
+        continue;
+      }
+      boolean restarted = startup && hostInformation.getNodeId().equals(job.getOwnerNode());
+      String message = restarted ? "Export was interrupted by an application restart"
+          : "Export was interrupted because its node stopped responding";
+      Integer failed = newTransaction().execute(status ->
+          exportJobRepository.failIfStale(job.getJobId(), now, message, ACTIVE_STATUSES,
+              restarted ? now : staleBefore));
+      if (failed != null && failed > 0) {
+        LOGGER.warn("Marked interrupted data export job {} of node {} as failed",
+            job.getJobId(), job.getOwnerNode());
+      }
+    }
+  }
+
+  private void runJob(JobProgress progress, Date since, ExportFormat format) {
+    String jobId = progress.jobId;
+    Path directory = null;
+    try {
+      if (progress.isCancelled()) {
+        return;
+      }
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.setStartedAt(new Date());
+      });
+      LOGGER.info("Starting data export job {}", jobId);
+
+      DataExportResult result = dataExportService.exportAllData(jobId, progress, since, format);
+      directory = result.getDirectory();
+      if (progress.isCancelled()) {
+        throw new ExportCancelledException("Export cancelled");
+      }
+
+      Path archive = directory.resolveSibling(
+          "data-export-" + jobId + "." + archiveFormat.getFileExtension());
+      compressionUtil.compressDirectory(directory, archive, archiveFormat);
+      long fileSize = Files.size(archive);
+
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.COMPLETED);
+        job.setCompletedAt(new Date());
+        job.setCompletedTables(progress.completedTables.get());
+        job.setRowCount(result.getTotalRowCount());
+        job.setCurrentTable(null);
+        job.setFilePath(archive.toString());
+        job.setFileSize(fileSize);
+        job.setWatermark(result.getWatermark());
+        job.setMessage("Exported " + result.getTotalRowCount() + " rows from "
+            + result.getTables().size() + " tables in " + result.getDurationMs() + " ms");
+      });
+      LOGGER.info("Data export job {} completed: {}", jobId, archive);
+
+    } catch (ExportCancelledException e) {
+      LOGGER.info("Data export job {} was cancelled", jobId);
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.CANCELLED);
+        job.setCompletedAt(new Date());
+        job.setCurrentTable(null);
+        job.setMessage("Export cancelled");
+      });
+    } catch (Exception e) {
+      LOGGER.error("Data export job {} failed", jobId, e);
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.FAILED);
+        job.setCompletedAt(new Date());
+        job.setCurrentTable(null);
+        job.setMessage("Export failed: " + e.getMessage());
+      });
+    } finally {
+      runningJobs.remove(jobId);
+      if (directory == null) {
+        directory = Paths.get(tempDir, "export", "data-export-" + jobId);
+      }
+      deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Applies an update to a job record in a new transaction, so that progress is visible to
+   * status requests while the export's own read-only transactions are still open. Updates to
+   * jobs that have since been deleted are ignored.
+   */
+  private void updateJob(String jobId, Consumer<ExportJob> update) {
+    try {
+      newTransaction().executeWithoutResult(status ->
+          exportJobRepository.findByJobId(jobId).ifPresent(job -> {
+            update.accept(job);
+            if (!job.isFinished() && runningJobs.containsKey(jobId)) {
+              job.setHeartbeatAt(new Date());
+            }
+            exportJobRepository.save(job);
+          }));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update data export job {}: {}", jobId, e.getMessage());
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate;
+  }
+
+  private void deleteArchive(ExportJob job) {
+    if (job.getFilePath() == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(Paths.get(job.getFilePath()));
+    } catch (IOException e) {
+      LOGGER.warn("Failed to delete export archive {}: {}", job.getFilePath(), e.getMessage());
+    }
+  }
+
+  private void deleteDirectory(Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException e) {
+          LOGGER.warn("Failed to delete file {}: {}", path, e.getMessage());
+        }
+      });
+    } catch (IOException e) {
+      LOGGER.warn("Failed to clean up export directory {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /**
+   * Tracks the progress of a running job in memory and periodically writes it to the job record.
+   * Row counts are persisted at most once every {@code progressIntervalMs}, and table counts
+   * whenever a top-level table and its related tables complete.
+   */
+  private class JobProgress implements ExportProgressListener {
+
+    private final String jobId;
+    private final AtomicInteger completedTables = new AtomicInteger();
+    private final AtomicLong completedRows = new AtomicLong();
+    private final Map<String, Long> tableRows = new ConcurrentHashMap<>();
+    private volatile boolean cancelled = false;
+    private volatile String currentTable;
+    private long lastPersisted = 0;
+
+    JobProgress(String jobId) {
+      this.jobId = jobId;
+    }
+
+    void cancel() {
+      this.cancelled = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public void onExportStarted(int tableCount) {
+      updateJob(jobId, job -> job.setTotalTables(tableCount));
+    }
+
+    @Override
+    public void onTableStarted(String table) {
+      currentTable = table;
+      tableRows.put(table, 0L);
+    }
+
+    @Override
+    public void onRowsWritten(String table, long rowCount) {
+      tableRows.put(table, rowCount);
+      persist(false);
+    }
+
+    @Override
+    public void onTableCompleted(ExportTableResult table) {
+      tableRows.remove(table.getName());
+      completedRows.addAndGet(table.getRowCount());
+    }
+
+    @Override
+    public void onTableGroupCompleted(String name) {
+      completedTables.incrementAndGet();
+      persist(true);
+    }
+
+    private synchronized void persist(boolean force) {
+      long now = System.currentTimeMillis();
+      if (!force && now - lastPersisted < progressIntervalMs) {
+        return;
+      }
+      lastPersisted = now;
+      long rows = completedRows.get()
+          + tableRows.values().stream().mapToLong(Long::longValue).sum();
+      int tables = completedTables.get();
+      String table = currentTable;
+      updateJob(jobId, job -> {
+        job.setRowCount(rows);
+        job.setCompletedTables(tables);
+        job.setCurrentTable(table);
+      });
+    }
+
+  }
+
+}
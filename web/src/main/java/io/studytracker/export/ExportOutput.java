@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Destination for the files produced by a data export. Each exported table is written to a
+ * separate entry, which is completed when the stream returned by {@link #openEntry(String)} is
+ * closed.
+ */
+public interface ExportOutput {
+
+  /**
+   * Opens a new output entry with the given file name.
+   *
+   * @param fileName name of the file
+   * @return stream for writing the entry contents
+   * @throws IOException if the entry cannot be created
+   */
+  OutputStream openEntry(String fileName) throws IOException;
+
+  /**
+   * Returns true if multiple entries can be written at the same time.
+   *
+   * @return true if concurrent writes are supported
+   */
+  boolean supportsConcurrentEntries();
+
+  /**
+   * Writes each entry to a separate file in the provided directory.
+   *
+   * @param directory the output directory
+   * @return directory output
+   */
+  static ExportOutput toDirectory(Path directory) {
+    return new ExportOutput() {
+      @Override
+      public OutputStream openEntry(String fileName) throws IOException {
+        return Files.newOutputStream(directory.resolve(fileName));
+      }
+
+      @Override
+      public boolean supportsConcurrentEntries() {
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Writes each entry directly into the provided ZIP stream, under the given folder name. Only
+   * one entry can be open at a time, and closing an entry does not close the underlying stream.
+   *
+   * @param zipOut the ZIP output stream
+   * @param folderName name of the folder within the archive
+   * @return ZIP stream output
+   */
+  static ExportOutput toZip(ZipOutputStream zipOut, String folderName) {
+    return new ExportOutput() {
+      @Override
+      public OutputStream openEntry(String fileName) throws IOException {
+        zipOut.putNextEntry(new ZipEntry(folderName + "/" + fileName));
+        return new FilterOutputStream(zipOut) {
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+          }
+
+          @Override
+          public void close() throws IOException {
+            flush();
+            zipOut.closeEntry();
+          }
+        };
+      }
+
+      @Override
+      public boolean supportsConcurrentEntries() {
+        return false;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+/**
+ * Receives progress updates from a running data export. An export is made up of a fixed set of
+ * top-level tables, each of which may write several related table files. Table exporters may run
+ * in parallel, so implementations must be thread-safe. Exporters poll {@link #isCancelled()} as they write rows
+ * and abort with an {@link ExportCancelledException} once it returns true.
+ */
+public interface ExportProgressListener {
+
+  ExportProgressListener NONE = new ExportProgressListener() {};
+
+  default void onExportStarted(int tableCount) {
+  }
+
+  default void onTableStarted(String table) {
+  }
+
+  default void onRowsWritten(String table, long rowCount) {
+  }
+
+  default void onTableCompleted(ExportTableResult table) {
+  }
+
+  default void onTableGroupCompleted(String name) {
+  }
+
+  default boolean isCancelled() {
+    return false;
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.export;
+
+import lombok.Data;
+
+/** Row count and timing for a single exported table file. */
+@Data
+public class ExportTableResult {
+
+  private String name;
+  private long rowCount;
+  private long durationMs;
+
+  /** True if the table only contains rows changed since the export's start point. */
+  private boolean incremental;
+
+  public ExportTableResult() {
+  }
+
+  public ExportTableResult(String name, long rowCount, long durationMs) {
+    this(name, rowCount, durationMs, false);
+  }
+
+  public ExportTableResult(String name, long rowCount, long durationMs, boolean incremental) {
+    this.name = name;
+    this.rowCount = rowCount;
+    this.durationMs = durationMs;
+    this.incremental = incremental;
+  }
+
+}
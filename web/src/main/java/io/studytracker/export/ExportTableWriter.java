@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the rows of a single exported table, keeping track of the number of rows written and
+ * the elapsed time. The table statistics are reported to the export's {@link DataExportResult}
+ * when the writer is closed. Subclasses implement the encoding of a specific file format.
+ */
+public abstract class ExportTableWriter implements Closeable {
+
+  private static final int CHECK_INTERVAL = 1000;
+
+  private final String name;
+  private final DataExportResult result;
+  private final ExportProgressListener listener;
+  private final long start;
+  private ExportColumn[] columns;
+  private long rowCount = 0;
+  private boolean incremental = false;
+
+  protected ExportTableWriter(String name, DataExportResult result,
+      ExportProgressListener listener) {
+    this.name = name;
+    this.result = result;
+    this.listener = listener;
+    this.start = System.currentTimeMillis();
+    listener.onTableStarted(name);
+  }
+
+  /**
+   * Defines the columns of the table. Must be called once, before any rows are written.
+   *
+   * @param columns the table columns
+   * @throws IOException if the header cannot be written
+   */
+  public void writeHeader(ExportColumn[] columns) throws IOException {
+    this.columns = columns;
+    writeColumns(columns);
+  }
+
+  /**
+   * Writes a single row, with one value per column.
+   *
+   * @param row the row values
+   * @throws IOException if the row cannot be written, or the export has been cancelled
+   */
+  public void writeRow(Object[] row) throws IOException {
+    if (columns == null) {
+      throw new IllegalStateException("Header has not been written for table " + name);
+    }
+    if (row.length != columns.length) {
+      throw new IllegalArgumentException("Expected " + columns.length + " values for table "
+          + name + ", but got " + row.length);
+    }
+    writeValues(columns, row);
+    rowCount = rowCount + 1;
+    if (rowCount % CHECK_INTERVAL == 0) {
+      checkError();
+      listener.onRowsWritten(name, rowCount);
+      if (listener.isCancelled()) {
+        throw new ExportCancelledException("Export cancelled while writing table " + name);
+      }
+    }
+  }
+
+  /** Writes the format-specific table header or schema. */
+  protected abstract void writeColumns(ExportColumn[] columns) throws IOException;
+
+  /** Encodes and writes a single row. */
+  protected abstract void writeValues(ExportColumn[] columns, Object[] row) throws IOException;
+
+  /**
+   * Checks for write errors that the format does not report as exceptions. Called periodically
+   * while rows are written.
+   */
+  protected void checkError() throws IOException {
+  }
+
+  /** Finishes the table file and closes the underlying stream. */
+  protected abstract void closeOutput() throws IOException;
+
+  public String getName() {
+    return name;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Marks the table as containing only the rows changed since the export's start point, rather
+   * than a full snapshot.
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeOutput();
+    ExportTableResult table =
+        new ExportTableResult(name, rowCount, System.currentTimeMillis() - start, incremental);
+    result.addTable(table);
+    listener.onTableCompleted(table);
+  }
+
+}
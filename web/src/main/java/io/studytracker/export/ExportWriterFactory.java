@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Creates the writers for the table files of a data export, in a single file format. */
+public interface ExportWriterFactory {
+
+  /**
+   * Returns the file extension of the table files, without the leading period.
+   *
+   * @return file extension
+   */
+  String getFileExtension();
+
+  /**
+   * Creates a writer for a single table, which writes to the provided stream.
+   *
+   * @param name the table name
+   * @param outputStream stream for the table file, which is closed when the writer is closed
+   * @param result the export result that the table statistics are reported to
+   * @param listener receives progress updates, and is polled for cancellation
+   * @return the table writer
+   * @throws IOException if the writer cannot be created
+   */
+  ExportTableWriter createWriter(String name, OutputStream outputStream, DataExportResult result,
+      ExportProgressListener listener) throws IOException;
+
+}
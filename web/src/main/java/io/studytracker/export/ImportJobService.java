@@ -0,0 +1,294 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.export;
+
+import io.studytracker.config.HostInformation;
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.model.ExportJobStatus;
+import io.studytracker.model.ImportJob;
+import io.studytracker.model.User;
+import io.studytracker.repository.ExportJobRepository;
+import io.studytracker.repository.ImportJobRepository;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs data export restores as tracked background jobs on the {@code exportJobExecutor} pool, so
+ * that a long restore does not hold a request thread. Each job is recorded in the database, so
+ * that its status and progress can be polled. Only one restore may run at a time, and not while
+ * an export is running, since the restore replaces the records the export reads. Like export
+ * jobs, each job records the node running it and a heartbeat, so that only jobs whose node has
+ * stopped are failed as interrupted.
+ */
+@Service
+public class ImportJobService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImportJobService.class);
+
+  private static final Set<ExportJobStatus> ACTIVE_STATUSES =
+      EnumSet.of(ExportJobStatus.QUEUED, ExportJobStatus.RUNNING);
+
+  @Autowired private ImportJobRepository importJobRepository;
+
+  @Autowired private ExportJobRepository exportJobRepository;
+
+  @Autowired private DataImportService dataImportService;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private HostInformation hostInformation;
+
+  @Value("${export.jobs.stale-timeout-ms:300000}")
+  private long staleTimeoutMs;
+
+  @Autowired
+  @Qualifier("exportJobExecutor")
+  private Executor exportJobExecutor;
+
+  private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Records a new restore job and queues it for execution on the export job executor.
+   *
+   * @param user the user requesting the restore
+   * @param archive path to the export archive to restore
+   * @return the queued job
+   */
+  public synchronized ImportJob submitJob(User user, Path archive) {
+    if (!importJobRepository.findByStatusIn(ACTIVE_STATUSES).isEmpty()) {
+      throw new InvalidRequestException("A data import is already running. Wait for it to "
+          + "finish before starting another.");
+    }
+    if (!exportJobRepository.findByStatusIn(ACTIVE_STATUSES).isEmpty()) {
+      throw new InvalidRequestException("A data export is running. Wait for it to finish "
+          + "before starting an import.");
+    }
+
+    ImportJob job = new ImportJob();
+    job.setJobId(UUID.randomUUID().toString());
+    job.setStatus(ExportJobStatus.QUEUED);
+    job.setFileName(archive.getFileName().toString());
+    job.setRequestedBy(user.getUsername());
+    job.setOwnerNode(hostInformation.getNodeId());
+    job.setHeartbeatAt(new Date());
+    job = importJobRepository.save(job);
+    LOGGER.info("Queued data import job {} of {} for user {}",
+        job.getJobId(), archive, user.getUsername());
+
+    String jobId = job.getJobId();
+    runningJobs.add(jobId);
+    try {
+      exportJobExecutor.execute(() -> runJob(jobId, archive));
+    } catch (RejectedExecutionException e) {
+      runningJobs.remove(jobId);
+      updateJob(jobId, j -> {
+        j.setStatus(ExportJobStatus.FAILED);
+        j.setCompletedAt(new Date());
+        j.setMessage("Too many jobs are queued. Try again later.");
+      });
+      throw new InvalidRequestException("Too many jobs are queued. Try again later.");
+    }
+    return job;
+  }
+
+  public Optional<ImportJob> findByJobId(String jobId) {
+    return importJobRepository.findByJobId(jobId);
+  }
+
+  public List<ImportJob> findRecentJobs() {
+    return importJobRepository.findTop50ByOrderByCreatedAtDesc();
+  }
+
+  /**
+   * Updates the heartbeat of the jobs queued or running on this node, so that other nodes can
+   * tell that they are still active.
+   */
+  @Scheduled(
+      initialDelayString = "${export.jobs.heartbeat-interval-ms:30000}",
+      fixedDelayString = "${export.jobs.heartbeat-interval-ms:30000}"
+  )
+  public void updateHeartbeats() {
+    Set<String> jobIds = Set.copyOf(runningJobs);
+    if (jobIds.isEmpty()) {
+      return;
+    }
+    try {
+      newTransaction().executeWithoutResult(status ->
+          importJobRepository.updateHeartbeats(jobIds, new Date()));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update data import job heartbeats: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Jobs that this node was running when it last stopped will never finish, so they are marked
+   * as failed on startup. Jobs of other nodes are left running. A restore runs in a single
+   * transaction, so an interrupted restore leaves the database unchanged.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void failInterruptedJobs() {
+    failStoppedJobs(true);
+  }
+
+  /**
+   * Marks active jobs whose heartbeat is older than the stale timeout as failed, since the node
+   * running them has stopped.
+   */
+  @Scheduled(
+      initialDelayString = "${export.jobs.stale-check-interval-ms:60000}",
+      fixedDelayString = "${export.jobs.stale-check-interval-ms:60000}"
+  )
+  public void failStaleJobs() {
+    failStoppedJobs(false);
+  }
+
+  private void failStoppedJobs(boolean startup) {
+    Date now = new Date();
+    Date staleBefore = new Date(now.getTime() - staleTimeoutMs);
+    for (ImportJob job : importJobRepository.findByStatusIn(ACTIVE_STATUSES)) {
+      if (runningJobs.contains(job.getJobId())) {
+        continue;
+      }
+      boolean restarted = startup && hostInformation.getNodeId().equals(job.getOwnerNode());
+      String message = restarted ? "Import was interrupted by an application restart"
+          : "Import was interrupted because its node stopped responding";
+      Integer failed = newTransaction().execute(status ->
+          importJobRepository.failIfStale(job.getJobId(), now, message, ACTIVE_STATUSES,
+              restarted ? now : staleBefore));
+      if (failed != null && failed > 0) {
+        LOGGER.warn("Marked interrupted data import job {} of node {} as failed",
+            job.getJobId(), job.getOwnerNode());
+      }
+    }
+  }
+
+  private void runJob(String jobId, Path archive) {
+    try {
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.setStartedAt(new Date());
+      });
+      LOGGER.info("Starting data import job {}", jobId);
+
+      DataImportResult result = dataImportService.importArchive(archive, new JobProgress(jobId));
+
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.COMPLETED);
+        job.setCompletedAt(new Date());
+        job.setCompletedTables(result.getTables().size());
+        job.setRowCount(result.getTotalRowCount());
+        job.setCurrentTable(null);
+        job.setMessage("Restored " + result.getTotalRowCount() + " rows to "
+            + result.getTables().size() + " tables in " + result.getDurationMs() + " ms");
+      });
+      LOGGER.info("Data import job {} completed", jobId);
+
+    } catch (Exception e) {
+      LOGGER.error("Data import job {} failed", jobId, e);
+      updateJob(jobId, job -> {
+        job.setStatus(ExportJobStatus.FAILED);
+        job.setCompletedAt(new Date());
+        job.setCurrentTable(null);
+        job.setMessage("Import failed: " + e.getMessage());
+      });
+    } finally {
+      runningJobs.remove(jobId);
+    }
+  }
+
+  /**
+   * Applies an update to a job record in a new transaction, so that progress is visible to
+   * status requests while the restore's own transaction is still open.
+   */
+  private void updateJob(String jobId, Consumer<ImportJob> update) {
+    try {
+      newTransaction().executeWithoutResult(status ->
+          importJobRepository.findByJobId(jobId).ifPresent(job -> {
+            update.accept(job);
+            if (!job.isFinished() && runningJobs.contains(jobId)) {
+              job.setHeartbeatAt(new Date());
+            }
+            importJobRepository.save(job);
+          }));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update data import job {}: {}", jobId, e.getMessage());
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate;
+  }
+
+  /** Writes the restore's progress to the job record as each table starts and completes. */
+  private class JobProgress implements ExportProgressListener {
+
+    private final String jobId;
+    private int completedTables = 0;
+    private long completedRows = 0;
+
+    JobProgress(String jobId) {
+      this.jobId = jobId;
+    }
+
+    @Override
+    public void onExportStarted(int tableCount) {
+      updateJob(jobId, job -> job.setTotalTables(tableCount));
+    }
+
+    @Override
+    public void onTableStarted(String table) {
+      updateJob(jobId, job -> job.setCurrentTable(table));
+    }
+
+    @Override
+    public void onTableCompleted(ExportTableResult table) {
+      completedTables = completedTables + 1;
+      completedRows = completedRows + table.getRowCount();
+      int tables = completedTables;
+      long rows = completedRows;
+      updateJob(jobId, job -> {
+        job.setCompletedTables(tables);
+        job.setRowCount(rows);
+      });
+    }
+
+  }
+
+}
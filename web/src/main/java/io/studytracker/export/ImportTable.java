@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes how an exported table file is restored into the database. Exported column names are
+ * converted to database column names by splitting them into snake case, for example
+ * {@code StorageDriveId} to {@code storage_drive_id}, unless a different name is registered with
+ * {@link #rename(String, String)}. ID list columns are restored as rows of a separate join table.
+ */
+public class ImportTable {
+
+  private final String fileName;
+  private final String tableName;
+  private final Map<String, String> columnNames = new HashMap<>();
+  private final List<JoinColumn> joinColumns = new ArrayList<>();
+
+  private ImportTable(String fileName, String tableName) {
+    this.fileName = fileName;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Creates a table restored from the export file with the same name.
+   *
+   * @param tableName the database table name
+   * @return the table
+   */
+  public static ImportTable of(String tableName) {
+    return new ImportTable(tableName, tableName);
+  }
+
+  /**
+   * Creates a table restored from an export file with a different name.
+   *
+   * @param fileName the exported table name, without file extension
+   * @param tableName the database table name
+   * @return the table
+   */
+  public static ImportTable of(String fileName, String tableName) {
+    return new ImportTable(fileName, tableName);
+  }
+
+  /**
+   * Maps an exported column to a database column that does not follow the naming convention.
+   *
+   * @param exportColumn the exported column name
+   * @param columnName the database column name
+   * @return this table
+   */
+  public ImportTable rename(String exportColumn, String columnName) {
+    columnNames.put(exportColumn, columnName);
+    return this;
+  }
+
+  /**
+   * Restores an exported ID list column as rows of a join table, each linking the owning record
+   * to one of the listed records.
+   *
+   * @param exportColumn the exported ID list column name
+   * @param joinTable the join table name
+   * @param ownerColumn the join table column referencing the owning record
+   * @param memberColumn the join table column referencing the listed record
+   * @return this table
+   */
+  public ImportTable join(String exportColumn, String joinTable, String ownerColumn,
+      String memberColumn) {
+    joinColumns.add(new JoinColumn(exportColumn, joinTable, ownerColumn, memberColumn));
+    return this;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * Returns the database column name for an exported column.
+   *
+   * @param exportColumn the exported column name
+   * @return the database column name
+   */
+  public String getColumnName(String exportColumn) {
+    String name = columnNames.get(exportColumn);
+    if (name != null) {
+      return name;
+    }
+    return exportColumn
+        .replaceAll("([a-z0-9])([A-Z])", "$1_$2")
+        .replaceAll("([A-Z])([A-Z][a-z])", "$1_$2")
+        .toLowerCase();
+  }
+
+  /**
+   * Returns the join table mapping for an exported ID list column, or null if the column is not
+   * an ID list.
+   *
+   * @param exportColumn the exported column name
+   * @return the join column, or null
+   */
+  public JoinColumn getJoinColumn(String exportColumn) {
+    return joinColumns.stream()
+        .filter(c -> c.getExportColumn().equals(exportColumn))
+        .findFirst()
+        .orElse(null);
+  }
+
+  public List<JoinColumn> getJoinColumns() {
+    return Collections.unmodifiableList(joinColumns);
+  }
+
+  /** Join table that an exported ID list column is restored into. */
+  public static class JoinColumn {
+
+    private final String exportColumn;
+    private final String joinTable;
+    private final String ownerColumn;
+    private final String memberColumn;
+
+    JoinColumn(String exportColumn, String joinTable, String ownerColumn, String memberColumn) {
+      this.exportColumn = exportColumn;
+      this.joinTable = joinTable;
+      this.ownerColumn = ownerColumn;
+      this.memberColumn = memberColumn;
+    }
+
+    public String getExportColumn() {
+      return exportColumn;
+    }
+
+    public String getJoinTable() {
+      return joinTable;
+    }
+
+    public String getOwnerColumn() {
+      return ownerColumn;
+    }
+
+    public String getMemberColumn() {
+      return memberColumn;
+    }
+
+  }
+
+}
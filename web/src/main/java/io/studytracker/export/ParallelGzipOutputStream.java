@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP output stream that splits its input into fixed-size blocks and compresses each block as
+ * an independent GZIP member on the provided executor, in the same way as {@code pigz}. The
+ * compressed members are written to the underlying stream in input order, so the result is a
+ * valid multi-member GZIP file that can be read by {@link java.util.zip.GZIPInputStream} and
+ * standard tools. At most {@code maxPendingBlocks} blocks are held in memory at once.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final int blockSize;
+  private final int level;
+  private final int maxPendingBlocks;
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+  private byte[] block;
+  private int blockLength = 0;
+  private boolean closed = false;
+
+  public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize,
+      int level, int maxPendingBlocks) {
+    this.out = out;
+    this.executor = executor;
+    this.blockSize = blockSize;
+    this.level = level;
+    this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+    this.block = new byte[blockSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (len > 0) {
+      int count = Math.min(len, blockSize - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength = blockLength + count;
+      off = off + count;
+      len = len - count;
+      if (blockLength == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Writes all completed blocks to the underlying stream. The current partial block is not
+   * compressed until it is full, or the stream is closed.
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+      writeNextBlock();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (blockLength > 0) {
+        submitBlock();
+      }
+      while (!pending.isEmpty()) {
+        writeNextBlock();
+      }
+    } finally {
+      for (Future<byte[]> future : pending) {
+        future.cancel(true);
+      }
+      pending.clear();
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    byte[] data = block;
+    int length = blockLength;
+    pending.addLast(executor.submit(() -> compress(data, length)));
+    block = new byte[blockSize];
+    blockLength = 0;
+    while (pending.size() > maxPendingBlocks) {
+      writeNextBlock();
+    }
+  }
+
+  private void writeNextBlock() throws IOException {
+    try {
+      out.write(pending.removeFirst().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing data");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress data", e.getCause());
+    }
+  }
+
+  private byte[] compress(byte[] data, int length) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+    try (GZIPOutputStream gzip = new LeveledGzipOutputStream(compressed, level)) {
+      gzip.write(data, 0, length);
+    }
+    return compressed.toByteArray();
+  }
+
+  /** GZIP output stream with a configurable deflate level. */
+  private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+    LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+      super(out);
+      def.setLevel(level);
+    }
+
+  }
+
+}
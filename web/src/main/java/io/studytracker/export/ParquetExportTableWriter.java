@@ -0,0 +1,260 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Writes an exported table as a Parquet file, with a typed, nullable column for each
+ * {@link ExportColumn}. ID lists are written as {@code LIST} columns of 64-bit integers, and maps
+ * as {@code MAP} columns with string keys and values, with any non-string values encoded as
+ * JSON. The file is written directly to the provided stream, so it can be used for both
+ * directory and ZIP exports.
+ */
+public class ParquetExportTableWriter extends ExportTableWriter {
+
+  private final OutputStream outputStream;
+  private final ObjectMapper objectMapper;
+  private final long rowGroupSize;
+  private final int pageSize;
+  private final CompressionCodecName compressionCodec;
+  private ParquetWriter<Group> writer;
+  private SimpleGroupFactory groupFactory;
+
+  public ParquetExportTableWriter(String name, OutputStream outputStream,
+      DataExportResult result, ExportProgressListener listener, ObjectMapper objectMapper,
+      long rowGroupSize, int pageSize, CompressionCodecName compressionCodec) {
+    super(name, result, listener);
+    this.outputStream = outputStream;
+    this.objectMapper = objectMapper;
+    this.rowGroupSize = rowGroupSize;
+    this.pageSize = pageSize;
+    this.compressionCodec = compressionCodec;
+  }
+
+  /**
+   * Builds the Parquet schema for the provided table columns.
+   *
+   * @param name the table name
+   * @param columns the table columns
+   * @return the message schema
+   */
+  public static MessageType buildSchema(String name, ExportColumn[] columns) {
+    Type[] fields = new Type[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      fields[i] = buildField(columns[i]);
+    }
+    return Types.buildMessage().addFields(fields).named(name);
+  }
+
+  private static Type buildField(ExportColumn column) {
+    switch (column.getType()) {
+      case LONG:
+        return Types.optional(PrimitiveTypeName.INT64).named(column.getName());
+      case INTEGER:
+        return Types.optional(PrimitiveTypeName.INT32).named(column.getName());
+      case BOOLEAN:
+        return Types.optional(PrimitiveTypeName.BOOLEAN).named(column.getName());
+      case TIMESTAMP:
+        return Types.optional(PrimitiveTypeName.INT64)
+            .as(LogicalTypeAnnotation.timestampType(true, TimeUnit.MILLIS))
+            .named(column.getName());
+      case JSON:
+        return Types.optional(PrimitiveTypeName.BINARY)
+            .as(LogicalTypeAnnotation.jsonType())
+            .named(column.getName());
+      case ID_LIST:
+        return Types.optionalGroup()
+            .as(LogicalTypeAnnotation.listType())
+            .repeatedGroup()
+                .optional(PrimitiveTypeName.INT64).named("element")
+                .named("list")
+            .named(column.getName());
+      case MAP:
+        return Types.optionalGroup()
+            .as(LogicalTypeAnnotation.mapType())
+            .repeatedGroup()
+                .required(PrimitiveTypeName.BINARY)
+                    .as(LogicalTypeAnnotation.stringType()).named("key")
+                .optional(PrimitiveTypeName.BINARY)
+                    .as(LogicalTypeAnnotation.stringType()).named("value")
+                .named("key_value")
+            .named(column.getName());
+      default:
+        return Types.optional(PrimitiveTypeName.BINARY)
+            .as(LogicalTypeAnnotation.stringType())
+            .named(column.getName());
+    }
+  }
+
+  @Override
+  protected void writeColumns(ExportColumn[] columns) throws IOException {
+    MessageType schema = buildSchema(getName(), columns);
+    this.groupFactory = new SimpleGroupFactory(schema);
+    this.writer = ExampleParquetWriter.builder(new StreamOutputFile(outputStream))
+        .withType(schema)
+        .withRowGroupSize(rowGroupSize)
+        .withPageSize(pageSize)
+        .withCompressionCodec(compressionCodec)
+        .build();
+  }
+
+  @Override
+  protected void writeValues(ExportColumn[] columns, Object[] row) throws IOException {
+    Group group = groupFactory.newGroup();
+    for (int i = 0; i < row.length; i++) {
+      if (row[i] != null) {
+        appendValue(group, columns[i], row[i]);
+      }
+    }
+    writer.write(group);
+  }
+
+  private void appendValue(Group group, ExportColumn column, Object value) throws IOException {
+    String name = column.getName();
+    switch (column.getType()) {
+      case LONG:
+        group.append(name, ((Number) value).longValue());
+        break;
+      case INTEGER:
+        group.append(name, ((Number) value).intValue());
+        break;
+      case BOOLEAN:
+        group.append(name, (Boolean) value);
+        break;
+      case TIMESTAMP:
+        group.append(name, ((Date) value).getTime());
+        break;
+      case JSON:
+        group.append(name, objectMapper.writeValueAsString(value));
+        break;
+      case ID_LIST:
+        Group list = group.addGroup(name);
+        for (Object id : (Collection<?>) value) {
+          Group element = list.addGroup("list");
+          if (id != null) {
+            element.append("element", ((Number) id).longValue());
+          }
+        }
+        break;
+      case MAP:
+        Group map = group.addGroup(name);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          Group keyValue = map.addGroup("key_value");
+          keyValue.append("key", String.valueOf(entry.getKey()));
+          if (entry.getValue() instanceof String) {
+            keyValue.append("value", (String) entry.getValue());
+          } else if (entry.getValue() != null) {
+            keyValue.append("value", objectMapper.writeValueAsString(entry.getValue()));
+          }
+        }
+        break;
+      default:
+        group.append(name, value.toString());
+    }
+  }
+
+  @Override
+  protected void closeOutput() throws IOException {
+    if (writer != null) {
+      writer.close();
+    } else {
+      outputStream.close();
+    }
+  }
+
+  /** Parquet output file that writes to an already-open stream, tracking the write position. */
+  private static class StreamOutputFile implements OutputFile {
+
+    private final OutputStream outputStream;
+
+    StreamOutputFile(OutputStream outputStream) {
+      this.outputStream = outputStream;
+    }
+
+    @Override
+    public PositionOutputStream create(long blockSizeHint) {
+      return new PositionOutputStream() {
+
+        private long position = 0;
+
+        @Override
+        public long getPos() {
+          return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+          outputStream.write(b);
+          position = position + 1;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          outputStream.write(b, off, len);
+          position = position + len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+          outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          outputStream.close();
+        }
+      };
+    }
+
+    @Override
+    public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+      return create(blockSizeHint);
+    }
+
+    @Override
+    public boolean supportsBlockSize() {
+      return false;
+    }
+
+    @Override
+    public long defaultBlockSize() {
+      return 0;
+    }
+
+  }
+
+}
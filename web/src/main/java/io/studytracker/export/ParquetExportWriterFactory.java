@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.OutputStream;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Creates {@link ParquetExportTableWriter} instances, for exports in the Parquet format. The row
+ * group size bounds the number of buffered rows each table writer holds in memory before they are
+ * flushed to the output.
+ */
+public class ParquetExportWriterFactory implements ExportWriterFactory {
+
+  private final ObjectMapper objectMapper;
+  private final long rowGroupSize;
+  private final int pageSize;
+  private final CompressionCodecName compressionCodec;
+
+  public ParquetExportWriterFactory(ObjectMapper objectMapper, long rowGroupSize, int pageSize,
+      CompressionCodecName compressionCodec) {
+    this.objectMapper = objectMapper;
+    this.rowGroupSize = rowGroupSize;
+    this.pageSize = pageSize;
+    this.compressionCodec = compressionCodec;
+  }
+
+  @Override
+  public String getFileExtension() {
+    return "parquet";
+  }
+
+  @Override
+  public ExportTableWriter createWriter(String name, OutputStream outputStream,
+      DataExportResult result, ExportProgressListener listener) {
+    return new ParquetExportTableWriter(name, outputStream, result, listener, objectMapper,
+        rowGroupSize, pageSize, compressionCodec);
+  }
+
+}
@@ -17,12 +17,15 @@
 package io.studytracker.gitlab;
 
 import io.studytracker.gitlab.GitLabRestClient.GitLabRestClientBuilder;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.GitLabIntegration;
 
 public class GitLabClientFactory {
 
-  public static GitLabRestClient createRestClient(GitLabIntegration integration) {
+  public static GitLabRestClient createRestClient(GitLabIntegration integration,
+      IntegrationHttpClients httpClients) {
     GitLabRestClientBuilder builder = new GitLabRestClientBuilder();
+    builder.requestFactory(httpClients.requestFactory("gitlab"));
     builder.rootUrl(integration.getRootUrl());
     builder.accessToken(integration.getAccessToken());
     builder.username(integration.getUsername());
@@ -18,6 +18,7 @@ package io.studytracker.gitlab;
 
 import io.studytracker.gitlab.entities.GitLabProjectGroup;
 import io.studytracker.integration.IntegrationService;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.GitGroup;
 import io.studytracker.model.GitLabGroup;
 import io.studytracker.model.GitLabIntegration;
@@ -46,6 +47,9 @@ public class GitLabIntegrationService implements IntegrationService<GitLabIntegr
   @Autowired
   private GitLabGroupRepository gitLabGroupRepository;
 
+  @Autowired
+  private IntegrationHttpClients httpClients;
+
   @Override
   public Optional<GitLabIntegration> findById(Long id) {
     LOGGER.debug("Find GitLabIntegration by id: {}", id);
@@ -118,7 +122,7 @@ public class GitLabIntegrationService implements IntegrationService<GitLabIntegr
   @Override
   public boolean test(GitLabIntegration instance) {
     try {
-      GitLabRestClient client = GitLabClientFactory.createRestClient(instance);
+      GitLabRestClient client = GitLabClientFactory.createRestClient(instance, httpClients);
       List<GitLabProjectGroup> groups = client.findGroups();
       return groups != null;
     } catch (Exception e) {
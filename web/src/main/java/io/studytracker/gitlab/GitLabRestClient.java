@@ -38,6 +38,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -47,7 +48,7 @@ public final class GitLabRestClient {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(GitLabRestClient.class);
 
-  private final RestTemplate restTemplate = new RestTemplate();
+  private RestTemplate restTemplate = new RestTemplate();
 
   private URL rootUrl;
 
@@ -88,6 +89,11 @@ public final class GitLabRestClient {
       return this;
     }
 
+    public GitLabRestClientBuilder requestFactory(@NotNull ClientHttpRequestFactory factory) {
+      client.restTemplate = new RestTemplate(factory);
+      return this;
+    }
+
     public GitLabRestClient build() {
       Assert.notNull(client.rootUrl, "GitLab root URL must be set");
       if (client.accessToken == null) {
@@ -26,6 +26,7 @@ import io.studytracker.gitlab.entities.GitLabNewGroupRequest;
 import io.studytracker.gitlab.entities.GitLabNewProjectRequest;
 import io.studytracker.gitlab.entities.GitLabProject;
 import io.studytracker.gitlab.entities.GitLabProjectGroup;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.Assay;
 import io.studytracker.model.GitGroup;
 import io.studytracker.model.GitLabGroup;
@@ -84,9 +85,12 @@ public class GitLabService implements GitService<GitLabIntegration> {
   @Autowired
   private GitProperties gitProperties;
 
+  @Autowired
+  private IntegrationHttpClients httpClients;
+
   @Override
   public List<GitServerGroup> listAvailableGroups(GitLabIntegration integration) {
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
     return client.findGroups().stream()
         .map(GitLabUtils::toGitServerGroup)
         .collect(Collectors.toList());
@@ -94,7 +98,7 @@ public class GitLabService implements GitService<GitLabIntegration> {
 
   @Override
   public Iterable<GitServerRepository> listAvailableRepositories(GitLabIntegration integration) {
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
     return client.findProjects().stream()
         .map(GitLabUtils::toGitServerRepository)
         .collect(Collectors.toList());
@@ -196,7 +200,7 @@ public class GitLabService implements GitService<GitLabIntegration> {
     GitLabIntegration integration = gitLabIntegrationService.findByGitGroup(parentGroup)
         .orElseThrow(() -> new RecordNotFoundException("Integration not found for group "
             + parentGroup.getDisplayName()));
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
 
     // Check to make sure a group doesn't already exist
     Optional<GitGroup> optional = this.findProgramGroup(parentGroup, program);
@@ -248,7 +252,7 @@ public class GitLabService implements GitService<GitLabIntegration> {
         GitLabIntegration integration = gitLabIntegrationService.findByGitGroup(parentGroup)
             .orElseThrow(() -> new RecordNotFoundException("Integration not found for group "
                 + parentGroup.getDisplayName()));
-        GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+        GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
         GitLabGroup parentGitLabGroup = gitLabGroupRepository.findByGitGroupId(parentGroup.getId());
         Optional<GitLabProjectGroup> optional = client.findGroups(program.getName()).stream()
             .filter(g -> g.getParentId().equals(parentGitLabGroup.getGroupId())
@@ -275,27 +279,47 @@ public class GitLabService implements GitService<GitLabIntegration> {
     GitLabIntegration integration = gitLabIntegrationService.findByGitGroup(programGroup)
         .orElseThrow(() -> new RecordNotFoundException("Integration not found for group "
             + programGroup.getDisplayName()));
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
 
     // Get the program group
     GitLabGroup gitLabProgramGroup = gitLabGroupRepository.findByGitGroupId(programGroup.getId());
-    GitLabProjectGroup gitLabProjectGroup = client.findGroupById(gitLabProgramGroup.getGroupId())
-        .orElseThrow(RecordNotFoundException::new);
+    String projectPath = GitLabUtils.getStudyProjectPath(study);
+
+    // Reuse the repository if an earlier attempt already created and saved it
+    Optional<GitLabRepository> existingRecord = gitLabRepositoryRepository
+        .findByGroupId(gitLabProgramGroup.getId()).stream()
+        .filter(r -> projectPath.equals(r.getPath()))
+        .findFirst();
+    if (existingRecord.isPresent()) {
+      LOGGER.info("Using existing repository {} for study {}", projectPath, study.getCode());
+      return existingRecord.get().getGitRepository();
+    }
 
-    // Create the request
     String description = GitLabUtils.trimRepositoryDescription(study.getDescription());
 
-    GitLabNewProjectRequest request = new GitLabNewProjectRequest();
-    request.setNamespaceId(gitLabProgramGroup.getGroupId());
-    request.setName(GitLabUtils.getStudyProjectName(study));
-    request.setPath(GitLabUtils.getStudyProjectPath(study));
-    request.setDescription(description);
-    request.setAutoDevopsEnabled(false);
-    request.setInitializeWithReadme(false);
-    request.setVisibility(gitLabProjectGroup.getVisibility());
+    // Reuse the project if an earlier attempt created it, but failed before saving it
+    GitLabProject project = client.findProjects(projectPath).stream()
+        .filter(p -> projectPath.equals(p.getPath()) && p.getNamespace() != null
+            && gitLabProgramGroup.getGroupId().equals(p.getNamespace().getId()))
+        .findFirst()
+        .orElse(null);
 
     // Create the repository
-    GitLabProject project = client.createProject(request);
+    if (project == null) {
+      GitLabProjectGroup gitLabProjectGroup = client.findGroupById(gitLabProgramGroup.getGroupId())
+          .orElseThrow(RecordNotFoundException::new);
+      GitLabNewProjectRequest request = new GitLabNewProjectRequest();
+      request.setNamespaceId(gitLabProgramGroup.getGroupId());
+      request.setName(GitLabUtils.getStudyProjectName(study));
+      request.setPath(projectPath);
+      request.setDescription(description);
+      request.setAutoDevopsEnabled(false);
+      request.setInitializeWithReadme(false);
+      request.setVisibility(gitLabProjectGroup.getVisibility());
+      project = client.createProject(request);
+    } else {
+      LOGGER.info("Using existing GitLab project {} for study {}", projectPath, study.getCode());
+    }
 
     // Save the records
     GitRepository repository = new GitRepository();
@@ -319,8 +343,6 @@ public class GitLabService implements GitService<GitLabIntegration> {
     GitRepository created = gitLabRepositoryRepository.findById(gitLabRepository.getId())
         .orElseThrow(() -> new RecordNotFoundException("GitLabRepository record not persisted."))
         .getGitRepository();
-    study.addGitRepository(created);
-    studyRepository.save(study);
 
     return created;
 
@@ -363,7 +385,7 @@ public class GitLabService implements GitService<GitLabIntegration> {
     GitLabIntegration integration = gitLabIntegrationService.findByGitGroup(parentGroup)
         .orElseThrow(() -> new RecordNotFoundException("Integration not found for group "
             + parentGroup.getDisplayName()));
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
 
     // Get the program group
     Study study = studyRepository.findById(assay.getStudy().getId())
@@ -449,7 +471,7 @@ public class GitLabService implements GitService<GitLabIntegration> {
   @Override
   public Iterable<GitServerUser> listAvailableUsers(GitLabIntegration integration) {
     LOGGER.debug("Getting list of GitLab users");
-    GitLabRestClient client = GitLabClientFactory.createRestClient(integration);
+    GitLabRestClient client = GitLabClientFactory.createRestClient(integration, httpClients);
     return client.findUsers().stream()
         .map(GitLabUtils::toGitServerUser)
         .collect(Collectors.toList());
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for the requests one client sends to an external host. After a number of
+ * consecutive failures the circuit opens and requests are rejected without being sent, so that
+ * callers do not wait on a host that is down. Once the open period has passed, a single trial
+ * request is allowed through: the circuit closes if it succeeds, and opens again if it fails.
+ */
+public class CircuitBreaker {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String host;
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Clock clock;
+
+  private State state = State.CLOSED;
+  private int failures = 0;
+  private Instant openedAt = Instant.MIN;
+  private boolean trialInProgress = false;
+
+  public CircuitBreaker(String host, int failureThreshold, Duration openDuration) {
+    this(host, failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  public CircuitBreaker(String host, int failureThreshold, Duration openDuration, Clock clock) {
+    this.host = host;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = openDuration;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns true if a request may be sent. Every permitted request must be followed by a call to
+   * {@link #onSuccess()} or {@link #onFailure()}.
+   *
+   * @return true if the request may be sent
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      trialInProgress = false;
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialInProgress) {
+        return false;
+      }
+      trialInProgress = true;
+    }
+    return true;
+  }
+
+  public synchronized void onSuccess() {
+    if (state != State.CLOSED) {
+      LOGGER.info("Closing circuit breaker for host {}", host);
+    }
+    state = State.CLOSED;
+    failures = 0;
+    trialInProgress = false;
+  }
+
+  public synchronized void onFailure() {
+    trialInProgress = false;
+    failures++;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+      LOGGER.warn("Opening circuit breaker for host {} after {} consecutive failures",
+          host, failures);
+      state = State.OPEN;
+      openedAt = clock.instant();
+    }
+  }
+
+  /**
+   * Releases a permitted request that ended without showing whether the host is healthy, such as
+   * a request that could not be built.
+   */
+  public synchronized void release() {
+    trialInProgress = false;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+}
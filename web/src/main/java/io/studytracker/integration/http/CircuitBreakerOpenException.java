@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not sent because the circuit breaker of its host is open. It is an
+ * {@link IOException}, so that clients see it the same way as a failure to connect to the host.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+  public CircuitBreakerOpenException(String host) {
+    super("Requests to " + host + " are suspended after repeated failures");
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import java.time.Duration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Connection, retry and circuit breaker settings for the HTTP client of one integration. Each
+ * setting is read from {@code integrations.http.<client>.<setting>}, falling back to
+ * {@code integrations.http.<setting>} and then to the built-in default.
+ *
+ * @param connectTimeout time allowed to establish a connection
+ * @param readTimeout time allowed for the response headers to arrive once the request is sent
+ * @param maxRetries number of times a failed idempotent request is retried
+ * @param retryBaseDelay base delay of the exponential backoff between retries
+ * @param retryMaxDelay maximum delay between retries
+ * @param failureThreshold consecutive failures that open a host's circuit breaker
+ * @param openDuration time an open circuit breaker rejects requests before allowing a trial
+ */
+public record HttpClientSettings(
+    Duration connectTimeout,
+    Duration readTimeout,
+    int maxRetries,
+    Duration retryBaseDelay,
+    Duration retryMaxDelay,
+    int failureThreshold,
+    Duration openDuration
+) {
+
+  private static final String PREFIX = "integrations.http.";
+
+  public static HttpClientSettings defaults() {
+    return new HttpClientSettings(Duration.ofSeconds(10), Duration.ofSeconds(60), 2,
+        Duration.ofMillis(250), Duration.ofSeconds(5), 5, Duration.ofSeconds(30));
+  }
+
+  /**
+   * Reads the settings of a client from the environment.
+   *
+   * @param env the application environment
+   * @param clientName name of the client, eg. {@code benchling}
+   * @return the client settings
+   */
+  public static HttpClientSettings fromEnvironment(Environment env, String clientName) {
+    HttpClientSettings defaults = defaults();
+    return new HttpClientSettings(
+        Duration.ofMillis(getLong(env, clientName, "connect-timeout-ms",
+            defaults.connectTimeout().toMillis())),
+        Duration.ofMillis(getLong(env, clientName, "read-timeout-ms",
+            defaults.readTimeout().toMillis())),
+        (int) getLong(env, clientName, "max-retries", defaults.maxRetries()),
+        Duration.ofMillis(getLong(env, clientName, "retry-base-delay-ms",
+            defaults.retryBaseDelay().toMillis())),
+        Duration.ofMillis(getLong(env, clientName, "retry-max-delay-ms",
+            defaults.retryMaxDelay().toMillis())),
+        (int) getLong(env, clientName, "circuit-breaker.failure-threshold",
+            defaults.failureThreshold()),
+        Duration.ofMillis(getLong(env, clientName, "circuit-breaker.open-duration-ms",
+            defaults.openDuration().toMillis()))
+    );
+  }
+
+  private static long getLong(Environment env, String clientName, String key, long defaultValue) {
+    Long shared = env.getProperty(PREFIX + key, Long.class, defaultValue);
+    return env.getProperty(PREFIX + clientName + "." + key, Long.class, shared);
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Shared HTTP client layer for the REST clients of external integrations. All clients send their
+ * requests through a small set of shared, connection-pooling JDK {@link HttpClient} instances, one
+ * per distinct connect timeout, and each client gets its own read timeout and retry settings. Each
+ * client has its own {@link CircuitBreaker} for every host it calls, so that a host that stops
+ * responding is failed fast instead of tying up request threads, using the failure threshold and
+ * open duration configured for that client.
+ *
+ * <p>Integration clients are created outside of the application context, so the services that
+ * create them pass the request factory of this bean to the client factories.
+ */
+public class IntegrationHttpClients {
+
+  private final Function<String, HttpClientSettings> settingsResolver;
+  private final MeterRegistry meterRegistry;
+  private final Map<Duration, HttpClient> httpClients = new ConcurrentHashMap<>();
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final Map<String, ClientHttpRequestFactory> requestFactories =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates the client layer.
+   *
+   * @param settingsResolver returns the settings of a client, by name
+   * @param meterRegistry registry for request, retry and circuit breaker metrics
+   */
+  public IntegrationHttpClients(Function<String, HttpClientSettings> settingsResolver,
+      MeterRegistry meterRegistry) {
+    this.settingsResolver = settingsResolver;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Returns the request factory of a client, which applies the client's timeouts and retries and
+   * the circuit breakers of the hosts it calls.
+   *
+   * @param clientName name of the integration client, eg. {@code benchling}
+   * @return the request factory
+   */
+  public ClientHttpRequestFactory requestFactory(String clientName) {
+    return requestFactories.computeIfAbsent(clientName, this::createRequestFactory);
+  }
+
+  /**
+   * Creates a {@link RestTemplate} that sends its requests through the client's request factory.
+   *
+   * @param clientName name of the integration client, eg. {@code benchling}
+   * @return a new rest template
+   */
+  public RestTemplate restTemplate(String clientName) {
+    return new RestTemplate(requestFactory(clientName));
+  }
+
+  /**
+   * Returns the circuit breaker of a client for a host, if the client has sent any request to it.
+   *
+   * @param clientName name of the integration client, eg. {@code benchling}
+   * @param host the host name
+   * @return the circuit breaker, or null
+   */
+  public CircuitBreaker getCircuitBreaker(String clientName, String host) {
+    return circuitBreakers.get(circuitBreakerKey(clientName, host));
+  }
+
+  private ClientHttpRequestFactory createRequestFactory(String clientName) {
+    HttpClientSettings settings = settingsResolver.apply(clientName);
+    HttpClient httpClient = httpClients.computeIfAbsent(settings.connectTimeout(),
+        timeout -> HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build());
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    requestFactory.setReadTimeout(settings.readTimeout());
+    return new ResilientClientHttpRequestFactory(requestFactory, clientName, settings,
+        host -> circuitBreaker(clientName, host, settings), meterRegistry);
+  }
+
+  private static String circuitBreakerKey(String clientName, String host) {
+    return clientName + "@" + (host != null ? host : "unknown");
+  }
+
+  private CircuitBreaker circuitBreaker(String clientName, String host,
+      HttpClientSettings settings) {
+    String hostName = host != null ? host : "unknown";
+    return circuitBreakers.computeIfAbsent(circuitBreakerKey(clientName, host), key -> {
+      CircuitBreaker circuitBreaker =
+          new CircuitBreaker(hostName, settings.failureThreshold(), settings.openDuration());
+      Gauge.builder("integration.http.circuit.state", circuitBreaker,
+              breaker -> breaker.getState().ordinal())
+          .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+          .tag("client", clientName)
+          .tag("host", hostName)
+          .register(meterRegistry);
+      return circuitBreaker;
+    });
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Request created by {@link ResilientClientHttpRequestFactory}. Streamed request bodies are
+ * passed through to the underlying request, except for idempotent requests with bodies that
+ * cannot be written twice, which are buffered so that they can be retried.
+ */
+class ResilientClientHttpRequest extends AbstractClientHttpRequest
+    implements StreamingHttpOutputMessage {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResilientClientHttpRequest.class);
+
+  private final ResilientClientHttpRequestFactory factory;
+  private final URI uri;
+  private final HttpMethod method;
+
+  private ByteArrayOutputStream bufferedBody;
+  private Body streamingBody;
+
+  ResilientClientHttpRequest(ResilientClientHttpRequestFactory factory, URI uri,
+      HttpMethod method) {
+    this.factory = factory;
+    this.uri = uri;
+    this.method = method;
+  }
+
+  @Override
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  @Override
+  public URI getURI() {
+    return uri;
+  }
+
+  @Override
+  protected OutputStream getBodyInternal(HttpHeaders headers) {
+    if (bufferedBody == null) {
+      bufferedBody = new ByteArrayOutputStream(1024);
+    }
+    return bufferedBody;
+  }
+
+  @Override
+  public void setBody(Body body) {
+    this.streamingBody = body;
+  }
+
+  @Override
+  protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+    boolean idempotent = ResilientClientHttpRequestFactory.IDEMPOTENT_METHODS.contains(method);
+    Body body = streamingBody;
+    if (body != null && idempotent && !body.repeatable()) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+      body.writeTo(buffer);
+      body = buffer::writeTo;
+    } else if (body == null && bufferedBody != null) {
+      body = bufferedBody::writeTo;
+    }
+    int maxAttempts = idempotent ? factory.getSettings().maxRetries() + 1 : 1;
+    String host = uri.getHost();
+    CircuitBreaker circuitBreaker = factory.getCircuitBreaker(host);
+
+    for (int attempt = 1; ; attempt++) {
+      if (!circuitBreaker.tryAcquire()) {
+        record(host, "CIRCUIT_OPEN", null);
+        throw new CircuitBreakerOpenException(host);
+      }
+      Timer.Sample sample = Timer.start(factory.getMeterRegistry());
+      ClientHttpResponse response;
+      try {
+        response = send(headers, body);
+      } catch (RuntimeException e) {
+        circuitBreaker.release();
+        record(host, "ERROR", sample);
+        throw e;
+      } catch (IOException e) {
+        circuitBreaker.onFailure();
+        record(host, "IO_ERROR", sample);
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+        LOGGER.debug("{} {} failed, retrying: {}", method, uri, e.getMessage());
+        backoff(attempt);
+        continue;
+      }
+
+      int status = response.getStatusCode().value();
+      boolean unavailable = status == 502 || status == 503 || status == 504;
+      if (unavailable) {
+        circuitBreaker.onFailure();
+      } else {
+        circuitBreaker.onSuccess();
+      }
+      record(host, status >= 500 ? "SERVER_ERROR" : status >= 400 ? "CLIENT_ERROR" : "SUCCESS",
+          sample);
+      if (!unavailable || attempt >= maxAttempts) {
+        return response;
+      }
+      LOGGER.debug("{} {} returned {}, retrying", method, uri, status);
+      response.close();
+      backoff(attempt);
+    }
+  }
+
+  private ClientHttpResponse send(HttpHeaders headers, Body body) throws IOException {
+    ClientHttpRequest request = factory.getDelegate().createRequest(uri, method);
+    request.getHeaders().putAll(headers);
+    if (body != null) {
+      if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+        streamingRequest.setBody(body);
+      } else {
+        body.writeTo(request.getBody());
+      }
+    }
+    return request.execute();
+  }
+
+  /**
+   * Waits before the next attempt, for a random time of up to the exponential backoff delay,
+   *   so that clients retrying at the same time are spread out.
+   */
+  private void backoff(int attempt) throws InterruptedIOException {
+    factory.getMeterRegistry().counter("integration.http.retries",
+        "client", factory.getClientName(), "method", method.name()).increment();
+    HttpClientSettings settings = factory.getSettings();
+    long maxDelay = Math.min(settings.retryMaxDelay().toMillis(),
+        settings.retryBaseDelay().toMillis() << Math.min(attempt - 1, 20));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry request");
+    }
+  }
+
+  private void record(String host, String outcome, Timer.Sample sample) {
+    Timer timer = factory.getMeterRegistry().timer("integration.http.requests",
+        "client", factory.getClientName(), "host", host != null ? host : "none",
+        "method", method.name(), "outcome", outcome);
+    if (sample != null) {
+      sample.stop(timer);
+    } else {
+      timer.record(Duration.ZERO);
+    }
+  }
+
+}
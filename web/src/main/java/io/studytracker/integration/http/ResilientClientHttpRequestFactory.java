@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.integration.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * Request factory that sends the requests of one integration client through the host's
+ * {@link CircuitBreaker}, retries idempotent requests that fail with an I/O error or a
+ * 502, 503 or 504 response, and records the latency and outcome of every attempt.
+ */
+public class ResilientClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+  /** Methods that can be retried without the risk of applying a change twice. */
+  static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD,
+      HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+
+  private final ClientHttpRequestFactory delegate;
+  private final String clientName;
+  private final HttpClientSettings settings;
+  private final Function<String, CircuitBreaker> circuitBreakers;
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Creates the request factory.
+   *
+   * @param delegate factory of the underlying requests
+   * @param clientName name of the integration client, used to tag metrics
+   * @param settings the client's retry settings
+   * @param circuitBreakers returns the circuit breaker of a host
+   * @param meterRegistry registry for request and retry metrics
+   */
+  public ResilientClientHttpRequestFactory(ClientHttpRequestFactory delegate, String clientName,
+      HttpClientSettings settings, Function<String, CircuitBreaker> circuitBreakers,
+      MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.clientName = clientName;
+    this.settings = settings;
+    this.circuitBreakers = circuitBreakers;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+    return new ResilientClientHttpRequest(this, uri, httpMethod);
+  }
+
+  ClientHttpRequestFactory getDelegate() {
+    return delegate;
+  }
+
+  String getClientName() {
+    return clientName;
+  }
+
+  HttpClientSettings getSettings() {
+    return settings;
+  }
+
+  CircuitBreaker getCircuitBreaker(String host) {
+    return circuitBreakers.apply(host);
+  }
+
+  MeterRegistry getMeterRegistry() {
+    return meterRegistry;
+  }
+
+}
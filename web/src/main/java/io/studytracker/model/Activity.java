@@ -45,7 +45,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "activity")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @NamedEntityGraphs({
   @NamedEntityGraph(
       name = "activity-with-user",
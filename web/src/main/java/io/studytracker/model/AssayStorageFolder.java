@@ -18,6 +18,7 @@ package io.studytracker.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -33,6 +34,7 @@ import jakarta.persistence.UniqueConstraint;
     @UniqueConstraint(name = "uq_assay_storage_folders",
         columnNames = {"storage_drive_folder_id", "assay_id"})
 })
+@EntityListeners(DeletedRecordListener.class)
 public class AssayStorageFolder {
 
   @Id
@@ -47,7 +47,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "assay_tasks")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @NamedEntityGraphs({
   @NamedEntityGraph(
       name = "assay-task-details",
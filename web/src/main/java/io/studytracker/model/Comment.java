@@ -40,7 +40,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "comments")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @NamedEntityGraphs({
   @NamedEntityGraph(
       name = "comment-details",
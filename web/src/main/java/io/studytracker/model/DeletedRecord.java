@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Tombstone for a record that has been permanently deleted from the database. Incremental data
+ * exports use these records to report hard deletes, which cannot otherwise be detected by
+ * comparing timestamps.
+ */
+@Table(name = "deleted_records")
+@Entity
+@Getter
+@Setter
+public class DeletedRecord extends Model {
+
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "hibernate_sequence"
+  )
+  @SequenceGenerator(
+      name = "hibernate_sequence",
+      allocationSize = 1
+  )
+  private Long id;
+
+  @Column(name = "table_name", nullable = false, length = 64)
+  private String tableName;
+
+  @Column(name = "record_id", nullable = false)
+  private Long recordId;
+
+  @Column(name = "deleted_at", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date deletedAt;
+
+  public DeletedRecord() {
+  }
+
+  public DeletedRecord(String tableName, Long recordId) {
+    this.tableName = tableName;
+    this.recordId = recordId;
+    this.deletedAt = new Date();
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.model;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.Table;
+import java.lang.reflect.Field;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Writes a {@link DeletedRecord} tombstone whenever an exported entity is removed, so that
+ * incremental data exports can report the deletion. Because it is a JPA lifecycle callback, it
+ * covers every removal path: repository deletes, orphan removal and cascades. The tombstone is
+ * inserted with JDBC, in the same transaction as the delete, since the persistence context must
+ * not be modified from within a lifecycle callback.
+ */
+public class DeletedRecordListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeletedRecordListener.class);
+
+  private static final String INSERT_SQL = "INSERT INTO deleted_records "
+      + "(id, table_name, record_id, deleted_at) VALUES (nextval('hibernate_sequence'), ?, ?, ?)";
+
+  /** Tables whose export file name differs from the database table name. */
+  private static final Map<String, String> EXPORT_TABLE_NAMES = Map.of(
+      "comments", "study_comments",
+      "external_links", "study_external_links",
+      "program_storage_folders", "programs_storage_folders"
+  );
+
+  private static final Map<Class<?>, Field> ID_FIELDS = new ConcurrentHashMap<>();
+
+  @Autowired
+  private ObjectProvider<JdbcTemplate> jdbcTemplateProvider;
+
+  @PostRemove
+  public void recordDeletion(Object entity) {
+    Table table = findAnnotation(entity.getClass());
+    Long id = getId(entity);
+    if (table == null || id == null) {
+      LOGGER.warn("Cannot record deletion of entity {}: no table name or ID",
+          entity.getClass().getSimpleName());
+      return;
+    }
+    String tableName = EXPORT_TABLE_NAMES.getOrDefault(table.name(), table.name());
+    jdbcTemplateProvider.getObject().update(INSERT_SQL, tableName, id,
+        new Timestamp(System.currentTimeMillis()));
+  }
+
+  private Table findAnnotation(Class<?> type) {
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      Table table = c.getAnnotation(Table.class);
+      if (table != null) {
+        return table;
+      }
+    }
+    return null;
+  }
+
+  private Long getId(Object entity) {
+    Field field = ID_FIELDS.computeIfAbsent(entity.getClass(), type -> {
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field f : c.getDeclaredFields()) {
+          if (f.isAnnotationPresent(Id.class)) {
+            f.setAccessible(true);
+            return f;
+          }
+        }
+      }
+      return null;
+    });
+    if (field == null) {
+      return null;
+    }
+    try {
+      Object value = field.get(entity);
+      return value instanceof Number ? ((Number) value).longValue() : null;
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+}
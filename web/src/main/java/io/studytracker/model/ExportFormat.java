@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.model;
+
+/** File formats that exported tables can be written in. */
+public enum ExportFormat {
+
+  /** One CSV file per table, with all values written as text. */
+  CSV,
+
+  /**
+   * One Parquet file per table, with typed columns. Attributes, ID lists and activity data are
+   * written as native map and list columns.
+   */
+  PARQUET
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A background data export job. Records the state and progress of the job, so that it can be
+ * polled by clients, and the location of the finished archive.
+ */
+@Table(name = "export_jobs", uniqueConstraints = {
+    @UniqueConstraint(name = "uq_export_jobs_job_id", columnNames = {"job_id"})
+})
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class ExportJob extends Model {
+
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "hibernate_sequence"
+  )
+  @SequenceGenerator(
+      name = "hibernate_sequence",
+      allocationSize = 1
+  )
+  private Long id;
+
+  @Column(name = "job_id", nullable = false, length = 64)
+  private String jobId;
+
+  @Column(name = "status", nullable = false, length = 32)
+  @Enumerated(EnumType.STRING)
+  private ExportJobStatus status;
+
+  @Column(name = "export_format", nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private ExportFormat format = ExportFormat.CSV;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "created_by", nullable = false)
+  private User createdBy;
+
+  /** Number of top-level tables in the export, each of which may have related tables. */
+  @Column(name = "total_tables", nullable = false)
+  private int totalTables = 0;
+
+  @Column(name = "completed_tables", nullable = false)
+  private int completedTables = 0;
+
+  @Column(name = "row_count", nullable = false)
+  private long rowCount = 0;
+
+  @Column(name = "current_table")
+  private String currentTable;
+
+  @Column(name = "file_path", length = 1024)
+  private String filePath;
+
+  @Column(name = "file_size")
+  private Long fileSize;
+
+  @Column(name = "message", length = 2048)
+  private String message;
+
+  /** Start point of an incremental export, or null for a full export. */
+  @Column(name = "changed_since")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date changedSince;
+
+  /** High-water mark of a completed export, from which the next incremental export continues. */
+  @Column(name = "watermark")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date watermark;
+
+  @Column(name = "started_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date startedAt;
+
+  @Column(name = "completed_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completedAt;
+
+  /** The node running the job, which updates the heartbeat while the job is queued or running. */
+  @Column(name = "owner_node")
+  private String ownerNode;
+
+  @Column(name = "heartbeat_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date heartbeatAt;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date createdAt;
+
+  @LastModifiedDate
+  @Column(name = "updated_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date updatedAt;
+
+  public boolean isFinished() {
+    return status == ExportJobStatus.COMPLETED
+        || status == ExportJobStatus.FAILED
+        || status == ExportJobStatus.CANCELLED;
+  }
+
+}
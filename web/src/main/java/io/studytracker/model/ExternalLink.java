@@ -36,7 +36,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "external_links")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @NamedEntityGraphs({
   @NamedEntityGraph(
       name = "link-only",
@@ -18,6 +18,7 @@ package io.studytracker.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -28,6 +29,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "keywords")
+@EntityListeners(DeletedRecordListener.class)
 @Getter
 @Setter
 public class Keyword extends Model {
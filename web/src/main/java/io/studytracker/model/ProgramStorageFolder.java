@@ -18,6 +18,7 @@ package io.studytracker.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -32,6 +33,7 @@ import jakarta.persistence.UniqueConstraint;
 @Table(name = "program_storage_folders", uniqueConstraints = {
     @UniqueConstraint(name = "uk_program_storage_folder", columnNames = {"program_id", "storage_drive_folder_id"})
 })
+@EntityListeners(DeletedRecordListener.class)
 public class ProgramStorageFolder {
 
   @Id
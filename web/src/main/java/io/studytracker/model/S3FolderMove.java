@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A move of every object under one S3 key prefix to another, made when an S3 folder is renamed
+ * or moved. The record is saved before any object is copied, and marks the target prefix as
+ * belonging to this move, so that an interrupted or failed move can be resumed without mistaking
+ * its partially-copied target for an unrelated folder. The storage drive is stored by ID rather
+ * than as a reference, since drives are replaced when a data export is restored.
+ */
+@Table(name = "s3_folder_moves")
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class S3FolderMove extends Model {
+
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "hibernate_sequence"
+  )
+  @SequenceGenerator(
+      name = "hibernate_sequence",
+      allocationSize = 1
+  )
+  private Long id;
+
+  @Column(name = "storage_drive_id", nullable = false)
+  private Long storageDriveId;
+
+  @Column(name = "source_prefix", nullable = false, length = 2048)
+  private String sourcePrefix;
+
+  @Column(name = "target_prefix", nullable = false, length = 2048)
+  private String targetPrefix;
+
+  @Column(name = "status", nullable = false, length = 32)
+  @Enumerated(EnumType.STRING)
+  private S3FolderMoveStatus status;
+
+  @Column(name = "moved_objects", nullable = false)
+  private long movedObjects = 0;
+
+  @Column(name = "attempts", nullable = false)
+  private int attempts = 0;
+
+  @Column(name = "message", length = 2048)
+  private String message;
+
+  @Column(name = "completed_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completedAt;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date createdAt;
+
+  /** Refreshed after every batch of objects is moved, while the move is running. */
+  @LastModifiedDate
+  @Column(name = "updated_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date updatedAt;
+
+  public boolean isFinished() {
+    return status == S3FolderMoveStatus.COMPLETED;
+  }
+
+}
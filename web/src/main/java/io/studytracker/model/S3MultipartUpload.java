@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * An S3 multipart upload started by Study Tracker that has not been completed. The record is
+ * saved as soon as the upload is created, so that failed uploads can be resumed by any node, and
+ * uploads that are never finished can be aborted, without touching multipart uploads that other
+ * applications have started in the same bucket. It is deleted once the upload is completed or
+ * aborted.
+ */
+@Table(name = "s3_multipart_uploads")
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class S3MultipartUpload extends Model {
+
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "hibernate_sequence"
+  )
+  @SequenceGenerator(
+      name = "hibernate_sequence",
+      allocationSize = 1
+  )
+  private Long id;
+
+  @Column(name = "bucket", nullable = false, length = 255)
+  private String bucket;
+
+  @Column(name = "object_key", nullable = false, length = 2048)
+  private String objectKey;
+
+  @Column(name = "upload_id", nullable = false, length = 1024, unique = true)
+  private String uploadId;
+
+  @Column(name = "status", nullable = false, length = 32)
+  @Enumerated(EnumType.STRING)
+  private S3MultipartUploadStatus status;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date createdAt;
+
+  @LastModifiedDate
+  @Column(name = "updated_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date updatedAt;
+
+}
@@ -40,7 +40,7 @@ import org.springframework.util.Assert;
 
 @Entity
 @Table(name = "storage_drives")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @Getter
 @Setter
 public class StorageDrive {
@@ -44,7 +44,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "storage_drive_folders")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 @NamedEntityGraphs({
     @NamedEntityGraph(name = "storage-drive-folder-details",
     attributeNodes = {
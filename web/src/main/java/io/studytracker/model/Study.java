@@ -63,7 +63,10 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
     name = "studies",
     indexes = {
       @Index(name = "idx_study_code", columnList = "code"),
-      @Index(name = "idx_study_name", columnList = "name")
+      @Index(name = "idx_study_name", columnList = "name"),
+      @Index(name = "idx_study_status_active", columnList = "status, active"),
+      @Index(name = "idx_study_owner", columnList = "owner"),
+      @Index(name = "idx_study_collaborator", columnList = "collaborator_id")
     })
 @EntityListeners(AuditingEntityListener.class)
 @NamedEntityGraphs({
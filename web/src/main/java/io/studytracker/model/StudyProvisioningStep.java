@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.model;
+
+/**
+ * The external resources created for a new study, each of which is provisioned by a separate
+ * {@link StudyProvisioningTask}. Steps without a dependency are run in parallel.
+ */
+public enum StudyProvisioningStep {
+  STORAGE_FOLDER,
+  NOTEBOOK_FOLDER,
+  NOTEBOOK_ENTRY,
+  GIT_REPOSITORY,
+  ADDITIONAL_FOLDER,
+  S3_FOLDER;
+
+  /**
+   * Returns the step that must complete before this one can run, or null if the step can run
+   * as soon as the study record is saved.
+   *
+   * @return the prerequisite step
+   */
+  public StudyProvisioningStep getDependency() {
+    return this == NOTEBOOK_ENTRY ? NOTEBOOK_FOLDER : null;
+  }
+
+}
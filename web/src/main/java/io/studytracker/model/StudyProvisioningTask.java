@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A single external resource to be created for a new study, such as its storage folder or
+ * notebook entry. Tasks are recorded in the same transaction as the study, and are then run in
+ * the background, so that their status can be polled and failed steps retried.
+ */
+@Table(name = "study_provisioning_tasks")
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class StudyProvisioningTask extends Model {
+
+  @Id
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "hibernate_sequence"
+  )
+  @SequenceGenerator(
+      name = "hibernate_sequence",
+      allocationSize = 1
+  )
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "study_id", nullable = false)
+  private Study study;
+
+  @Column(name = "step", nullable = false, length = 32)
+  @Enumerated(EnumType.STRING)
+  private StudyProvisioningStep step;
+
+  @Column(name = "status", nullable = false, length = 32)
+  @Enumerated(EnumType.STRING)
+  private StudyProvisioningStatus status = StudyProvisioningStatus.PENDING;
+
+  /** ID of the record the step works from, such as the parent storage folder or Git group. */
+  @Column(name = "target_id")
+  private Long targetId;
+
+  /** External identifier the step works from, such as a notebook folder or template ID. */
+  @Column(name = "reference")
+  private String reference;
+
+  /**
+   * ID or URL of the resource the step created, such as the storage folder record ID or the
+   * notebook entry URL. It is saved before the resource is linked to the study, so that a
+   * repeated step links the same resource instead of creating another.
+   */
+  @Column(name = "resource_id", length = 1024)
+  private String resourceId;
+
+  @Column(name = "attempts", nullable = false)
+  private int attempts = 0;
+
+  @Column(name = "message", length = 2048)
+  private String message;
+
+  @Column(name = "started_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date startedAt;
+
+  @Column(name = "completed_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completedAt;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date createdAt;
+
+  @LastModifiedDate
+  @Column(name = "updated_at")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date updatedAt;
+
+  public StudyProvisioningTask() {
+  }
+
+  public StudyProvisioningTask(Study study, StudyProvisioningStep step) {
+    this.study = study;
+    this.step = step;
+  }
+
+  public StudyProvisioningTask(Study study, StudyProvisioningStep step, Long targetId,
+      String reference) {
+    this.study = study;
+    this.step = step;
+    this.targetId = targetId;
+    this.reference = reference;
+  }
+
+  public boolean isFinished() {
+    return status == StudyProvisioningStatus.COMPLETED
+        || status == StudyProvisioningStatus.FAILED
+        || status == StudyProvisioningStatus.SKIPPED;
+  }
+
+}
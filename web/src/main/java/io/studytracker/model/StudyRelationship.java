@@ -18,6 +18,7 @@ package io.studytracker.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -34,6 +35,7 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "study_relationships")
+@EntityListeners(DeletedRecordListener.class)
 @NamedEntityGraphs({
   @NamedEntityGraph(
       name = "relationship-details",
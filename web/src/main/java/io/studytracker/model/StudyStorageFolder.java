@@ -18,6 +18,7 @@ package io.studytracker.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -32,6 +33,7 @@ import jakarta.persistence.UniqueConstraint;
 @Table(name = "study_storage_folders", uniqueConstraints = {
     @UniqueConstraint(name = "uq_study_storage_folders", columnNames = {"storage_drive_folder_id", "study_id"})
 })
+@EntityListeners(DeletedRecordListener.class)
 public class StudyStorageFolder {
 
   @Id
@@ -45,7 +45,7 @@ import org.springframework.security.core.GrantedAuthority;
 
 @Entity
 @Table(name = "users")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, DeletedRecordListener.class})
 public class User extends Model {
 
   @Id
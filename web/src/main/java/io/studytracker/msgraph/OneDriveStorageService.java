@@ -16,12 +16,19 @@
 
 package io.studytracker.msgraph;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microsoft.graph.drives.item.items.item.children.ChildrenRequestBuilder;
+import com.microsoft.graph.drives.item.items.item.createuploadsession.CreateUploadSessionPostRequestBody;
 import com.microsoft.graph.models.DriveItem;
 import com.microsoft.graph.models.DriveItemCollectionResponse;
+import com.microsoft.graph.models.DriveItemUploadableProperties;
 import com.microsoft.graph.models.Folder;
 import com.microsoft.graph.models.ItemReference;
+import com.microsoft.graph.models.UploadSession;
 import com.microsoft.graph.serviceclient.GraphServiceClient;
 import io.studytracker.config.properties.StorageProperties;
+import io.studytracker.exception.InsufficientPrivilegesException;
 import io.studytracker.model.MSGraphIntegration;
 import io.studytracker.model.OneDriveDriveDetails;
 import io.studytracker.model.OneDriveFolderDetails;
@@ -30,33 +37,68 @@ import io.studytracker.model.StorageDriveFolder;
 import io.studytracker.repository.MSGraphIntegrationRepository;
 import io.studytracker.repository.StorageDriveFolderRepository;
 import io.studytracker.repository.StorageDriveRepository;
+import io.studytracker.storage.DirectUpload;
+import io.studytracker.storage.DirectUploadCompletion;
+import io.studytracker.storage.DirectUploadStorageService;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
 import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
+import io.studytracker.storage.StorageUtils;
 import io.studytracker.storage.StudyStorageService;
 import io.studytracker.storage.exception.StudyStorageException;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 @Service
-public class OneDriveStorageService implements StudyStorageService {
+public class OneDriveStorageService implements StudyStorageService, DirectUploadStorageService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(OneDriveStorageService.class);
 
+  /** Upload session fragments must be a multiple of 320 KiB, and no larger than 60 MiB. */
+  private static final long UPLOAD_FRAGMENT_SIZE = 32L * 320 * 1024;
+
+  /**
+   * Upload session URLs issued by OneDrive, keyed by the opaque upload ID handed to the client.
+   *   Clients never send a URL back to the server, so cancelling an upload can only ever reach a
+   *   session this node created for the same folder, path and file.
+   */
+  private final Cache<String, UploadSessionRef> uploadSessions = Caffeine.newBuilder()
+      .expireAfterWrite(Duration.ofDays(1))
+      .maximumSize(10_000)
+      .build();
+
+  /**
+   * Graph next page links for folder listings, keyed by the opaque page token handed to the client.
+   *   The links are sent with the integration's credentials, so they are never taken from the
+   *   client, and a token can only fetch the next page of the folder and path it was issued for.
+   */
+  private final Cache<String, PageLinkRef> pageLinks = Caffeine.newBuilder()
+      .expireAfterWrite(Duration.ofMinutes(30))
+      .maximumSize(10_000)
+      .build();
+
   @Autowired
   private StorageDriveRepository driveRepository;
 
@@ -193,19 +235,77 @@ public class OneDriveStorageService implements StudyStorageService {
     // Find the folder
     DriveItem folderItem = this.fetchFolderItemByPath(client, oneDriveDriveDetails.getDriveId(), path);
 
-    // Get the folder contents
-    DriveItemCollectionResponse page = client.drives().byDriveId(oneDriveDriveDetails.getDriveId())
+    // Get the folder contents, following next page links so that large folders are not truncated
+    ChildrenRequestBuilder childrenRequest = client.drives()
+        .byDriveId(oneDriveDriveDetails.getDriveId())
         .items()
         .byDriveItemId(folderItem.getId())
-        .children()
-        .get();
-    List<DriveItem> children = page.getValue();
+        .children();
+    List<DriveItem> children = new ArrayList<>();
+    DriveItemCollectionResponse page = childrenRequest.get();
+    while (page != null) {
+      if (page.getValue() != null) {
+        children.addAll(page.getValue());
+      }
+      page = page.getOdataNextLink() != null
+          ? childrenRequest.withUrl(page.getOdataNextLink()).get()
+          : null;
+    }
 
     StorageFolder folder = OneDriveUtils.convertDriveItemFolderWithChildren(folderItem, children);
     LOGGER.debug("Found folder: {}", folder);
     return folder;
   }
   
+  @Override
+  public StorageFolderPage findFolderPageByPath(StorageDriveFolder parentFolder, String path,
+      String cursor, int pageSize) throws StudyStorageNotFoundException {
+    LOGGER.debug("Finding folder page by path: {} in folder with id: {}",
+        path, parentFolder.getId());
+    StorageDrive drive = storageDriveFolderService
+        .findDriveById(parentFolder.getStorageDrive().getId())
+        .orElseThrow(() -> new StudyStorageNotFoundException(
+            "No drive found for folder with id: " + parentFolder.getId()));
+    OneDriveDriveDetails oneDriveDriveDetails = (OneDriveDriveDetails) drive.getDetails();
+    GraphServiceClient client = this.getClientFromDrive(drive);
+    DriveItem folderItem =
+        this.fetchFolderItemByPath(client, oneDriveDriveDetails.getDriveId(), path);
+    ChildrenRequestBuilder childrenRequest = client.drives()
+        .byDriveId(oneDriveDriveDetails.getDriveId())
+        .items()
+        .byDriveItemId(folderItem.getId())
+        .children();
+
+    // The cursor is an opaque token for a next page link that Graph returned for this folder
+    String nextLink = null;
+    if (StringUtils.hasText(cursor)) {
+      PageLinkRef pageLink = pageLinks.getIfPresent(cursor);
+      if (pageLink == null || !pageLink.matches(parentFolder.getId(), path)) {
+        throw new StudyStorageNotFoundException("Invalid or expired page token");
+      }
+      nextLink = pageLink.nextLink;
+    }
+    DriveItemCollectionResponse page;
+    try {
+      page = nextLink != null
+          ? childrenRequest.withUrl(nextLink).get()
+          : childrenRequest.get(config -> config.queryParameters.top = pageSize);
+    } catch (Exception e) {
+      throw new StudyStorageNotFoundException("Cannot access folder at path: " + path, e);
+    }
+    List<DriveItem> children = page != null && page.getValue() != null
+        ? page.getValue()
+        : new ArrayList<>();
+    StorageFolder folder = OneDriveUtils.convertDriveItemFolderWithChildren(folderItem, children);
+    String nextToken = null;
+    if (page != null && page.getOdataNextLink() != null) {
+      nextToken = UUID.randomUUID().toString();
+      pageLinks.put(nextToken, new PageLinkRef(parentFolder.getId(), path,
+          page.getOdataNextLink()));
+    }
+    return new StorageFolderPage(folder, nextToken);
+  }
+
   @Override
   public StorageFolder renameFolder(StorageDrive storageDrive, String path, String newName) throws StudyStorageException {
     
@@ -315,28 +415,145 @@ public class OneDriveStorageService implements StudyStorageService {
   }
 
   @Override
-  public Resource fetchFile(StorageDriveFolder folder, String path) throws StudyStorageException {
-    LOGGER.info("Fetching file from OneDrive folder {} at path {}",
-        folder.getName(), path);
+  public DirectUpload createDirectUpload(StorageDriveFolder folder, String path, String fileName,
+      long size) throws StudyStorageException {
+    LOGGER.info("Creating OneDrive upload session for file {} in folder {} at path {}",
+        fileName, folder.getName(), path);
+    if (!StringUtils.hasText(fileName) || fileName.contains("/")) {
+      throw new StudyStorageException("Invalid file name: " + fileName);
+    }
+    if (!folder.isWriteEnabled()) {
+      throw new InsufficientPrivilegesException("Insufficient privileges to upload files");
+    }
     StorageDrive storageDrive = driveRepository.findById(folder.getStorageDrive().getId())
         .orElseThrow(() -> new StudyStorageNotFoundException(
-            "No OneDrive drive found for folder with id: " + folder.getId()));
+            "No storage drive found for folder with id: " + folder.getId()));
     OneDriveDriveDetails oneDriveDriveDetails = (OneDriveDriveDetails) storageDrive.getDetails();
     GraphServiceClient client = this.getClientFromDrive(storageDrive);
-    DriveItem fileItem = this.fetchFileItemByPath(client, oneDriveDriveDetails.getDriveId(), path);
+    DriveItem folderItem =
+        this.fetchFolderItemByPath(client, oneDriveDriveDetails.getDriveId(), path);
+
+    DriveItemUploadableProperties properties = new DriveItemUploadableProperties();
+    properties.getAdditionalData().put("@microsoft.graph.conflictBehavior", "replace");
+    CreateUploadSessionPostRequestBody body = new CreateUploadSessionPostRequestBody();
+    body.setItem(properties);
+    UploadSession session;
     try {
-      InputStream inputStream = client
+      session = client
           .drives()
           .byDriveId(oneDriveDriveDetails.getDriveId())
           .items()
-          .byDriveItemId(fileItem.getId())
-          .content()
-          .get();
-      return new ByteArrayResource(inputStream.readAllBytes());
-    } catch (IOException e) {
-      e.printStackTrace();
-      throw new StudyStorageException("Error while fetching file from OneDrive", e);
+          .byDriveItemId(folderItem.getId() + ":/" + fileName + ":")
+          .createUploadSession()
+          .post(body);
+    } catch (Exception e) {
+      throw new StudyStorageException("Error while creating OneDrive upload session", e);
+    }
+    if (session == null || session.getUploadUrl() == null) {
+      throw new StudyStorageException("OneDrive did not return an upload session");
+    }
+
+    String uploadId = UUID.randomUUID().toString();
+    uploadSessions.put(uploadId,
+        new UploadSessionRef(folder.getId(), path, fileName, session.getUploadUrl()));
+
+    // Fragments must be sent to the session URL in order, so they all share the same URL
+    DirectUpload upload = new DirectUpload();
+    upload.setType(DirectUpload.Type.ONEDRIVE_SESSION);
+    upload.setUploadId(uploadId);
+    upload.setUploadUrl(session.getUploadUrl());
+    upload.setFileName(fileName);
+    upload.setPath(path);
+    upload.setSize(size);
+    upload.setPartSize(UPLOAD_FRAGMENT_SIZE);
+    if (session.getExpirationDateTime() != null) {
+      upload.setExpiresAt(Date.from(session.getExpirationDateTime().toInstant()));
+    }
+    int partCount = (int) Math.max(1, (size + UPLOAD_FRAGMENT_SIZE - 1) / UPLOAD_FRAGMENT_SIZE);
+    for (int i = 0; i < partCount; i++) {
+      DirectUpload.Part part = new DirectUpload.Part();
+      part.setPartNumber(i + 1);
+      part.setOffset(i * UPLOAD_FRAGMENT_SIZE);
+      part.setLength(Math.min(UPLOAD_FRAGMENT_SIZE, size - part.getOffset()));
+      part.setUrl(session.getUploadUrl());
+      upload.getParts().add(part);
+    }
+    return upload;
+  }
+
+  @Override
+  public StorageFile completeDirectUpload(StorageDriveFolder folder, String path,
+      DirectUploadCompletion completion) throws StudyStorageException {
+    LOGGER.info("Completing OneDrive upload of file {} in folder {} at path {}",
+        completion.getFileName(), folder.getName(), path);
+    StorageDrive storageDrive = driveRepository.findById(folder.getStorageDrive().getId())
+        .orElseThrow(() -> new StudyStorageNotFoundException(
+            "No storage drive found for folder with id: " + folder.getId()));
+    OneDriveDriveDetails oneDriveDriveDetails = (OneDriveDriveDetails) storageDrive.getDetails();
+    GraphServiceClient client = this.getClientFromDrive(storageDrive);
+
+    // OneDrive creates the file as soon as the final fragment is received
+    DriveItem fileItem = this.fetchFileItemByPath(client, oneDriveDriveDetails.getDriveId(),
+        StorageUtils.joinPath(path, completion.getFileName()));
+    if (fileItem.getSize() != null && fileItem.getSize() != completion.getSize()) {
+      throw new StudyStorageException("Uploaded file size " + fileItem.getSize()
+          + " does not match the expected size " + completion.getSize());
+    }
+    if (completion.getUploadId() != null) {
+      uploadSessions.invalidate(completion.getUploadId());
+    }
+    return OneDriveUtils.convertDriveItemFile(fileItem);
+  }
+
+  @Override
+  public void abortDirectUpload(StorageDriveFolder folder, String path, String fileName,
+      String uploadId) throws StudyStorageException {
+    LOGGER.info("Cancelling OneDrive upload of file {} in folder {} at path {}",
+        fileName, folder.getName(), path);
+    UploadSessionRef session = uploadId != null ? uploadSessions.getIfPresent(uploadId) : null;
+    if (session == null || !session.matches(folder.getId(), path, fileName)) {
+      throw new StudyStorageNotFoundException("No upload session found for file: " + fileName);
     }
+    uploadSessions.invalidate(uploadId);
+    try {
+      HttpRequest request = HttpRequest.newBuilder(URI.create(session.uploadUrl))
+          .DELETE()
+          .build();
+      HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StudyStorageException("Interrupted while cancelling OneDrive upload", e);
+    } catch (Exception e) {
+      throw new StudyStorageException("Error while cancelling OneDrive upload", e);
+    }
+  }
+
+  @Override
+  public StorageFileResource fetchFile(StorageDriveFolder folder, String path)
+      throws StudyStorageException {
+    LOGGER.info("Fetching file from OneDrive folder {} at path {}",
+        folder.getName(), path);
+    StorageDrive storageDrive = driveRepository.findById(folder.getStorageDrive().getId())
+        .orElseThrow(() -> new StudyStorageNotFoundException(
+            "No OneDrive drive found for folder with id: " + folder.getId()));
+    OneDriveDriveDetails oneDriveDriveDetails = (OneDriveDriveDetails) storageDrive.getDetails();
+    GraphServiceClient client = this.getClientFromDrive(storageDrive);
+    DriveItem fileItem = this.fetchFileItemByPath(client, oneDriveDriveDetails.getDriveId(), path);
+    String mimeType = fileItem.getFile() != null ? fileItem.getFile().getMimeType() : null;
+    return new StorageFileResource(fileItem.getName(), fileItem.getSize(), mimeType,
+        (start, end) -> {
+          InputStream inputStream = client
+              .drives()
+              .byDriveId(oneDriveDriveDetails.getDriveId())
+              .items()
+              .byDriveItemId(fileItem.getId())
+              .content()
+              .get(config -> config.headers.add("Range", "bytes=" + start + "-" + end));
+          if (inputStream == null) {
+            throw new IOException("Error while fetching file from OneDrive: " + path);
+          }
+          return inputStream;
+        });
   }
 
   @Override
@@ -428,4 +645,44 @@ public class OneDriveStorageService implements StudyStorageService {
     return MSGraphClientFactory.fromIntegrationInstance(integration);
   }
 
+  private static final class UploadSessionRef {
+
+    private final Long folderId;
+    private final String path;
+    private final String fileName;
+    private final String uploadUrl;
+
+    UploadSessionRef(Long folderId, String path, String fileName, String uploadUrl) {
+      this.folderId = folderId;
+      this.path = path;
+      this.fileName = fileName;
+      this.uploadUrl = uploadUrl;
+    }
+
+    boolean matches(Long folderId, String path, String fileName) {
+      return Objects.equals(this.folderId, folderId)
+          && Objects.equals(this.path, path)
+          && Objects.equals(this.fileName, fileName);
+    }
+
+  }
+
+  private static final class PageLinkRef {
+
+    private final Long folderId;
+    private final String path;
+    private final String nextLink;
+
+    PageLinkRef(Long folderId, String path, String nextLink) {
+      this.folderId = folderId;
+      this.path = path;
+      this.nextLink = nextLink;
+    }
+
+    boolean matches(Long folderId, String path) {
+      return Objects.equals(this.folderId, folderId) && Objects.equals(this.path, path);
+    }
+
+  }
+
 }
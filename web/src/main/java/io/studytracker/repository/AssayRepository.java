@@ -17,9 +17,11 @@
 package io.studytracker.repository;
 
 import io.studytracker.model.Assay;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -30,9 +32,12 @@ public interface AssayRepository extends JpaRepository<Assay, Long> {
   @EntityGraph("assay-with-parents")
   List<Assay> findAll();
 
+  @Query("select a.id from Assay a where a.id > ?1 order by a.id")
+  List<Long> findIdsAfter(Long id, Pageable pageable);
+
   @EntityGraph("assay-with-attributes")
-  @Query("select a from Assay a")
-  List<Assay> findAllWithDetails();
+  @Query("select a from Assay a where a.id in ?1 order by a.id")
+  List<Assay> findWithDetailsByIdIn(Collection<Long> ids);
 
   @Override
   @EntityGraph("assay-with-attributes")
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.repository;
+
+import io.studytracker.model.ExportJobStatus;
+import io.studytracker.model.ImportJob;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+  String STATUS = "io.studytracker.model.ExportJobStatus.";
+
+  Optional<ImportJob> findByJobId(String jobId);
+
+  List<ImportJob> findTop50ByOrderByCreatedAtDesc();
+
+  List<ImportJob> findByStatusIn(Collection<ExportJobStatus> statuses);
+
+  @Modifying
+  @Query("update ImportJob j set j.heartbeatAt = ?2 where j.jobId in ?1")
+  int updateHeartbeats(Collection<String> jobIds, Date now);
+
+  /**
+   * Marks a job as failed if it is still active and its heartbeat was last updated before
+   * {@code staleBefore}, or was never updated. A job whose node is still updating its heartbeat
+   * is left alone.
+   *
+   * @return the number of jobs failed, either 0 or 1
+   */
+  @Modifying
+  @Query("update ImportJob j set j.status = " + STATUS + "FAILED, j.completedAt = ?2, "
+      + "j.updatedAt = ?2, j.message = ?3 where j.jobId = ?1 and j.status in ?4 "
+      + "and (j.heartbeatAt is null or j.heartbeatAt < ?5)")
+  int failIfStale(String jobId, Date now, String message, Collection<ExportJobStatus> statuses,
+      Date staleBefore);
+
+}
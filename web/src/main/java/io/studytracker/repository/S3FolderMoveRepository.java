@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.repository;
+
+import io.studytracker.model.S3FolderMove;
+import io.studytracker.model.S3FolderMoveStatus;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface S3FolderMoveRepository extends JpaRepository<S3FolderMove, Long> {
+
+  String STATUS = "io.studytracker.model.S3FolderMoveStatus.";
+
+  List<S3FolderMove> findByStatusIn(Collection<S3FolderMoveStatus> statuses);
+
+  List<S3FolderMove> findByStorageDriveIdAndStatusIn(Long storageDriveId,
+      Collection<S3FolderMoveStatus> statuses);
+
+  List<S3FolderMove> findByStorageDriveIdAndSourcePrefixAndTargetPrefixAndStatus(
+      Long storageDriveId, String sourcePrefix, String targetPrefix, S3FolderMoveStatus status);
+
+  /**
+   * Marks a move as running, if it is pending and was last updated before
+   * {@code pendingBefore}, is running and has not been updated since {@code staleBefore}, or has
+   * failed fewer than {@code maxAttempts} times and was last updated before
+   * {@code retryBefore}. Only one node or thread can claim a move at a time.
+   *
+   * @return the number of moves claimed, either 0 or 1
+   */
+  @Modifying
+  @Query("update S3FolderMove m set m.status = " + STATUS + "RUNNING, "
+      + "m.attempts = m.attempts + 1, m.message = null, m.updatedAt = ?2 where m.id = ?1 and ("
+      + "(m.status = " + STATUS + "PENDING and m.updatedAt < ?3) "
+      + "or (m.status = " + STATUS + "RUNNING and m.updatedAt < ?4) "
+      + "or (m.status = " + STATUS + "FAILED and m.attempts < ?6 and m.updatedAt < ?5))")
+  int claim(Long id, Date now, Date pendingBefore, Date staleBefore, Date retryBefore,
+      int maxAttempts);
+
+  @Modifying
+  @Query("update S3FolderMove m set m.movedObjects = ?2, m.updatedAt = ?3 "
+      + "where m.id = ?1 and m.status = " + STATUS + "RUNNING")
+  int updateProgress(Long id, long movedObjects, Date now);
+
+}
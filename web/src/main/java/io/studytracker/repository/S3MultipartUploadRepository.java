@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.repository;
+
+import io.studytracker.model.S3MultipartUpload;
+import io.studytracker.model.S3MultipartUploadStatus;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface S3MultipartUploadRepository extends JpaRepository<S3MultipartUpload, Long> {
+
+  String STATUS = "io.studytracker.model.S3MultipartUploadStatus.";
+
+  List<S3MultipartUpload> findByBucketAndObjectKeyAndStatusAndCreatedAtAfterOrderByCreatedAtDesc(
+      String bucket, String objectKey, S3MultipartUploadStatus status, Date createdAfter);
+
+  List<S3MultipartUpload> findByBucketAndCreatedAtBefore(String bucket, Date createdBefore);
+
+  /**
+   * Marks a failed upload as uploading again, so that it is resumed by only one node or thread.
+   *
+   * @return the number of uploads claimed, either 0 or 1
+   */
+  @Modifying
+  @Query("update S3MultipartUpload u set u.status = " + STATUS + "UPLOADING, u.updatedAt = ?2 "
+      + "where u.id = ?1 and u.status = " + STATUS + "FAILED")
+  int claim(Long id, Date now);
+
+}
@@ -33,6 +33,11 @@ public interface StorageDriveFolderRepository extends JpaRepository<StorageDrive
   @EntityGraph("storage-drive-folder-details")
   List<StorageDriveFolder> findByStorageDriveId(Long storageDriveId);
 
+  @Query("SELECT f FROM StorageDriveFolder f WHERE f.storageDrive.id = ?1 AND f.path IN (?2, ?3)")
+  @EntityGraph("storage-drive-folder-details")
+  List<StorageDriveFolder> findByStorageDriveIdAndPath(Long storageDriveId, String path,
+      String alternatePath);
+
   @Query("SELECT f FROM StorageDriveFolder f WHERE f.studyRoot = true")
   @EntityGraph("storage-drive-folder-details")
   List<StorageDriveFolder> findStudyRoot();
@@ -17,10 +17,12 @@
 package io.studytracker.repository;
 
 import io.studytracker.model.StorageDrive;
+import jakarta.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 
 public interface StorageDriveRepository extends JpaRepository<StorageDrive, Long> {
@@ -34,4 +36,13 @@ public interface StorageDriveRepository extends JpaRepository<StorageDrive, Long
   @Query("SELECT d from StorageDrive d WHERE d NOT IN (SELECT sdf.storageDrive FROM StorageDriveFolder sdf)")
   Set<StorageDrive> findUnusedDrives();
 
+  /**
+   * Locks the drive's record until the end of the current transaction, so that changes to the
+   * drive's contents that must not overlap, such as S3 folder moves, are registered one at a time
+   * across all nodes.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT sd FROM StorageDrive sd WHERE sd.id = ?1")
+  Optional<StorageDrive> lockById(Long id);
+
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.repository;
+
+import io.studytracker.model.StudyProvisioningStatus;
+import io.studytracker.model.StudyProvisioningTask;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface StudyProvisioningTaskRepository
+    extends JpaRepository<StudyProvisioningTask, Long> {
+
+  String STATUS = "io.studytracker.model.StudyProvisioningStatus.";
+
+  List<StudyProvisioningTask> findByStudyIdOrderByIdAsc(Long studyId);
+
+  List<StudyProvisioningTask> findByStatusInAndUpdatedAtBefore(
+      Collection<StudyProvisioningStatus> statuses, Date updatedBefore);
+
+  /**
+   * Marks a pending task as running, so that only one node or thread runs it.
+   *
+   * @return the number of tasks claimed, either 0 or 1
+   */
+  @Modifying
+  @Query("update StudyProvisioningTask t set t.status = " + STATUS + "RUNNING, "
+      + "t.attempts = t.attempts + 1, t.startedAt = ?2, t.completedAt = null, t.updatedAt = ?2 "
+      + "where t.id = ?1 and t.status = " + STATUS + "PENDING")
+  int claim(Long id, Date now);
+
+  /**
+   * Returns a running task that has not been updated since {@code staleBefore} to pending, so
+   * that it can be claimed again.
+   *
+   * @return the number of tasks released, either 0 or 1
+   */
+  @Modifying
+  @Query("update StudyProvisioningTask t set t.status = " + STATUS + "PENDING, t.updatedAt = ?2 "
+      + "where t.id = ?1 and t.status = " + STATUS + "RUNNING and t.updatedAt < ?3")
+  int releaseStale(Long id, Date now, Date staleBefore);
+
+}
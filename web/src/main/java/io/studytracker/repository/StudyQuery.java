@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.repository;
+
+import io.studytracker.model.Status;
+import io.studytracker.model.Study;
+import jakarta.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Composable set of filter criteria for {@link Study} records. Each populated field adds a
+ * predicate to the generated {@link Specification}, so any combination of filters is resolved in
+ * a single database query, rather than by filtering a full table read in memory.
+ */
+@Data
+public class StudyQuery {
+
+  /** Only include studies owned by the user with this ID. */
+  private Long ownerId;
+
+  /** Filter on the {@code active} flag, if set. */
+  private Boolean active;
+
+  /** Filter on the {@code legacy} flag, if set. */
+  private Boolean legacy;
+
+  /** If true, only include studies with an external collaborator. */
+  private boolean external = false;
+
+  /** Only include studies with one of these statuses, if not empty. */
+  private Set<Status> statuses = new HashSet<>();
+
+  /** Keyset pagination cursor: only include studies with an ID greater than this value. */
+  private Long afterId;
+
+  public static StudyQuery create() {
+    return new StudyQuery();
+  }
+
+  public StudyQuery ownedBy(Long ownerId) {
+    this.ownerId = ownerId;
+    return this;
+  }
+
+  public StudyQuery active(boolean active) {
+    this.active = active;
+    return this;
+  }
+
+  public StudyQuery legacy(boolean legacy) {
+    this.legacy = legacy;
+    return this;
+  }
+
+  public StudyQuery external() {
+    this.external = true;
+    return this;
+  }
+
+  public StudyQuery withStatus(Status... statuses) {
+    this.statuses.addAll(List.of(statuses));
+    return this;
+  }
+
+  public StudyQuery after(Long afterId) {
+    this.afterId = afterId;
+    return this;
+  }
+
+  /**
+   * Returns true if no filter criteria have been set.
+   *
+   * @return true if the query matches all studies
+   */
+  public boolean isEmpty() {
+    return ownerId == null
+        && active == null
+        && legacy == null
+        && !external
+        && statuses.isEmpty()
+        && afterId == null;
+  }
+
+  /**
+   * Converts the populated criteria into a JPA {@link Specification}.
+   *
+   * @return study specification
+   */
+  public Specification<Study> toSpecification() {
+    return (root, query, builder) -> {
+      List<Predicate> predicates = new ArrayList<>();
+      if (ownerId != null) {
+        predicates.add(builder.equal(root.get("owner").get("id"), ownerId));
+      }
+      if (active != null) {
+        predicates.add(builder.equal(root.get("active"), active));
+      }
+      if (legacy != null) {
+        predicates.add(builder.equal(root.get("legacy"), legacy));
+      }
+      if (external) {
+        predicates.add(builder.isNotNull(root.get("collaborator")));
+      }
+      if (!statuses.isEmpty()) {
+        predicates.add(root.get("status").in(statuses));
+      }
+      if (afterId != null) {
+        predicates.add(builder.greaterThan(root.get("id"), afterId));
+      }
+      return builder.and(predicates.toArray(new Predicate[0]));
+    };
+  }
+
+}
@@ -18,22 +18,37 @@ package io.studytracker.repository;
 
 import io.studytracker.model.Program;
 import io.studytracker.model.Study;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 
-public interface StudyRepository extends JpaRepository<Study, Long> {
+public interface StudyRepository extends JpaRepository<Study, Long>, JpaSpecificationExecutor<Study> {
 
   @Override
   @EntityGraph("study-summary")
   List<Study> findAll();
 
+  @Override
+  @EntityGraph("study-summary")
+  List<Study> findAll(Specification<Study> specification, Sort sort);
+
+  @EntityGraph("study-summary")
+  List<Study> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+  @Query("select s.id from Study s where s.id > ?1 order by s.id")
+  List<Long> findIdsAfter(Long id, Pageable pageable);
+
   @EntityGraph("study-with-attributes")
-  @Query("select s from Study s")
-  List<Study> findAllWithDetails();
+  @Query("select s from Study s where s.id in ?1 order by s.id")
+  List<Study> findWithDetailsByIdIn(Collection<Long> ids);
 
   @Override
   @EntityGraph("study-with-attributes")
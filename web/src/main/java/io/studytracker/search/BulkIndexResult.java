@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Summary of a batched document indexing operation, including per-document failure messages
+ * keyed by document ID.
+ */
+@Data
+public class BulkIndexResult {
+
+  private String index;
+  private int total = 0;
+  private int indexed = 0;
+  private int batches = 0;
+  private long durationMs = 0L;
+  private Map<String, String> failures = new LinkedHashMap<>();
+
+  public BulkIndexResult() {
+  }
+
+  public BulkIndexResult(String index) {
+    this.index = index;
+  }
+
+  public int getFailed() {
+    return failures.size();
+  }
+
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.search;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Iterates over all records of an entity in pages, ordered by ID, loading each page only when
+ * the previous one has been consumed. Each page is selected by the IDs following the last ID of
+ * the previous page, rather than by offset, and the entities are then loaded by their IDs, so
+ * that associations can be fetched with them without loading the whole table at once.
+ *
+ * @param <T> entity type
+ */
+public class PagedEntityIterable<T> implements Iterable<T> {
+
+  private final BiFunction<Long, Integer, List<Long>> idLoader;
+  private final Function<List<Long>, List<T>> entityLoader;
+  private final int pageSize;
+
+  /**
+   * Creates a new iterable.
+   *
+   * @param idLoader loads up to the given number of IDs greater than the given ID, in order
+   * @param entityLoader loads the entities with the given IDs
+   * @param pageSize the number of entities to load at once
+   */
+  public PagedEntityIterable(
+      BiFunction<Long, Integer, List<Long>> idLoader,
+      Function<List<Long>, List<T>> entityLoader,
+      int pageSize
+  ) {
+    this.idLoader = idLoader;
+    this.entityLoader = entityLoader;
+    this.pageSize = Math.max(1, pageSize);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<>() {
+
+      private Iterator<T> page = Collections.emptyIterator();
+      private Long lastId = 0L;
+      private boolean finished = false;
+
+      @Override
+      public boolean hasNext() {
+        while (!page.hasNext() && !finished) {
+          List<Long> ids = idLoader.apply(lastId, pageSize);
+          if (ids.size() < pageSize) {
+            finished = true;
+          }
+          if (!ids.isEmpty()) {
+            lastId = ids.get(ids.size() - 1);
+            page = entityLoader.apply(ids).iterator();
+          }
+        }
+        return page.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+
+    };
+  }
+
+}
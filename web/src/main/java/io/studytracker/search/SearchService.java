@@ -34,9 +34,39 @@ public interface SearchService {
 
   void indexStudy(Study study);
 
-  void indexStudies(Collection<Study> studies);
+  /**
+   * Indexes the provided studies in batches.
+   *
+   * @param studies studies to index
+   * @return summary of the indexing operation
+   */
+  BulkIndexResult indexStudies(Collection<Study> studies);
+
+  /**
+   * Indexes all of the provided studies as part of a full reindex, deferring index refreshes
+   * until all documents have been written.
+   *
+   * @param studies studies to index
+   * @return summary of the indexing operation
+   */
+  BulkIndexResult reindexStudies(Iterable<Study> studies);
 
   void indexAssay(Assay assay);
 
-  void indexAssays(Collection<Assay> assays);
+  /**
+   * Indexes the provided assays in batches.
+   *
+   * @param assays assays to index
+   * @return summary of the indexing operation
+   */
+  BulkIndexResult indexAssays(Collection<Assay> assays);
+
+  /**
+   * Indexes all of the provided assays as part of a full reindex, deferring index refreshes
+   * until all documents have been written.
+   *
+   * @param assays assays to index
+   * @return summary of the indexing operation
+   */
+  BulkIndexResult reindexAssays(Iterable<Assay> assays);
 }
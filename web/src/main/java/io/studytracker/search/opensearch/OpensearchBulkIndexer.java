@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.search.opensearch;
+
+import io.studytracker.search.BulkIndexResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.Time;
+import org.opensearch.client.opensearch.indices.GetIndicesSettingsResponse;
+import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndexState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.BulkOptions;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+
+/**
+ * Indexes entities using the OpenSearch {@code _bulk} API. Entities are read from the source one
+ * at a time and mapped to documents in chunks of {@code batchSize}, and each chunk is sent as a
+ * single bulk request on the provided executor, with at most {@code concurrency} requests in
+ * flight at once. A single index refresh is issued once
+ * all batches have completed. During full reindexes, the target index's refresh interval is also
+ * disabled until the operation finishes, and then restored to its previous value.
+ */
+public class OpensearchBulkIndexer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OpensearchBulkIndexer.class);
+
+  private final ElasticsearchOperations elasticsearchOperations;
+  private final OpenSearchClient openSearchClient;
+  private final int batchSize;
+  private final int concurrency;
+  private final Executor executor;
+
+  public OpensearchBulkIndexer(
+      ElasticsearchOperations elasticsearchOperations,
+      OpenSearchClient openSearchClient,
+      Executor executor,
+      int batchSize,
+      int concurrency
+  ) {
+    this.elasticsearchOperations = elasticsearchOperations;
+    this.openSearchClient = openSearchClient;
+    this.batchSize = Math.max(1, batchSize);
+    this.concurrency = Math.max(1, concurrency);
+    this.executor = executor;
+  }
+
+  /**
+   * Maps and indexes the provided entities in batches. The entities are iterated only once, so
+   * a lazily loaded source is never held in memory in full.
+   *
+   * @param entities the entities to index
+   * @param mapper function for converting an entity into an index document
+   * @param idFunction function for extracting the document ID from an entity
+   * @param documentClass the document class, used to resolve the target index
+   * @param fullReindex if true, index refresh is disabled until all batches complete
+   * @return summary of the operation
+   * @param <T> entity type
+   * @param <D> document type
+   */
+  public <T, D> BulkIndexResult index(
+      Iterable<T> entities,
+      Function<T, D> mapper,
+      Function<T, Object> idFunction,
+      Class<D> documentClass,
+      boolean fullReindex
+  ) {
+
+    IndexCoordinates coordinates = elasticsearchOperations.getIndexCoordinatesFor(documentClass);
+    String indexName = coordinates.getIndexName();
+    BulkIndexResult result = new BulkIndexResult(indexName);
+    long start = System.currentTimeMillis();
+
+    LOGGER.info("Bulk indexing documents into index {} with batch size {} and concurrency {}",
+        indexName, batchSize, concurrency);
+
+    BulkOptions bulkOptions = fullReindex
+        ? BulkOptions.builder().withRefreshPolicy(RefreshPolicy.NONE).build()
+        : BulkOptions.defaultOptions();
+
+    String refreshInterval = null;
+    if (fullReindex) {
+      refreshInterval = getRefreshInterval(indexName);
+      if (refreshInterval != null) {
+        updateRefreshInterval(indexName, "-1");
+      }
+    }
+
+    Semaphore semaphore = new Semaphore(concurrency);
+    List<IndexQuery> batch = new ArrayList<>(batchSize);
+    try {
+      for (T entity : entities) {
+        result.setTotal(result.getTotal() + 1);
+        String id = String.valueOf(idFunction.apply(entity));
+        try {
+          batch.add(new IndexQueryBuilder()
+              .withId(id)
+              .withObject(mapper.apply(entity))
+              .build());
+        } catch (Exception e) {
+          LOGGER.warn("Failed to map document {} for index {}", id, indexName, e);
+          synchronized (result) {
+            result.getFailures().put(id, "Mapping failed: " + e.getMessage());
+          }
+        }
+        if (batch.size() >= batchSize) {
+          submitBatch(batch, bulkOptions, coordinates, result, semaphore);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        submitBatch(batch, bulkOptions, coordinates, result, semaphore);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Bulk indexing of index {} was interrupted, no further batches will be sent",
+          indexName);
+    } finally {
+
+      // Wait for all in-flight batches to complete, even if interrupted, so that the refresh
+      // interval is not restored while documents are still being indexed
+      semaphore.acquireUninterruptibly(concurrency);
+      semaphore.release(concurrency);
+
+      if (refreshInterval != null) {
+        updateRefreshInterval(indexName, refreshInterval);
+      }
+      elasticsearchOperations.indexOps(coordinates).refresh();
+    }
+
+    result.setDurationMs(System.currentTimeMillis() - start);
+    if (result.hasFailures()) {
+      LOGGER.warn("Bulk indexing of index {} completed with {} failures: {}",
+          indexName, result.getFailed(), result.getFailures());
+    }
+    LOGGER.info("Bulk indexed {} of {} documents into index {} in {} batches ({} ms)",
+        result.getIndexed(), result.getTotal(), indexName, result.getBatches(),
+        result.getDurationMs());
+
+    return result;
+  }
+
+  private void submitBatch(
+      List<IndexQuery> batch,
+      BulkOptions bulkOptions,
+      IndexCoordinates coordinates,
+      BulkIndexResult result,
+      Semaphore semaphore
+  ) throws InterruptedException {
+    semaphore.acquire();
+    try {
+      executor.execute(() -> {
+        try {
+          sendBatch(batch, bulkOptions, coordinates, result);
+        } finally {
+          semaphore.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      semaphore.release();
+      throw e;
+    }
+  }
+
+  private void sendBatch(
+      List<IndexQuery> batch,
+      BulkOptions bulkOptions,
+      IndexCoordinates coordinates,
+      BulkIndexResult result
+  ) {
+    int failed = 0;
+    try {
+      elasticsearchOperations.bulkIndex(batch, bulkOptions, coordinates);
+    } catch (BulkFailureException e) {
+      failed = e.getFailedDocuments().size();
+      synchronized (result) {
+        e.getFailedDocuments().forEach((id, details) ->
+            result.getFailures().put(id, String.valueOf(details)));
+      }
+    } catch (Exception e) {
+      LOGGER.error("Bulk request to index {} failed", coordinates.getIndexName(), e);
+      failed = batch.size();
+      synchronized (result) {
+        batch.forEach(query -> result.getFailures().put(query.getId(), e.getMessage()));
+      }
+    }
+    synchronized (result) {
+      result.setBatches(result.getBatches() + 1);
+      result.setIndexed(result.getIndexed() + batch.size() - failed);
+    }
+  }
+
+  /**
+   * Returns the refresh interval of the index, or its default value if the index does not set
+   * one. Returns null if the settings cannot be read, in which case the interval is left as is.
+   */
+  private String getRefreshInterval(String indexName) {
+    try {
+      GetIndicesSettingsResponse response = openSearchClient.indices().getSettings(r -> r
+          .index(indexName)
+          .includeDefaults(true));
+      IndexState state = response.get(indexName);
+      if (state == null) {
+        return null;
+      }
+      Time interval = findRefreshInterval(state.settings());
+      if (interval == null) {
+        interval = findRefreshInterval(state.defaults());
+      }
+      if (interval == null) {
+        return null;
+      }
+      return interval.isTime() ? interval.time() : String.valueOf(interval.offset());
+    } catch (Exception e) {
+      LOGGER.warn("Failed to read refresh interval of index {}", indexName, e);
+      return null;
+    }
+  }
+
+  private static Time findRefreshInterval(IndexSettings settings) {
+    if (settings == null) {
+      return null;
+    }
+    if (settings.refreshInterval() != null) {
+      return settings.refreshInterval();
+    }
+    return settings.index() != null ? settings.index().refreshInterval() : null;
+  }
+
+  private void updateRefreshInterval(String indexName, String interval) {
+    try {
+      openSearchClient.indices().putSettings(r -> r
+          .index(indexName)
+          .settings(s -> s.refreshInterval(t -> t.time(interval))));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to set refresh interval of index {} to {}", indexName, interval, e);
+    }
+  }
+
+}
@@ -23,6 +23,7 @@ import io.studytracker.mapstruct.mapper.ElasticsearchDocumentMapper;
 import io.studytracker.model.Assay;
 import io.studytracker.model.Study;
 import io.studytracker.search.AssaySearchDocument;
+import io.studytracker.search.BulkIndexResult;
 import io.studytracker.search.DocumentType;
 import io.studytracker.search.GenericSearchHit;
 import io.studytracker.search.GenericSearchHits;
@@ -62,6 +63,9 @@ public class OpensearchSearchService implements SearchService {
 
   @Autowired
   private ElasticsearchOperations elasticsearchOperations;
+
+  @Autowired
+  private OpensearchBulkIndexer bulkIndexer;
   
   private HighlightQuery getHighlightQuery() {
     Highlight highlight = new Highlight(List.of(new HighlightField("*")));
@@ -184,8 +188,15 @@ public class OpensearchSearchService implements SearchService {
   }
 
   @Override
-  public void indexStudies(Collection<Study> studies) {
-    studies.forEach(this::indexStudy);
+  public BulkIndexResult indexStudies(Collection<Study> studies) {
+    return bulkIndexer.index(studies, documentMapper::fromStudy, Study::getId,
+        OpensearchStudyDocument.class, false);
+  }
+
+  @Override
+  public BulkIndexResult reindexStudies(Iterable<Study> studies) {
+    return bulkIndexer.index(studies, documentMapper::fromStudy, Study::getId,
+        OpensearchStudyDocument.class, true);
   }
 
 
@@ -196,8 +207,15 @@ public class OpensearchSearchService implements SearchService {
   }
 
   @Override
-  public void indexAssays(Collection<Assay> assays) {
-    assays.forEach(this::indexAssay);
+  public BulkIndexResult indexAssays(Collection<Assay> assays) {
+    return bulkIndexer.index(assays, documentMapper::fromAssay, Assay::getId,
+        OpensearchAssayDocument.class, false);
+  }
+
+  @Override
+  public BulkIndexResult reindexAssays(Iterable<Assay> assays) {
+    return bulkIndexer.index(assays, documentMapper::fromAssay, Assay::getId,
+        OpensearchAssayDocument.class, true);
   }
 
 }
@@ -17,7 +17,6 @@
 package io.studytracker.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.studytracker.aws.S3StudyStorageService;
 import io.studytracker.aws.S3Utils;
 import io.studytracker.benchling.BenchlingNotebookEntryService;
 import io.studytracker.benchling.BenchlingNotebookFolderService;
@@ -249,15 +248,13 @@ public class AssayService {
                 () ->
                     new RecordNotFoundException("Cannot find study: " + assay.getStudy().getId()));
 
-    // Get the parent storage folder
+    // Get the parent storage folder. The folder is looked up rather than read from the study,
+    // since it may have been added by a provisioning step after the study was loaded.
     Long parentFolderId;
     if (options.getParentFolder() == null) {
-      parentFolderId = study.getStorageFolders().stream()
-          .filter(f -> f.isPrimary())
-          .findFirst()
-          .orElseThrow(() -> new RecordNotFoundException("No primary storage folder found for program: "
-              + study.getName()))
-          .getStorageDriveFolder()
+      parentFolderId = storageDriveFolderService.findPrimaryStudyFolder(study)
+          .orElseThrow(() -> new RecordNotFoundException(
+              "No primary storage folder found for study: " + study.getName()))
           .getId();
     } else {
       parentFolderId = options.getParentFolder().getId();
@@ -319,10 +316,7 @@ public class AssayService {
       
       // Create a new folder
       else {
-        ELNFolder studyFolder = study.getNotebookFolders().stream()
-                .filter(f -> f.isPrimary())
-                .map(f -> f.getElnFolder())
-                .findFirst()
+        ELNFolder studyFolder = elnFolderRepository.findPrimaryByStudyId(study.getId())
                 .orElse(null);
         if (studyFolder != null) {
           assayFolder = notebookFolderService.createAssayFolder(assay);
@@ -416,7 +410,7 @@ public class AssayService {
               + options.getS3FolderId()));
 
       // Get the storage service
-      S3StudyStorageService s3Service = (S3StudyStorageService) storageDriveFolderService
+      StudyStorageService s3Service = storageDriveFolderService
           .lookupStudyStorageService(s3RootFolder);
 
       // Make sure the study folder exists. If not, create it.
@@ -47,6 +47,14 @@ public class GitRepositoryService {
   @Autowired
   private GitServiceLookup gitServiceLookup;
 
+  public Optional<GitGroup> findGitGroupById(Long id) {
+    return gitGroupRepository.findById(id);
+  }
+
+  public Optional<GitRepository> findGitRepositoryById(Long id) {
+    return gitRepositoryRepository.findById(id);
+  }
+
   public Optional<GitGroup> findProgramGitGroup(Program program) {
     LOGGER.debug("Looking up GitGroup for program: {}", program.getId());
     List<GitGroup> groups = gitGroupRepository.findByProgramId(program.getId());
@@ -76,7 +76,6 @@ public class KeywordService {
     return keywordRepository.search(fragment, category, pageable);
   }
 
-
   @Transactional
   public Keyword create(Keyword keyword) {
     LOGGER.info("Registering new keyword: " + keyword.toString());
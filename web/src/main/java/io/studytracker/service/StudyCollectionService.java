@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class StudyCollectionService {
@@ -73,6 +74,7 @@ public class StudyCollectionService {
     studyCollectionRepository.save(c);
   }
 
+  @Transactional
   public void delete(StudyCollection collection) {
     studyCollectionRepository.deleteById(collection.getId());
   }
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.service;
+
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.model.Study;
+import io.studytracker.model.StudyProvisioningStatus;
+import io.studytracker.model.StudyProvisioningStep;
+import io.studytracker.model.StudyProvisioningTask;
+import io.studytracker.repository.StudyProvisioningTaskRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates the external resources of new studies by running their {@link StudyProvisioningTask}
+ * records on the dedicated {@code studyProvisioningExecutor} pool. Independent steps run at the
+ * same time, and steps that depend on another, such as the summary notebook entry, start once
+ * their prerequisite completes. Failed steps are retried a configurable number of times, and can
+ * be retried again on request, without repeating the steps that succeeded.
+ *
+ * <p>Each task is claimed with a conditional update before it runs, so that a task is only run by
+ *  one node at a time. Tasks that have not been updated within the stale timeout, such as those
+ *  interrupted by a restart, are released and run again by a periodic sweep. Steps save the ID of
+ *  the resource they create with the task before linking it, so that a repeated step reuses the
+ *  resource rather than creating another.
+ */
+@Service
+public class StudyProvisioningService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StudyProvisioningService.class);
+
+  private static final int MAX_MESSAGE_LENGTH = 2048;
+
+  @Value("${study.provisioning.max-attempts:3}")
+  private int maxAttempts;
+
+  @Value("${study.provisioning.retry-backoff-ms:1000}")
+  private long retryBackoffMs;
+
+  @Value("${study.provisioning.stale-timeout-ms:900000}")
+  private long staleTimeoutMs;
+
+  @Value("${study.provisioning.wait-timeout-ms:30000}")
+  private long waitTimeoutMs;
+
+  @Value("${study.provisioning.wait-interval-ms:250}")
+  private long waitIntervalMs;
+
+  @Autowired private StudyProvisioningTaskRepository taskRepository;
+
+  @Autowired private StudyService studyService;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("studyProvisioningExecutor")
+  private Executor studyProvisioningExecutor;
+
+  private final Map<Long, CompletableFuture<Void>> runningStudies = new ConcurrentHashMap<>();
+
+  /**
+   * Starts provisioning the resources of a newly-created study in the background, and returns
+   * without waiting for it. The progress of the steps can be followed with
+   * {@link #findTasks(Study)}.
+   *
+   * @param study the newly-created study
+   * @return a future that completes once every step has finished
+   */
+  public CompletableFuture<Void> provision(Study study) {
+    return start(study.getId());
+  }
+
+  /**
+   * Returns the provisioning tasks of the given study, in the order they were created.
+   *
+   * @param study the study
+   * @return list of tasks
+   */
+  public List<StudyProvisioningTask> findTasks(Study study) {
+    return taskRepository.findByStudyIdOrderByIdAsc(study.getId());
+  }
+
+  /**
+   * Waits for the given provisioning steps of a study to finish, so that records that are created
+   * inside the study's resources, such as the folders of a new assay, can be created as soon as
+   * the study is. Waits up to the provisioning wait timeout, checking the task records, so that
+   * steps run by any node are seen. Steps that the study has no task for, such as those of
+   * studies created before provisioning was introduced, are not waited for.
+   *
+   * @param study the study
+   * @param steps the steps to wait for
+   * @throws InvalidRequestException if a step failed, or has not finished within the timeout
+   */
+  public void awaitSteps(Study study, Set<StudyProvisioningStep> steps) {
+    if (steps.isEmpty()) {
+      return;
+    }
+    long deadline = System.currentTimeMillis() + waitTimeoutMs;
+    while (true) {
+
+      // Tasks are read in a new transaction, so that updates from other transactions are seen
+      List<StudyProvisioningTask> tasks = newTransaction().execute(status ->
+          taskRepository.findByStudyIdOrderByIdAsc(study.getId()));
+      List<StudyProvisioningTask> unfinished = new ArrayList<>();
+      for (StudyProvisioningTask task : tasks) {
+        if (!steps.contains(task.getStep())) {
+          continue;
+        }
+        if (task.getStatus() == StudyProvisioningStatus.FAILED) {
+          throw new InvalidRequestException("Setting up the " + task.getStep()
+              + " of study " + study.getCode() + " failed. Retry the study's provisioning before"
+              + " continuing: " + task.getMessage());
+        }
+        if (task.getStatus() == StudyProvisioningStatus.PENDING
+            || task.getStatus() == StudyProvisioningStatus.RUNNING) {
+          unfinished.add(task);
+        }
+      }
+      if (unfinished.isEmpty()) {
+        return;
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        throw new InvalidRequestException("Study " + study.getCode() + " is still being set up"
+            + " (" + unfinished.stream().map(t -> t.getStep().toString())
+            .collect(Collectors.joining(", ")) + "). Try again once it has finished.");
+      }
+      LOGGER.debug("Waiting for provisioning steps {} of study {}", steps, study.getCode());
+      try {
+        Thread.sleep(waitIntervalMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InvalidRequestException("Interrupted while waiting for study "
+            + study.getCode() + " to be set up");
+      }
+    }
+  }
+
+  /**
+   * Returns true if provisioning steps for the given study are currently running.
+   *
+   * @param study the study
+   * @return true if provisioning is in progress
+   */
+  public boolean isRunning(Study study) {
+    return runningStudies.containsKey(study.getId());
+  }
+
+  /**
+   * Resets the failed provisioning tasks of the given study and runs them again in the
+   * background. Completed and skipped tasks are not repeated.
+   *
+   * @param study the study
+   * @return the study's tasks
+   */
+  public List<StudyProvisioningTask> retry(Study study) {
+    if (isRunning(study)) {
+      throw new InvalidRequestException("Provisioning is already running for study: "
+          + study.getCode());
+    }
+    List<StudyProvisioningTask> failed = taskRepository.findByStudyIdOrderByIdAsc(study.getId())
+        .stream()
+        .filter(t -> t.getStatus() == StudyProvisioningStatus.FAILED)
+        .collect(Collectors.toList());
+    if (failed.isEmpty()) {
+      throw new InvalidRequestException("Study " + study.getCode()
+          + " has no failed provisioning steps to retry");
+    }
+    LOGGER.info("Retrying {} failed provisioning steps for study {}", failed.size(),
+        study.getCode());
+    for (StudyProvisioningTask task : failed) {
+      updateTask(task.getId(), t -> {
+        t.setStatus(StudyProvisioningStatus.PENDING);
+        t.setCompletedAt(null);
+        t.setMessage(null);
+      });
+    }
+    start(study.getId());
+    return findTasks(study);
+  }
+
+  /**
+   * Resumes provisioning of studies with tasks that have not been updated within the stale
+   * timeout. Running tasks that are stale were interrupted, such as by a restart of the node
+   * running them, and are released to be claimed again. Pending tasks that are stale were never
+   * started. Recently updated tasks are left alone, since another node may be running them.
+   */
+  @Scheduled(
+      initialDelayString = "${study.provisioning.sweep-interval-ms:60000}",
+      fixedDelayString = "${study.provisioning.sweep-interval-ms:60000}"
+  )
+  public void resumeStaleTasks() {
+    long now = System.currentTimeMillis();
+    Date staleBefore = new Date(now - staleTimeoutMs);
+    Set<Long> studyIds = new LinkedHashSet<>();
+    for (StudyProvisioningTask task : taskRepository.findByStatusInAndUpdatedAtBefore(
+        EnumSet.of(StudyProvisioningStatus.PENDING, StudyProvisioningStatus.RUNNING),
+        staleBefore)) {
+      Long studyId = task.getStudy().getId();
+      if (runningStudies.containsKey(studyId)) {
+        continue;
+      }
+      if (task.getStatus() == StudyProvisioningStatus.RUNNING) {
+        Integer released = newTransaction().execute(status ->
+            taskRepository.releaseStale(task.getId(), new Date(now), staleBefore));
+        if (released == null || released == 0) {
+          continue;
+        }
+        LOGGER.warn("Provisioning task {} was not updated since {}, and will be run again",
+            task.getId(), task.getUpdatedAt());
+      }
+      studyIds.add(studyId);
+    }
+    for (Long studyId : studyIds) {
+      LOGGER.info("Resuming provisioning of study {}", studyId);
+      start(studyId);
+    }
+  }
+
+  /**
+   * Tasks that were interrupted when the application last stopped are resumed once they are
+   * stale, since another node may still be running them.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void resumeInterruptedTasks() {
+    resumeStaleTasks();
+  }
+
+  /**
+   * Submits the pending tasks of a study to the executor, unless the study is already being
+   * provisioned, and returns a future that completes once every task has finished.
+   */
+  private CompletableFuture<Void> start(Long studyId) {
+    CompletableFuture<Void> provisioning = new CompletableFuture<>();
+    CompletableFuture<Void> existing = runningStudies.putIfAbsent(studyId, provisioning);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+
+      // Prerequisite steps are scheduled first, so that their dependents can wait on them
+      List<StudyProvisioningTask> tasks = new ArrayList<>(
+          taskRepository.findByStudyIdOrderByIdAsc(studyId));
+      tasks.sort(Comparator.comparing(t -> t.getStep().getDependency() != null));
+
+      Map<StudyProvisioningStep, CompletableFuture<StudyProvisioningStatus>> steps =
+          new EnumMap<>(StudyProvisioningStep.class);
+      List<CompletableFuture<StudyProvisioningStatus>> futures = new ArrayList<>();
+
+      // A null status means that the task is being run elsewhere, which also runs its dependents
+      for (StudyProvisioningTask task : tasks) {
+        CompletableFuture<StudyProvisioningStatus> future;
+        StudyProvisioningStep dependency = task.getStep().getDependency();
+        if (task.getStatus() == StudyProvisioningStatus.RUNNING) {
+          future = CompletableFuture.completedFuture(null);
+        } else if (task.getStatus() != StudyProvisioningStatus.PENDING) {
+          future = CompletableFuture.completedFuture(task.getStatus());
+        } else if (dependency == null || !steps.containsKey(dependency)) {
+          future = CompletableFuture.supplyAsync(() -> runTask(task), studyProvisioningExecutor);
+        } else {
+          future = steps.get(dependency).thenApplyAsync(status -> {
+            if (status == null) {
+              return null;
+            }
+            return status == StudyProvisioningStatus.COMPLETED
+                ? runTask(task)
+                : blockTask(task, dependency, status);
+          }, studyProvisioningExecutor);
+        }
+        steps.putIfAbsent(task.getStep(), future);
+        futures.add(future);
+      }
+
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .whenComplete((result, e) -> {
+            runningStudies.remove(studyId, provisioning);
+            if (e != null) {
+              provisioning.completeExceptionally(e);
+            } else {
+              provisioning.complete(null);
+            }
+          });
+
+    } catch (RuntimeException e) {
+      runningStudies.remove(studyId, provisioning);
+      provisioning.completeExceptionally(e);
+    }
+    return provisioning;
+  }
+
+  /**
+   * Claims and runs a single task, retrying it with an exponential backoff if it fails. Returns
+   * null if the task was claimed by another node or thread first.
+   */
+  private StudyProvisioningStatus runTask(StudyProvisioningTask task) {
+    Long taskId = task.getId();
+    Integer claimed = newTransaction().execute(status ->
+        taskRepository.claim(taskId, new Date()));
+    if (claimed == null || claimed == 0) {
+      LOGGER.debug("Provisioning task {} was already claimed", taskId);
+      return null;
+    }
+    Exception failure = null;
+    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+      if (attempt > 1) {
+        updateTask(taskId, t -> t.setAttempts(t.getAttempts() + 1));
+      }
+      try {
+
+        // The task is re-read, so that the step sees the resource recorded by earlier attempts
+        StudyProvisioningTask current = taskRepository.findById(taskId)
+            .orElseThrow(() -> new RecordNotFoundException("Provisioning task not found: "
+                + taskId));
+        boolean created = studyService.runProvisioningStep(current,
+            resourceId -> recordResource(taskId, resourceId));
+        StudyProvisioningStatus status = created
+            ? StudyProvisioningStatus.COMPLETED
+            : StudyProvisioningStatus.SKIPPED;
+        finishTask(taskId, status, created ? null : "Nothing to provision");
+        LOGGER.info("Provisioning step {} of study {} finished with status {}", task.getStep(),
+            task.getStudy().getId(), status);
+        return status;
+      } catch (Exception e) {
+        failure = e;
+        LOGGER.warn("Provisioning step {} of study {} failed on attempt {} of {}: {}",
+            task.getStep(), task.getStudy().getId(), attempt, maxAttempts, e.getMessage());
+      }
+      if (attempt < maxAttempts) {
+        try {
+          Thread.sleep(retryBackoffMs * (1L << (attempt - 1)));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    LOGGER.error("Provisioning step {} of study {} failed", task.getStep(),
+        task.getStudy().getId(), failure);
+    finishTask(taskId, StudyProvisioningStatus.FAILED, failure != null
+        ? "Failed to provision " + task.getStep() + ": " + failure.getMessage()
+        : "Provisioning of " + task.getStep() + " was interrupted");
+    return StudyProvisioningStatus.FAILED;
+  }
+
+  /**
+   * Saves the ID of the resource created by a task. Unlike other task updates, failures are
+   * thrown, so that the step fails rather than linking a resource that a repeated step would not
+   * find.
+   */
+  private void recordResource(Long taskId, String resourceId) {
+    newTransaction().executeWithoutResult(status -> {
+      StudyProvisioningTask task = taskRepository.findById(taskId)
+          .orElseThrow(() -> new RecordNotFoundException("Provisioning task not found: "
+              + taskId));
+      task.setResourceId(resourceId);
+      taskRepository.save(task);
+    });
+  }
+
+  /**
+   * Finishes a task whose prerequisite did not complete. Tasks blocked by a failed step are
+   * marked as failed themselves, so that they are retried along with it.
+   */
+  private StudyProvisioningStatus blockTask(StudyProvisioningTask task,
+      StudyProvisioningStep dependency, StudyProvisioningStatus dependencyStatus) {
+    StudyProvisioningStatus status = dependencyStatus == StudyProvisioningStatus.SKIPPED
+        ? StudyProvisioningStatus.SKIPPED
+        : StudyProvisioningStatus.FAILED;
+    finishTask(task.getId(), status, "Step " + dependency + " did not complete");
+    return status;
+  }
+
+  private void finishTask(Long taskId, StudyProvisioningStatus status, String message) {
+    updateTask(taskId, t -> {
+      t.setStatus(status);
+      t.setCompletedAt(new Date());
+      t.setMessage(message != null && message.length() > MAX_MESSAGE_LENGTH
+          ? message.substring(0, MAX_MESSAGE_LENGTH)
+          : message);
+    });
+  }
+
+  /**
+   * Applies an update to a task record in a new transaction, so that progress is visible to
+   * status requests while the step is still running.
+   */
+  private void updateTask(Long taskId, Consumer<StudyProvisioningTask> update) {
+    try {
+      newTransaction().executeWithoutResult(status ->
+          taskRepository.findById(taskId).ifPresent(task -> {
+            update.accept(task);
+            taskRepository.save(task);
+          }));
+    } catch (Exception e) {
+      LOGGER.warn("Failed to update study provisioning task {}: {}", taskId, e.getMessage());
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate;
+  }
+
+}
@@ -16,7 +16,6 @@
 
 package io.studytracker.service;
 
-import io.studytracker.aws.S3StudyStorageService;
 import io.studytracker.aws.S3Utils;
 import io.studytracker.benchling.BenchlingNotebookEntryService;
 import io.studytracker.benchling.BenchlingNotebookFolderService;
@@ -45,10 +44,14 @@ import io.studytracker.model.Study;
 import io.studytracker.model.StudyNotebookFolder;
 import io.studytracker.model.StudyOptionAttributes;
 import io.studytracker.model.StudyOptions;
+import io.studytracker.model.StudyProvisioningStep;
+import io.studytracker.model.StudyProvisioningTask;
 import io.studytracker.model.StudyStorageFolder;
 import io.studytracker.model.User;
 import io.studytracker.repository.ELNFolderRepository;
 import io.studytracker.repository.ProgramRepository;
+import io.studytracker.repository.StudyProvisioningTaskRepository;
+import io.studytracker.repository.StudyQuery;
 import io.studytracker.repository.StudyRepository;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFolder;
@@ -58,19 +61,26 @@ import io.studytracker.storage.StudyStorageServiceLookup;
 import io.studytracker.storage.exception.StudyStorageException;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 /** Service class for reading and writing {@link Study} records. */
@@ -109,6 +119,12 @@ public class StudyService {
   @Autowired
   private StorageDriveFolderService storageDriveFolderService;
 
+  @Autowired
+  private StudyProvisioningTaskRepository provisioningTaskRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   /**
    * Finds a single study, identified by its primary key ID
    *
@@ -138,6 +154,42 @@ public class StudyService {
     return studyRepository.findAll(pageable);
   }
 
+  /**
+   * Returns all studies matching the criteria in the provided {@link StudyQuery}, ordered by ID.
+   *
+   * @param query study filter criteria
+   * @return list of studies
+   */
+  public List<Study> findByQuery(StudyQuery query) {
+    return studyRepository.findAll(query.toSpecification(), Sort.by("id"));
+  }
+
+  /**
+   * Returns a single keyset-paginated page of studies matching the criteria in the provided
+   * {@link StudyQuery}, ordered by ID. The next page can be requested by setting
+   * {@link StudyQuery#getAfterId()} to the ID of the last record in the current page. The page IDs
+   * are resolved first, so that the summary entity graph is never fetched for more than one page
+   * of records.
+   *
+   * @param query study filter criteria
+   * @param size maximum number of records to return
+   * @return list of studies
+   */
+  public List<Study> findByQuery(StudyQuery query, int size) {
+    if (size < 1) {
+      throw new InvalidRequestException("Page size must be greater than zero");
+    }
+    List<Long> ids = studyRepository.findBy(query.toSpecification(),
+        q -> q.sortBy(Sort.by("id")).limit(size).all())
+        .stream()
+        .map(Study::getId)
+        .collect(Collectors.toList());
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    return studyRepository.findByIdInOrderByIdAsc(ids);
+  }
+
   /**
    * Finds all studies associated with a given {@link Program}
    *
@@ -180,6 +232,21 @@ public class StudyService {
    */
   private StorageDriveFolder createStudyStorageFolder(Study study,
       StorageDriveFolder parentFolder) {
+    return this.createStudyStorageFolder(study, parentFolder, false);
+  }
+
+  /**
+   * Creates a storage folder for the study and returns a {@link StorageFolder} record. If
+   * {@code reuseExisting} is set, a folder already at the study's path, and its record, are used
+   * instead, so that a repeated provisioning step does not create duplicates.
+   *
+   * @param study study object
+   * @param parentFolder folder to create the study folder in
+   * @param reuseExisting whether to reuse an existing folder and record
+   * @return storage folder record
+   */
+  private StorageDriveFolder createStudyStorageFolder(Study study,
+      StorageDriveFolder parentFolder, boolean reuseExisting) {
     try {
       StorageDrive drive = storageDriveFolderService.findDriveByFolder(parentFolder)
           .orElseThrow(() -> new StudyStorageException("No storage drive found for id: "
@@ -189,7 +256,23 @@ public class StudyService {
               "No storage service found for drive type: "
               + parentFolder.getStorageDrive().getDriveType()));
       String folderName = generateStudyStorageFolderName(study);
-      StorageFolder storageFolder = storageService.createFolder(parentFolder, folderName);
+      StorageFolder storageFolder = null;
+      if (reuseExisting) {
+        String path = StorageUtils.joinPath(parentFolder.getPath(),
+            StorageUtils.cleanInputObjectName(folderName));
+        if (storageService.folderExists(drive, path)) {
+          storageFolder = storageService.findFolderByPath(drive, path);
+          Optional<StorageDriveFolder> existing = storageDriveFolderService
+              .findByDriveAndPath(drive, storageFolder.getPath());
+          if (existing.isPresent()) {
+            LOGGER.info("Using existing storage folder {} for study {}", path, study.getCode());
+            return existing.get();
+          }
+        }
+      }
+      if (storageFolder == null) {
+        storageFolder = storageService.createFolder(parentFolder, folderName);
+      }
       StorageDriveFolder folderOptions = new StorageDriveFolder();
       folderOptions.setWriteEnabled(true);
       return storageService.saveStorageFolderRecord(drive, storageFolder, folderOptions);
@@ -212,6 +295,8 @@ public class StudyService {
         String oldPath = folder.getPath();
         String newName = generateStudyStorageFolderName(study);
         String newPath = StorageUtils.joinPath(StorageUtils.getParentPathFromPath(oldPath), newName);
+        // Folders that can only be renamed by moving their contents, such as S3 prefixes, are
+        // moved by a tracked background job, so the references can be updated straight away
         storageService.renameFolder(drive, folder.getPath(), newName);
         storageDriveFolderService.renameFolderReferences(drive, oldPath, newPath);
       } catch (Exception e) {
@@ -261,12 +346,14 @@ public class StudyService {
   }
 
   /**
-   * Creates a new study record, creates a storage folder, creates and ELN folder, and creates an
-   * ELN entry for the study.
+   * Creates a new study record, along with a {@link StudyProvisioningTask} for each of the
+   * external resources requested in the study's options: the storage folder, ELN folder and
+   * summary entry, Git repository, additional storage folders and S3 folder. Only the record and
+   * its tasks are saved here, in a single short transaction. The resources themselves are created
+   * by {@link StudyProvisioningService}, which runs the tasks once the record is committed.
    *
    * @param study new study
    */
-  @Transactional
   public Study create(Study study) {
 
     LOGGER.info("Attempting to create new study with name: {}", study.getName());
@@ -304,7 +391,8 @@ public class StudyService {
                 () ->
                     new RecordNotFoundException("Invalid program: " + study.getProgram().getId()));
 
-    // Create the study storage folder
+    // Study storage folder
+    List<StudyProvisioningTask> tasks = new ArrayList<>();
     StorageDriveFolder parentFolder = options.getParentFolder();
     if (parentFolder == null) {
       parentFolder = program.getStorageFolders().stream()
@@ -315,19 +403,16 @@ public class StudyService {
               + program.getName()))
           .getStorageDriveFolder();
     }
-    StorageDriveFolder folder = this.createStudyStorageFolder(study, parentFolder);
-    study.addStorageFolder(folder, true);
+    tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.STORAGE_FOLDER,
+        parentFolder.getId(), null));
 
-    // Create the ELN folder
-    NotebookEntry studySummaryEntry = null;
+    // ELN folder and entry
     if (options.isUseNotebook()) {
-      
-      ELNFolder elnFolder;
-      
+
       // An existing folder was provided
+      String notebookFolderId = null;
       if (options.getNotebookFolder() != null && StringUtils.hasText(options.getNotebookFolder().getReferenceId())) {
-        elnFolder = notebookFolderService.findFolderById(options.getNotebookFolder().getReferenceId());
-        elnFolder = elnFolderRepository.save(elnFolder);
+        notebookFolderId = options.getNotebookFolder().getReferenceId();
       } else if (options.getNotebookFolder() != null && StringUtils.hasText(options.getNotebookFolder().getUrl())) {
         String regex = "lib_[a-zA-Z0-9]+";
         Pattern pattern = Pattern.compile(regex);
@@ -336,50 +421,20 @@ public class StudyService {
           throw new InvalidRequestException("Cannot extract Benchling foler ID from URL: "
               + options.getNotebookFolder().getUrl());
         }
-        elnFolder = notebookFolderService.findFolderById(matcher.group(0));
-        elnFolder = elnFolderRepository.save(elnFolder);
+        notebookFolderId = matcher.group(0);
+      } else if (study.isLegacy()) {
+        LOGGER.warn("No ELN URL set, so folder reference will not be created.");
       }
 
-      // Create a new folder
-      else {
-        elnFolder = this.createStudyElnFolder(study, program);
+      if (notebookFolderId != null || !study.isLegacy()) {
+        tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.NOTEBOOK_FOLDER,
+            null, notebookFolderId));
       }
-      
-      if (elnFolder != null) {
-        study.addNotebookFolder(elnFolder, true);
+      if (!study.isLegacy()) {
+        tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.NOTEBOOK_ENTRY,
+            null, options.getNotebookTemplateId()));
       }
 
-      // Get the template
-      if (elnFolder != null && !study.isLegacy()) {
-        NotebookTemplate template = null;
-        if (StringUtils.hasText(options.getNotebookTemplateId())) {
-          Optional<NotebookTemplate> templateOptional =
-              notebookEntryService.findEntryTemplateById(options.getNotebookTemplateId());
-          if (templateOptional.isPresent()) {
-            template = templateOptional.get();
-          } else {
-            LOGGER.warn("Could not find notebook template with ID: {}",
-                options.getNotebookTemplateId());
-          }
-        }
-        studySummaryEntry = notebookEntryService
-            .createStudyNotebookEntry(study, elnFolder, template);
-      }
-
-    }
-
-    // Persist the record
-    try {
-      studyRepository.save(study);
-      LOGGER.info(
-          String.format(
-              "Successfully created new study with code %s and ID %s",
-              study.getCode(), study.getId()));
-    } catch (ConstraintViolationException e) {
-      throw new InvalidConstraintException(e);
-    } catch (Exception e) {
-      e.printStackTrace();
-      throw e;
     }
 
     // Git repository
@@ -396,32 +451,36 @@ public class StudyService {
         programGroup = options.getGitGroup();
       }
       if (programGroup != null) {
-        try {
-          addGitRepository(study, programGroup);
-        } catch (Exception e) {
-          e.printStackTrace();
-          LOGGER.warn("Failed to create Git repository for study: " + study.getCode());
-        }
+        tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.GIT_REPOSITORY,
+            programGroup.getId(), null));
       }
     }
 
     // Additional folders
     for (StorageDriveFolder folderOption : options.getAdditionalFolders()) {
-      LOGGER.debug("Creating additional folder for study: " + folder.toString());
-      StorageDriveFolder additionalFolder =
-          this.createStudyStorageFolder(study, folderOption);
-      study.addStorageFolder(additionalFolder);
+      tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.ADDITIONAL_FOLDER,
+          folderOption.getId(), null));
     }
 
-
     // S3
     if (options.isUseS3() && options.getS3FolderId() != null) {
-      addS3BucketFolder(study, program, options);
+      tasks.add(new StudyProvisioningTask(study, StudyProvisioningStep.S3_FOLDER,
+          options.getS3FolderId(), null));
     }
 
-    // Add a links to extra resources
-    if (studySummaryEntry != null) {
-      addSummaryNotebookEntryLink(study, studySummaryEntry);
+    // Persist the record and its provisioning tasks
+    try {
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      transactionTemplate.executeWithoutResult(status -> {
+        studyRepository.save(study);
+        provisioningTaskRepository.saveAll(tasks);
+      });
+      LOGGER.info(
+          String.format(
+              "Successfully created new study with code %s and ID %s",
+              study.getCode(), study.getId()));
+    } catch (ConstraintViolationException e) {
+      throw new InvalidConstraintException(e);
     }
 
     return studyRepository.findById(study.getId())
@@ -430,92 +489,320 @@ public class StudyService {
 
   }
 
-  private void addS3BucketFolder(Study study, Program program, StudyOptions options) {
-    LOGGER.debug("Creating S3 folder for study: " + study.getCode());
-    try {
+  /**
+   * Creates the external resource described by the provided provisioning task, and links it to
+   * the task's study. Remote calls are made outside of any transaction, and the resulting records
+   * are linked to the study in their own short transactions, so that the steps for a study can
+   * run at the same time.
+   *
+   * <p>Steps may be repeated after a failure or an interruption, so each one is idempotent. The
+   *  ID or URL of the created resource is passed to {@code recordResource}, to be saved with the
+   *  task before the resource is linked, and a recorded resource is linked again rather than
+   *  created. Repeated attempts also look for a resource left by an earlier attempt that failed
+   *  before recording it, and links are only added to the study once.
+   *
+   * @param task the task to run
+   * @param recordResource saves the ID or URL of the created resource with the task
+   * @return true if a resource was created, or false if there was nothing to create
+   * @throws Exception if the resource could not be created
+   */
+  public boolean runProvisioningStep(StudyProvisioningTask task,
+      Consumer<String> recordResource) throws Exception {
+    Study study = studyRepository.findById(task.getStudy().getId())
+        .orElseThrow(() -> new RecordNotFoundException("Study not found: "
+            + task.getStudy().getId()));
+    switch (task.getStep()) {
+      case STORAGE_FOLDER:
+        return provisionStorageFolder(study, task, true, recordResource);
+      case ADDITIONAL_FOLDER:
+        return provisionStorageFolder(study, task, false, recordResource);
+      case NOTEBOOK_FOLDER:
+        return provisionNotebookFolder(study, task, recordResource);
+      case NOTEBOOK_ENTRY:
+        return provisionSummaryNotebookEntry(study, task, recordResource);
+      case GIT_REPOSITORY:
+        return provisionGitRepository(study, task, recordResource);
+      case S3_FOLDER:
+        addS3BucketFolder(study, task, recordResource);
+        return true;
+      default:
+        throw new InvalidRequestException("Unknown provisioning step: " + task.getStep());
+    }
+  }
+
+  private boolean provisionStorageFolder(Study study, StudyProvisioningTask task,
+      boolean isPrimary, Consumer<String> recordResource) {
+    Optional<StorageDriveFolder> recorded = findRecordedStorageFolder(task);
+    StorageDriveFolder folder;
+    if (recorded.isPresent()) {
+      folder = recorded.get();
+    } else {
+      LOGGER.debug("Creating storage folder for study: " + study.getCode());
+      StorageDriveFolder parentFolder = storageDriveFolderService.findById(task.getTargetId())
+          .orElseThrow(() -> new RecordNotFoundException("Invalid storage folder ID: "
+              + task.getTargetId()));
+      folder = this.createStudyStorageFolder(study, parentFolder, task.getAttempts() > 1);
+      recordResource.accept(folder.getId().toString());
+    }
+    linkStorageFolder(study.getId(), folder, isPrimary);
+    return true;
+  }
+
+  private boolean provisionNotebookFolder(Study study, StudyProvisioningTask task,
+      Consumer<String> recordResource) {
+    ELNFolder saved = StringUtils.hasText(task.getResourceId())
+        ? elnFolderRepository.findById(Long.valueOf(task.getResourceId())).orElse(null)
+        : null;
 
-      // Get the requested root folder & drive
-      StorageDriveFolder s3RootFolder = storageDriveFolderService
-          .findById(options.getS3FolderId())
-          .orElseThrow(() -> new StudyStorageException("Invalid S3 folder ID: "
-              + options.getS3FolderId()));
-      if (!s3RootFolder.isStudyRoot()) {
-        throw new StudyStorageException("S3 folder is not a study root folder: "
-            + s3RootFolder.getName());
+    if (saved == null) {
+      ELNFolder elnFolder;
+      String folderId = task.getReference();
+
+      // An existing folder was provided
+      if (StringUtils.hasText(folderId)) {
+        elnFolder = notebookFolderService.findFolderById(folderId);
+        if (elnFolder == null) {
+          throw new RecordNotFoundException("Could not find notebook folder: " + folderId);
+        }
       }
-      StorageDrive s3Drive = storageDriveFolderService.findDriveByFolder(s3RootFolder)
-          .orElseThrow(() -> new StudyStorageException("Invalid S3 folder ID: "
-              + options.getS3FolderId()));
-
-      // Get the storage service
-      S3StudyStorageService s3Service = (S3StudyStorageService) storageDriveFolderService
-          .lookupStudyStorageService(s3RootFolder);
-
-      // Make sure the program folder exists. If not, create it.
-      StorageDriveFolder programs3Folder;
-      Optional<StorageDriveFolder> optional = storageDriveFolderService
-          .findByProgram(program).stream()
-          .filter(f -> f.getStorageDrive().getId().equals(s3Drive.getId()))
-          .findFirst();
-      if (optional.isPresent()) {
-        programs3Folder = optional.get();
-      } else {
-        String programFolderPath = S3Utils.joinS3Path(s3RootFolder.getPath(),
-            S3Utils.generateProgramFolderName(program));
+
+      // Create a new folder, unless an earlier attempt already did
+      else {
+        Program program = study.getProgram();
+        if (elnFolderRepository.findPrimaryByProgramId(program.getId()).isEmpty()) {
+          LOGGER.warn("Study program {} does not have ELN folder set.", program.getName());
+          return false;
+        }
+        Optional<ELNFolder> existing = task.getAttempts() > 1
+            ? notebookFolderService.findExistingStudyFolder(study)
+            : Optional.empty();
+        if (existing.isPresent()) {
+          LOGGER.info("Using existing ELN folder for study: {}", study.getCode());
+          elnFolder = existing.get();
+        } else {
+          LOGGER.info(String.format("Creating ELN folder for study: %s", study.getCode()));
+          elnFolder = notebookFolderService.createStudyFolder(study);
+        }
+      }
+
+      saved = elnFolderRepository.save(elnFolder);
+      recordResource.accept(saved.getId().toString());
+    }
+
+    ELNFolder folder = saved;
+    updateStudyRecord(study.getId(), s -> {
+      boolean linked = s.getNotebookFolders().stream()
+          .anyMatch(f -> folder.getId().equals(f.getElnFolder().getId()));
+      if (!linked) {
+        s.addNotebookFolder(folder, true);
+      }
+    });
+    return true;
+  }
+
+  private boolean provisionSummaryNotebookEntry(Study study, StudyProvisioningTask task,
+      Consumer<String> recordResource) throws Exception {
+    String entryUrl = task.getResourceId();
+
+    if (!StringUtils.hasText(entryUrl)) {
+      ELNFolder elnFolder = study.getNotebookFolders().stream()
+          .filter(StudyNotebookFolder::isPrimary)
+          .map(StudyNotebookFolder::getElnFolder)
+          .findFirst()
+          .orElse(null);
+      if (elnFolder == null) {
+        LOGGER.warn("Study {} does not have an ELN folder, so no summary entry will be created.",
+            study.getCode());
+        return false;
+      }
+
+      // Use the entry created by an earlier attempt, if there is one
+      NotebookEntry entry = task.getAttempts() > 1
+          ? notebookEntryService.findStudyNotebookEntry(study, elnFolder).orElse(null)
+          : null;
+
+      if (entry == null) {
+
+        // Get the template
+        NotebookTemplate template = null;
+        String templateId = task.getReference();
+        if (StringUtils.hasText(templateId)) {
+          Optional<NotebookTemplate> templateOptional =
+              notebookEntryService.findEntryTemplateById(templateId);
+          if (templateOptional.isPresent()) {
+            template = templateOptional.get();
+          } else {
+            LOGGER.warn("Could not find notebook template with ID: {}", templateId);
+          }
+        }
+
+        entry = notebookEntryService.createStudyNotebookEntry(study, elnFolder, template);
+      }
+
+      entryUrl = entry.getUrl();
+      recordResource.accept(entryUrl);
+    }
+
+    addSummaryNotebookEntryLink(study, entryUrl);
+    return true;
+  }
+
+  private boolean provisionGitRepository(Study study, StudyProvisioningTask task,
+      Consumer<String> recordResource) throws Exception {
+    GitRepository repository = StringUtils.hasText(task.getResourceId())
+        ? gitRepositoryService.findGitRepositoryById(Long.valueOf(task.getResourceId()))
+            .orElse(null)
+        : null;
+    if (repository == null) {
+      GitGroup programGroup = gitRepositoryService.findGitGroupById(task.getTargetId())
+          .orElseThrow(() -> new RecordNotFoundException("Invalid Git group ID: "
+              + task.getTargetId()));
+      repository = createGitRepository(study, programGroup);
+      recordResource.accept(repository.getId().toString());
+    }
+    linkGitRepository(study.getId(), repository);
+    return true;
+  }
+
+  private void addS3BucketFolder(Study study, StudyProvisioningTask task,
+      Consumer<String> recordResource) throws StudyStorageException {
+
+    // Link the folder recorded by an earlier attempt
+    Optional<StorageDriveFolder> recorded = findRecordedStorageFolder(task);
+    if (recorded.isPresent()) {
+      linkStorageFolder(study.getId(), recorded.get(), false);
+      return;
+    }
+
+    LOGGER.debug("Creating S3 folder for study: " + study.getCode());
+    Program program = study.getProgram();
+    Long s3FolderId = task.getTargetId();
+
+    // Get the requested root folder & drive
+    StorageDriveFolder s3RootFolder = storageDriveFolderService
+        .findById(s3FolderId)
+        .orElseThrow(() -> new StudyStorageException("Invalid S3 folder ID: " + s3FolderId));
+    if (!s3RootFolder.isStudyRoot()) {
+      throw new StudyStorageException("S3 folder is not a study root folder: "
+          + s3RootFolder.getName());
+    }
+    StorageDrive s3Drive = storageDriveFolderService.findDriveByFolder(s3RootFolder)
+        .orElseThrow(() -> new StudyStorageException("Invalid S3 folder ID: " + s3FolderId));
+
+    // Make sure the program folder exists. If not, create it.
+    StorageDriveFolder programs3Folder;
+    Optional<StorageDriveFolder> optional = storageDriveFolderService
+        .findByProgram(program).stream()
+        .filter(f -> f.getStorageDrive().getId().equals(s3Drive.getId()))
+        .findFirst();
+    if (optional.isPresent()) {
+      programs3Folder = optional.get();
+    } else {
+      String programFolderPath = S3Utils.joinS3Path(s3RootFolder.getPath(),
+          S3Utils.generateProgramFolderName(program));
+
+      // A record left by an earlier attempt that failed before linking it is reused
+      StorageDriveFolder registered = storageDriveFolderService
+          .findByDriveAndPath(s3Drive, programFolderPath)
+          .orElse(null);
+      if (registered == null) {
         StorageDriveFolder programFolder = new StorageDriveFolder();
         programFolder.setPath(programFolderPath);
         programFolder.setName("Program " + program.getName() + " S3 Folder");
         programFolder.setStorageDrive(s3Drive);
         programFolder.setWriteEnabled(true);
         programFolder.setDetails(new S3FolderDetails());
-        programs3Folder = storageDriveFolderService.registerFolder(programFolder, s3Drive);
-        program.addStorageFolder(programs3Folder);
-        programRepository.save(program);
+        registered = storageDriveFolderService.registerFolder(programFolder, s3Drive);
       }
-
-      // Create the study S3 folder
-      StorageFolder s3Folder = s3Service.createFolder(programs3Folder,
-          generateStudyStorageFolderName(study));
-      StorageDriveFolder folderOptions = new StorageDriveFolder();
-      folderOptions.setWriteEnabled(true);
-      StorageDriveFolder studyS3Folder = s3Service.saveStorageFolderRecord(s3Drive, s3Folder,
-          folderOptions);
-      study.addStorageFolder(studyS3Folder);
-      studyRepository.save(study);
-    } catch (StudyStorageException e) {
-      e.printStackTrace();
-      LOGGER.error("Failed to create S3 folder for study: " + study.getCode(), e);
+      StorageDriveFolder programFolderRecord = registered;
+      new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+        Program p = programRepository.getById(program.getId());
+        p.addStorageFolder(programFolderRecord);
+        programRepository.save(p);
+      });
+      programs3Folder = registered;
     }
+
+    // Create the study S3 folder
+    StorageDriveFolder studyS3Folder = this.createStudyStorageFolder(study, programs3Folder,
+        task.getAttempts() > 1);
+    recordResource.accept(studyS3Folder.getId().toString());
+    linkStorageFolder(study.getId(), studyS3Folder, false);
   }
 
-  private void addSummaryNotebookEntryLink(Study study, NotebookEntry entry) {
-    try {
-      ExternalLink entryLink = new ExternalLink();
-      entryLink.setStudy(study);
-      entryLink.setLabel("Summary ELN Entry");
-      entryLink.setUrl(new URL(entry.getUrl()));
-      study.addExternalLink(entryLink);
-      studyRepository.save(study);
-    } catch (Exception e) {
-      e.printStackTrace();
-      LOGGER.warn("Failed to create link to ELN entry.");
-    }
+  private Optional<StorageDriveFolder> findRecordedStorageFolder(StudyProvisioningTask task) {
+    return StringUtils.hasText(task.getResourceId())
+        ? storageDriveFolderService.findById(Long.valueOf(task.getResourceId()))
+        : Optional.empty();
+  }
+
+  private void linkStorageFolder(Long studyId, StorageDriveFolder folder, boolean isPrimary) {
+    updateStudyRecord(studyId, s -> {
+      boolean linked = s.getStorageFolders().stream()
+          .anyMatch(f -> folder.getId().equals(f.getStorageDriveFolder().getId()));
+      if (!linked) {
+        s.addStorageFolder(folder, isPrimary);
+      }
+    });
+  }
+
+  private void addSummaryNotebookEntryLink(Study study, String entryUrl)
+      throws MalformedURLException {
+    URL url = new URL(entryUrl);
+    updateStudyRecord(study.getId(), s -> {
+      boolean linked = s.getExternalLinks().stream()
+          .anyMatch(l -> l.getUrl() != null && entryUrl.equals(l.getUrl().toString()));
+      if (!linked) {
+        ExternalLink entryLink = new ExternalLink();
+        entryLink.setLabel("Summary ELN Entry");
+        entryLink.setUrl(url);
+        s.addExternalLink(entryLink);
+      }
+    });
   }
 
   public GitRepository addGitRepository(Study study, GitGroup programGroup) throws Exception {
+    GitRepository repository = createGitRepository(study, programGroup);
+    linkGitRepository(study.getId(), repository);
+    return repository;
+  }
+
+  private GitRepository createGitRepository(Study study, GitGroup programGroup) {
     LOGGER.debug("Creating Git repository for study: " + study.getName());
     GitService gitService = gitServiceLookup.lookup(programGroup.getGitServiceType())
         .orElseThrow(() -> new InvalidRequestException(
             "Git service not found: " + programGroup.getGitServiceType()));
-    GitRepository repository = gitService.createStudyRepository(programGroup, study);
-    ExternalLink entryLink = new ExternalLink();
-    entryLink.setStudy(study);
-    entryLink.setLabel("Git Repository");
-    entryLink.setUrl(new URL(repository.getWebUrl()));
-    study.addExternalLink(entryLink);
-    study.addGitRepository(repository);
-    studyRepository.save(study);
-    return repository;
+    return gitService.createStudyRepository(programGroup, study);
+  }
+
+  private void linkGitRepository(Long studyId, GitRepository repository)
+      throws MalformedURLException {
+    URL url = new URL(repository.getWebUrl());
+    updateStudyRecord(studyId, s -> {
+      boolean linked = s.getGitRepositories().stream()
+          .anyMatch(r -> repository.getId().equals(r.getId()));
+      if (!linked) {
+        ExternalLink entryLink = new ExternalLink();
+        entryLink.setLabel("Git Repository");
+        entryLink.setUrl(url);
+        s.addExternalLink(entryLink);
+        s.addGitRepository(repository);
+      }
+    });
+  }
+
+  /**
+   * Applies a change to the study with the provided ID in its own transaction. The record is
+   * re-read first, so that resources linked by provisioning steps running at the same time are
+   * not overwritten by a stale copy of the study.
+   */
+  private void updateStudyRecord(Long studyId, Consumer<Study> update) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.executeWithoutResult(status -> {
+      Study s = studyRepository.getById(studyId);
+      update.accept(s);
+      studyRepository.save(s);
+    });
   }
 
   /**
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Upload target issued to a client, so that it can send a file's contents directly to a storage
+ * service rather than through the application. For {@link Type#S3_MULTIPART} uploads, the client
+ * uploads each byte range in {@link #getParts()} with a {@code PUT} request to its presigned URL,
+ * and records the {@code ETag} response header of each part. For
+ * {@link Type#ONEDRIVE_SESSION} uploads, the client sends the file in sequential chunks to the
+ * {@link #getUploadUrl()} with {@code PUT} requests and {@code Content-Range} headers. In both
+ * cases the upload is finished with a {@link DirectUploadCompletion}.
+ *
+ * <p>Browser uploads to S3 require a CORS rule on the bucket that allows {@code PUT} requests
+ * from the application's origin and exposes the {@code ETag} header.
+ */
+@Data
+public class DirectUpload {
+
+  public enum Type {
+    S3_MULTIPART,
+    ONEDRIVE_SESSION
+  }
+
+  private Type type;
+
+  /** Storage service identifier of the upload, required to complete or abort it. */
+  private String uploadId;
+
+  private String fileName;
+
+  /** Path of the folder the file is uploaded to. */
+  private String path;
+
+  private long size;
+
+  private Long partSize;
+
+  private List<Part> parts = new ArrayList<>();
+
+  private String uploadUrl;
+
+  private Date expiresAt;
+
+  /** A byte range of the file, and the presigned URL it is uploaded to. */
+  @Data
+  public static class Part {
+
+    private int partNumber;
+
+    private long offset;
+
+    private long length;
+
+    private String url;
+
+  }
+
+}
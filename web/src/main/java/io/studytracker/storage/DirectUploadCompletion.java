@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Sent by a client once it has finished sending a file to a {@link DirectUpload} target, so that
+ * the upload can be finalized and the stored file recorded.
+ */
+@Data
+public class DirectUploadCompletion {
+
+  private String uploadId;
+
+  private String fileName;
+
+  private long size;
+
+  /** Uploaded parts and their {@code ETag} values, for S3 multipart uploads. */
+  private List<Part> parts = new ArrayList<>();
+
+  @Data
+  public static class Part {
+
+    private int partNumber;
+
+    private String etag;
+
+  }
+
+}
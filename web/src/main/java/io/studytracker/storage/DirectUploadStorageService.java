@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.storage.exception.StudyStorageException;
+
+/**
+ * Optional capability of a {@link StudyStorageService} that allows clients to upload files
+ * directly to the storage service, using short-lived upload targets issued by the application,
+ * so that file contents never pass through the application servers.
+ */
+public interface DirectUploadStorageService {
+
+  /**
+   * Starts a direct upload of a file into the folder at the provided path.
+   *
+   * @param folder the storage folder
+   * @param path the path of the folder to upload the file to
+   * @param fileName the name of the file
+   * @param size the size of the file, in bytes
+   * @return the upload target
+   * @throws StudyStorageException if the upload cannot be started
+   */
+  DirectUpload createDirectUpload(StorageDriveFolder folder, String path, String fileName,
+      long size) throws StudyStorageException;
+
+  /**
+   * Finalizes a direct upload once the client has sent the full file contents.
+   *
+   * @param folder the storage folder
+   * @param path the path of the folder the file was uploaded to
+   * @param completion the uploaded file details
+   * @return the uploaded file
+   * @throws StudyStorageException if the upload cannot be completed
+   */
+  StorageFile completeDirectUpload(StorageDriveFolder folder, String path,
+      DirectUploadCompletion completion) throws StudyStorageException;
+
+  /**
+   * Cancels a direct upload, discarding any data already uploaded.
+   *
+   * @param folder the storage folder
+   * @param path the path of the folder the file was being uploaded to
+   * @param fileName the name of the file
+   * @param uploadId the upload identifier
+   * @throws StudyStorageException if the upload cannot be cancelled
+   */
+  void abortDirectUpload(StorageDriveFolder folder, String path, String fileName,
+      String uploadId) throws StudyStorageException;
+
+}
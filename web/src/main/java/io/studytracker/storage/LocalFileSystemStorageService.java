@@ -16,6 +16,8 @@
 
 package io.studytracker.storage;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.studytracker.config.properties.StorageProperties;
 import io.studytracker.exception.StudyTrackerException;
 import io.studytracker.model.LocalDriveFolderDetails;
@@ -27,20 +29,29 @@ import io.studytracker.storage.exception.StudyStorageDuplicateException;
 import io.studytracker.storage.exception.StudyStorageException;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import io.studytracker.storage.exception.StudyStorageWriteException;
+import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -49,6 +60,8 @@ public class LocalFileSystemStorageService implements StudyStorageService {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(LocalFileSystemStorageService.class);
 
+  private static final long LISTING_SETTLE_MILLIS = 2000;
+
   @Autowired
   private StorageDriveRepository driveRepository;
 
@@ -58,6 +71,23 @@ public class LocalFileSystemStorageService implements StudyStorageService {
   @Autowired
   private StorageProperties storageProperties;
 
+  @Value("${storage.local.listing-cache.ttl-seconds:30}")
+  private long listingCacheTtlSeconds;
+
+  @Value("${storage.local.listing-cache.max-entries:1000000}")
+  private long listingCacheMaxEntries;
+
+  private Cache<Path, FolderListing> listingCache;
+
+  @PostConstruct
+  public void init() {
+    listingCache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(listingCacheTtlSeconds))
+        .maximumWeight(listingCacheMaxEntries)
+        .weigher((Path path, FolderListing listing) -> listing.names().size() + 1)
+        .build();
+  }
+
   private File getObjectByPath(String rootPath, String objectPath)
       throws StudyStorageNotFoundException {
     try {
@@ -90,50 +120,103 @@ public class LocalFileSystemStorageService implements StudyStorageService {
   }
 
   /**
-   * Returns {@link StorageFile} instances for every file in the target folder, at the top level.
+   * Reads the attributes of a folder entry, returning null if the entry was removed or cannot
+   * be read after the folder was listed.
    *
-   * @param path
-   * @return
+   * @param path the folder entry
+   * @return the entry attributes, or null
    */
-  private List<StorageFile> getFolderFiles(Path path) {
+  private static BasicFileAttributes readAttributes(Path path) {
     try {
-      return Files.walk(path, 1)
-          .filter(Files::isRegularFile)
-          .map(
-              f -> {
-                StorageFile file = new StorageFile();
-                file.setPath(f);
-                file.setName(f.getFileName().toString());
-                file.setDownloadable(true);
-                return file;
-              })
-          .collect(Collectors.toList());
+      return Files.readAttributes(path, BasicFileAttributes.class);
     } catch (IOException e) {
-      throw new StudyTrackerException(e);
+      LOGGER.debug("Unable to read attributes of {}", path, e);
+      return null;
     }
   }
 
   /**
-   * Returns {@link StorageFolder} instances for every subfolder in the target folder.
+   * Adds the provided folder entry to the target folder, as a file or a subfolder, using its
+   *   previously-read attributes.
    *
-   * @param path
-   * @return
+   * @param folder the folder to add the entry to
+   * @param entry the entry path
+   * @param attributes the entry attributes
    */
-  private List<StorageFolder> getSubfolders(Path path) {
-    try {
-      return Files.walk(path, 1)
-          .filter(Files::isDirectory)
-          .filter(p -> !p.toString().equals(path.toString()))
-          .map(
-              d -> {
-                StorageFolder folder = new StorageFolder();
-                folder.setName(d.toFile().getName());
-                folder.setPath(d);
-                return folder;
-              })
-          .collect(Collectors.toList());
-    } catch (IOException e) {
-      throw new StudyTrackerException(e);
+  private static void addFolderEntry(StorageFolder folder, Path entry,
+      BasicFileAttributes attributes) {
+    if (attributes.isDirectory()) {
+      StorageFolder subFolder = new StorageFolder();
+      subFolder.setName(entry.getFileName().toString());
+      subFolder.setPath(entry);
+      subFolder.setLastModified(new Date(attributes.lastModifiedTime().toMillis()));
+      folder.getSubFolders().add(subFolder);
+    } else if (attributes.isRegularFile()) {
+      StorageFile file = new StorageFile();
+      file.setPath(entry);
+      file.setName(entry.getFileName().toString());
+      file.setSize(attributes.size());
+      file.setLastModified(new Date(attributes.lastModifiedTime().toMillis()));
+      file.setDownloadable(true);
+      folder.getFiles().add(file);
+    }
+  }
+
+  /**
+   * Creates a {@link StorageFolder} for the provided directory, without its contents.
+   *
+   * @param directory the directory
+   * @return the folder
+   */
+  private static StorageFolder createStorageFolder(File directory) {
+    StorageFolder folder = new StorageFolder();
+    folder.setPath(directory.getAbsolutePath());
+    folder.setName(directory.getName());
+    return folder;
+  }
+
+  /**
+   * Returns the sorted entry names of a directory, so that pages of large folders can be found
+   * without scanning them again. Only the names are cached, until they expire or the directory's
+   * modification time changes, which happens whenever an entry is added, removed or renamed.
+   * Entry attributes are always read fresh, since rewriting a file in place does not change the
+   * directory. Directories modified in the last few seconds are not cached, since a coarse
+   * modification time may not change again for an entry added straight after the listing was
+   * read.
+   *
+   * @param folderPath the directory
+   * @return the directory listing
+   */
+  private FolderListing getListing(Path folderPath) throws IOException {
+    Path key = folderPath.toAbsolutePath().normalize();
+    long modifiedTime = Files.getLastModifiedTime(key).toMillis();
+    FolderListing listing = listingCache.getIfPresent(key);
+    if (listing != null && listing.modifiedTime() == modifiedTime) {
+      return listing;
+    }
+    List<String> names = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(key)) {
+      for (Path entry : stream) {
+        names.add(entry.getFileName().toString());
+      }
+    }
+    Collections.sort(names);
+    listing = new FolderListing(modifiedTime, Collections.unmodifiableList(names));
+    if (System.currentTimeMillis() - modifiedTime > LISTING_SETTLE_MILLIS) {
+      listingCache.put(key, listing);
+    } else {
+      listingCache.invalidate(key);
+    }
+    return listing;
+  }
+
+  /**
+   * Discards the cached listing of a directory, so that changes made by this service are visible
+   * straight away, whatever the resolution of the directory's modification time.
+   */
+  private void evictListing(Path folderPath) {
+    if (folderPath != null) {
+      listingCache.invalidate(folderPath.toAbsolutePath().normalize());
     }
   }
 
@@ -141,14 +224,60 @@ public class LocalFileSystemStorageService implements StudyStorageService {
   public StorageFolder findFolderByPath(StorageDrive drive, String path)
       throws StudyStorageNotFoundException {
     File file = this.getFolderByPath(drive.getRootPath(), path);
-    StorageFolder folder = new StorageFolder();
-    folder.setPath(file.getAbsolutePath());
-    folder.setName(file.getName());
-    folder.setFiles(getFolderFiles(file.getAbsoluteFile().toPath()));
-    folder.setSubFolders(getSubfolders(file.getAbsoluteFile().toPath()));
+    Path folderPath = file.getAbsoluteFile().toPath();
+    StorageFolder folder = createStorageFolder(file);
+    try {
+      FolderListing listing = getListing(folderPath);
+      for (String name : listing.names()) {
+        Path entry = folderPath.resolve(name);
+        BasicFileAttributes attributes = readAttributes(entry);
+        if (attributes != null) {
+          addFolderEntry(folder, entry, attributes);
+        }
+      }
+    } catch (IOException e) {
+      throw new StudyTrackerException(e);
+    }
     return folder;
   }
 
+  /**
+   * Returns a page of the folder contents, ordered by name. The sorted entry names of the folder
+   * are cached, so each page is found with a binary search for the cursor rather than a new scan
+   * of the folder, and the attributes of entries are only read for those in the requested page.
+   * The page cursor is the name of the last entry in the previous page.
+   */
+  @Override
+  public StorageFolderPage findFolderPageByPath(StorageDriveFolder parentFolder, String path,
+      String cursor, int pageSize) throws StudyStorageNotFoundException {
+    File file = this.getFolderByPath(parentFolder.getStorageDrive().getRootPath(), path);
+    Path folderPath = file.getAbsoluteFile().toPath();
+    FolderListing listing;
+    try {
+      listing = getListing(folderPath);
+    } catch (IOException e) {
+      throw new StudyTrackerException(e);
+    }
+    List<String> names = listing.names();
+    int start = 0;
+    if (cursor != null) {
+      int index = Collections.binarySearch(names, cursor);
+      start = index >= 0 ? index + 1 : -index - 1;
+    }
+    int end = Math.min(start + pageSize, names.size());
+
+    StorageFolder folder = createStorageFolder(file);
+    for (String name : names.subList(start, end)) {
+      Path entry = folderPath.resolve(name);
+      BasicFileAttributes attributes = readAttributes(entry);
+      if (attributes != null) {
+        addFolderEntry(folder, entry, attributes);
+      }
+    }
+    String nextToken = end < names.size() && end > start ? names.get(end - 1) : null;
+    return new StorageFolderPage(folder, nextToken);
+  }
+
   @Override
   public StorageFolder findFolderByPath(StorageDriveFolder parentFolder, String path)
       throws StudyStorageNotFoundException {
@@ -165,6 +294,8 @@ public class LocalFileSystemStorageService implements StudyStorageService {
       file.renameTo(newFolder);
     } catch (Exception e) {
       throw new StudyStorageWriteException("Failed to rename folder at path: " + path, e);
+    } finally {
+      evictListing(file.getAbsoluteFile().toPath().getParent());
     }
     
     StorageFolder folder = new StorageFolder();
@@ -186,6 +317,10 @@ public class LocalFileSystemStorageService implements StudyStorageService {
       FileUtils.moveDirectoryToDirectory(existingFolder, targetFolder, true);
     } catch (IOException e) {
       throw new StudyStorageException("Failed to move folder: " + path, e);
+    } finally {
+      evictListing(existingFolder.getAbsoluteFile().toPath().getParent());
+      evictListing(targetFolder.getAbsoluteFile().toPath().getParent());
+      evictListing(targetFolder.getAbsoluteFile().toPath());
     }
     return this.findFolderByPath(storageDrive, targetFolder.getPath());
   }
@@ -225,6 +360,7 @@ public class LocalFileSystemStorageService implements StudyStorageService {
     // Create a new folder
     else {
       boolean success = newFolder.mkdir();
+      evictListing(newFolderPath.getParent());
       if (!success) {
         throw new StudyStorageWriteException(
             "Failed to create folder: " + newFolder.getAbsolutePath());
@@ -264,16 +400,37 @@ public class LocalFileSystemStorageService implements StudyStorageService {
   }
 
   @Override
-  public Resource fetchFile(StorageDriveFolder parentFolder, String path)
+  public StorageFileResource fetchFile(StorageDriveFolder parentFolder, String path)
       throws StudyStorageException {
     validatePath(parentFolder.getPath(), path);
+    Path filePath = Paths.get(path).normalize();
+    if (!Files.isRegularFile(filePath)) {
+      throw new StudyStorageNotFoundException("File not found: " + path);
+    }
     try {
-      return new ByteArrayResource(Files.readAllBytes(Paths.get(path).normalize()));
+      return new StorageFileResource(filePath.getFileName().toString(), Files.size(filePath),
+          StorageFileResource.parseMediaType(Files.probeContentType(filePath)),
+          (start, end) -> openFileRange(filePath, start, end), filePath.toAbsolutePath());
     } catch (IOException e) {
       throw new StudyStorageException("Failed to read file from path: " + path, e);
     }
   }
 
+  private static InputStream openFileRange(Path filePath, long start, long end)
+      throws IOException {
+    FileChannel channel = FileChannel.open(filePath);
+    try {
+      channel.position(start);
+      return BoundedInputStream.builder()
+          .setInputStream(Channels.newInputStream(channel))
+          .setMaxCount(end - start + 1)
+          .get();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
   private boolean fileExists(String path) {
     Path filePath = Paths.get(path).normalize();
     File file = filePath.toFile();
@@ -335,6 +492,8 @@ public class LocalFileSystemStorageService implements StudyStorageService {
       FileUtils.copyFile(file, newFile);
     } catch (Exception e) {
       throw new StudyTrackerException(e);
+    } finally {
+      evictListing(cleanPath);
     }
     StorageFile studyFile = new StorageFile();
     studyFile.setPath(newFilePath);
@@ -377,4 +536,10 @@ public class LocalFileSystemStorageService implements StudyStorageService {
     return this.saveStorageFolderRecord(drive, storageFolder, new StorageDriveFolder());
   }
 
+  /**
+   * Sorted entry names of a directory, and the directory's modification time when it was listed.
+   */
+  private record FolderListing(long modifiedTime, List<String> names) {
+  }
+
 }
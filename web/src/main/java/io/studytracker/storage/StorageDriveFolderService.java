@@ -83,6 +83,22 @@ public class StorageDriveFolderService {
     return folderRepository.findById(id);
   }
 
+  /**
+   * Returns the folder record registered for the provided path in the drive, if any. Paths are
+   *  matched with or without a trailing slash, since some storage services record folder paths
+   *  with one.
+   *
+   * @param drive drive containing the folder
+   * @param path the folder path
+   * @return the folder record, if one exists
+   */
+  public Optional<StorageDriveFolder> findByDriveAndPath(StorageDrive drive, String path) {
+    String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    return folderRepository.findByStorageDriveIdAndPath(drive.getId(), trimmed, trimmed + "/")
+        .stream()
+        .findFirst();
+  }
+
   public List<StorageDriveFolder> findByProgram(Program program) {
     return folderRepository.findByProgramId(program.getId());
   }
@@ -187,6 +203,27 @@ public class StorageDriveFolderService {
     folderRepository.deleteById(folder.getId());
   }
 
+  /**
+   * Renames a folder in storage and updates the records of it and of the folders beneath it in
+   *   the same transaction, so that storage changes queued by the rename, such as S3 folder moves,
+   *   only run once the updated records are saved.
+   *
+   * @param storageService the storage service for the drive
+   * @param drive the storage drive
+   * @param path the path of the folder to rename
+   * @param newName the new folder name
+   * @return the renamed folder
+   * @throws StudyStorageException if the folder cannot be renamed
+   */
+  @Transactional(rollbackFor = StudyStorageException.class)
+  public StorageFolder renameFolder(StudyStorageService storageService, StorageDrive drive,
+      String path, String newName) throws StudyStorageException {
+    String newPath = StorageUtils.joinPath(StorageUtils.getParentPathFromPath(path), newName);
+    StorageFolder storageFolder = storageService.renameFolder(drive, path, newName);
+    this.renameFolderReferences(drive, path, newPath);
+    return storageFolder;
+  }
+
   @Transactional
   public void renameFolderReferences(StorageDrive drive, String oldPath, String newPath) {
     LOGGER.info("Renaming folder references in drive: {} from {} to {}", drive.getId(), oldPath, newPath);
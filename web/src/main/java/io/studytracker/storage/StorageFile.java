@@ -19,6 +19,7 @@ package io.studytracker.storage;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.Date;
+import java.util.Objects;
 
 public class StorageFile implements StorageObject {
 
@@ -36,6 +37,19 @@ public class StorageFile implements StorageObject {
 
   private boolean downloadable = false;
 
+  public StorageFile() {
+  }
+
+  public StorageFile(StorageFile other) {
+    this.url = other.url;
+    this.path = other.path;
+    this.name = other.name;
+    this.lastModified = other.lastModified != null ? new Date(other.lastModified.getTime()) : null;
+    this.size = other.size;
+    this.fileId = other.fileId;
+    this.downloadable = other.downloadable;
+  }
+
   @Override
   public String getUrl() {
     return url;
@@ -108,6 +122,29 @@ public class StorageFile implements StorageObject {
     this.downloadable = canDownload;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof StorageFile)) {
+      return false;
+    }
+    StorageFile that = (StorageFile) o;
+    return downloadable == that.downloadable
+        && Objects.equals(url, that.url)
+        && Objects.equals(path, that.path)
+        && Objects.equals(name, that.name)
+        && Objects.equals(lastModified, that.lastModified)
+        && Objects.equals(size, that.size)
+        && Objects.equals(fileId, that.fileId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(url, path, name, lastModified, size, fileId, downloadable);
+  }
+
   @Override
   public String toString() {
     return "StorageFile{" +
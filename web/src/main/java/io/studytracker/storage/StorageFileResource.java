@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.http.MediaType;
+
+/**
+ * A {@link org.springframework.core.io.Resource} for a file in a storage drive, which streams the
+ * file contents from the underlying storage service when read, rather than buffering them in
+ * memory. Each call to {@link #getInputStream()} or {@link #getInputStream(long, long)} opens a
+ * new stream, which the caller is responsible for closing.
+ */
+public class StorageFileResource extends AbstractResource {
+
+  /**
+   * Opens a stream over an inclusive range of bytes in a stored file.
+   */
+  @FunctionalInterface
+  public interface ContentSource {
+
+    /**
+     * Opens a stream of the file contents, starting at byte {@code start} and ending at byte
+     * {@code end}, inclusive.
+     *
+     * @param start index of the first byte to read
+     * @param end index of the last byte to read
+     * @return the content stream
+     * @throws IOException if the file cannot be read
+     */
+    InputStream open(long start, long end) throws IOException;
+
+  }
+
+  private final String filename;
+  private final long contentLength;
+  private final MediaType contentType;
+  private final ContentSource source;
+  private final Path localPath;
+
+  public StorageFileResource(String filename, long contentLength, MediaType contentType,
+      ContentSource source) {
+    this(filename, contentLength, contentType, source, null);
+  }
+
+  /**
+   * Creates a resource for a file that is also accessible on the local file system, so that it
+   * can be sent to clients directly from the file, without being read into memory.
+   *
+   * @param filename the file name
+   * @param contentLength the file size, in bytes
+   * @param contentType the file media type
+   * @param source opens streams of the file contents
+   * @param localPath the location of the file on the local file system, or null
+   */
+  public StorageFileResource(String filename, long contentLength, MediaType contentType,
+      ContentSource source, Path localPath) {
+    this.filename = filename;
+    this.contentLength = contentLength;
+    this.contentType = contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM;
+    this.source = source;
+    this.localPath = localPath;
+  }
+
+  public StorageFileResource(String filename, long contentLength, String contentType,
+      ContentSource source) {
+    this(filename, contentLength, parseMediaType(contentType), source);
+  }
+
+  /**
+   * Parses a content type header value, returning null if it is missing or invalid.
+   *
+   * @param contentType the content type
+   * @return the media type, or null
+   */
+  public static MediaType parseMediaType(String contentType) {
+    if (contentType == null || contentType.isBlank()) {
+      return null;
+    }
+    try {
+      return MediaType.parseMediaType(contentType);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    if (contentLength == 0) {
+      return InputStream.nullInputStream();
+    }
+    return source.open(0, contentLength - 1);
+  }
+
+  /**
+   * Opens a stream over part of the file, from byte {@code start} to byte {@code end},
+   * inclusive.
+   *
+   * @param start index of the first byte to read
+   * @param end index of the last byte to read
+   * @return the content stream
+   * @throws IOException if the file cannot be read
+   */
+  public InputStream getInputStream(long start, long end) throws IOException {
+    if (start < 0 || end < start || end >= contentLength) {
+      throw new IllegalArgumentException("Invalid byte range " + start + "-" + end
+          + " for file of length " + contentLength);
+    }
+    return source.open(start, end);
+  }
+
+  @Override
+  public long contentLength() {
+    return contentLength;
+  }
+
+  public MediaType getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public String getFilename() {
+    return filename;
+  }
+
+  @Override
+  public boolean isFile() {
+    return localPath != null;
+  }
+
+  @Override
+  public File getFile() throws IOException {
+    if (localPath == null) {
+      throw new FileNotFoundException(getDescription() + " is not a local file");
+    }
+    return localPath.toFile();
+  }
+
+  @Override
+  public boolean exists() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Storage file [" + filename + "]";
+  }
+
+}
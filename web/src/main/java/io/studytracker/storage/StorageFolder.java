@@ -21,6 +21,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import org.springframework.data.annotation.Transient;
 
 public class StorageFolder implements StorageObject {
@@ -41,10 +42,43 @@ public class StorageFolder implements StorageObject {
 
   private boolean downloadable = false;
 
+  /**
+   * ID of the background move that is still copying the folder's contents to its location, for
+   * storage services that rename and move folders that way, or null once the folder is in place.
+   */
+  private Long moveId;
+
   @Transient private List<StorageFolder> subFolders = new ArrayList<>();
 
   @Transient private List<StorageFile> files = new ArrayList<>();
 
+  public StorageFolder() {
+  }
+
+  /**
+   * Creates a deep copy of a folder, including its parent folder, subfolders and files, so that
+   * changes to the copy do not affect the original.
+   *
+   * @param other the folder to copy
+   */
+  public StorageFolder(StorageFolder other) {
+    this.parentFolder = other.parentFolder != null ? new StorageFolder(other.parentFolder) : null;
+    this.url = other.url;
+    this.path = other.path;
+    this.name = other.name;
+    this.lastModified = other.lastModified != null ? new Date(other.lastModified.getTime()) : null;
+    this.totalSize = other.totalSize;
+    this.folderId = other.folderId;
+    this.downloadable = other.downloadable;
+    this.moveId = other.moveId;
+    for (StorageFolder subFolder : other.subFolders) {
+      this.subFolders.add(new StorageFolder(subFolder));
+    }
+    for (StorageFile file : other.files) {
+      this.files.add(new StorageFile(file));
+    }
+  }
+
   public StorageFolder getParentFolder() {
     return parentFolder;
   }
@@ -141,6 +175,14 @@ public class StorageFolder implements StorageObject {
     subFolders.add(folder);
   }
 
+  public Long getMoveId() {
+    return moveId;
+  }
+
+  public void setMoveId(Long moveId) {
+    this.moveId = moveId;
+  }
+
   public boolean isDownloadable() {
     return downloadable;
   }
@@ -149,6 +191,36 @@ public class StorageFolder implements StorageObject {
     this.downloadable = downloadable;
   }
 
+  /**
+   * Compares folders by their own attributes and contents, but not their parent folders.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof StorageFolder)) {
+      return false;
+    }
+    StorageFolder that = (StorageFolder) o;
+    return downloadable == that.downloadable
+        && Objects.equals(url, that.url)
+        && Objects.equals(path, that.path)
+        && Objects.equals(name, that.name)
+        && Objects.equals(lastModified, that.lastModified)
+        && Objects.equals(totalSize, that.totalSize)
+        && Objects.equals(folderId, that.folderId)
+        && Objects.equals(moveId, that.moveId)
+        && Objects.equals(subFolders, that.subFolders)
+        && Objects.equals(files, that.files);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(url, path, name, lastModified, totalSize, folderId, downloadable,
+        moveId, subFolders, files);
+  }
+
   @Override
   public String toString() {
     return "StorageFolder{" +
@@ -161,6 +233,7 @@ public class StorageFolder implements StorageObject {
         ", lastModified=" + lastModified +
         ", totalSize=" + totalSize +
         ", folderId='" + folderId + '\'' +
+        ", moveId=" + moveId +
         '}';
   }
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.storage.exception.StudyStorageException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds ZIP archives of storage folders and their contents, for any {@link StudyStorageService}.
+ * The folder tree is listed up front, so that size and file count limits are checked before
+ * anything is sent, and files are then fetched from storage with bounded parallelism and written
+ * into the archive in order as they arrive. Each download opens at most a fixed number of files
+ * ahead of the one being written, so it never runs ahead of the client reading the archive, and
+ * file contents are never staged on disk or in memory. The files are opened on a pool shared by
+ * all downloads, which separately bounds the storage connections they hold open together.
+ */
+@Service
+public class StorageFolderArchiveService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageFolderArchiveService.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Autowired
+  @Qualifier("storageArchiveExecutor")
+  private Executor storageArchiveExecutor;
+
+  @Value("${storage.archive.max-files:10000}")
+  private int maxFiles;
+
+  @Value("${storage.archive.max-size:10737418240}")
+  private long maxSize;
+
+  @Value("${storage.archive.read-ahead:2}")
+  private int readAhead;
+
+  /**
+   * A file or folder in an archive.
+   *
+   * @param name the entry name, relative to the archive root
+   * @param path the storage path of the file, or null for folders
+   */
+  public record Entry(String name, String path) {
+
+    public boolean isDirectory() {
+      return path == null;
+    }
+
+  }
+
+  /**
+   * The contents of a folder archive.
+   *
+   * @param name the name of the archived folder
+   * @param entries the archive entries, with each folder preceding its contents
+   * @param knownSize the total size of the files whose sizes were reported by storage
+   */
+  public record Archive(String name, List<Entry> entries, long knownSize) {
+
+    public long getFileCount() {
+      return entries.stream().filter(e -> !e.isDirectory()).count();
+    }
+
+  }
+
+  /**
+   * Lists the full contents of the folder at the provided path, checking that it is within the
+   * archive size and file count limits.
+   *
+   * @param storageService the storage service for the folder's drive
+   * @param folder the storage folder
+   * @param path the path of the folder to archive
+   * @return the archive contents
+   * @throws StudyStorageException if the folder or a subfolder cannot be read
+   * @throws InvalidRequestException if the folder exceeds the archive limits
+   */
+  public Archive listArchive(StudyStorageService storageService, StorageDriveFolder folder,
+      String path) throws StudyStorageException {
+    StorageFolder root = storageService.findFolderByPath(folder, path);
+    String rootName = toEntryName(root.getName());
+    List<Entry> entries = new ArrayList<>();
+    long knownSize = 0;
+    int fileCount = 0;
+
+    Deque<StorageFolder> folders = new ArrayDeque<>();
+    Deque<String> prefixes = new ArrayDeque<>();
+    folders.push(root);
+    prefixes.push(rootName + "/");
+    while (!folders.isEmpty()) {
+      StorageFolder current = folders.pop();
+      String prefix = prefixes.pop();
+      if (current != root) {
+        current = storageService.findFolderByPath(folder, current.getPath());
+      }
+      entries.add(new Entry(prefix, null));
+      for (StorageFile file : current.getFiles()) {
+        fileCount++;
+        if (fileCount > maxFiles) {
+          throw new InvalidRequestException("Folder contains more than " + maxFiles
+              + " files, which is the maximum that can be downloaded at once");
+        }
+        if (file.getSize() != null) {
+          knownSize += file.getSize();
+          if (knownSize > maxSize) {
+            throw new InvalidRequestException(
+                "Folder contents exceed the maximum download size of " + maxSize + " bytes");
+          }
+        }
+        entries.add(new Entry(prefix + toEntryName(file.getName()),
+            file.getPath()));
+      }
+      for (StorageFolder subFolder : current.getSubFolders()) {
+        folders.push(subFolder);
+        prefixes.push(prefix + toEntryName(subFolder.getName()) + "/");
+      }
+    }
+    LOGGER.debug("Listed {} entries for archive of folder {}", entries.size(), path);
+    return new Archive(rootName, entries, knownSize);
+  }
+
+  /**
+   * Writes a ZIP archive of the listed folder contents to the provided stream. The stream is
+   * not closed.
+   *
+   * @param storageService the storage service for the folder's drive
+   * @param folder the storage folder
+   * @param archive the archive contents, from {@link #listArchive}
+   * @param outputStream the stream to write the archive to
+   * @throws IOException if a file cannot be read, the archive cannot be written, or the files
+   *   exceed the maximum archive size
+   */
+  public void writeZip(StudyStorageService storageService, StorageDriveFolder folder,
+      Archive archive, OutputStream outputStream) throws IOException {
+    List<Entry> entries = archive.entries();
+    Deque<CompletableFuture<InputStream>> pending = new ArrayDeque<>();
+    int next = 0;
+    long totalBytes = 0;
+    ZipOutputStream zip = new ZipOutputStream(outputStream);
+    try {
+      for (Entry entry : entries) {
+        zip.putNextEntry(new ZipEntry(entry.name()));
+        if (!entry.isDirectory()) {
+
+          // Open the current file and the files after it, up to the read-ahead limit
+          while (next < entries.size() && pending.size() <= readAhead) {
+            Entry nextEntry = entries.get(next++);
+            if (!nextEntry.isDirectory()) {
+              pending.add(openEntry(storageService, folder, nextEntry));
+            }
+          }
+
+          try (InputStream in = await(pending.poll(), entry)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+              totalBytes += read;
+              if (totalBytes > maxSize) {
+                throw new IOException("Archive exceeds the maximum download size of "
+                    + maxSize + " bytes");
+              }
+              zip.write(buffer, 0, read);
+            }
+          }
+        }
+        zip.closeEntry();
+      }
+      zip.finish();
+      zip.flush();
+      LOGGER.info("Wrote archive of folder {} with {} files and {} bytes",
+          archive.name(), archive.getFileCount(), totalBytes);
+    } finally {
+      // Close any files opened ahead of a failed entry once they finish opening
+      for (CompletableFuture<InputStream> future : pending) {
+        future.thenAccept(StorageFolderArchiveService::closeQuietly);
+      }
+    }
+  }
+
+  /**
+   * Converts a storage object name into a single archive path segment, so that names cannot
+   *   create entries outside of their folder.
+   *
+   * @param name the object name
+   * @return the entry name
+   */
+  private static String toEntryName(String name) {
+    if (name == null || name.isBlank() || name.equals(".") || name.equals("..")) {
+      return "_";
+    }
+    return name.replace('/', '_').replace('\\', '_');
+  }
+
+  private CompletableFuture<InputStream> openEntry(StudyStorageService storageService,
+      StorageDriveFolder folder, Entry entry) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return storageService.fetchFile(folder, entry.path()).getInputStream();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (StudyStorageException e) {
+        throw new UncheckedIOException(new IOException(e.getMessage(), e));
+      }
+    }, storageArchiveExecutor);
+  }
+
+  private static InputStream await(CompletableFuture<InputStream> future, Entry entry)
+      throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause() instanceof UncheckedIOException
+          ? e.getCause().getCause() : e.getCause();
+      throw new IOException("Failed to read file for archive: " + entry.path(), cause);
+    }
+  }
+
+  private static void closeQuietly(InputStream inputStream) {
+    if (inputStream != null) {
+      try {
+        inputStream.close();
+      } catch (IOException e) {
+        LOGGER.debug("Failed to close archive file stream", e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage;
+
+import lombok.Data;
+
+/**
+ * A single page of a folder listing. The {@link #getFolder() folder} holds the files and
+ * subfolders in this page, and {@link #getNextToken()} is the cursor for requesting the next
+ * page, or null if this is the last page.
+ */
+@Data
+public class StorageFolderPage {
+
+  private StorageFolder folder;
+
+  private String nextToken;
+
+  public StorageFolderPage() {
+  }
+
+  public StorageFolderPage(StorageFolder folder, String nextToken) {
+    this.folder = folder;
+    this.nextToken = nextToken;
+  }
+
+  public boolean isLastPage() {
+    return nextToken == null;
+  }
+
+}
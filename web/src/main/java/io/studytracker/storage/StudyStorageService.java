@@ -22,7 +22,6 @@ import io.studytracker.model.StorageDriveFolderDetails;
 import io.studytracker.storage.exception.StudyStorageException;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import java.io.File;
-import org.springframework.core.io.Resource;
 
 /**
  * Base interface for a service that reads and writes study files to a connected file system.
@@ -73,6 +72,24 @@ public interface StudyStorageService {
    */
   StorageFolder findFolderByPath(StorageDrive drive, String path) throws StudyStorageNotFoundException;
   
+  /**
+   * Returns a single page of the contents of the folder at the provided path. Pass a null cursor
+   * to get the first page, and the {@link StorageFolderPage#getNextToken() next token} of each
+   * page to get the following page. Storage services that cannot list folders in pages return
+   * the full folder contents as a single page.
+   *
+   * @param parentFolder the storage folder
+   * @param path the path to the folder
+   * @param cursor token of the page to fetch, or null for the first page
+   * @param pageSize maximum number of files and subfolders in the page
+   * @return the folder page
+   * @throws StudyStorageNotFoundException if the folder does not exist
+   */
+  default StorageFolderPage findFolderPageByPath(StorageDriveFolder parentFolder, String path,
+      String cursor, int pageSize) throws StudyStorageNotFoundException {
+    return new StorageFolderPage(findFolderByPath(parentFolder, path), null);
+  }
+
   /**
    * Renames a folder at the given path.
    *
@@ -127,14 +144,17 @@ public interface StudyStorageService {
   StorageFile saveFile(StorageDriveFolder folder, String path, File file) throws StudyStorageException;
 
   /**
-   * Downloads the file at the provided path.
+   * Returns a resource that streams the file at the provided path, along with its length and
+   * content type. The file contents are only read when the resource's input stream is opened,
+   * and can be read in part using a byte range.
    *
    * @param folder the storage folder
    * @param path the path to the object to download
-   * @return the downloaded file byte stream
-   * @throws StudyStorageException if the file cannot be downloaded
+   * @return the file resource
+   * @throws StudyStorageException if the file cannot be found or accessed
    */
-  Resource fetchFile(StorageDriveFolder folder, String path) throws StudyStorageException;
+  StorageFileResource fetchFile(StorageDriveFolder folder, String path)
+      throws StudyStorageException;
 
   /**
    * Returns true if the file exists at the provided path.
@@ -24,7 +24,11 @@ import io.studytracker.model.StorageDrive.DriveType;
 import io.studytracker.model.StorageDriveFolder;
 import io.studytracker.msgraph.OneDriveStorageService;
 import io.studytracker.repository.StorageDriveRepository;
+import io.studytracker.storage.cache.CachingStudyStorageService;
+import io.studytracker.storage.cache.StorageMetadataCache;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +54,11 @@ public class StudyStorageServiceLookup {
   @Autowired
   private ApplicationContext context;
 
+  @Autowired
+  private StorageMetadataCache storageMetadataCache;
+
+  private final Map<DriveType, StudyStorageService> cachingServices = new ConcurrentHashMap<>();
+
   public Optional<StudyStorageService> lookup(StorageDriveFolder folder) {
     LOGGER.debug("Looking up StudyStorageService for storageDriveFolder: {}", folder);
     StorageDrive drive = storageDriveRepository.findById(folder.getStorageDrive().getId())
@@ -60,17 +69,30 @@ public class StudyStorageServiceLookup {
 
   public Optional<StudyStorageService> lookup(DriveType driveType) {
     LOGGER.debug("Looking up StudyStorageService for storageLocationType: {}", driveType);
+    StudyStorageService service = cachingServices.get(driveType);
+    if (service == null) {
+      StudyStorageService delegate = getStorageServiceBean(driveType);
+      if (delegate == null) {
+        return Optional.empty();
+      }
+      service = cachingServices.computeIfAbsent(driveType,
+          type -> CachingStudyStorageService.wrap(delegate, storageMetadataCache));
+    }
+    return Optional.of(service);
+  }
+
+  private StudyStorageService getStorageServiceBean(DriveType driveType) {
     switch (driveType) {
       case EGNYTE:
-        return Optional.of(context.getBean(EgnyteStudyStorageService.class));
+        return context.getBean(EgnyteStudyStorageService.class);
       case S3:
-        return Optional.of(context.getBean(S3StudyStorageService.class));
+        return context.getBean(S3StudyStorageService.class);
       case LOCAL:
-        return Optional.of(context.getBean(LocalFileSystemStorageService.class));
+        return context.getBean(LocalFileSystemStorageService.class);
       case ONEDRIVE:
-        return Optional.of(context.getBean(OneDriveStorageService.class));
+        return context.getBean(OneDriveStorageService.class);
       default:
-        return Optional.empty();
+        return null;
     }
   }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage.cache;
+
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.storage.DirectUpload;
+import io.studytracker.storage.DirectUploadCompletion;
+import io.studytracker.storage.DirectUploadStorageService;
+import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StudyStorageService;
+import io.studytracker.storage.exception.StudyStorageException;
+
+/**
+ * {@link CachingStudyStorageService} for storage services that support direct uploads.
+ */
+public class CachingDirectUploadStudyStorageService extends CachingStudyStorageService
+    implements DirectUploadStorageService {
+
+  private final DirectUploadStorageService directUploadDelegate;
+
+  protected CachingDirectUploadStudyStorageService(StudyStorageService delegate,
+      StorageMetadataCache cache) {
+    super(delegate, cache);
+    this.directUploadDelegate = (DirectUploadStorageService) delegate;
+  }
+
+  @Override
+  public DirectUpload createDirectUpload(StorageDriveFolder folder, String path,
+      String fileName, long size) throws StudyStorageException {
+    return directUploadDelegate.createDirectUpload(folder, path, fileName, size);
+  }
+
+  @Override
+  public StorageFile completeDirectUpload(StorageDriveFolder folder, String path,
+      DirectUploadCompletion completion) throws StudyStorageException {
+    StorageFile storageFile = directUploadDelegate.completeDirectUpload(folder, path, completion);
+    cache.invalidate(driveId(folder), path);
+    return storageFile;
+  }
+
+  @Override
+  public void abortDirectUpload(StorageDriveFolder folder, String path, String fileName,
+      String uploadId) throws StudyStorageException {
+    directUploadDelegate.abortDirectUpload(folder, path, fileName, uploadId);
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage.cache;
+
+import io.studytracker.model.StorageDrive;
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.storage.DirectUploadStorageService;
+import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
+import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
+import io.studytracker.storage.StudyStorageService;
+import io.studytracker.storage.exception.StudyStorageException;
+import io.studytracker.storage.exception.StudyStorageNotFoundException;
+import java.io.File;
+
+/**
+ * {@link StudyStorageService} decorator that serves folder listings and file and folder lookups
+ * from a {@link StorageMetadataCache}, falling through to the wrapped service on a miss. Writes
+ * made through this service invalidate the cached entries for the affected paths. Folders, folder
+ * pages and files are returned as copies of the cached values, so that callers can modify them
+ * without changing what the cache, or other callers, see.
+ */
+public class CachingStudyStorageService implements StudyStorageService {
+
+  private final StudyStorageService delegate;
+  protected final StorageMetadataCache cache;
+
+  protected CachingStudyStorageService(StudyStorageService delegate, StorageMetadataCache cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  /**
+   * Wraps the provided storage service, preserving its support for direct uploads.
+   *
+   * @param delegate the storage service to wrap
+   * @param cache the metadata cache
+   * @return the caching storage service
+   */
+  public static StudyStorageService wrap(StudyStorageService delegate,
+      StorageMetadataCache cache) {
+    if (delegate instanceof DirectUploadStorageService) {
+      return new CachingDirectUploadStudyStorageService(delegate, cache);
+    } else {
+      return new CachingStudyStorageService(delegate, cache);
+    }
+  }
+
+  public StudyStorageService getDelegate() {
+    return delegate;
+  }
+
+  protected static Long driveId(StorageDriveFolder folder) {
+    return folder.getStorageDrive().getId();
+  }
+
+  private static String scope(StorageDriveFolder folder) {
+    return "folder:" + folder.getPath();
+  }
+
+  private static StorageFolder copyOf(StorageFolder folder) {
+    return folder != null ? new StorageFolder(folder) : null;
+  }
+
+  private static StorageFile copyOf(StorageFile file) {
+    return file != null ? new StorageFile(file) : null;
+  }
+
+  @Override
+  public StorageFolder createFolder(StorageDriveFolder parentFolder, String name)
+      throws StudyStorageException {
+    StorageFolder folder = delegate.createFolder(parentFolder, name);
+    cache.invalidate(driveId(parentFolder), parentFolder.getPath());
+    return folder;
+  }
+
+  @Override
+  public StorageFolder createFolder(StorageDrive drive, String path, String name)
+      throws StudyStorageException {
+    StorageFolder folder = delegate.createFolder(drive, path, name);
+    cache.invalidate(drive.getId(), path);
+    return folder;
+  }
+
+  @Override
+  public StorageFolder findFolderByPath(StorageDriveFolder parentFolder, String path)
+      throws StudyStorageNotFoundException {
+    return copyOf(cache.get(driveId(parentFolder), path, "findFolder:" + scope(parentFolder),
+        () -> delegate.findFolderByPath(parentFolder, path)));
+  }
+
+  @Override
+  public StorageFolder findFolderByPath(StorageDrive drive, String path)
+      throws StudyStorageNotFoundException {
+    return copyOf(cache.get(drive.getId(), path, "findFolder",
+        () -> delegate.findFolderByPath(drive, path)));
+  }
+
+  @Override
+  public StorageFolderPage findFolderPageByPath(StorageDriveFolder parentFolder, String path,
+      String cursor, int pageSize) throws StudyStorageNotFoundException {
+    String operation = "findFolderPage:" + scope(parentFolder) + ":" + pageSize + ":" + cursor;
+    StorageFolderPage page = cache.get(driveId(parentFolder), path, operation,
+        () -> delegate.findFolderPageByPath(parentFolder, path, cursor, pageSize));
+    return page != null ? new StorageFolderPage(copyOf(page.getFolder()), page.getNextToken())
+        : null;
+  }
+
+  @Override
+  public StorageFolder renameFolder(StorageDrive storageDrive, String path, String newName)
+      throws StudyStorageException {
+    StorageFolder folder = delegate.renameFolder(storageDrive, path, newName);
+    cache.invalidate(storageDrive.getId(), path);
+    if (folder != null) {
+      cache.invalidate(storageDrive.getId(), folder.getPath());
+    }
+    return folder;
+  }
+
+  @Override
+  public StorageFolder moveFolder(StorageDrive storageDrive, String path, String newParentPath)
+      throws StudyStorageException {
+    StorageFolder folder = delegate.moveFolder(storageDrive, path, newParentPath);
+    cache.invalidate(storageDrive.getId(), path);
+    cache.invalidate(storageDrive.getId(), newParentPath);
+    return folder;
+  }
+
+  @Override
+  public StorageFile findFileByPath(StorageDriveFolder parentFolder, String path)
+      throws StudyStorageNotFoundException {
+    return copyOf(cache.get(driveId(parentFolder), path, "findFile:" + scope(parentFolder),
+        () -> delegate.findFileByPath(parentFolder, path)));
+  }
+
+  @Override
+  public StorageFile findFileByPath(StorageDrive drive, String path)
+      throws StudyStorageNotFoundException {
+    return copyOf(cache.get(drive.getId(), path, "findFile",
+        () -> delegate.findFileByPath(drive, path)));
+  }
+
+  @Override
+  public StorageFile saveFile(StorageDriveFolder folder, String path, File file)
+      throws StudyStorageException {
+    StorageFile storageFile = delegate.saveFile(folder, path, file);
+    cache.invalidate(driveId(folder), path);
+    return storageFile;
+  }
+
+  @Override
+  public StorageFileResource fetchFile(StorageDriveFolder folder, String path)
+      throws StudyStorageException {
+    return delegate.fetchFile(folder, path);
+  }
+
+  @Override
+  public boolean fileExists(StorageDriveFolder folder, String path) {
+    return cache.get(driveId(folder), path, "fileExists:" + scope(folder),
+        () -> delegate.fileExists(folder, path));
+  }
+
+  @Override
+  public boolean fileExists(StorageDrive drive, String path) {
+    return cache.get(drive.getId(), path, "fileExists",
+        () -> delegate.fileExists(drive, path));
+  }
+
+  @Override
+  public boolean folderExists(StorageDriveFolder folder, String path) {
+    return cache.get(driveId(folder), path, "folderExists:" + scope(folder),
+        () -> delegate.folderExists(folder, path));
+  }
+
+  @Override
+  public boolean folderExists(StorageDrive drive, String path) {
+    return cache.get(drive.getId(), path, "folderExists",
+        () -> delegate.folderExists(drive, path));
+  }
+
+  @Override
+  public StorageDriveFolder saveStorageFolderRecord(StorageDrive drive,
+      StorageFolder storageFolder, StorageDriveFolder folderOptions) {
+    return delegate.saveStorageFolderRecord(drive, storageFolder, folderOptions);
+  }
+
+  @Override
+  public StorageDriveFolder saveStorageFolderRecord(StorageDrive drive,
+      StorageFolder storageFolder) {
+    return delegate.saveStorageFolderRecord(drive, storageFolder);
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory {@link StorageMetadataCache}, with a short time-to-live so that changes made outside
+ * the application are picked up quickly, and a maximum number of entries. Hit and miss counts
+ * are published to the meter registry as the {@code storage.metadata} cache.
+ *
+ * <p>Entries are held as futures, so that concurrent misses for the same entry share a single
+ * load, and a load that is still running when its entry is invalidated completes only for the
+ * callers already waiting on it, rather than putting its result back into the cache. The keys of
+ * each drive are indexed, so that invalidating a path only checks the entries of its own drive.
+ * The index is updated inside the cache's atomic operations for each key, so that it always
+ * matches the cache's contents.
+ */
+public class CaffeineStorageMetadataCache implements StorageMetadataCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CaffeineStorageMetadataCache.class);
+
+  public static final String CACHE_NAME = "storage.metadata";
+
+  private final AsyncCache<CacheKey, Object> cache;
+
+  private final Map<Long, Set<CacheKey>> keysByDrive = new ConcurrentHashMap<>();
+
+  public CaffeineStorageMetadataCache(Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+    this.cache = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .evictionListener((CacheKey key, Object value, RemovalCause cause) -> unindex(key))
+        .recordStats()
+        .buildAsync();
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T get(Long driveId, String path, String operation,
+      Loader<T, E> loader) throws E {
+    CacheKey key = new CacheKey(driveId, normalizePath(path), operation);
+    CompletableFuture<Object> created = new CompletableFuture<>();
+    CompletableFuture<Object> future = cache.get(key, (k, executor) -> {
+      index(k);
+      return created;
+    });
+
+    if (future != created) {
+      LOGGER.trace("Storage metadata cache hit: {}", key);
+      try {
+        return (T) future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        } else if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        throw (E) e.getCause();
+      }
+    }
+
+    try {
+      T loaded = loader.load();
+      created.complete(loaded);
+      if (loaded == null) {
+        discard(key, created);
+      }
+      return loaded;
+    } catch (Throwable t) {
+      created.completeExceptionally(t);
+      discard(key, created);
+      throw t;
+    }
+  }
+
+  @Override
+  public void invalidate(Long driveId, String path) {
+    String normalized = normalizePath(path);
+    LOGGER.debug("Invalidating storage metadata for drive {} and path '{}'", driveId, normalized);
+    Set<CacheKey> keys = keysByDrive.get(driveId);
+    if (keys == null) {
+      return;
+    }
+    List<CacheKey> related = keys.stream()
+        .filter(key -> isRelatedPath(key.path(), normalized))
+        .toList();
+    related.forEach(this::remove);
+  }
+
+  @Override
+  public void invalidateAll() {
+    for (Set<CacheKey> keys : keysByDrive.values()) {
+      List.copyOf(keys).forEach(this::remove);
+    }
+  }
+
+  public CacheStats getStats() {
+    return cache.synchronous().stats();
+  }
+
+  private void remove(CacheKey key) {
+    cache.asMap().compute(key, (k, existing) -> {
+      unindex(k);
+      return null;
+    });
+  }
+
+  /**
+   * Removes an entry whose load failed or found nothing, if it has not already been replaced, so
+   * that the next request loads it again.
+   */
+  private void discard(CacheKey key, CompletableFuture<Object> future) {
+    cache.asMap().compute(key, (k, existing) -> {
+      if (existing == null || existing == future) {
+        unindex(k);
+        return null;
+      }
+      return existing;
+    });
+  }
+
+  private void index(CacheKey key) {
+    keysByDrive.compute(key.driveId(), (id, keys) -> {
+      Set<CacheKey> driveKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+      driveKeys.add(key);
+      return driveKeys;
+    });
+  }
+
+  private void unindex(CacheKey key) {
+    keysByDrive.computeIfPresent(key.driveId(), (id, keys) -> {
+      keys.remove(key);
+      return keys.isEmpty() ? null : keys;
+    });
+  }
+
+  private static String normalizePath(String path) {
+    if (path == null) {
+      return "";
+    }
+    String normalized = path.trim();
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    while (normalized.endsWith("/")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    return normalized;
+  }
+
+  /**
+   * Returns true if one path is the same as, or an ancestor of, the other.
+   */
+  private static boolean isRelatedPath(String a, String b) {
+    return a.isEmpty() || b.isEmpty() || a.equals(b)
+        || a.startsWith(b + "/") || b.startsWith(a + "/");
+  }
+
+  private record CacheKey(Long driveId, String path, String operation) {
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.storage.cache;
+
+/**
+ * Cache of storage drive metadata, such as folder listings and file and folder existence checks,
+ * used to avoid repeating round trips to remote storage services. Entries are identified by
+ * the storage drive, the path they describe, and the operation that produced them.
+ */
+public interface StorageMetadataCache {
+
+  /**
+   * Loads a value from a storage service.
+   *
+   * @param <T> the value type
+   * @param <E> the exception thrown when the value cannot be loaded
+   */
+  @FunctionalInterface
+  interface Loader<T, E extends Exception> {
+
+    T load() throws E;
+
+  }
+
+  /**
+   * Returns the cached value for an operation on a path, or loads and caches it if it is not
+   * present. Exceptions thrown by the loader are not cached.
+   *
+   * @param driveId ID of the storage drive
+   * @param path the path the value describes
+   * @param operation name of the operation, including any arguments other than the path
+   * @param loader loads the value if it is not cached
+   * @return the value
+   * @throws E if the value cannot be loaded
+   */
+  <T, E extends Exception> T get(Long driveId, String path, String operation,
+      Loader<T, E> loader) throws E;
+
+  /**
+   * Removes all entries for a path on a drive, along with the entries of its ancestor folders,
+   * whose listings include it, and of everything beneath it.
+   *
+   * @param driveId ID of the storage drive
+   * @param path the modified path
+   */
+  void invalidate(Long driveId, String path);
+
+  /**
+   * Removes all entries.
+   */
+  void invalidateAll();
+
+}
@@ -0,0 +1,5 @@
+CREATE INDEX idx_study_status_active ON studies (status, active);
+
+CREATE INDEX idx_study_owner ON studies (owner);
+
+CREATE INDEX idx_study_collaborator ON studies (collaborator_id);
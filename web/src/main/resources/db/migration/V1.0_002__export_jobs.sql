@@ -0,0 +1,27 @@
+CREATE TABLE export_jobs
+(
+    id               BIGINT                      NOT NULL,
+    job_id           VARCHAR(64)                 NOT NULL,
+    status           VARCHAR(32)                 NOT NULL,
+    created_by       BIGINT                      NOT NULL,
+    total_tables     INTEGER                     NOT NULL,
+    completed_tables INTEGER                     NOT NULL,
+    row_count        BIGINT                      NOT NULL,
+    current_table    VARCHAR(255),
+    file_path        VARCHAR(1024),
+    file_size        BIGINT,
+    message          VARCHAR(2048),
+    started_at       TIMESTAMP WITHOUT TIME ZONE,
+    completed_at     TIMESTAMP WITHOUT TIME ZONE,
+    created_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_export_jobs PRIMARY KEY (id)
+);
+
+ALTER TABLE export_jobs
+    ADD CONSTRAINT uq_export_jobs_job_id UNIQUE (job_id);
+
+ALTER TABLE export_jobs
+    ADD CONSTRAINT fk_export_jobs_on_created_by FOREIGN KEY (created_by) REFERENCES users (id);
+
+CREATE INDEX idx_export_jobs_status ON export_jobs (status);
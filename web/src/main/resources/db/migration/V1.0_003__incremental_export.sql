@@ -0,0 +1,16 @@
+CREATE TABLE deleted_records
+(
+    id         BIGINT                      NOT NULL,
+    table_name VARCHAR(64)                 NOT NULL,
+    record_id  BIGINT                      NOT NULL,
+    deleted_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_deleted_records PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_deleted_records_deleted_at ON deleted_records (deleted_at);
+
+ALTER TABLE export_jobs
+    ADD COLUMN changed_since TIMESTAMP WITHOUT TIME ZONE;
+
+ALTER TABLE export_jobs
+    ADD COLUMN watermark TIMESTAMP WITHOUT TIME ZONE;
@@ -0,0 +1,2 @@
+ALTER TABLE export_jobs
+    ADD COLUMN export_format VARCHAR(16) NOT NULL DEFAULT 'CSV';
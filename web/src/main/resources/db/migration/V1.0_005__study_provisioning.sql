@@ -0,0 +1,23 @@
+CREATE TABLE study_provisioning_tasks
+(
+    id           BIGINT                      NOT NULL,
+    study_id     BIGINT                      NOT NULL,
+    step         VARCHAR(32)                 NOT NULL,
+    status       VARCHAR(32)                 NOT NULL,
+    target_id    BIGINT,
+    reference    VARCHAR(255),
+    attempts     INTEGER                     NOT NULL,
+    message      VARCHAR(2048),
+    started_at   TIMESTAMP WITHOUT TIME ZONE,
+    completed_at TIMESTAMP WITHOUT TIME ZONE,
+    created_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at   TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_study_provisioning_tasks PRIMARY KEY (id)
+);
+
+ALTER TABLE study_provisioning_tasks
+    ADD CONSTRAINT fk_study_provisioning_tasks_on_study FOREIGN KEY (study_id) REFERENCES studies (id);
+
+CREATE INDEX idx_study_provisioning_tasks_study ON study_provisioning_tasks (study_id);
+
+CREATE INDEX idx_study_provisioning_tasks_status ON study_provisioning_tasks (status);
@@ -0,0 +1,23 @@
+CREATE TABLE import_jobs
+(
+    id               BIGINT                      NOT NULL,
+    job_id           VARCHAR(64)                 NOT NULL,
+    status           VARCHAR(32)                 NOT NULL,
+    file_name        VARCHAR(1024)               NOT NULL,
+    requested_by     VARCHAR(255)                NOT NULL,
+    total_tables     INTEGER                     NOT NULL,
+    completed_tables INTEGER                     NOT NULL,
+    row_count        BIGINT                      NOT NULL,
+    current_table    VARCHAR(255),
+    message          VARCHAR(2048),
+    started_at       TIMESTAMP WITHOUT TIME ZONE,
+    completed_at     TIMESTAMP WITHOUT TIME ZONE,
+    created_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_import_jobs PRIMARY KEY (id)
+);
+
+ALTER TABLE import_jobs
+    ADD CONSTRAINT uq_import_jobs_job_id UNIQUE (job_id);
+
+CREATE INDEX idx_import_jobs_status ON import_jobs (status);
@@ -0,0 +1,17 @@
+CREATE TABLE s3_folder_moves
+(
+    id               BIGINT                      NOT NULL,
+    storage_drive_id BIGINT                      NOT NULL,
+    source_prefix    VARCHAR(2048)               NOT NULL,
+    target_prefix    VARCHAR(2048)               NOT NULL,
+    status           VARCHAR(32)                 NOT NULL,
+    moved_objects    BIGINT                      NOT NULL,
+    attempts         INTEGER                     NOT NULL,
+    message          VARCHAR(2048),
+    completed_at     TIMESTAMP WITHOUT TIME ZONE,
+    created_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_s3_folder_moves PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_s3_folder_moves_drive_status ON s3_folder_moves (storage_drive_id, status);
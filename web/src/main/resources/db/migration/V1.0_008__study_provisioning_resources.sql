@@ -0,0 +1,2 @@
+ALTER TABLE study_provisioning_tasks
+    ADD COLUMN resource_id VARCHAR(1024);
@@ -0,0 +1,14 @@
+CREATE TABLE s3_multipart_uploads
+(
+    id         BIGINT                      NOT NULL,
+    bucket     VARCHAR(255)                NOT NULL,
+    object_key VARCHAR(2048)               NOT NULL,
+    upload_id  VARCHAR(1024)               NOT NULL,
+    status     VARCHAR(32)                 NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_s3_multipart_uploads PRIMARY KEY (id),
+    CONSTRAINT uc_s3_multipart_uploads_upload_id UNIQUE (upload_id)
+);
+
+CREATE INDEX idx_s3_multipart_uploads_bucket_key ON s3_multipart_uploads (bucket, object_key);
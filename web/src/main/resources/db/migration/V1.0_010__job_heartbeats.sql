@@ -0,0 +1,11 @@
+ALTER TABLE export_jobs
+    ADD COLUMN owner_node VARCHAR(255);
+
+ALTER TABLE export_jobs
+    ADD COLUMN heartbeat_at TIMESTAMP WITHOUT TIME ZONE;
+
+ALTER TABLE import_jobs
+    ADD COLUMN owner_node VARCHAR(255);
+
+ALTER TABLE import_jobs
+    ADD COLUMN heartbeat_at TIMESTAMP WITHOUT TIME ZONE;
@@ -23,6 +23,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -31,6 +32,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.studytracker.Application;
 import io.studytracker.aws.AwsIntegrationService;
+import io.studytracker.aws.S3StudyStorageService;
 import io.studytracker.example.ExampleDataRunner;
 import io.studytracker.exception.RecordNotFoundException;
 import io.studytracker.mapstruct.dto.form.AssayFormDto;
@@ -43,21 +45,36 @@ import io.studytracker.model.Assay;
 import io.studytracker.model.AssayType;
 import io.studytracker.model.AwsIntegration;
 import io.studytracker.model.Program;
+import io.studytracker.model.S3FolderMove;
+import io.studytracker.model.S3FolderMoveStatus;
 import io.studytracker.model.Status;
 import io.studytracker.model.StorageDrive;
 import io.studytracker.model.StorageDrive.DriveType;
 import io.studytracker.model.StorageDriveFolder;
 import io.studytracker.model.Study;
+import io.studytracker.model.StudyProvisioningStatus;
 import io.studytracker.model.User;
 import io.studytracker.repository.AssayRepository;
 import io.studytracker.repository.AssayTypeRepository;
 import io.studytracker.repository.AwsIntegrationRepository;
 import io.studytracker.repository.ProgramRepository;
+import io.studytracker.repository.S3FolderMoveRepository;
 import io.studytracker.repository.StorageDriveFolderRepository;
 import io.studytracker.repository.StorageDriveRepository;
 import io.studytracker.repository.StudyRepository;
 import io.studytracker.repository.UserRepository;
+import io.studytracker.service.StudyProvisioningService;
+import io.studytracker.storage.DirectUpload;
+import io.studytracker.storage.DirectUploadCompletion;
 import io.studytracker.storage.StorageDriveFolderService;
+import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
+import io.studytracker.storage.exception.StudyStorageDuplicateException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Date;
 import org.junit.Assert;
@@ -73,7 +90,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
 @RunWith(SpringRunner.class)
@@ -104,6 +124,10 @@ public class AwsWebControllerTests {
   @Autowired private StorageDriveRepository storageDriveRepository;
   @Autowired private StorageDriveFolderRepository folderRepository;
   @Autowired private StorageDriveFolderService storageDriveFolderService;
+  @Autowired private S3StudyStorageService s3StudyStorageService;
+  @Autowired private S3FolderMoveRepository s3FolderMoveRepository;
+  @Autowired private StudyProvisioningService studyProvisioningService;
+  @Autowired private PlatformTransactionManager transactionManager;
 
   private String username;
 
@@ -264,11 +288,9 @@ public class AwsWebControllerTests {
         .andExpect(jsonPath("$.id", notNullValue()))
         .andExpect(jsonPath("$", hasKey("code")))
         .andExpect(jsonPath("$.code", is("CPA-103")))
-        .andExpect(jsonPath("$.storageFolders", hasSize(1)))
     ;
 
-    Study created = studyRepository.findByCode("CPA-103")
-        .orElseThrow(RecordNotFoundException::new);
+    Study created = awaitProvisioning("CPA-103");
     Assert.assertEquals(1, created.getStorageFolders().size());
     StorageDriveFolder folder = folderRepository.findByStudyId(created.getId()).get(0);
     Assert.assertNotEquals(DriveType.S3, folder.getStorageDrive().getDriveType());
@@ -304,11 +326,9 @@ public class AwsWebControllerTests {
         .andExpect(jsonPath("$.id", notNullValue()))
         .andExpect(jsonPath("$", hasKey("code")))
         .andExpect(jsonPath("$.code", is("CPA-104")))
-        .andExpect(jsonPath("$.storageFolders", hasSize(2)))
     ;
 
-    created = studyRepository.findByCode("CPA-104")
-        .orElseThrow(RecordNotFoundException::new);
+    created = awaitProvisioning("CPA-104");
     Assert.assertEquals(2, created.getStorageFolders().size());
     folder = folderRepository.findByStudyId(created.getId())
         .stream()
@@ -413,4 +433,275 @@ public class AwsWebControllerTests {
 
   }
 
+  private StorageDriveFolder findS3RootFolder() {
+    return storageDriveFolderService.findStudyRootFolders()
+        .stream()
+        .filter(f -> f.getStorageDrive().getDriveType() == DriveType.S3)
+        .findFirst()
+        .orElseThrow(() -> new RecordNotFoundException("No S3 root folder found"));
+  }
+
+  private DirectUpload startDirectUpload(StorageDriveFolder folder, String fileName, long size)
+      throws Exception {
+    MvcResult result = mockMvc.perform(post("/api/internal/data-files/direct-upload")
+            .param("path", folder.getPath())
+            .param("folderId", folder.getId().toString())
+            .param("fileName", fileName)
+            .param("size", String.valueOf(size))
+            .with(user(username)).with(csrf()))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.type", is("S3_MULTIPART")))
+        .andExpect(jsonPath("$.uploadId", notNullValue()))
+        .andExpect(jsonPath("$.parts", hasSize(1)))
+        .andReturn();
+    return objectMapper.readValue(result.getResponse().getContentAsByteArray(),
+        DirectUpload.class);
+  }
+
+  @Test
+  public void directUploadTest() throws Exception {
+
+    registerRootS3FolderTest();
+    StorageDriveFolder s3Root = findS3RootFolder();
+    byte[] content = "This is a direct upload test".getBytes(StandardCharsets.UTF_8);
+    String fileName = "direct-upload-test.txt";
+
+    DirectUpload upload = startDirectUpload(s3Root, fileName, content.length);
+
+    // Send the file straight to S3 using the presigned part URL
+    DirectUpload.Part part = upload.getParts().get(0);
+    HttpResponse<Void> response = HttpClient.newHttpClient().send(
+        HttpRequest.newBuilder(URI.create(part.getUrl()))
+            .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+            .build(),
+        HttpResponse.BodyHandlers.discarding());
+    Assert.assertEquals(200, response.statusCode());
+    String etag = response.headers().firstValue("ETag").orElse(null);
+    Assert.assertNotNull(etag);
+
+    DirectUploadCompletion completion = new DirectUploadCompletion();
+    completion.setUploadId(upload.getUploadId());
+    completion.setFileName(fileName);
+    completion.setSize(content.length);
+    DirectUploadCompletion.Part completedPart = new DirectUploadCompletion.Part();
+    completedPart.setPartNumber(part.getPartNumber());
+    completedPart.setEtag(etag);
+    completion.getParts().add(completedPart);
+
+    mockMvc.perform(post("/api/internal/data-files/direct-upload/complete")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .with(user(username)).with(csrf())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsBytes(completion)))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.name", is(fileName)))
+        .andExpect(jsonPath("$.size", is(content.length)));
+
+  }
+
+  @Test
+  public void abortDirectUploadTest() throws Exception {
+
+    registerRootS3FolderTest();
+    StorageDriveFolder s3Root = findS3RootFolder();
+    String fileName = "aborted-upload-test.txt";
+
+    DirectUpload upload = startDirectUpload(s3Root, fileName, 1024L);
+
+    mockMvc.perform(delete("/api/internal/data-files/direct-upload")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .param("fileName", fileName)
+            .param("uploadId", upload.getUploadId())
+            .with(user(username)).with(csrf()))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isNoContent());
+
+    // The multipart upload no longer exists, so it cannot be completed
+    DirectUploadCompletion completion = new DirectUploadCompletion();
+    completion.setUploadId(upload.getUploadId());
+    completion.setFileName(fileName);
+    completion.setSize(1024L);
+    mockMvc.perform(post("/api/internal/data-files/direct-upload/complete")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .with(user(username)).with(csrf())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsBytes(completion)))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().is5xxServerError());
+
+  }
+
+  @Test
+  public void directUploadReadOnlyFolderTest() throws Exception {
+
+    registerRootS3FolderTest();
+    StorageDriveFolder s3Root = findS3RootFolder();
+    DirectUpload upload = startDirectUpload(s3Root, "read-only-test.txt", 1024L);
+
+    s3Root.setWriteEnabled(false);
+    folderRepository.save(s3Root);
+
+    mockMvc.perform(post("/api/internal/data-files/direct-upload")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .param("fileName", "read-only-test-2.txt")
+            .param("size", "1024")
+            .with(user(username)).with(csrf()))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isForbidden());
+
+    mockMvc.perform(delete("/api/internal/data-files/direct-upload")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .param("fileName", "read-only-test.txt")
+            .param("uploadId", upload.getUploadId())
+            .with(user(username)).with(csrf()))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isForbidden());
+
+    s3Root.setWriteEnabled(true);
+    folderRepository.save(s3Root);
+    mockMvc.perform(delete("/api/internal/data-files/direct-upload")
+            .param("path", s3Root.getPath())
+            .param("folderId", s3Root.getId().toString())
+            .param("fileName", "read-only-test.txt")
+            .param("uploadId", upload.getUploadId())
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isNoContent());
+
+  }
+
+  @Test
+  public void folderPageTest() throws Exception {
+
+    registerRootS3FolderTest();
+    StorageDriveFolder s3Root = findS3RootFolder();
+    StorageDrive drive = storageDriveRepository.findById(s3Root.getStorageDrive().getId())
+        .orElseThrow(RecordNotFoundException::new);
+    String name = "page-test-" + System.currentTimeMillis();
+    StorageFolder folder = s3StudyStorageService.createFolder(drive, s3Root.getPath(), name);
+    for (int i = 0; i < 3; i++) {
+      s3StudyStorageService.createFolder(drive, folder.getPath(), "folder-" + i);
+    }
+
+    // Without a path, the root of the storage folder is listed
+    mockMvc.perform(get("/api/internal/data-files/page")
+            .param("folderId", s3Root.getId().toString())
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.folder", notNullValue()));
+
+    MvcResult result = mockMvc.perform(get("/api/internal/data-files/page")
+            .param("folderId", s3Root.getId().toString())
+            .param("path", folder.getPath())
+            .param("pageSize", "2")
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.nextToken", notNullValue()))
+        .andReturn();
+    String nextToken = objectMapper.readValue(result.getResponse().getContentAsByteArray(),
+        StorageFolderPage.class).getNextToken();
+    mockMvc.perform(get("/api/internal/data-files/page")
+            .param("folderId", s3Root.getId().toString())
+            .param("path", folder.getPath())
+            .param("pageSize", "2")
+            .param("cursor", nextToken)
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.folder", notNullValue()));
+
+    mockMvc.perform(get("/api/internal/data-files/page")
+            .param("folderId", s3Root.getId().toString())
+            .param("pageSize", "0")
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isBadRequest());
+
+  }
+
+  @Test
+  public void renameFolderTest() throws Exception {
+
+    registerRootS3FolderTest();
+    StorageDriveFolder s3Root = findS3RootFolder();
+    StorageDrive drive = storageDriveRepository.findById(s3Root.getStorageDrive().getId())
+        .orElseThrow(RecordNotFoundException::new);
+    String name = "rename-test-" + System.currentTimeMillis();
+    StorageFolder folder = s3StudyStorageService.createFolder(drive, s3Root.getPath(), name);
+    StorageFolder existing = s3StudyStorageService.createFolder(drive, s3Root.getPath(),
+        name + "_existing");
+
+    // Renaming onto an existing folder is refused, and nothing is moved
+    Exception exception = null;
+    try {
+      s3StudyStorageService.renameFolder(drive, folder.getPath(), existing.getName());
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageDuplicateException);
+    Assert.assertEquals(0, s3FolderMoveRepository.count());
+
+    // A rename whose transaction rolls back is never recorded or run
+    new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+      try {
+        s3StudyStorageService.renameFolder(drive, folder.getPath(), name + "_rolled_back");
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      tx.setRollbackOnly();
+    });
+    Assert.assertEquals(0, s3FolderMoveRepository.count());
+    Assert.assertTrue(s3StudyStorageService.folderExists(drive, folder.getPath()));
+
+    // The rename is recorded and the objects are moved in the background, and the move's status
+    // can be checked with the ID returned with the folder
+    StorageFolder renamed = s3StudyStorageService.renameFolder(drive, folder.getPath(),
+        name + "_renamed");
+    Assert.assertEquals(name + "_renamed", renamed.getName());
+    Assert.assertNotNull(renamed.getMoveId());
+    Assert.assertEquals(1, s3FolderMoveRepository.count());
+    S3FolderMove move = s3FolderMoveRepository.findById(renamed.getMoveId()).orElseThrow();
+    for (int i = 0; i < 60 && move.getStatus() != S3FolderMoveStatus.COMPLETED; i++) {
+      Thread.sleep(500);
+      move = s3FolderMoveRepository.findById(move.getId()).orElseThrow();
+    }
+    Assert.assertEquals(S3FolderMoveStatus.COMPLETED, move.getStatus());
+    mockMvc.perform(get("/api/internal/data-files/folder-moves/" + move.getId())
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status", is("COMPLETED")))
+        .andExpect(jsonPath("$.finished", is(true)))
+        .andExpect(jsonPath("$.targetPrefix", is(renamed.getPath())));
+    Assert.assertEquals(1, move.getMovedObjects());
+    Assert.assertEquals(renamed.getPath(), move.getTargetPrefix());
+
+    // Repeating the completed rename does not start another move
+    StorageFolder repeated = s3StudyStorageService.renameFolder(drive, folder.getPath(),
+        name + "_renamed");
+    Assert.assertEquals(renamed.getPath(), repeated.getPath());
+    Assert.assertEquals(1, s3FolderMoveRepository.count());
+
+  }
+
+  /**
+   * Study resources are provisioned in the background after the study is created, so this waits
+   * for every provisioning step of the study to finish before returning it.
+   */
+  private Study awaitProvisioning(String code) throws Exception {
+    Study study = studyRepository.findByCode(code).orElseThrow(RecordNotFoundException::new);
+    long deadline = System.currentTimeMillis() + 30000;
+    while (studyProvisioningService.findTasks(study).stream().anyMatch(t ->
+        t.getStatus() == StudyProvisioningStatus.PENDING
+            || t.getStatus() == StudyProvisioningStatus.RUNNING)) {
+      Assert.assertTrue("Provisioning of " + code + " did not finish",
+          System.currentTimeMillis() < deadline);
+      Thread.sleep(100);
+    }
+    return studyRepository.findByCode(code).orElseThrow(RecordNotFoundException::new);
+  }
+
 }
@@ -18,10 +18,22 @@ package io.studytracker.test.aws;
 
 import io.studytracker.Application;
 import io.studytracker.aws.AWSClientFactory;
+import io.studytracker.aws.S3ClientRegistry;
+import io.studytracker.aws.S3FileUploader;
+import io.studytracker.aws.S3PrefixMover;
 import io.studytracker.aws.S3Utils;
 import io.studytracker.model.AwsIntegration;
+import io.studytracker.model.S3MultipartUpload;
+import io.studytracker.model.S3MultipartUploadStatus;
 import io.studytracker.repository.AwsIntegrationRepository;
+import io.studytracker.repository.S3MultipartUploadRepository;
+import io.studytracker.storage.StorageFile;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +45,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.Bucket;
@@ -40,6 +53,7 @@ import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
@@ -52,6 +66,18 @@ public class S3ClientTests {
   @Autowired
   private AwsIntegrationRepository awsIntegrationRepository;
 
+  @Autowired
+  private S3ClientRegistry s3ClientRegistry;
+
+  @Autowired
+  private S3FileUploader s3FileUploader;
+
+  @Autowired
+  private S3PrefixMover s3PrefixMover;
+
+  @Autowired
+  private S3MultipartUploadRepository s3MultipartUploadRepository;
+
   @Value("${aws.example-s3-bucket}")
   private String bucketName;
 
@@ -79,6 +105,27 @@ public class S3ClientTests {
     Assert.assertNotNull(s3Client);
   }
 
+  @Test
+  public void clientRegistryTest() throws Exception {
+    AwsIntegration integration = awsIntegrationRepository.findAll().get(0);
+    S3Client client = s3ClientRegistry.getClient(integration);
+    Assert.assertNotNull(client);
+    Assert.assertSame(client, s3ClientRegistry.getClient(integration));
+
+    // Modified integrations get a new client
+    Date updatedAt = integration.getUpdatedAt();
+    integration.setUpdatedAt(new Date(updatedAt.getTime() + 1000L));
+    S3Client updatedClient = s3ClientRegistry.getClient(integration);
+    Assert.assertNotSame(client, updatedClient);
+    Assert.assertSame(updatedClient, s3ClientRegistry.getClient(integration));
+
+    // Invalidated integrations get a new client
+    s3ClientRegistry.invalidate(integration.getId());
+    Assert.assertNotSame(updatedClient, s3ClientRegistry.getClient(integration));
+    integration.setUpdatedAt(updatedAt);
+    s3ClientRegistry.invalidate(integration.getId());
+  }
+
   @Test
   public void listBucketsTest() throws Exception {
     List<Bucket> buckets = s3Client.listBuckets().buckets();
@@ -221,5 +268,183 @@ public class S3ClientTests {
     Assert.assertNotNull(response.eTag());
     System.out.println(response.toString());
   }
-  
+
+  @Test
+  public void multipartUploadTest() throws Exception {
+    Object threshold = ReflectionTestUtils.getField(s3FileUploader, "multipartThreshold");
+    Object partSize = ReflectionTestUtils.getField(s3FileUploader, "partSize");
+    ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", 5L * 1024 * 1024);
+    ReflectionTestUtils.setField(s3FileUploader, "partSize", 5L * 1024 * 1024);
+    File file = File.createTempFile("multipart-test", ".bin");
+    file.deleteOnExit();
+    byte[] bytes = new byte[12 * 1024 * 1024];
+    new Random().nextBytes(bytes);
+    Files.write(file.toPath(), bytes);
+    String key = "test/create-test/" + file.getName();
+
+    try {
+      StorageFile storageFile = s3FileUploader.upload(s3Client, bucketName, key, file);
+      Assert.assertNotNull(storageFile);
+      Assert.assertEquals(key, storageFile.getPath());
+      Assert.assertNotNull(storageFile.getFileId());
+      Assert.assertTrue(storageFile.getFileId().endsWith("-3\""));
+
+      HeadObjectResponse headObjectResponse =
+          s3Client.headObject(b -> b.bucket(bucketName).key(key));
+      Assert.assertEquals(bytes.length, headObjectResponse.contentLength().longValue());
+    } finally {
+      ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", threshold);
+      ReflectionTestUtils.setField(s3FileUploader, "partSize", partSize);
+      s3Client.deleteObject(b -> b.bucket(bucketName).key(key));
+    }
+  }
+
+  @Test
+  public void multipartUploadIgnoresForeignUploadsTest() throws Exception {
+    Object threshold = ReflectionTestUtils.getField(s3FileUploader, "multipartThreshold");
+    Object partSize = ReflectionTestUtils.getField(s3FileUploader, "partSize");
+    ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", 5L * 1024 * 1024);
+    ReflectionTestUtils.setField(s3FileUploader, "partSize", 5L * 1024 * 1024);
+    File file = File.createTempFile("multipart-test", ".bin");
+    file.deleteOnExit();
+    byte[] bytes = new byte[6 * 1024 * 1024];
+    new Random().nextBytes(bytes);
+    Files.write(file.toPath(), bytes);
+    String key = "test/create-test/" + file.getName();
+
+    // An upload of the same key started elsewhere, for example by another node
+    String foreignUploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key))
+        .uploadId();
+    try {
+      StorageFile storageFile = s3FileUploader.upload(s3Client, bucketName, key, file);
+      Assert.assertTrue(storageFile.getFileId().endsWith("-2\""));
+
+      // The other upload is left untouched, rather than resumed and completed
+      Assert.assertTrue(s3Client.listMultipartUploadsPaginator(b -> b.bucket(bucketName)
+              .prefix(key))
+          .uploads()
+          .stream()
+          .anyMatch(upload -> upload.uploadId().equals(foreignUploadId)));
+    } finally {
+      ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", threshold);
+      ReflectionTestUtils.setField(s3FileUploader, "partSize", partSize);
+      s3Client.abortMultipartUpload(b -> b.bucket(bucketName).key(key)
+          .uploadId(foreignUploadId));
+      s3Client.deleteObject(b -> b.bucket(bucketName).key(key));
+    }
+  }
+
+  @Test
+  public void multipartUploadResumesRecordedUploadTest() throws Exception {
+    Object threshold = ReflectionTestUtils.getField(s3FileUploader, "multipartThreshold");
+    Object partSize = ReflectionTestUtils.getField(s3FileUploader, "partSize");
+    ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", 5L * 1024 * 1024);
+    ReflectionTestUtils.setField(s3FileUploader, "partSize", 5L * 1024 * 1024);
+    File file = File.createTempFile("multipart-test", ".bin");
+    file.deleteOnExit();
+    byte[] bytes = new byte[6 * 1024 * 1024];
+    new Random().nextBytes(bytes);
+    Files.write(file.toPath(), bytes);
+    String key = "test/create-test/" + file.getName();
+
+    // A failed upload recorded by another node, with its first part already uploaded
+    String uploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key))
+        .uploadId();
+    s3Client.uploadPart(b -> b.bucket(bucketName).key(key).uploadId(uploadId).partNumber(1),
+        RequestBody.fromBytes(Arrays.copyOf(bytes, 5 * 1024 * 1024)));
+    S3MultipartUpload failed = new S3MultipartUpload();
+    failed.setBucket(bucketName);
+    failed.setObjectKey(key);
+    failed.setUploadId(uploadId);
+    failed.setStatus(S3MultipartUploadStatus.FAILED);
+    s3MultipartUploadRepository.save(failed);
+
+    try {
+      StorageFile storageFile = s3FileUploader.upload(s3Client, bucketName, key, file);
+      Assert.assertTrue(storageFile.getFileId().endsWith("-2\""));
+      HeadObjectResponse head = s3Client.headObject(b -> b.bucket(bucketName).key(key));
+      Assert.assertEquals(bytes.length, head.contentLength().longValue());
+
+      // The recorded upload was completed, rather than a new one started
+      Assert.assertTrue(s3Client.listMultipartUploadsPaginator(b -> b.bucket(bucketName)
+              .prefix(key))
+          .uploads()
+          .stream()
+          .noneMatch(upload -> upload.uploadId().equals(uploadId)));
+      Assert.assertTrue(s3MultipartUploadRepository.findById(failed.getId()).isEmpty());
+    } finally {
+      ReflectionTestUtils.setField(s3FileUploader, "multipartThreshold", threshold);
+      ReflectionTestUtils.setField(s3FileUploader, "partSize", partSize);
+      s3MultipartUploadRepository.deleteAll();
+      s3Client.deleteObject(b -> b.bucket(bucketName).key(key));
+    }
+  }
+
+  @Test
+  public void abortAbandonedUploadsTest() throws Exception {
+    String key = "test/abort-test-" + System.currentTimeMillis() + ".bin";
+    String foreignUploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key))
+        .uploadId();
+    String recordedUploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key))
+        .uploadId();
+    S3MultipartUpload recorded = new S3MultipartUpload();
+    recorded.setBucket(bucketName);
+    recorded.setObjectKey(key);
+    recorded.setUploadId(recordedUploadId);
+    recorded.setStatus(S3MultipartUploadStatus.UPLOADING);
+    s3MultipartUploadRepository.save(recorded);
+
+    try {
+
+      // Only the upload recorded by the uploader is aborted
+      ReflectionTestUtils.invokeMethod(s3FileUploader, "abortAbandonedUploads", s3Client,
+          bucketName, new Date(System.currentTimeMillis() + 1000L));
+      List<String> uploadIds = s3Client.listMultipartUploadsPaginator(b -> b.bucket(bucketName)
+              .prefix(key))
+          .uploads()
+          .stream()
+          .map(MultipartUpload::uploadId)
+          .toList();
+      Assert.assertTrue(uploadIds.contains(foreignUploadId));
+      Assert.assertFalse(uploadIds.contains(recordedUploadId));
+      Assert.assertTrue(s3MultipartUploadRepository.findById(recorded.getId()).isEmpty());
+    } finally {
+      s3MultipartUploadRepository.deleteAll();
+      s3Client.abortMultipartUpload(b -> b.bucket(bucketName).key(key)
+          .uploadId(foreignUploadId));
+    }
+  }
+
+  @Test
+  public void movePrefixTest() throws Exception {
+    String sourcePrefix = "test/move-test-" + System.currentTimeMillis() + "/";
+    String targetPrefix = "test/moved-test-" + System.currentTimeMillis() + "/";
+    List<String> keys = List.of("", "a.txt", "nested/", "nested/b.txt");
+    for (String key : keys) {
+      s3Client.putObject(b -> b.bucket(bucketName).key(sourcePrefix + key),
+          RequestBody.fromString(key));
+    }
+
+    try {
+      Assert.assertEquals(keys.size(),
+          s3PrefixMover.move(s3Client, bucketName, sourcePrefix, targetPrefix));
+      Assert.assertEquals(0, s3Client.listObjectsV2(b -> b.bucket(bucketName)
+          .prefix(sourcePrefix)).keyCount().intValue());
+      for (String key : keys) {
+        HeadObjectResponse head = s3Client.headObject(b -> b.bucket(bucketName)
+            .key(targetPrefix + key));
+        Assert.assertEquals(key.length(), head.contentLength().longValue());
+      }
+
+      // Moving again has nothing left to do
+      Assert.assertEquals(0, s3PrefixMover.move(s3Client, bucketName, sourcePrefix,
+          targetPrefix));
+    } finally {
+      for (String key : keys) {
+        s3Client.deleteObject(b -> b.bucket(bucketName).key(sourcePrefix + key));
+        s3Client.deleteObject(b -> b.bucket(bucketName).key(targetPrefix + key));
+      }
+    }
+  }
+
 }
@@ -17,6 +17,7 @@
 package io.studytracker.test.benchling;
 
 import io.studytracker.Application;
+import io.studytracker.benchling.BenchlingClientFactory;
 import io.studytracker.benchling.api.BenchlingElnRestClient;
 import io.studytracker.benchling.api.entities.BenchlingAuthenticationToken;
 import io.studytracker.benchling.api.entities.BenchlingEntry;
@@ -28,9 +29,14 @@ import io.studytracker.benchling.api.entities.BenchlingProject;
 import io.studytracker.benchling.api.entities.BenchlingProjectList;
 import io.studytracker.model.BenchlingIntegration;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,7 +51,10 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.LinkedMultiValueMap;
@@ -263,4 +272,80 @@ public class BenchlingElnRestClientTests {
     String out = components.toString();
     System.out.println(out);
   }
+
+  @Test
+  public void sharedClientTest() throws Exception {
+    BenchlingClientFactory factory = new BenchlingClientFactory(restTemplate);
+    BenchlingIntegration integration = new BenchlingIntegration();
+    integration.setId(1L);
+    integration.setClientId(clientId);
+    integration.setClientSecret(clientSecret);
+    integration.setName("Benchling");
+    integration.setTenantName(tenantName);
+    integration.setRootUrl(rootUrl.toString());
+    integration.setUpdatedAt(new Date());
+
+    BenchlingElnRestClient first = factory.createBenchlingClient(integration);
+    Assert.assertSame(first, factory.createBenchlingClient(integration));
+
+    integration.setClientSecret(clientSecret + "-rotated");
+    BenchlingElnRestClient second = factory.createBenchlingClient(integration);
+    Assert.assertNotSame(first, second);
+    Assert.assertSame(second, factory.createBenchlingClient(integration));
+
+    factory.invalidate(integration.getId());
+    Assert.assertNotSame(second, factory.createBenchlingClient(integration));
+
+    integration.setId(null);
+    Assert.assertNotSame(factory.createBenchlingClient(integration),
+        factory.createBenchlingClient(integration));
+    factory.destroy();
+  }
+
+  @Test
+  public void replacedClientClosedWhenIdleTest() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    RestTemplate blockingRestTemplate = new RestTemplate();
+    blockingRestTemplate.getInterceptors().add((request, body, execution) -> {
+      if (request.getURI().getPath().endsWith("/token")) {
+        return jsonResponse("{\"access_token\":\"token\",\"expires_in\":900}");
+      }
+      started.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return jsonResponse("{}");
+    });
+    BenchlingClientFactory factory = new BenchlingClientFactory(blockingRestTemplate);
+    BenchlingIntegration integration = new BenchlingIntegration();
+    integration.setId(1L);
+    integration.setClientId(clientId);
+    integration.setClientSecret(clientSecret);
+    integration.setTenantName(tenantName);
+    integration.setRootUrl(rootUrl.toString());
+
+    BenchlingElnRestClient client = factory.createBenchlingClient(integration);
+    CompletableFuture<BenchlingProjectList> request =
+        CompletableFuture.supplyAsync(() -> client.findProjects(null));
+    Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    // The replaced client stays open until its request completes
+    integration.setClientSecret(clientSecret + "-rotated");
+    Assert.assertNotSame(client, factory.createBenchlingClient(integration));
+    Assert.assertFalse(client.isClosed());
+    release.countDown();
+    Assert.assertNotNull(request.get(10, TimeUnit.SECONDS));
+    Assert.assertTrue(client.isClosed());
+    factory.destroy();
+  }
+
+  private static ClientHttpResponse jsonResponse(String body) {
+    MockClientHttpResponse response =
+        new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    return response;
+  }
 }
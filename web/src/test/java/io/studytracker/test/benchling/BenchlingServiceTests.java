@@ -17,9 +17,11 @@
 package io.studytracker.test.benchling;
 
 import io.studytracker.Application;
+import io.studytracker.benchling.BenchlingEntryTemplateCatalog;
 import io.studytracker.benchling.BenchlingNotebookFolderService;
 import io.studytracker.benchling.BenchlingNotebookUserService;
 import io.studytracker.eln.NotebookFolder;
+import io.studytracker.eln.NotebookTemplate;
 import io.studytracker.eln.NotebookUser;
 import io.studytracker.model.ELNFolder;
 import io.studytracker.model.User;
@@ -27,6 +29,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,6 +51,9 @@ public class BenchlingServiceTests {
   @Autowired
   private BenchlingNotebookUserService benchlingNotebookUserService;
 
+  @Autowired
+  private BenchlingEntryTemplateCatalog benchlingEntryTemplateCatalog;
+
   @Test
   public void findProjectsFoldersTest() {
     List<ELNFolder> folders = benchlingNotebookFolderService.listProjectFolders();
@@ -58,6 +64,20 @@ public class BenchlingServiceTests {
     }
   }
 
+  @Test
+  public void loadFolderTreeTest() {
+    List<ELNFolder> folders = benchlingNotebookFolderService.listProjectFolders();
+    Assert.assertFalse(folders.isEmpty());
+    ELNFolder folder = benchlingNotebookFolderService.loadFolderTree(folders.get(0), 2);
+    Assert.assertTrue(folder.isContentsLoaded());
+    for (NotebookFolder subFolder : folder.getSubFolders()) {
+      Assert.assertTrue(subFolder.isContentsLoaded());
+      for (NotebookFolder child : subFolder.getSubFolders()) {
+        Assert.assertFalse(child.isContentsLoaded());
+      }
+    }
+  }
+
   @Test
   public void findUserTest() {
     User user = new User();
@@ -80,4 +100,19 @@ public class BenchlingServiceTests {
     Assert.assertEquals("lib_iQIYV5t4", matcher.group(0));
   }
 
+  @Test
+  public void searchEntryTemplateCatalogTest() {
+    List<NotebookTemplate> templates = benchlingEntryTemplateCatalog.findAll();
+    Assert.assertFalse(templates.isEmpty());
+    String name = templates.get(0).getName();
+    for (String keyword : List.of(name.substring(0, 1), name.substring(0, Math.min(5, name.length())),
+        name.toUpperCase(), "no such template name")) {
+      List<NotebookTemplate> expected = templates.stream()
+          .filter(t -> t.getName().toLowerCase().contains(keyword.toLowerCase()))
+          .collect(Collectors.toList());
+      Assert.assertEquals(expected, benchlingEntryTemplateCatalog.search(keyword));
+    }
+    Assert.assertEquals(templates.size(), benchlingEntryTemplateCatalog.search("").size());
+  }
+
 }
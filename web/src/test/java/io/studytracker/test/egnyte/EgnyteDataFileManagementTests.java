@@ -18,10 +18,12 @@ package io.studytracker.test.egnyte;
 
 import io.studytracker.Application;
 import io.studytracker.egnyte.EgnyteClientFactory;
+import io.studytracker.egnyte.EgnyteRateLimiters;
 import io.studytracker.egnyte.EgnyteStudyStorageService;
 import io.studytracker.egnyte.entity.EgnyteFolder;
 import io.studytracker.egnyte.entity.EgnyteObject;
 import io.studytracker.egnyte.rest.EgnyteRestApiClient;
+import io.studytracker.integration.http.IntegrationHttpClients;
 import io.studytracker.model.EgnyteIntegration;
 import io.studytracker.model.StorageDrive;
 import io.studytracker.repository.EgnyteIntegrationRepository;
@@ -53,10 +55,17 @@ public class EgnyteDataFileManagementTests {
   @Autowired
   private StorageDriveRepository driveRepository;
 
+  @Autowired
+  private IntegrationHttpClients httpClients;
+
+  @Autowired
+  private EgnyteRateLimiters rateLimiters;
+
   @Test
   public void getRootFolderTest() throws Exception {
     EgnyteIntegration integration = egnyteIntegrationRepository.findAll().get(0);
-    EgnyteRestApiClient client = EgnyteClientFactory.createRestApiClient(integration);
+    EgnyteRestApiClient client = EgnyteClientFactory.createRestApiClient(integration,
+        httpClients, rateLimiters);
     StorageDrive drive = driveRepository.findByDriveType(StorageDrive.DriveType.EGNYTE).get(0);
     String rootPath = drive.getRootPath();
     EgnyteObject egnyteObject = client.findObjectByPath(rootPath);
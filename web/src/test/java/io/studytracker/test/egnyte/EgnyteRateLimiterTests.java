@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.egnyte;
+
+import io.studytracker.egnyte.EgnyteRateLimiters;
+import io.studytracker.egnyte.rest.EgnyteRateLimiter;
+import io.studytracker.model.EgnyteIntegration;
+import java.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EgnyteRateLimiterTests {
+
+  private EgnyteIntegration createIntegration(Long id, Integer qps) {
+    EgnyteIntegration integration = new EgnyteIntegration();
+    integration.setId(id);
+    integration.setApiToken("token");
+    integration.setQps(qps);
+    return integration;
+  }
+
+  @Test
+  public void sharedLimiterTest() {
+    EgnyteRateLimiters rateLimiters = new EgnyteRateLimiters(600);
+    EgnyteRateLimiter limiter = rateLimiters.forIntegration(createIntegration(1L, 5));
+    Assert.assertSame(limiter, rateLimiters.forIntegration(createIntegration(1L, 5)));
+
+    // Integrations sharing an API key still have separate limiters
+    Assert.assertNotSame(limiter, rateLimiters.forIntegration(createIntegration(2L, 5)));
+
+    // Unsaved integrations are not shared
+    Assert.assertNotSame(rateLimiters.forIntegration(createIntegration(null, 5)),
+        rateLimiters.forIntegration(createIntegration(null, 5)));
+    Assert.assertEquals(2, rateLimiters.size());
+  }
+
+  @Test
+  public void removedLimiterTest() {
+    EgnyteRateLimiters rateLimiters = new EgnyteRateLimiters(600);
+    EgnyteRateLimiter limiter = rateLimiters.forIntegration(createIntegration(1L, 5));
+    rateLimiters.remove(1L);
+    Assert.assertEquals(0, rateLimiters.size());
+    Assert.assertNotSame(limiter, rateLimiters.forIntegration(createIntegration(1L, 5)));
+  }
+
+  @Test
+  public void idleLimiterEvictedTest() throws Exception {
+    EgnyteRateLimiters rateLimiters = new EgnyteRateLimiters(1);
+    rateLimiters.forIntegration(createIntegration(1L, 5));
+    Assert.assertEquals(1, rateLimiters.size());
+    Thread.sleep(1500);
+    Assert.assertEquals(0, rateLimiters.size());
+  }
+
+  @Test
+  public void burstTest() throws Exception {
+    EgnyteRateLimiter limiter = new EgnyteRateLimiter(10);
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire();
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 500);
+
+    // Once the burst is used, requests are spaced out at the configured rate
+    start = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      limiter.acquire();
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start >= 350);
+  }
+
+  @Test
+  public void rateLimitedBackoffTest() throws Exception {
+    EgnyteRateLimiter limiter = new EgnyteRateLimiter(10);
+    limiter.acquire();
+    Duration delay = limiter.onRateLimited(Duration.ofMillis(300), 1);
+    Assert.assertEquals(300, delay.toMillis());
+    Assert.assertEquals(5.0, limiter.getRate(), 0.001);
+
+    long start = System.currentTimeMillis();
+    limiter.acquire();
+    Assert.assertTrue(System.currentTimeMillis() - start >= 250);
+
+    // Successful requests restore the rate
+    for (int i = 0; i < 20; i++) {
+      limiter.onSuccess();
+    }
+    Assert.assertEquals(10.0, limiter.getRate(), 0.001);
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.export;
+
+import io.studytracker.export.ArchiveFormat;
+import io.studytracker.export.CompressionUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompressionUtilTests {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path sourceDir;
+
+  private ExecutorService executor;
+
+  @Before
+  public void setup() throws IOException {
+    executor = Executors.newFixedThreadPool(4);
+    sourceDir = temporaryFolder.newFolder("data-export-test").toPath();
+    Files.writeString(sourceDir.resolve("users.csv"), "\"ID\",\"Username\"\n\"1\",\"jsmith\"\n");
+    Files.createDirectories(sourceDir.resolve("nested"));
+    // Larger than a compression block, so that it is split across multiple GZIP members
+    Files.write(sourceDir.resolve("nested").resolve("studies.csv"), generateCsv(3 * 1024 * 1024));
+    Files.writeString(sourceDir.resolve(".hidden"), "hidden");
+  }
+
+  @After
+  public void cleanup() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void zipArchiveTest() throws Exception {
+    CompressionUtil compressionUtil = new CompressionUtil(64 * 1024, 6, 4, 1024 * 1024,
+        executor);
+    Path archive = temporaryFolder.getRoot().toPath().resolve("export.zip");
+    compressionUtil.compressDirectoryToZip(sourceDir, archive);
+
+    // The shared executor is left running for other archives
+    Assert.assertFalse(executor.isShutdown());
+
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      Assert.assertNotNull(zipFile.getEntry("data-export-test/"));
+      Assert.assertNotNull(zipFile.getEntry("data-export-test/nested/"));
+      Assert.assertNull(zipFile.getEntry("data-export-test/.hidden"));
+      assertEntry(zipFile, "data-export-test/users.csv", sourceDir.resolve("users.csv"));
+      assertEntry(zipFile, "data-export-test/nested/studies.csv",
+          sourceDir.resolve("nested").resolve("studies.csv"));
+    }
+  }
+
+  @Test
+  public void tarGzArchiveTest() throws Exception {
+    CompressionUtil compressionUtil = new CompressionUtil(64 * 1024, 6, 4, 1024 * 1024,
+        executor);
+    Path archive = temporaryFolder.getRoot().toPath().resolve("export.tar.gz");
+    compressionUtil.compressDirectory(sourceDir, archive, ArchiveFormat.TAR_GZ);
+
+    Map<String, byte[]> entries = new HashMap<>();
+    try (TarArchiveInputStream tarIn = new TarArchiveInputStream(
+        new GZIPInputStream(Files.newInputStream(archive)))) {
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null) {
+        entries.put(entry.getName(), entry.isDirectory() ? null : tarIn.readAllBytes());
+      }
+    }
+    Assert.assertTrue(entries.containsKey("data-export-test/nested/"));
+    Assert.assertFalse(entries.containsKey("data-export-test/.hidden"));
+    Assert.assertArrayEquals(Files.readAllBytes(sourceDir.resolve("users.csv")),
+        entries.get("data-export-test/users.csv"));
+    Assert.assertArrayEquals(
+        Files.readAllBytes(sourceDir.resolve("nested").resolve("studies.csv")),
+        entries.get("data-export-test/nested/studies.csv"));
+  }
+
+  private void assertEntry(ZipFile zipFile, String name, Path expected) throws IOException {
+    ZipEntry entry = zipFile.getEntry(name);
+    Assert.assertNotNull(entry);
+    try (InputStream in = zipFile.getInputStream(entry)) {
+      Assert.assertArrayEquals(Files.readAllBytes(expected), in.readAllBytes());
+    }
+  }
+
+  private byte[] generateCsv(int size) {
+    Random random = new Random(size);
+    StringBuilder builder = new StringBuilder(size + 256);
+    long id = 1;
+    while (builder.length() < size) {
+      builder.append('"').append(id++).append("\",\"PPB-").append(random.nextInt(100000))
+          .append("\",\"Study ").append(Long.toHexString(random.nextLong()))
+          .append("\",\"2023-01-").append(10 + random.nextInt(18)).append("T12:00:00Z\"\n");
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+}
@@ -16,10 +16,35 @@
 
 package io.studytracker.test.export;
 
+import com.opencsv.CSVReader;
 import io.studytracker.Application;
 import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.export.DataExportResult;
 import io.studytracker.export.DataExportService;
+import io.studytracker.export.ExportProgressListener;
+import io.studytracker.export.ExportTableResult;
+import io.studytracker.model.ExportFormat;
+import io.studytracker.model.Keyword;
+import io.studytracker.model.Study;
+import io.studytracker.repository.StudyRepository;
+import io.studytracker.repository.UserRepository;
+import io.studytracker.service.KeywordService;
+import io.studytracker.service.StudyService;
+import jakarta.persistence.EntityManagerFactory;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +62,11 @@ public class DataExportTests {
 
   @Autowired private DataExportService dataExportService;
   @Autowired private ExampleDataRunner exampleDataRunner;
+  @Autowired private UserRepository userRepository;
+  @Autowired private StudyRepository studyRepository;
+  @Autowired private StudyService studyService;
+  @Autowired private KeywordService keywordService;
+  @Autowired private EntityManagerFactory entityManagerFactory;
 
   @Before
   public void setup() {
@@ -59,4 +89,150 @@ public class DataExportTests {
     System.out.println(path.toString());
   }
 
+  @Test
+  public void exportResultTest() throws Exception {
+    DataExportResult result = dataExportService.exportAllData(UUID.randomUUID().toString());
+    Assert.assertNotNull(result.getDirectory());
+    Assert.assertTrue(result.getTables().size() >= 15);
+    ExportTableResult users = result.getTables().stream()
+        .filter(t -> t.getName().equals("users"))
+        .findFirst()
+        .orElseThrow();
+    Assert.assertEquals(userRepository.count(), users.getRowCount());
+    for (ExportTableResult table : result.getTables()) {
+      Assert.assertTrue(Files.exists(result.getDirectory().resolve(table.getName() + ".csv")));
+    }
+  }
+
+  @Test
+  public void exportedRowCountTest() throws Exception {
+    Path path = dataExportService.exportAllDataToCsv();
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(path.resolve("users.csv")))) {
+      List<String[]> rows = reader.readAll();
+      Assert.assertEquals(userRepository.count() + 1, rows.size());
+    }
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(path.resolve("studies.csv")))) {
+      List<String[]> rows = reader.readAll();
+      Assert.assertEquals(studyRepository.count() + 1, rows.size());
+    }
+  }
+
+  @Test
+  public void exportFetchesCollectionsWithRowsTest() throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+    Path path;
+    try {
+      path = dataExportService.exportAllDataToCsv();
+
+      // Study users and keywords, assay users and collection studies are loaded for each chunk
+      // of streamed records by their IDs, rather than with a query per record
+      Assert.assertEquals(0, statistics.getCollectionFetchCount());
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+
+    Study study = studyRepository.findByCode("CPA-10001").orElseThrow();
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(path.resolve("studies.csv")))) {
+      List<String[]> rows = reader.readAll();
+      Assert.assertEquals(studyRepository.count() + 1, rows.size());
+      String[] row = rows.stream()
+          .filter(r -> r[2].equals(study.getCode()))
+          .findFirst()
+          .orElseThrow();
+      Assert.assertEquals(userRepository.findByStudyId(study.getId()).size(),
+          row[17].split(",").length);
+    }
+  }
+
+  @Test
+  public void incrementalExportTest() throws Exception {
+    Date since = new Date();
+    Thread.sleep(10);
+
+    Study study = studyRepository.findByCode("PPB-10001").orElseThrow();
+    studyService.delete(study);
+    Keyword keyword = keywordService.create(new Keyword("incremental-test", "test"));
+    keywordService.delete(keyword);
+
+    DataExportResult result = dataExportService
+        .exportAllData(UUID.randomUUID().toString(), ExportProgressListener.NONE, since);
+    Assert.assertTrue(result.isIncremental());
+    Assert.assertNotNull(result.getWatermark());
+    Assert.assertTrue(result.getWatermark().after(since));
+
+    ExportTableResult studies = findTable(result, "studies");
+    Assert.assertTrue(studies.isIncremental());
+    Assert.assertEquals(1, studies.getRowCount());
+    ExportTableResult users = findTable(result, "users");
+    Assert.assertTrue(users.isIncremental());
+    Assert.assertEquals(0, users.getRowCount());
+    Assert.assertFalse(findTable(result, "assay_types").isIncremental());
+
+    Path path = result.getDirectory();
+    try (CSVReader reader =
+        new CSVReader(Files.newBufferedReader(path.resolve("deleted_records.csv")))) {
+      List<String[]> rows = reader.readAll();
+      Assert.assertTrue(rows.stream().anyMatch(r -> r[0].equals("keywords")
+          && r[1].equals(String.valueOf(keyword.getId())) && r[2].equals("DELETED")));
+      Assert.assertTrue(rows.stream().anyMatch(r -> r[0].equals("studies")
+          && r[1].equals(String.valueOf(study.getId())) && r[2].equals("INACTIVATED")));
+    }
+    Assert.assertTrue(Files.exists(path.resolve("export_manifest.csv")));
+  }
+
+  @Test
+  public void exportReadsConsistentSnapshotTest() throws Exception {
+    int keywordCount = keywordService.findAll().size();
+    AtomicBoolean created = new AtomicBoolean(false);
+
+    // A keyword committed once the first tables have been exported is not seen by the rest
+    ExportProgressListener listener = new ExportProgressListener() {
+      @Override
+      public void onTableGroupCompleted(String name) {
+        if (created.compareAndSet(false, true)) {
+          CompletableFuture.runAsync(() ->
+              keywordService.create(new Keyword("snapshot-test", "test"))).join();
+        }
+      }
+    };
+    DataExportResult result = dataExportService
+        .exportAllData(UUID.randomUUID().toString(), listener);
+    Assert.assertTrue(created.get());
+    Assert.assertEquals(keywordCount, findTable(result, "keywords").getRowCount());
+    Assert.assertEquals(keywordCount + 1, keywordService.findAll().size());
+  }
+
+  @Test
+  public void parquetExportTest() throws Exception {
+    DataExportResult result = dataExportService.exportAllData(UUID.randomUUID().toString(),
+        ExportProgressListener.NONE, null, ExportFormat.PARQUET);
+    Assert.assertEquals(ExportFormat.PARQUET, result.getFormat());
+    Path path = result.getDirectory();
+    for (ExportTableResult table : result.getTables()) {
+      Assert.assertTrue(Files.exists(path.resolve(table.getName() + ".parquet")));
+      Assert.assertFalse(Files.exists(path.resolve(table.getName() + ".csv")));
+    }
+
+    try (ParquetFileReader reader =
+        ParquetFileReader.open(new LocalInputFile(path.resolve("studies.parquet")))) {
+      Assert.assertEquals(studyRepository.count(), reader.getRecordCount());
+      MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+      Assert.assertEquals(PrimitiveTypeName.INT64,
+          schema.getType("ID").asPrimitiveType().getPrimitiveTypeName());
+      Assert.assertEquals(LogicalTypeAnnotation.listType(),
+          schema.getType("Users").getLogicalTypeAnnotation());
+      Assert.assertEquals(LogicalTypeAnnotation.mapType(),
+          schema.getType("Attributes").getLogicalTypeAnnotation());
+    }
+  }
+
+  private ExportTableResult findTable(DataExportResult result, String name) {
+    return result.getTables().stream()
+        .filter(t -> t.getName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.export;
+
+import io.studytracker.Application;
+import io.studytracker.config.HostInformation;
+import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.export.CompressionUtil;
+import io.studytracker.export.DataExportResult;
+import io.studytracker.export.DataExportService;
+import io.studytracker.export.DataImportResult;
+import io.studytracker.export.DataImportService;
+import io.studytracker.export.ExportJobService;
+import io.studytracker.export.ExportProgressListener;
+import io.studytracker.export.ImportJobService;
+import io.studytracker.model.ExportJob;
+import io.studytracker.model.ExportJobStatus;
+import io.studytracker.model.GitLabIntegration;
+import io.studytracker.model.ImportJob;
+import io.studytracker.model.Keyword;
+import io.studytracker.model.PasswordResetToken;
+import io.studytracker.model.Study;
+import io.studytracker.model.StudyProvisioningStep;
+import io.studytracker.model.StudyProvisioningTask;
+import io.studytracker.model.User;
+import io.studytracker.repository.ActivityRepository;
+import io.studytracker.repository.AssayRepository;
+import io.studytracker.repository.ExportJobRepository;
+import io.studytracker.repository.GitLabIntegrationRepository;
+import io.studytracker.repository.KeywordRepository;
+import io.studytracker.repository.PasswordResetTokenRepository;
+import io.studytracker.repository.ProgramRepository;
+import io.studytracker.repository.StudyProvisioningTaskRepository;
+import io.studytracker.repository.StudyRepository;
+import io.studytracker.repository.UserRepository;
+import io.studytracker.service.KeywordService;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "example"})
+public class DataImportTests {
+
+  @Autowired private DataExportService dataExportService;
+  @Autowired private DataImportService dataImportService;
+  @Autowired private CompressionUtil compressionUtil;
+  @Autowired private ExampleDataRunner exampleDataRunner;
+  @Autowired private UserRepository userRepository;
+  @Autowired private ProgramRepository programRepository;
+  @Autowired private StudyRepository studyRepository;
+  @Autowired private AssayRepository assayRepository;
+  @Autowired private KeywordRepository keywordRepository;
+  @Autowired private GitLabIntegrationRepository gitLabIntegrationRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private KeywordService keywordService;
+  @Autowired private ImportJobService importJobService;
+  @Autowired private ExportJobRepository exportJobRepository;
+  @Autowired private ExportJobService exportJobService;
+  @Autowired private HostInformation hostInformation;
+  @Autowired private PasswordResetTokenRepository passwordResetTokenRepository;
+  @Autowired private StudyProvisioningTaskRepository provisioningTaskRepository;
+
+  @Before
+  public void setup() {
+    exampleDataRunner.clearDatabase();
+    exampleDataRunner.populateDatabase();
+  }
+
+  @Test
+  public void restoreExportTest() throws Exception {
+    long userCount = userRepository.count();
+    long programCount = programRepository.count();
+    long studyCount = studyRepository.count();
+    long assayCount = assayRepository.count();
+    long activityCount = activityRepository.count();
+
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString());
+    Keyword keyword = keywordService.create(new Keyword("not-exported", "test"));
+
+    DataImportResult result = dataImportService.importArchive(export.getDirectory());
+    Assert.assertEquals(export.getTotalRowCount(),
+        result.getTotalRowCount() + findRowCount(export, "export_manifest"));
+    Assert.assertEquals(userCount, userRepository.count());
+    Assert.assertEquals(programCount, programRepository.count());
+    Assert.assertEquals(studyCount, studyRepository.count());
+    Assert.assertEquals(assayCount, assayRepository.count());
+    Assert.assertEquals(activityCount, activityRepository.count());
+    Assert.assertTrue(keywordRepository.findById(keyword.getId()).isEmpty());
+
+    // New records must not collide with restored IDs
+    Assert.assertTrue(result.getSequenceValue() >= keyword.getId());
+    Keyword created = keywordService.create(new Keyword("after-restore", "test"));
+    Assert.assertTrue(created.getId() > result.getSequenceValue());
+  }
+
+  @Test
+  public void restoreZipArchiveTest() throws Exception {
+    long studyCount = studyRepository.count();
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString());
+    Path archive = export.getDirectory()
+        .resolveSibling(export.getDirectory().getFileName() + ".zip");
+    compressionUtil.compressDirectoryToZip(export.getDirectory(), archive);
+
+    exampleDataRunner.clearDatabase();
+    Assert.assertEquals(0, studyRepository.count());
+
+    DataImportResult result = dataImportService.importArchive(archive);
+    Assert.assertFalse(result.getTables().isEmpty());
+    Assert.assertEquals(studyCount, studyRepository.count());
+  }
+
+  @Test(expected = InvalidRequestException.class)
+  public void incrementalExportRejectedTest() throws Exception {
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString(),
+        ExportProgressListener.NONE, new Date());
+    dataImportService.importArchive(export.getDirectory());
+  }
+
+  @Test
+  public void restoreKeepsUnexportedTablesTest() throws Exception {
+    User user = userRepository.findAll().get(0);
+    String password = user.getPassword();
+    Assert.assertNotNull(password);
+    Study study = studyRepository.findAll().get(0);
+
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString());
+
+    ExportJob exportJob = new ExportJob();
+    exportJob.setJobId(UUID.randomUUID().toString());
+    exportJob.setStatus(ExportJobStatus.COMPLETED);
+    exportJob.setCreatedBy(user);
+    exportJob = exportJobRepository.save(exportJob);
+    PasswordResetToken token = new PasswordResetToken();
+    token.setToken(UUID.randomUUID().toString());
+    token.setUser(user);
+    token.setExpirationDate(new Date(System.currentTimeMillis() + 60000));
+    token = passwordResetTokenRepository.save(token);
+    StudyProvisioningTask task = provisioningTaskRepository.save(
+        new StudyProvisioningTask(study, StudyProvisioningStep.STORAGE_FOLDER));
+
+    DataImportResult result = dataImportService.importArchive(export.getDirectory());
+    Assert.assertEquals(3, result.getPreservedRowCount());
+    Assert.assertTrue(result.getRestoredPasswordCount() > 0);
+    Assert.assertTrue(exportJobRepository.findById(exportJob.getId()).isPresent());
+    Assert.assertTrue(passwordResetTokenRepository.findById(token.getId()).isPresent());
+    Assert.assertTrue(provisioningTaskRepository.findById(task.getId()).isPresent());
+
+    // Local users can still sign in with their existing password
+    User restored = userRepository.findById(user.getId()).orElseThrow();
+    Assert.assertEquals(password, restored.getPassword());
+  }
+
+  @Test
+  public void restoreKeepsIntegrationCredentialsTest() throws Exception {
+    GitLabIntegration integration = new GitLabIntegration();
+    integration.setName("Restore test");
+    integration.setRootUrl("https://gitlab.restore-test.example.com");
+    integration.setUsername("restore");
+    integration.setAccessToken("restore-test-token");
+    integration.setActive(true);
+    integration = gitLabIntegrationRepository.save(integration);
+
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString());
+    DataImportResult result = dataImportService.importArchive(export.getDirectory());
+
+    // The token is not exported, but is kept for the restored integration
+    Assert.assertTrue(result.getRestoredCredentialCount() > 0);
+    GitLabIntegration restored = gitLabIntegrationRepository.findById(integration.getId())
+        .orElseThrow();
+    Assert.assertEquals("restore-test-token", restored.getAccessToken());
+  }
+
+  @Test
+  public void interruptedJobsTest() {
+    User user = userRepository.findAll().get(0);
+    long now = System.currentTimeMillis();
+    ExportJob otherNodeJob = saveRunningExportJob(user, "other-node", new Date(now));
+    ExportJob staleJob = saveRunningExportJob(user, "other-node", new Date(now - 3600000));
+    ExportJob restartedJob = saveRunningExportJob(user, hostInformation.getNodeId(),
+        new Date(now));
+
+    // Only jobs of this node, or whose node has stopped, are failed
+    exportJobService.failInterruptedJobs();
+    Assert.assertEquals(ExportJobStatus.RUNNING,
+        exportJobRepository.findById(otherNodeJob.getId()).orElseThrow().getStatus());
+    Assert.assertEquals(ExportJobStatus.FAILED,
+        exportJobRepository.findById(staleJob.getId()).orElseThrow().getStatus());
+    Assert.assertEquals(ExportJobStatus.FAILED,
+        exportJobRepository.findById(restartedJob.getId()).orElseThrow().getStatus());
+
+    exportJobService.failStaleJobs();
+    Assert.assertEquals(ExportJobStatus.RUNNING,
+        exportJobRepository.findById(otherNodeJob.getId()).orElseThrow().getStatus());
+  }
+
+  private ExportJob saveRunningExportJob(User user, String ownerNode, Date heartbeatAt) {
+    ExportJob job = new ExportJob();
+    job.setJobId(UUID.randomUUID().toString());
+    job.setStatus(ExportJobStatus.RUNNING);
+    job.setCreatedBy(user);
+    job.setOwnerNode(ownerNode);
+    job.setHeartbeatAt(heartbeatAt);
+    return exportJobRepository.save(job);
+  }
+
+  @Test
+  public void importJobTest() throws Exception {
+    long studyCount = studyRepository.count();
+    DataExportResult export = dataExportService.exportAllData(UUID.randomUUID().toString());
+    User user = userRepository.findAll().get(0);
+
+    ImportJob job = importJobService.submitJob(user, export.getDirectory());
+    Assert.assertNotNull(job.getJobId());
+    long deadline = System.currentTimeMillis() + 60000;
+    do {
+      Thread.sleep(250);
+      job = importJobService.findByJobId(job.getJobId()).orElseThrow();
+    } while (!job.isFinished() && System.currentTimeMillis() < deadline);
+
+    Assert.assertEquals(job.getMessage(), ExportJobStatus.COMPLETED, job.getStatus());
+    Assert.assertTrue(job.getTotalTables() > 0);
+    Assert.assertTrue(job.getCompletedTables() > 0);
+    Assert.assertTrue(job.getRowCount() > 0);
+    Assert.assertEquals(user.getUsername(), job.getRequestedBy());
+    Assert.assertEquals(studyCount, studyRepository.count());
+  }
+
+  private long findRowCount(DataExportResult result, String name) {
+    return result.getTables().stream()
+        .filter(t -> t.getName().equals(name))
+        .findFirst()
+        .orElseThrow()
+        .getRowCount();
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.test.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.studytracker.integration.http.CircuitBreaker;
+import io.studytracker.integration.http.CircuitBreakerOpenException;
+import io.studytracker.integration.http.HttpClientSettings;
+import io.studytracker.integration.http.ResilientClientHttpRequestFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+public class ResilientHttpClientTests {
+
+  private static final URI URL = URI.create("https://example.test/api/items");
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final List<MockClientHttpRequest> sent = new ArrayList<>();
+
+  private ResilientClientHttpRequestFactory createFactory(int maxRetries, int failureThreshold,
+      HttpStatus... statuses) {
+    Deque<HttpStatus> responses = new LinkedList<>(List.of(statuses));
+    ClientHttpRequestFactory delegate = (uri, method) -> {
+      MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+      HttpStatus status = responses.size() > 1 ? responses.poll() : responses.peek();
+      request.setResponse(new MockClientHttpResponse(new byte[0], status));
+      sent.add(request);
+      return request;
+    };
+    HttpClientSettings settings = new HttpClientSettings(Duration.ofSeconds(1),
+        Duration.ofSeconds(1), maxRetries, Duration.ZERO, Duration.ZERO, failureThreshold,
+        Duration.ofMinutes(1));
+    CircuitBreaker circuitBreaker =
+        new CircuitBreaker(URL.getHost(), failureThreshold, Duration.ofMinutes(1));
+    return new ResilientClientHttpRequestFactory(delegate, "test", settings,
+        host -> circuitBreaker, meterRegistry);
+  }
+
+  @Test
+  public void idempotentRequestRetryTest() throws Exception {
+    ResilientClientHttpRequestFactory factory = createFactory(2, 10,
+        HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.BAD_GATEWAY, HttpStatus.OK);
+    ClientHttpRequest request = factory.createRequest(URL, HttpMethod.GET);
+    request.getBody().write("{}".getBytes());
+    try (ClientHttpResponse response = request.execute()) {
+      Assert.assertEquals(200, response.getStatusCode().value());
+    }
+    Assert.assertEquals(3, sent.size());
+    for (MockClientHttpRequest attempt : sent) {
+      Assert.assertEquals("{}", attempt.getBodyAsString());
+    }
+    Assert.assertEquals(2.0,
+        meterRegistry.get("integration.http.retries").counter().count(), 0.0);
+  }
+
+  @Test
+  public void nonIdempotentRequestNotRetriedTest() throws Exception {
+    ResilientClientHttpRequestFactory factory =
+        createFactory(2, 10, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.OK);
+    ClientHttpRequest request = factory.createRequest(URL, HttpMethod.POST);
+    try (ClientHttpResponse response = request.execute()) {
+      Assert.assertEquals(503, response.getStatusCode().value());
+    }
+    Assert.assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void clientErrorNotRetriedTest() throws Exception {
+    ResilientClientHttpRequestFactory factory =
+        createFactory(2, 10, HttpStatus.NOT_FOUND, HttpStatus.OK);
+    try (ClientHttpResponse response =
+        factory.createRequest(URL, HttpMethod.GET).execute()) {
+      Assert.assertEquals(404, response.getStatusCode().value());
+    }
+    Assert.assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void circuitBreakerOpensTest() throws Exception {
+    ResilientClientHttpRequestFactory factory =
+        createFactory(0, 2, HttpStatus.SERVICE_UNAVAILABLE);
+    for (int i = 0; i < 2; i++) {
+      factory.createRequest(URL, HttpMethod.GET).execute().close();
+    }
+    Assert.assertEquals(2, sent.size());
+    Assert.assertThrows(CircuitBreakerOpenException.class,
+        () -> factory.createRequest(URL, HttpMethod.GET).execute());
+    Assert.assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void circuitBreakerHalfOpenTest() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("example.test", 1, Duration.ZERO);
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onFailure();
+    Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+    // Only one trial request is allowed while half-open
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    Assert.assertFalse(circuitBreaker.tryAcquire());
+    circuitBreaker.onSuccess();
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+  }
+
+}
@@ -49,9 +49,11 @@ import io.studytracker.repository.UserRepository;
 import io.studytracker.service.AssayService;
 import io.studytracker.service.ProgramService;
 import io.studytracker.service.StudyService;
+import io.studytracker.storage.DirectUpload;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFile;
 import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
 import java.util.Date;
 import java.util.List;
@@ -571,4 +573,89 @@ public class OneDriveStudyStorageServiceTests {
     Assert.assertFalse(exists);
   }
 
+  @Test
+  public void abortDirectUploadTest() throws Exception {
+    StorageDriveFolder rootFolder = storageDriveFolderService.findStudyRootFolders().stream()
+        .filter(f -> f.getStorageDrive().getDriveType().equals(DriveType.ONEDRIVE))
+        .findFirst()
+        .orElseThrow();
+    String fileName = "direct-upload-test.txt";
+
+    DirectUpload upload = storageService.createDirectUpload(rootFolder, "/", fileName, 1024L);
+    Assert.assertNotNull(upload.getUploadId());
+    Assert.assertNotNull(upload.getUploadUrl());
+    Assert.assertFalse(upload.getUploadId().startsWith("http"));
+
+    // The session URL itself is never accepted as an upload ID
+    Exception exception = null;
+    try {
+      storageService.abortDirectUpload(rootFolder, "/", fileName, upload.getUploadUrl());
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+
+    // Nor is an upload ID for a different file
+    exception = null;
+    try {
+      storageService.abortDirectUpload(rootFolder, "/", "other.txt", upload.getUploadId());
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+
+    storageService.abortDirectUpload(rootFolder, "/", fileName, upload.getUploadId());
+
+    exception = null;
+    try {
+      storageService.abortDirectUpload(rootFolder, "/", fileName, upload.getUploadId());
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+  }
+
+  @Test
+  public void folderPageTokenTest() throws Exception {
+    StorageDriveFolder rootFolder = storageDriveFolderService.findStudyRootFolders().stream()
+        .filter(f -> f.getStorageDrive().getDriveType().equals(DriveType.ONEDRIVE))
+        .findFirst()
+        .orElseThrow();
+    String name = "Page Token Test " + System.currentTimeMillis();
+    StorageFolder parent = storageService.createFolder(rootFolder, name);
+    for (int i = 0; i < 3; i++) {
+      storageService.createFolder(rootFolder.getStorageDrive(), parent.getPath(), "Folder " + i);
+    }
+
+    // Next page links are returned as opaque tokens, never as Graph URLs
+    StorageFolderPage page = storageService.findFolderPageByPath(rootFolder, parent.getPath(),
+        null, 1);
+    Assert.assertEquals(1, page.getFolder().getSubFolders().size()
+        + page.getFolder().getFiles().size());
+    Assert.assertNotNull(page.getNextToken());
+    Assert.assertFalse(page.getNextToken().startsWith("http"));
+    StorageFolderPage next = storageService.findFolderPageByPath(rootFolder, parent.getPath(),
+        page.getNextToken(), 1);
+    Assert.assertNotNull(next.getFolder());
+
+    // A raw URL, or a token issued for another path, is refused
+    Exception exception = null;
+    try {
+      storageService.findFolderPageByPath(rootFolder, parent.getPath(),
+          "https://graph.microsoft.com/v1.0/me/drive/root/children", 1);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+
+    exception = null;
+    try {
+      storageService.findFolderPageByPath(rootFolder, parent.getPath() + "/Folder 0",
+          page.getNextToken(), 1);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+  }
+
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.studytracker.test.search;
+
+import io.studytracker.Application;
+import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.example.ExampleStudyGenerator;
+import io.studytracker.exception.RecordNotFoundException;
+import io.studytracker.mapstruct.dto.opensearch.OpensearchStudyDocument;
+import io.studytracker.mapstruct.mapper.ElasticsearchDocumentMapper;
+import io.studytracker.model.Study;
+import io.studytracker.repository.StudyRepository;
+import io.studytracker.search.BulkIndexResult;
+import io.studytracker.search.opensearch.OpensearchBulkIndexer;
+import io.studytracker.search.opensearch.StudyIndexRepository;
+import io.studytracker.search.PagedEntityIterable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.indices.GetIndicesSettingsResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "example", "opensearch-test"})
+public class OpensearchBulkIndexerTests {
+
+  private static final String STUDY_INDEX = "st-studies";
+
+  @Autowired private ExampleDataRunner exampleDataRunner;
+
+  @Autowired private StudyRepository studyRepository;
+
+  @Autowired private StudyIndexRepository studyIndexRepository;
+
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Autowired
+  private ElasticsearchDocumentMapper documentMapper;
+
+  @Autowired private ElasticsearchOperations elasticsearchOperations;
+
+  @Autowired private OpenSearchClient openSearchClient;
+
+  @Autowired
+  @Qualifier("searchIndexExecutor")
+  private Executor searchIndexExecutor;
+
+  private OpensearchBulkIndexer bulkIndexer;
+
+  @Before
+  public void before() {
+    exampleDataRunner.populateDatabase();
+    studyIndexRepository.deleteAll();
+    bulkIndexer = new OpensearchBulkIndexer(elasticsearchOperations, openSearchClient,
+        searchIndexExecutor, 2, 2);
+  }
+
+  private List<Study> findStudies() {
+    List<Study> studies = new ArrayList<>();
+    for (Study s : studyRepository.findAll()) {
+      studies.add(studyRepository.findById(s.getId()).orElseThrow(RecordNotFoundException::new));
+    }
+    return studies;
+  }
+
+  private String getRefreshInterval() throws Exception {
+    GetIndicesSettingsResponse response = openSearchClient.indices()
+        .getSettings(r -> r.index(STUDY_INDEX));
+    return response.get(STUDY_INDEX).settings().index().refreshInterval().time();
+  }
+
+  @Test
+  public void batchingTest() {
+    List<Study> studies = findStudies();
+    BulkIndexResult result = bulkIndexer.index(studies, documentMapper::fromStudy, Study::getId,
+        OpensearchStudyDocument.class, false);
+    Assert.assertEquals(STUDY_INDEX, result.getIndex());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, result.getTotal());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, result.getIndexed());
+    Assert.assertEquals((ExampleStudyGenerator.STUDY_COUNT + 1) / 2, result.getBatches());
+    Assert.assertFalse(result.hasFailures());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, studyIndexRepository.count());
+  }
+
+  @Test
+  public void pagedReindexTest() {
+    PagedEntityIterable<Study> studies = new PagedEntityIterable<>(
+        (id, size) -> studyRepository.findIdsAfter(id, PageRequest.of(0, size)),
+        studyRepository::findWithDetailsByIdIn,
+        3);
+    BulkIndexResult result = bulkIndexer.index(studies, documentMapper::fromStudy, Study::getId,
+        OpensearchStudyDocument.class, true);
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, result.getTotal());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, result.getIndexed());
+    Assert.assertFalse(result.hasFailures());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, studyIndexRepository.count());
+  }
+
+  @Test
+  public void failedDocumentTest() {
+    List<Study> studies = findStudies();
+    Study failing = studies.get(0);
+    BulkIndexResult result = bulkIndexer.index(studies, study -> {
+      if (study.getId().equals(failing.getId())) {
+        throw new IllegalStateException("Test failure");
+      }
+      return documentMapper.fromStudy(study);
+    }, Study::getId, OpensearchStudyDocument.class, false);
+
+    // The failed document is reported, and the rest of its batch is still indexed
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, result.getTotal());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT - 1, result.getIndexed());
+    Assert.assertEquals(1, result.getFailed());
+    Assert.assertTrue(result.getFailures().containsKey(failing.getId().toString()));
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT - 1, studyIndexRepository.count());
+  }
+
+  @Test
+  public void refreshIntervalRestoreTest() throws Exception {
+    openSearchClient.indices().putSettings(r -> r
+        .index(STUDY_INDEX)
+        .settings(s -> s.refreshInterval(t -> t.time("5s"))));
+    Assert.assertEquals("5s", getRefreshInterval());
+
+    BulkIndexResult result = bulkIndexer.index(findStudies(), documentMapper::fromStudy,
+        Study::getId, OpensearchStudyDocument.class, true);
+    Assert.assertFalse(result.hasFailures());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, studyIndexRepository.count());
+
+    // The interval set before the reindex is restored, rather than a default
+    Assert.assertEquals("5s", getRefreshInterval());
+
+    openSearchClient.indices().putSettings(r -> r
+        .index(STUDY_INDEX)
+        .settings(s -> s.refreshInterval(t -> t.time("1s"))));
+  }
+
+}
@@ -21,6 +21,7 @@ import io.studytracker.example.ExampleDataRunner;
 import io.studytracker.exception.RecordNotFoundException;
 import io.studytracker.model.Comment;
 import io.studytracker.model.Study;
+import io.studytracker.repository.DeletedRecordRepository;
 import io.studytracker.service.StudyCommentService;
 import io.studytracker.service.StudyService;
 import java.util.Date;
@@ -46,6 +47,8 @@ public class StudyCommentServiceTests {
 
   @Autowired private ExampleDataRunner exampleDataRunner;
 
+  @Autowired private DeletedRecordRepository deletedRecordRepository;
+
   @Before
   public void doBefore() {
     exampleDataRunner.populateDatabase();
@@ -109,5 +112,9 @@ public class StudyCommentServiceTests {
     }
     Assert.assertNotNull(exception);
     Assert.assertTrue(exception instanceof RecordNotFoundException);
+
+    // Orphan removal records a tombstone under the comment's export table name
+    Assert.assertEquals(1,
+        deletedRecordRepository.findByTableNameAndRecordId("study_comments", id).size());
   }
 }
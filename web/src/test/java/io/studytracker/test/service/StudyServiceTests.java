@@ -24,17 +24,24 @@ import io.studytracker.model.Program;
 import io.studytracker.model.Status;
 import io.studytracker.model.Study;
 import io.studytracker.model.StudyOptions;
+import io.studytracker.model.StudyProvisioningStatus;
+import io.studytracker.model.StudyProvisioningStep;
+import io.studytracker.model.StudyProvisioningTask;
+import io.studytracker.model.StudyStorageFolder;
 import io.studytracker.model.User;
 import io.studytracker.repository.CollaboratorRepository;
 import io.studytracker.repository.ProgramRepository;
+import io.studytracker.repository.StudyProvisioningTaskRepository;
 import io.studytracker.repository.StudyRepository;
 import io.studytracker.repository.UserRepository;
+import io.studytracker.service.StudyProvisioningService;
 import io.studytracker.service.StudyService;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -54,6 +61,10 @@ public class StudyServiceTests {
 
   @Autowired private StudyService studyService;
 
+  @Autowired private StudyProvisioningService studyProvisioningService;
+
+  @Autowired private StudyProvisioningTaskRepository provisioningTaskRepository;
+
   @Autowired private ProgramRepository programRepository;
 
   @Autowired private UserRepository userRepository;
@@ -151,6 +162,65 @@ public class StudyServiceTests {
     Assert.assertNotNull(created.getUpdatedAt());
   }
 
+  @Test
+  public void provisionStudyTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A")
+        .orElseThrow(RecordNotFoundException::new);
+    User user = userRepository.findByEmail("jsmith@email.com")
+        .orElseThrow(RecordNotFoundException::new);
+    Study study = new Study();
+    study.setStatus(Status.IN_PLANNING);
+    study.setName("Study Y");
+    study.setProgram(program);
+    study.setDescription("This is a test");
+    study.setLegacy(false);
+    study.setActive(true);
+    study.setCreatedBy(user);
+    study.setLastModifiedBy(user);
+    study.setStartDate(new Date());
+    study.setOwner(user);
+    study.setUsers(Collections.singleton(user));
+    StudyOptions options = new StudyOptions();
+    options.setUseNotebook(false);
+    study.setOptions(options);
+
+    // The record is committed before any resources are created
+    Study created = studyService.create(study);
+    Assert.assertNotNull(created.getId());
+    Assert.assertTrue(created.getStorageFolders().isEmpty());
+    List<StudyProvisioningTask> tasks = studyProvisioningService.findTasks(created);
+    Assert.assertEquals(1, tasks.size());
+    Assert.assertEquals(StudyProvisioningStep.STORAGE_FOLDER, tasks.get(0).getStep());
+    Assert.assertEquals(StudyProvisioningStatus.PENDING, tasks.get(0).getStatus());
+
+    studyProvisioningService.provision(created).get(30, TimeUnit.SECONDS);
+    Study provisioned = studyRepository.findById(created.getId())
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(1, provisioned.getStorageFolders().size());
+    StudyStorageFolder folder = provisioned.getStorageFolders().iterator().next();
+    Assert.assertTrue(folder.isPrimary());
+    tasks = studyProvisioningService.findTasks(created);
+    Assert.assertEquals(StudyProvisioningStatus.COMPLETED, tasks.get(0).getStatus());
+    Assert.assertEquals(1, tasks.get(0).getAttempts());
+    Assert.assertNotNull(tasks.get(0).getCompletedAt());
+    Assert.assertEquals(folder.getStorageDriveFolder().getId().toString(),
+        tasks.get(0).getResourceId());
+
+    // Repeating the step links the recorded folder, rather than creating another
+    StudyProvisioningTask task = tasks.get(0);
+    task.setStatus(StudyProvisioningStatus.PENDING);
+    provisioningTaskRepository.save(task);
+    studyProvisioningService.provision(created).get(30, TimeUnit.SECONDS);
+    provisioned = studyRepository.findById(created.getId())
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(1, provisioned.getStorageFolders().size());
+    Assert.assertEquals(folder.getStorageDriveFolder().getId(),
+        provisioned.getStorageFolders().iterator().next().getStorageDriveFolder().getId());
+    tasks = studyProvisioningService.findTasks(created);
+    Assert.assertEquals(StudyProvisioningStatus.COMPLETED, tasks.get(0).getStatus());
+    Assert.assertEquals(2, tasks.get(0).getAttempts());
+  }
+
   @Test
   public void studyUpdateTest() {
     Optional<Study> optional = studyService.findByCode("CPA-10001");
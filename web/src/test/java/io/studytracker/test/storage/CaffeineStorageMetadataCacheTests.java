@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.storage;
+
+import io.studytracker.storage.cache.CaffeineStorageMetadataCache;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CaffeineStorageMetadataCacheTests {
+
+  private final CaffeineStorageMetadataCache cache =
+      new CaffeineStorageMetadataCache(Duration.ofMinutes(1), 1000, null);
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void concurrentMissesShareLoadTest() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+        cache.get(1L, "a/b", "findFolder", () -> {
+          loads.incrementAndGet();
+          started.countDown();
+          await(release);
+          return "loaded";
+        }));
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+        cache.get(1L, "a/b", "findFolder", () -> {
+          loads.incrementAndGet();
+          return "other";
+        }));
+    release.countDown();
+    Assert.assertEquals("loaded", first.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals("loaded", second.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void invalidatedLoadIsNotCachedTest() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> stale = CompletableFuture.supplyAsync(() ->
+        cache.get(1L, "a/b", "findFolder", () -> {
+          started.countDown();
+          await(release);
+          return "stale";
+        }));
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    cache.invalidate(1L, "a/b/c");
+    release.countDown();
+    Assert.assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals("fresh", cache.get(1L, "a/b", "findFolder", () -> "fresh"));
+  }
+
+  @Test
+  public void invalidateOnlyAffectsDriveAndRelatedPathsTest() {
+    cache.get(1L, "a/b", "findFolder", () -> "ab");
+    cache.get(1L, "a/c", "findFolder", () -> "ac");
+    cache.get(2L, "a/b", "findFolder", () -> "other drive");
+    cache.invalidate(1L, "/a/b/");
+    Assert.assertEquals("new", cache.get(1L, "a/b", "findFolder", () -> "new"));
+    Assert.assertEquals("ac", cache.get(1L, "a/c", "findFolder", () -> "new"));
+    Assert.assertEquals("other drive", cache.get(2L, "a/b", "findFolder", () -> "new"));
+  }
+
+  @Test
+  public void failedLoadIsNotCachedTest() {
+    try {
+      cache.get(1L, "a", "findFolder", () -> {
+        throw new IllegalStateException("failed");
+      });
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("failed", e.getMessage());
+    }
+    Assert.assertEquals("loaded", cache.get(1L, "a", "findFolder", () -> "loaded"));
+  }
+
+}
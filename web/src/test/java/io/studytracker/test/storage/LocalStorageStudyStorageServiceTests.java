@@ -38,12 +38,22 @@ import io.studytracker.service.StudyService;
 import io.studytracker.storage.LocalFileSystemStorageService;
 import io.studytracker.storage.StorageDriveFolderService;
 import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
 import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderPage;
 import io.studytracker.storage.StorageUtils;
+import io.studytracker.storage.StudyStorageService;
 import io.studytracker.storage.StudyStorageServiceLookup;
+import io.studytracker.storage.cache.CachingStudyStorageService;
 import io.studytracker.storage.exception.StudyStorageNotFoundException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.Assert;
@@ -371,4 +381,150 @@ public class LocalStorageStudyStorageServiceTests {
     Assert.assertEquals(StorageUtils.joinPath(StorageUtils.joinPath(drive.getRootPath(), uuid + "_parent"), uuid + "_original"), updated.getPath());
   }
 
+  @Test
+  public void fetchFileTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StorageFile file = storageService.saveFile(programFolder, programFolder.getPath(),
+        TEST_FILE.getFile());
+    Assert.assertNotNull(file);
+
+    StorageFileResource resource = storageService.fetchFile(programFolder, file.getPath());
+    Assert.assertNotNull(resource);
+    Assert.assertEquals("test.txt", resource.getFilename());
+    Assert.assertEquals(TEST_FILE.contentLength(), resource.contentLength());
+    try (InputStream in = resource.getInputStream()) {
+      Assert.assertEquals("This is a test.", new String(in.readAllBytes()).trim());
+    }
+    try (InputStream in = resource.getInputStream(5, 6)) {
+      Assert.assertEquals("is", new String(in.readAllBytes()));
+    }
+
+    Exception exception = null;
+    try {
+      storageService.fetchFile(programFolder,
+          StorageUtils.joinPath(programFolder.getPath(), "BAD_FILE.txt"));
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertNotNull(exception);
+    Assert.assertTrue(exception instanceof StudyStorageNotFoundException);
+  }
+
+  @Test
+  public void findFolderPageTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StorageFolder folder = storageService.findFolderByPath(programFolder, programFolder.getPath());
+    StorageFolderPage page = storageService.findFolderPageByPath(programFolder,
+        programFolder.getPath(), null, 100);
+    Assert.assertNotNull(page);
+    Assert.assertTrue(page.isLastPage());
+    Assert.assertEquals(folder.getPath(), page.getFolder().getPath());
+    Assert.assertEquals(folder.getSubFolders().size(), page.getFolder().getSubFolders().size());
+  }
+
+  @Test
+  public void cachedFolderLookupTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StudyStorageService cachingService = storageDriveFolderService
+        .lookupStudyStorageService(programFolder);
+    Assert.assertTrue(cachingService instanceof CachingStudyStorageService);
+
+    StorageFolder folder = cachingService.findFolderByPath(programFolder, programFolder.getPath());
+    StorageFolder cached = cachingService.findFolderByPath(programFolder,
+        programFolder.getPath());
+    Assert.assertNotSame(folder, cached);
+    Assert.assertEquals(folder, cached);
+    int subFolderCount = folder.getSubFolders().size();
+
+    // Changes to a returned folder do not affect the cached listing
+    cached.getSubFolders().clear();
+    cached.setName("Modified");
+    Assert.assertEquals(folder,
+        cachingService.findFolderByPath(programFolder, programFolder.getPath()));
+
+    String folderName = "Cache Test " + UUID.randomUUID();
+    cachingService.createFolder(programFolder, folderName);
+    StorageFolder updated = cachingService.findFolderByPath(programFolder,
+        programFolder.getPath());
+    Assert.assertNotEquals(folder, updated);
+    Assert.assertEquals(subFolderCount + 1, updated.getSubFolders().size());
+  }
+
+  @Test
+  public void findFolderPageCursorTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StorageFolder folder = storageService.createFolder(programFolder,
+        "Paging Test " + UUID.randomUUID());
+    for (int i = 0; i < 5; i++) {
+      Files.createFile(Paths.get(folder.getPath(), "file-" + i + ".txt"));
+    }
+
+    List<String> names = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      StorageFolderPage page = storageService.findFolderPageByPath(programFolder,
+          folder.getPath(), cursor, 2);
+      Assert.assertTrue(page.getFolder().getFiles().size() <= 2);
+      page.getFolder().getFiles().forEach(f -> {
+        Assert.assertNotNull(f.getSize());
+        names.add(f.getName());
+      });
+      cursor = page.getNextToken();
+      pages++;
+    } while (cursor != null);
+
+    Assert.assertEquals(3, pages);
+    Assert.assertEquals(List.of("file-0.txt", "file-1.txt", "file-2.txt", "file-3.txt",
+        "file-4.txt"), names);
+  }
+
+  @Test
+  public void folderListingChangesTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StorageFolder folder = storageService.createFolder(programFolder,
+        "Listing Test " + UUID.randomUUID());
+    Files.createFile(Paths.get(folder.getPath(), "file-a.txt"));
+    StorageFolder listed = storageService.findFolderByPath(programFolder, folder.getPath());
+    Assert.assertEquals(1, listed.getFiles().size());
+
+    // Files added by the service, and outside of it, are listed straight away
+    storageService.saveFile(programFolder, folder.getPath(), TEST_FILE.getFile());
+    Files.createFile(Paths.get(folder.getPath(), "file-b.txt"));
+    listed = storageService.findFolderByPath(programFolder, folder.getPath());
+    Assert.assertEquals(3, listed.getFiles().size());
+    StorageFolderPage page = storageService.findFolderPageByPath(programFolder,
+        folder.getPath(), "file-a.txt", 10);
+    Assert.assertEquals(2, page.getFolder().getFiles().size());
+    Assert.assertNull(page.getNextToken());
+  }
+
+  @Test
+  public void folderListingRewrittenFileTest() throws Exception {
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    StorageDriveFolder programFolder = storageDriveFolderService.findByProgram(program).get(0);
+    StorageFolder folder = storageService.createFolder(programFolder,
+        "Listing Test " + UUID.randomUUID());
+    Path filePath = Paths.get(folder.getPath(), "file-a.txt");
+    Files.writeString(filePath, "a");
+
+    // Recently modified folders are not cached, so let the modification time settle first
+    Thread.sleep(2500);
+    StorageFolder listed = storageService.findFolderByPath(programFolder, folder.getPath());
+    Assert.assertEquals(1L, listed.getFiles().get(0).getSize().longValue());
+
+    // Rewriting a file in place does not change the folder, but its new size is listed
+    Files.writeString(filePath, "abcde");
+    listed = storageService.findFolderByPath(programFolder, folder.getPath());
+    Assert.assertEquals(5L, listed.getFiles().get(0).getSize().longValue());
+    StorageFolderPage page = storageService.findFolderPageByPath(programFolder,
+        folder.getPath(), null, 10);
+    Assert.assertEquals(5L, page.getFolder().getFiles().get(0).getSize().longValue());
+  }
+
 }
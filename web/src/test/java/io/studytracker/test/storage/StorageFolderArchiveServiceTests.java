@@ -0,0 +1,267 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.storage;
+
+import io.studytracker.Application;
+import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.exception.InvalidRequestException;
+import io.studytracker.model.Program;
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.repository.ProgramRepository;
+import io.studytracker.storage.LocalFileSystemStorageService;
+import io.studytracker.storage.StorageDriveFolderService;
+import io.studytracker.storage.StorageFile;
+import io.studytracker.storage.StorageFileResource;
+import io.studytracker.storage.StorageFolder;
+import io.studytracker.storage.StorageFolderArchiveService;
+import io.studytracker.storage.StorageFolderArchiveService.Archive;
+import io.studytracker.storage.StorageFolderArchiveService.Entry;
+import io.studytracker.storage.exception.StudyStorageException;
+import io.studytracker.storage.exception.StudyStorageNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "example"})
+public class StorageFolderArchiveServiceTests {
+
+  @Autowired private StorageFolderArchiveService archiveService;
+
+  @Autowired private LocalFileSystemStorageService storageService;
+
+  @Autowired private ProgramRepository programRepository;
+
+  @Autowired private StorageDriveFolderService storageDriveFolderService;
+
+  @Autowired private ExampleDataRunner exampleDataRunner;
+
+  private StorageDriveFolder programFolder;
+
+  private StorageFolder folder;
+
+  @Before
+  public void doBefore() throws Exception {
+    exampleDataRunner.populateDatabase();
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    programFolder = storageDriveFolderService.findByProgram(program).get(0);
+
+    // Archive Test/a.txt, b.txt, sub/c.txt
+    folder = storageService.createFolder(programFolder, "Archive Test " + UUID.randomUUID());
+    Files.writeString(Paths.get(folder.getPath(), "b.txt"), "bbb");
+    Files.writeString(Paths.get(folder.getPath(), "a.txt"), "a");
+    StorageFolder subFolder = storageService.createFolder(programFolder.getStorageDrive(),
+        folder.getPath(), "sub");
+    Files.writeString(Paths.get(subFolder.getPath(), "c.txt"), "c");
+  }
+
+  @Test
+  public void entryOrderTest() throws Exception {
+    Archive archive = archiveService.listArchive(storageService, programFolder, folder.getPath());
+    String root = archive.name() + "/";
+    List<String> names = archive.entries().stream().map(Entry::name).toList();
+    Assert.assertEquals(
+        Arrays.asList(root, root + "a.txt", root + "b.txt", root + "sub/", root + "sub/c.txt"),
+        names);
+    Assert.assertEquals(3, archive.getFileCount());
+    Assert.assertEquals(5, archive.knownSize());
+
+    // The ZIP entries are written in the listed order, with the file contents
+    Map<String, String> contents = Map.of(root + "a.txt", "a", root + "b.txt", "bbb",
+        root + "sub/c.txt", "c");
+    List<String> written = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
+        writeZip(storageService, archive)))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        written.add(entry.getName());
+        String content = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+        Assert.assertEquals(contents.getOrDefault(entry.getName(), ""), content);
+      }
+    }
+    Assert.assertEquals(names, written);
+  }
+
+  @Test
+  public void fileCountLimitTest() throws Exception {
+    ReflectionTestUtils.setField(archiveService, "maxFiles", 2);
+    try {
+      archiveService.listArchive(storageService, programFolder, folder.getPath());
+      Assert.fail("Expected the file count limit to be exceeded");
+    } catch (InvalidRequestException e) {
+      Assert.assertTrue(e.getMessage().contains("2 files"));
+    } finally {
+      ReflectionTestUtils.setField(archiveService, "maxFiles", 10000);
+    }
+    ReflectionTestUtils.setField(archiveService, "maxFiles", 3);
+    try {
+      archiveService.listArchive(storageService, programFolder, folder.getPath());
+    } finally {
+      ReflectionTestUtils.setField(archiveService, "maxFiles", 10000);
+    }
+  }
+
+  @Test
+  public void sizeLimitTest() throws Exception {
+    Archive archive = archiveService.listArchive(storageService, programFolder, folder.getPath());
+    ReflectionTestUtils.setField(archiveService, "maxSize", 4L);
+    try {
+      archiveService.listArchive(storageService, programFolder, folder.getPath());
+      Assert.fail("Expected the size limit to be exceeded");
+    } catch (InvalidRequestException e) {
+      Assert.assertTrue(e.getMessage().contains("4 bytes"));
+    }
+
+    // Files larger than the listed sizes are caught while the archive is written
+    try {
+      writeZip(storageService, archive);
+      Assert.fail("Expected the size limit to be exceeded");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("4 bytes"));
+    } finally {
+      ReflectionTestUtils.setField(archiveService, "maxSize", 10737418240L);
+    }
+  }
+
+  @Test
+  public void entryNameSanitisingTest() throws Exception {
+    Map<String, String> renames = Map.of("a.txt", "..", "b.txt", "/etc/passwd",
+        "sub", "../..", "c.txt", "C:\\Windows\\win.ini");
+    LocalFileSystemStorageService renamingService = new LocalFileSystemStorageService() {
+      @Override
+      public StorageFolder findFolderByPath(StorageDriveFolder parentFolder, String path)
+          throws StudyStorageNotFoundException {
+        StorageFolder storageFolder = storageService.findFolderByPath(parentFolder, path);
+        for (StorageFile file : storageFolder.getFiles()) {
+          file.setName(renames.getOrDefault(file.getName(), file.getName()));
+        }
+        for (StorageFolder subFolder : storageFolder.getSubFolders()) {
+          subFolder.setName(renames.getOrDefault(subFolder.getName(), subFolder.getName()));
+        }
+        return storageFolder;
+      }
+
+      @Override
+      public StorageFileResource fetchFile(StorageDriveFolder parentFolder, String path)
+          throws StudyStorageException {
+        return storageService.fetchFile(parentFolder, path);
+      }
+    };
+
+    Archive archive = archiveService.listArchive(renamingService, programFolder,
+        folder.getPath());
+    String root = archive.name() + "/";
+    Assert.assertEquals(
+        Arrays.asList(root, root + "_", root + "_etc_passwd", root + ".._../",
+            root + ".._../C:_Windows_win.ini"),
+        archive.entries().stream().map(Entry::name).toList());
+    for (Entry entry : archive.entries()) {
+      Assert.assertFalse(entry.name().startsWith("/"));
+      Assert.assertFalse(Arrays.asList(entry.name().split("/")).contains(".."));
+    }
+
+    // The renamed entries are still written with their contents
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
+        writeZip(renamingService, archive)))) {
+      int files = 0;
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          files++;
+          Assert.assertTrue(zip.readAllBytes().length > 0);
+        }
+      }
+      Assert.assertEquals(3, files);
+    }
+  }
+
+  @Test
+  public void readAheadTest() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      Files.writeString(Paths.get(folder.getPath(), String.format("file-%02d.txt", i)), "x");
+    }
+    AtomicInteger open = new AtomicInteger();
+    AtomicInteger maxOpen = new AtomicInteger();
+    LocalFileSystemStorageService countingService = new LocalFileSystemStorageService() {
+      @Override
+      public StorageFolder findFolderByPath(StorageDriveFolder parentFolder, String path)
+          throws StudyStorageNotFoundException {
+        return storageService.findFolderByPath(parentFolder, path);
+      }
+
+      @Override
+      public StorageFileResource fetchFile(StorageDriveFolder parentFolder, String path)
+          throws StudyStorageException {
+        StorageFileResource resource = storageService.fetchFile(parentFolder, path);
+        return new StorageFileResource(resource.getFilename(), resource.contentLength(),
+            resource.getContentType(), (start, end) -> {
+              maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+              return new FilterInputStream(resource.getInputStream(start, end)) {
+                @Override
+                public void close() throws IOException {
+                  open.decrementAndGet();
+                  super.close();
+                }
+              };
+            });
+      }
+    };
+
+    // Each download opens at most the current file and the configured number after it
+    Archive archive = archiveService.listArchive(countingService, programFolder,
+        folder.getPath());
+    Assert.assertEquals(23, archive.getFileCount());
+    writeZip(countingService, archive);
+    Assert.assertEquals(0, open.get());
+    int readAhead = (int) ReflectionTestUtils.getField(archiveService, "readAhead");
+    Assert.assertTrue(maxOpen.get() <= readAhead + 1);
+  }
+
+  private byte[] writeZip(LocalFileSystemStorageService service, Archive archive)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    archiveService.writeZip(service, programFolder, archive, out);
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.studytracker.test.web.internal;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.studytracker.Application;
+import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.model.Program;
+import io.studytracker.model.StorageDriveFolder;
+import io.studytracker.repository.ProgramRepository;
+import io.studytracker.service.UserService;
+import io.studytracker.storage.LocalFileSystemStorageService;
+import io.studytracker.storage.StorageDriveFolderService;
+import io.studytracker.storage.StorageFile;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+@SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"web-test", "example"})
+public class DataFileStoragePrivateControllerTests {
+
+  private static final Resource TEST_FILE = new ClassPathResource("test.txt");
+
+  private static final String TEST_FILE_CONTENTS = "This is a test.";
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ExampleDataRunner exampleDataRunner;
+
+  @Autowired private UserService userService;
+
+  @Autowired private ProgramRepository programRepository;
+
+  @Autowired private StorageDriveFolderService storageDriveFolderService;
+
+  @Autowired private LocalFileSystemStorageService storageService;
+
+  private String username;
+
+  private StorageDriveFolder folder;
+
+  private StorageFile file;
+
+  @Before
+  public void doBefore() throws Exception {
+    exampleDataRunner.populateDatabase();
+    username = userService.findAll().get(0).getEmail();
+    Program program = programRepository.findByName("Clinical Program A").orElseThrow();
+    folder = storageDriveFolderService.findByProgram(program).get(0);
+    file = storageService.saveFile(folder, folder.getPath(), TEST_FILE.getFile());
+  }
+
+  private MockHttpServletRequestBuilder download() {
+    return MockMvcRequestBuilders.get("/api/internal/data-files/download")
+        .param("path", file.getPath())
+        .param("folderId", folder.getId().toString())
+        .with(user(username))
+        .with(csrf());
+  }
+
+  @Test
+  public void downloadFileTest() throws Exception {
+    mockMvc.perform(download())
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, TEST_FILE_CONTENTS.length()))
+        .andExpect(content().string(TEST_FILE_CONTENTS));
+  }
+
+  @Test
+  public void partialContentTest() throws Exception {
+    mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=5-6"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+            "bytes 5-6/" + TEST_FILE_CONTENTS.length()))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 2))
+        .andExpect(content().string("is"));
+
+    // Suffix ranges are read from the end of the file
+    mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=-5"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+            "bytes 10-14/" + TEST_FILE_CONTENTS.length()))
+        .andExpect(content().string("test."));
+  }
+
+  @Test
+  public void multipleRangesTest() throws Exception {
+
+    // Multiple ranges are not supported, so the whole file is returned
+    mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=0-3,5-6"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, TEST_FILE_CONTENTS.length()))
+        .andExpect(content().string(TEST_FILE_CONTENTS));
+  }
+
+  @Test
+  public void unsatisfiableRangeTest() throws Exception {
+    mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=100-200"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+            "bytes */" + TEST_FILE_CONTENTS.length()));
+  }
+
+}
@@ -22,17 +22,30 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.jayway.jsonpath.JsonPath;
 import io.studytracker.Application;
 import io.studytracker.example.ExampleDataRunner;
+import io.studytracker.export.ExportJobService;
+import io.studytracker.model.ExportJob;
+import io.studytracker.model.ExportJobStatus;
 import io.studytracker.model.User;
 import io.studytracker.model.UserType;
 import io.studytracker.service.UserService;
 import io.studytracker.test.web.api.AbstractApiControllerTests;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,6 +56,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 
 @RunWith(SpringRunner.class)
@@ -60,6 +74,9 @@ public class ExportControllerTests extends AbstractApiControllerTests {
   @Autowired
   private ExampleDataRunner exampleDataRunner;
 
+  @Autowired
+  private ExportJobService exportJobService;
+
   private User nonAdminUser;
   private User adminUser;
 
@@ -102,4 +119,91 @@ public class ExportControllerTests extends AbstractApiControllerTests {
         .andExpect(jsonPath("$", hasKey("message")))
         .andExpect(jsonPath("$.message", not(nullValue())));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void streamingExportTest() throws Exception {
+    MvcResult result = mockMvc.perform(get("/api/internal/export/sync")
+            .with(user(adminUser.getEmail()))
+            .with(csrf()))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    byte[] content = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray();
+
+    List<String> entries = new ArrayList<>();
+    try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(content))) {
+      ZipEntry entry;
+      while ((entry = zipIn.getNextEntry()) != null) {
+        entries.add(entry.getName());
+      }
+    }
+    Assert.assertTrue(entries.stream().anyMatch(e -> e.endsWith("/users.csv")));
+    Assert.assertTrue(entries.stream().anyMatch(e -> e.endsWith("/studies.csv")));
+  }
+
+  @Test
+  public void nonAdminStreamingExportTest() throws Exception {
+    mockMvc.perform(get("/api/internal/export/sync")
+            .with(user(nonAdminUser.getEmail()))
+            .with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  public void exportJobStatusAndDownloadTest() throws Exception {
+    String content = mockMvc.perform(post("/api/internal/export")
+            .with(user(adminUser.getEmail()))
+            .with(csrf()))
+        .andExpect(status().isAccepted())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String jobId = JsonPath.read(content, "$.jobId");
+
+    long timeout = System.currentTimeMillis() + 60000;
+    ExportJob job = exportJobService.findByJobId(jobId).orElseThrow();
+    while (!job.isFinished() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(250);
+      job = exportJobService.findByJobId(jobId).orElseThrow();
+    }
+    Assert.assertEquals(ExportJobStatus.COMPLETED, job.getStatus());
+    Assert.assertEquals(job.getTotalTables(), job.getCompletedTables());
+    Assert.assertTrue(job.getRowCount() > 0);
+
+    mockMvc.perform(get("/api/internal/export/" + jobId)
+            .with(user(adminUser.getEmail())))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.jobId", is(jobId)))
+        .andExpect(jsonPath("$.status", is("COMPLETED")))
+        .andExpect(jsonPath("$.createdBy.email", is(adminUser.getEmail())));
+
+    byte[] archive = mockMvc.perform(get("/api/internal/export/" + jobId + "/download")
+            .with(user(adminUser.getEmail())))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray();
+    List<String> entries = new ArrayList<>();
+    try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(archive))) {
+      ZipEntry entry;
+      while ((entry = zipIn.getNextEntry()) != null) {
+        entries.add(entry.getName());
+      }
+    }
+    Assert.assertTrue(entries.stream().anyMatch(e -> e.endsWith("/users.csv")));
+
+    mockMvc.perform(get("/api/internal/export/" + jobId)
+            .with(user(nonAdminUser.getEmail())))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  public void missingExportJobTest() throws Exception {
+    mockMvc.perform(get("/api/internal/export/" + UUID.randomUUID())
+            .with(user(adminUser.getEmail())))
+        .andExpect(status().isNotFound());
+  }
+}
@@ -40,15 +40,18 @@ import io.studytracker.mapstruct.dto.form.AssayTaskFormDto;
 import io.studytracker.mapstruct.dto.response.AssayTypeDetailsDto;
 import io.studytracker.mapstruct.dto.response.UserSlimDto;
 import io.studytracker.mapstruct.mapper.AssayMapper;
+import io.studytracker.mapstruct.mapper.StudyMapper;
 import io.studytracker.model.Assay;
 import io.studytracker.model.AssayType;
 import io.studytracker.model.CustomEntityFieldType;
+import io.studytracker.model.Program;
 import io.studytracker.model.Status;
 import io.studytracker.model.Study;
 import io.studytracker.model.TaskStatus;
 import io.studytracker.model.User;
 import io.studytracker.repository.AssayRepository;
 import io.studytracker.repository.AssayTypeRepository;
+import io.studytracker.repository.ProgramRepository;
 import io.studytracker.repository.StudyRepository;
 import io.studytracker.repository.UserRepository;
 import java.util.Collections;
@@ -70,6 +73,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 
 @SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
@@ -96,6 +100,10 @@ public class StudyAssayPrivateControllerTests {
 
   @Autowired private AssayMapper assayMapper;
 
+  @Autowired private StudyMapper studyMapper;
+
+  @Autowired private ProgramRepository programRepository;
+
   private String username;
 
   @Before
@@ -301,6 +309,65 @@ public class StudyAssayPrivateControllerTests {
     ;
   }
 
+  @Test
+  public void createAssayForNewStudyTest() throws Exception {
+
+    Program program = programRepository.findByName("Clinical Program A")
+        .orElseThrow(RecordNotFoundException::new);
+    User user = userRepository.findByEmail("jsmith@email.com")
+        .orElseThrow(RecordNotFoundException::new);
+    Study study = new Study();
+    study.setStatus(Status.ACTIVE);
+    study.setName("New Study With Assay");
+    study.setProgram(program);
+    study.setDescription("This is a test");
+    study.setLegacy(false);
+    study.setStartDate(new Date());
+    study.setOwner(user);
+    study.setUsers(Collections.singleton(user));
+
+    // The study's storage folder is created in the background after the study is returned
+    MvcResult result = mockMvc
+        .perform(
+            post("/api/internal/study")
+                .with(user(user.getEmail())).with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(studyMapper.toStudyForm(study))))
+        .andExpect(status().isCreated())
+        .andReturn();
+    String code = objectMapper.readTree(result.getResponse().getContentAsByteArray())
+        .get("code").asText();
+
+    // Creating an assay straight away waits for the folder, and creates its own folder in it
+    AssayType assayType = assayTypeRepository.findByName("Generic")
+        .orElseThrow(RecordNotFoundException::new);
+    AssayTypeDetailsDto assayTypeDto = new AssayTypeDetailsDto();
+    assayTypeDto.setId(assayType.getId());
+    UserSlimDto userDto = new UserSlimDto();
+    userDto.setId(user.getId());
+    AssayFormDto assay = new AssayFormDto();
+    assay.setActive(true);
+    assay.setName("Test assay");
+    assay.setDescription("This is a test");
+    assay.setStatus(Status.IN_PLANNING);
+    assay.setStartDate(new Date());
+    assay.setAssayType(assayTypeDto);
+    assay.setOwner(userDto);
+    assay.setUsers(Collections.singleton(userDto));
+    assay.setUseNotebook(false);
+
+    mockMvc
+        .perform(
+            post("/api/internal/study/" + code + "/assays")
+                .with(user(user.getEmail())).with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(assay)))
+        .andDo(MockMvcResultHandlers.print())
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.code", Matchers.startsWith(code + "-")))
+        .andExpect(jsonPath("$.storageFolders", hasSize(1)));
+  }
+
   @Test
   public void updateAssayTest() throws Exception {
 
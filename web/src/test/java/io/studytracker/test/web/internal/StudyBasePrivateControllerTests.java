@@ -44,9 +44,12 @@ import io.studytracker.repository.ProgramRepository;
 import io.studytracker.repository.StudyRepository;
 import io.studytracker.repository.UserRepository;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -101,6 +104,54 @@ public class StudyBasePrivateControllerTests {
         .andExpect(jsonPath("$[0]", hasKey("description")));
   }
 
+  @Test
+  public void pagedStudiesTest() throws Exception {
+    List<Study> studies = studyRepository.findAll().stream()
+        .sorted(Comparator.comparing(Study::getId))
+        .collect(Collectors.toList());
+    Assert.assertEquals(ExampleStudyGenerator.STUDY_COUNT, studies.size());
+
+    mockMvc
+        .perform(get("/api/internal/study?size=4").with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[0].id", is(studies.get(0).getId().intValue())))
+        .andExpect(jsonPath("$[3].id", is(studies.get(3).getId().intValue())));
+
+    mockMvc
+        .perform(get("/api/internal/study?size=4&after=" + studies.get(3).getId())
+            .with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(ExampleStudyGenerator.STUDY_COUNT - 4)))
+        .andExpect(jsonPath("$[0].id", is(studies.get(4).getId().intValue())));
+  }
+
+  @Test
+  public void filteredStudiesTest() throws Exception {
+    List<Study> studies = studyRepository.findAll();
+    long activeCount = studies.stream()
+        .filter(s -> s.isActive() && (s.getStatus() == Status.IN_PLANNING
+            || s.getStatus() == Status.ACTIVE))
+        .count();
+    long legacyCount = studies.stream().filter(s -> s.isLegacy() && s.isActive()).count();
+    long externalCount = studies.stream().filter(s -> s.getCollaborator() != null).count();
+
+    mockMvc
+        .perform(get("/api/internal/study?active=true").with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize((int) activeCount)));
+
+    mockMvc
+        .perform(get("/api/internal/study?legacy=true").with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize((int) legacyCount)));
+
+    mockMvc
+        .perform(get("/api/internal/study?external=true").with(user(username)).with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize((int) externalCount)));
+  }
+
   @Test
   public void findStudyByIdTest() throws Exception {
     mockMvc
@@ -297,4 +348,20 @@ public class StudyBasePrivateControllerTests {
                 .content(objectMapper.writeValueAsBytes(params)))
         .andExpect(status().is3xxRedirection());
   }
+
+  @Test
+  public void retryProvisioningPermissionTest() throws Exception {
+
+    // Only admins and the study's owner or creator may retry provisioning
+    mockMvc
+        .perform(post("/api/internal/study/CPA-10001/provisioning/retry")
+            .with(user("ajohnson@email.com")).with(csrf()))
+        .andExpect(status().isForbidden());
+
+    // The owner is allowed, but the study has no failed steps to retry
+    mockMvc
+        .perform(post("/api/internal/study/CPA-10001/provisioning/retry")
+            .with(user("jsmith@email.com")).with(csrf()))
+        .andExpect(status().isBadRequest());
+  }
 }